@@ -0,0 +1,168 @@
+package com.example.demo;
+
+import com.example.demo.OrderTableRows.ElementItem;
+import com.example.demo.OrderTableRows.OrderLine;
+import com.example.demo.OrderTableRows.ProductElement;
+import com.example.demo.OrderTableRows.UserDiscnt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ContractChangeService.processContractChange / OrderElementService.deleteOrderElementWithContractLogic：
+ * 模拟表共约 10k / 100k 行时，一张大订单（约占总行数的 1/10 的订单行或资费）的台账生成耗时
+ * 查询走组合键哈希索引，耗时应随订单规模线性增长；每次调用前重新装载数据（台账会写回模拟表）
+ * processContractChangeParallel 为同一数据在 4 线程 ForkJoinPool 上按订单行并行处理
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderTableBenchmark {
+
+    private static final String ORDER_ID = "O1";
+    private static final String SRD = "2025-06-01T00:00:00";
+    private static final LedgerTimestamp FAR_END = LedgerTimestamp.MAX;
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private ForkJoinPool lineExecutor;
+    private ContractChangeService contractChangeService;
+    private ContractChangeService parallelContractChangeService;
+    private OrderElementService orderElementService;
+
+    @Setup(Level.Trial)
+    public void startExecutor() {
+        lineExecutor = new ForkJoinPool(4);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopExecutor() {
+        lineExecutor.shutdownNow();
+    }
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        contractChangeService = seedContractChange(new ContractChangeService(), rows);
+        parallelContractChangeService = seedContractChange(new ContractChangeService(lineExecutor), rows);
+        orderElementService = seedOrderElement(rows);
+    }
+
+    @Benchmark
+    public ContractChangeService processContractChange() {
+        contractChangeService.processContractChange(ORDER_ID, SRD);
+        return contractChangeService;
+    }
+
+    @Benchmark
+    public ContractChangeService processContractChangeParallel() {
+        parallelContractChangeService.processContractChange(ORDER_ID, SRD);
+        return parallelContractChangeService;
+    }
+
+    @Benchmark
+    public OrderElementService deleteOrderElements() {
+        orderElementService.deleteOrderElementWithContractLogic(ORDER_ID, "L1", "1", "D", SRD, "U1");
+        return orderElementService;
+    }
+
+    /**
+     * 每个订单行 10 行数据：本单合约属性变更、订单行、用户资费及 3 个属性；另 4 行为其他订单 / 用户的干扰数据
+     * 订单行交替为合约内立即生效与合约外（SRD 晚于合约结束，MRC 增补无合约期台账）
+     */
+    private static ContractChangeService seedContractChange(ContractChangeService service, int rows) {
+        int lines = rows / 10;
+        for (int i = 0; i < lines; i++) {
+            String lineId = "L" + i;
+            String userId = "U" + i;
+            String itemId = "EI" + i;
+            service.ocOrderElementItem().insert(elementItem(ORDER_ID, lineId, itemId));
+            service.ocOrderElementItem().insert(elementItem("O2", lineId, itemId));
+
+            OrderLine line = new OrderLine();
+            line.setOrderId(ORDER_ID);
+            line.setOrderLineId(lineId);
+            line.setUserId(userId);
+            line.setAcceptDate(LedgerTimestamp.parse("2024-01-01 00:00:00"));
+            service.ocOrderLine().insert(line);
+
+            String contractEnd = i % 2 == 0 ? "2030-12-31T23:59:59" : "2025-01-31T23:59:59";
+            service.userDiscntList().insert(discnt(userId, itemId, null, null));
+            service.userDiscntAttrList().insert(discnt(userId, itemId, "contract_end_date_std", contractEnd));
+            service.userDiscntAttrList().insert(discnt(userId, itemId, "rent_fee", "100"));
+            service.userDiscntAttrList().insert(discnt(userId, itemId, "ref_sub_comp_id", "REB" + i));
+            service.userDiscntList().insert(discnt("X" + i, itemId, null, null));
+            service.userDiscntAttrList().insert(discnt("X" + i, itemId, "rent_fee", "999"));
+            service.userDiscntAttrList().insert(discnt("X" + i, itemId, "contract_end_date_std", contractEnd));
+        }
+        return service;
+    }
+
+    /**
+     * 订单行 L1 上 rows / 10 个被删除的 MRC 资费，每个资费 3 个属性（用户 U1）；其余行为其他用户的资费属性
+     */
+    private static OrderElementService seedOrderElement(int rows) {
+        OrderElementService service = new OrderElementService();
+        int elements = rows / 10;
+        for (int i = 0; i < elements; i++) {
+            String itemId = "EI" + i;
+            ProductElement pe = new ProductElement();
+            pe.setOrderId(ORDER_ID);
+            pe.setOrderLineId("L1");
+            pe.setElementId("MRC_" + i);
+            pe.setElementTypeCode("D");
+            pe.setElementItemId(itemId);
+            pe.setElementSubType("MRC");
+            pe.setEndDate(LedgerTimestamp.parse(SRD));
+            pe.setModifyTag("1");
+            service.ocOrderProductElement().insert(pe);
+
+            String contractEnd = i % 2 == 0 ? "2030-12-31T23:59:59" : "2025-01-31T23:59:59";
+            for (String userId : new String[]{"U1", "U2", "U3"}) {
+                service.tfFUserDiscntItem().insert(discntItem(userId, "MRC_" + i, itemId, "contract_end_date_std", contractEnd));
+                service.tfFUserDiscntItem().insert(discntItem(userId, "MRC_" + i, itemId, "rent_fee", "100"));
+                service.tfFUserDiscntItem().insert(discntItem(userId, "MRC_" + i, itemId, "qty", "1"));
+            }
+        }
+        return service;
+    }
+
+    private static ElementItem elementItem(String orderId, String lineId, String itemId) {
+        ElementItem row = new ElementItem();
+        row.setOrderId(orderId);
+        row.setOrderLineId(lineId);
+        row.setElementId("MRC_1");
+        row.setElementTypeCode("D");
+        row.setElementItemId(itemId);
+        row.setAttrCode("rent_fee");
+        row.setAttrValue("200");
+        row.setModifyTag("2");
+        return row;
+    }
+
+    private static UserDiscnt discnt(String userId, String elementItemId, String attrCode, String attrValue) {
+        UserDiscnt row = new UserDiscnt();
+        row.setUserId(userId);
+        row.setElementId("MRC_1");
+        row.setElementItemId(elementItemId);
+        row.setAttrCode(attrCode);
+        row.setAttrValue(attrValue);
+        row.setEndDate(FAR_END);
+        return row;
+    }
+
+    private static UserDiscnt discntItem(String userId, String discntCode, String dstItemId, String attrCode, String attrValue) {
+        UserDiscnt row = new UserDiscnt();
+        row.setUserId(userId);
+        row.setDiscntCode(discntCode);
+        row.setDstItemId(dstItemId);
+        row.setAttrCode(attrCode);
+        row.setAttrValue(attrValue);
+        row.setEndDate(FAR_END);
+        return row;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.otc;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CreditTerminateService.processCreditTerminate：账户下用户数为 1 / 100 / 1000 / 10000 时的吞吐、分配率（-prof gc）与单次 SQL 条数
+ * 在途撤单明细数与用户数成正比（见 OrderTreeFixture.seedCreditTerminate），单次耗时应随账户规模线性增长
+ * 每次调用在回滚的事务中执行，库内数据在调用之间保持不变
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CreditTerminateBenchmark {
+
+    @Param({"1", "100", "1000", "10000"})
+    public int users;
+
+    private OtcBenchmarkContext context;
+    private CreditTerminateService creditTerminateService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // CreditTerminateMapper 使用 SYSDATE / DUAL
+        context = OtcBenchmarkContext.start(OtcBenchmarkContext.MODE_ORACLE);
+        OrderTreeFixture.seedCreditTerminate(context.jdbcTemplate(), users);
+        creditTerminateService = context.getBean(CreditTerminateService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object processCreditTerminate(SqlStatementCounters counters) {
+        long before = context.statementCount();
+        Object result = context.inRolledBackTransaction(() -> creditTerminateService.processCreditTerminate(
+                OrderTreeFixture.CREDIT_ORDER_ID, OrderTreeFixture.CREDIT_ORDER_LINE_ID));
+        counters.record(context.statementCount() - before);
+        return result;
+    }
+}
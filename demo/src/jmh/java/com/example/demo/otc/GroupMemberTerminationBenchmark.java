@@ -0,0 +1,45 @@
+package com.example.demo.otc;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GroupMemberTerminationService.process：群组成员数为 1 / 100 / 10000 时的吞吐、分配率（-prof gc）与单次 SQL 条数
+ * 生成的成员拆机订单在回滚的事务中写入
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GroupMemberTerminationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int members;
+
+    private OtcBenchmarkContext context;
+    private GroupMemberTerminationService groupMemberTerminationService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = OtcBenchmarkContext.start(OtcBenchmarkContext.MODE_MYSQL);
+        OrderTreeFixture.seedGroupMemberTermination(context.jdbcTemplate(), members);
+        groupMemberTerminationService = context.getBean(GroupMemberTerminationService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object process(SqlStatementCounters counters) {
+        long before = context.statementCount();
+        Object result = context.inRolledBackTransaction(() -> groupMemberTerminationService.process(
+                OrderTreeFixture.GROUP_ORDER_ID, OrderTreeFixture.PARENT_SERIAL_NUMBER, OrderTreeFixture.GROUP_USER_ID));
+        counters.record(context.statementCount() - before);
+        return result;
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.demo.otc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试数据生成：按指定规模（DN 数 / 用户数 / 群组成员数）生成各流程使用的订单树
+ * 同一规模下生成的数据完全确定，便于不同版本之间对比
+ */
+public final class OrderTreeFixture {
+
+    public static final String TRADE_TYPE = "10";
+    public static final String PARENT_SERIAL_NUMBER = "GRP001";
+
+    /** CreditTerminateService：信控账户及其输入订单行 */
+    public static final long CREDIT_ACCOUNT_ID = 900001L;
+    public static final long CREDIT_ORDER_ID = 1L;
+    public static final long CREDIT_ORDER_LINE_ID = 1L;
+    /** 每 CREDIT_IN_FLIGHT_EVERY 个用户有一条在途订单行，撤单明细数随账户规模线性增长 */
+    public static final int CREDIT_IN_FLIGHT_EVERY = 10;
+
+    /** UuRelationService：改号订单 */
+    public static final long UU_ORDER_ID = 2L;
+
+    /** GroupMemberTerminationService：群组拆机订单 */
+    public static final long GROUP_ORDER_ID = 3L;
+    public static final long GROUP_USER_ID = 5000L;
+    public static final int HUNTING_USERS = 5;
+
+    public static final long SUSPEND_ACCOUNT_ID = 700001L;
+    public static final long SUSPEND_ORDER_ID = 7L;
+    public static final long SUSPEND_ORDER_LINE_ID = 1L;
+
+    private static final Timestamp START = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0));
+    private static final Timestamp END = Timestamp.valueOf(LocalDateTime.of(2099, 12, 31, 23, 59, 59));
+    private static final String[] PRODUCT_TYPES = {"OTC_DN", "OTC_ORDER", "DN_OTC", "ORDER_OTC", "OTC_DN", "MRC"};
+
+    private OrderTreeFixture() {
+    }
+
+    /**
+     * OTC 计费：orders 个订单，每个订单 dnsPerOrder 条有效 DN；每条 DN 挂 6 个产品（5 个 OTC）× elementsPerProduct 个元素，每个元素 3 个资费属性
+     */
+    public static void seedOtcOrders(JdbcTemplate jdbcTemplate, int orders, int dnsPerOrder, int elementsPerProduct) {
+        List<Object[]> lines = new ArrayList<>();
+        List<Object[]> products = new ArrayList<>();
+        List<Object[]> elements = new ArrayList<>();
+        List<Object[]> attrs = new ArrayList<>();
+        long seq = 1;
+        for (long orderId = 1; orderId <= orders; orderId++) {
+            for (int d = 0; d < dnsPerOrder; d++) {
+                long lineId = orderId * 1_000_000L + d;
+                lines.add(new Object[]{orderId, lineId, TRADE_TYPE, "10", "0", "0", 1});
+                for (int p = 0; p < PRODUCT_TYPES.length; p++, seq++) {
+                    long productId = 100 + p;
+                    long prodItemId = seq;
+                    products.add(new Object[]{orderId, lineId, productId, 900L, prodItemId, PRODUCT_TYPES[p], "0", START, END});
+                    for (int e = 0; e < elementsPerProduct; e++) {
+                        long elementId = 7000 + e;
+                        long elementItemId = seq * 100 + e;
+                        elements.add(new Object[]{orderId, lineId, productId, prodItemId, elementId, elementItemId, "0", START, END});
+                        attrs.add(new Object[]{orderId, elementId, elementItemId, "otc_fee", "1000", "0", START, END});
+                        attrs.add(new Object[]{orderId, elementId, elementItemId, "standard_fee", "1500", "0", START, END});
+                        attrs.add(new Object[]{orderId, elementId, elementItemId, "rebate_fee", "200", "0", START, END});
+                    }
+                }
+            }
+        }
+        batch(jdbcTemplate, "insert into oc_order_line (order_id, order_line_id, trade_type_code, trace_type_code, cancel_tag, produce_order_state, line_leve) values (?, ?, ?, ?, ?, ?, ?)", lines);
+        batch(jdbcTemplate, "insert into oc_order_product (order_id, order_line_id, product_id, package_id, prod_item_id, product_type_code, modify_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?)", products);
+        batch(jdbcTemplate, "insert into oc_order_product_element (order_id, order_line_id, product_id, prod_item_id, element_id, element_item_id, modify_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?)", elements);
+        batch(jdbcTemplate, "insert into oc_order_element_item (order_id, element_id, element_item_id, attr_code, attr_value, modify_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?, ?)", attrs);
+    }
+
+    /**
+     * 信控拆机：账户下 users 个用户，第 1 个及此后每 CREDIT_IN_FLIGHT_EVERY 个用户有一条在途订单行；
+     * 偶数用户有停机状态，每 7 个用户有一个 IDAP 关系，每 10 个用户为 BBI 品牌；另有当年的公共假期
+     */
+    public static void seedCreditTerminate(JdbcTemplate jdbcTemplate, int users) {
+        jdbcTemplate.update("insert into oc_order_line (order_id, order_line_id, serial_number, trade_type_code, cancel_tag, line_level) values (?, ?, ?, ?, ?, ?)",
+                CREDIT_ORDER_ID, CREDIT_ORDER_LINE_ID, String.valueOf(CREDIT_ACCOUNT_ID), "7230", "0", 1);
+
+        List<Object[]> payRelations = new ArrayList<>();
+        List<Object[]> userRows = new ArrayList<>();
+        List<Object[]> svcStates = new ArrayList<>();
+        List<Object[]> relations = new ArrayList<>();
+        List<Object[]> inFlightLines = new ArrayList<>();
+        List<Object[]> orderPayRelations = new ArrayList<>();
+        Timestamp ceaseStart = Timestamp.valueOf(LocalDateTime.now().minusDays(3));
+        for (long u = 1; u <= users; u++) {
+            long userId = 10_000L + u;
+            payRelations.add(new Object[]{userId, CREDIT_ACCOUNT_ID, START, END});
+            userRows.add(new Object[]{userId, "SN" + userId, "MOB", "PROD_" + (u % 5), "MAIN_" + (u % 5), u % 10 == 0 ? "BBI" : "MOB"});
+            if (u % 2 == 0) {
+                svcStates.add(new Object[]{userId, "1", "4", ceaseStart, END});
+            }
+            if (u % 7 == 0) {
+                relations.add(new Object[]{userId, "IDAP", START, END});
+            }
+            if (u % CREDIT_IN_FLIGHT_EVERY == 1) {
+                long orderId = 100_000L + u;
+                inFlightLines.add(new Object[]{orderId, 1L, "SN" + userId, userId, TRADE_TYPE, "0", 1, "0", Timestamp.valueOf(LocalDateTime.now().plusDays(5))});
+                orderPayRelations.add(new Object[]{orderId, 1L, CREDIT_ACCOUNT_ID, userId, TRADE_TYPE, "0"});
+            }
+        }
+        batch(jdbcTemplate, "insert into tf_f_payrelation (user_id, account_id, start_date, end_date) values (?, ?, ?, ?)", payRelations);
+        batch(jdbcTemplate, "insert into tf_f_user (user_id, serial_number, net_type_code, product_id, main_product_id, brand_code) values (?, ?, ?, ?, ?, ?)", userRows);
+        batch(jdbcTemplate, "insert into tf_f_user_svcstate (user_id, main_tag, service_state_code, start_date, end_date) values (?, ?, ?, ?, ?)", svcStates);
+        batch(jdbcTemplate, "insert into tf_f_user_relation (user_id, relation_type_code, start_date, end_date) values (?, ?, ?, ?)", relations);
+        batch(jdbcTemplate, "insert into oc_order_line (order_id, order_line_id, serial_number, user_id, trade_type_code, cancel_tag, line_level, produce_order_state, srd) values (?, ?, ?, ?, ?, ?, ?, ?, ?)", inFlightLines);
+        batch(jdbcTemplate, "insert into oc_order_payrelation (order_id, order_line_id, account_id, user_id, trade_type_code, modify_tag) values (?, ?, ?, ?, ?, ?)", orderPayRelations);
+
+        List<Object[]> holidays = new ArrayList<>();
+        LocalDate firstDay = LocalDate.now().withDayOfYear(1);
+        for (int i = 0; i < 17; i++) {
+            holidays.add(new Object[]{Date.valueOf(firstDay.plusDays(i * 21L))});
+        }
+        batch(jdbcTemplate, "insert into hk_public_holidays (holiday_date) values (?)", holidays);
+    }
+
+    /**
+     * UU 台账：一个改号订单下 dns 条成员订单行（line_level=1）及一条群组订单行（line_level=2），每条订单行 3 个属性
+     * 返回用于生成台账的成员订单行 ID（位于中间位置）
+     */
+    public static long seedUuRelation(JdbcTemplate jdbcTemplate, int dns) {
+        List<Object[]> lines = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        for (long i = 1; i <= dns; i++) {
+            lines.add(new Object[]{UU_ORDER_ID, i, "SN" + i, PARENT_SERIAL_NUMBER, "279", "0", 1});
+            items.add(new Object[]{UU_ORDER_ID, i, "Call Sequence", String.valueOf(i), "0", START, END});
+            items.add(new Object[]{UU_ORDER_ID, i, "Is Primary Number", i == 1 ? "1" : "0", "0", START, END});
+            items.add(new Object[]{UU_ORDER_ID, i, "New Serial Number", "NSN" + i, "0", START, END});
+        }
+        long groupLineId = dns + 1L;
+        lines.add(new Object[]{UU_ORDER_ID, groupLineId, PARENT_SERIAL_NUMBER, null, "279", "0", 2});
+        items.add(new Object[]{UU_ORDER_ID, groupLineId, "New Serial Number", "NGRP001", "0", START, END});
+        batch(jdbcTemplate, "insert into oc_order_line (order_id, order_line_id, serial_number, parent_serial_number, trade_type_code, cancel_tag, line_level) values (?, ?, ?, ?, ?, ?, ?)", lines);
+        batch(jdbcTemplate, "insert into oc_order_line_item (order_id, order_line_id, attr_code, attr_value, modify_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?)", items);
+        return Math.max(1L, dns / 2L);
+    }
+
+    /**
+     * 群组成员拆机：模板订单行（2 个产品，每个 3 个产品属性、3 个元素、每个元素 2 个元素属性）+ members 个群组成员，
+     * 每 10 个成员已有拆机订单行；群组为 citinet，挂 HUNTING_USERS 个 hunting 用户
+     */
+    public static void seedGroupMemberTermination(JdbcTemplate jdbcTemplate, int members) {
+        jdbcTemplate.update("insert into oc_order_line (order_id, order_line_id, serial_number, sn_user_id, trade_type_code, line_level, parent_serial_number, net_type_code, scene_type) values (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                GROUP_ORDER_ID, 1L, "SN_TEMPLATE", 1L, "192", 1, PARENT_SERIAL_NUMBER, "MOB", "19201");
+        jdbcTemplate.update("insert into oc_order_line (order_id, order_line_id, serial_number, sn_user_id, trade_type_code, line_level, parent_serial_number, net_type_code, scene_type) values (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                GROUP_ORDER_ID, 2L, PARENT_SERIAL_NUMBER, GROUP_USER_ID, "192", 2, null, "CP", "19201");
+
+        List<Object[]> products = new ArrayList<>();
+        List<Object[]> productItems = new ArrayList<>();
+        List<Object[]> elements = new ArrayList<>();
+        List<Object[]> elementItems = new ArrayList<>();
+        for (long p = 1; p <= 2; p++) {
+            long prodItemId = 100 + p;
+            products.add(new Object[]{GROUP_ORDER_ID, 1L, 200 + p, prodItemId, PRODUCT_TYPES[(int) p - 1]});
+            for (int a = 0; a < 3; a++) {
+                productItems.add(new Object[]{GROUP_ORDER_ID, prodItemId, "prod_attr_" + a, "v" + a});
+            }
+            for (long e = 1; e <= 3; e++) {
+                long elementItemId = prodItemId * 10 + e;
+                elements.add(new Object[]{GROUP_ORDER_ID, 1L, elementItemId, prodItemId, 7000 + e});
+                elementItems.add(new Object[]{GROUP_ORDER_ID, elementItemId, "otc_fee", "1000"});
+                elementItems.add(new Object[]{GROUP_ORDER_ID, elementItemId, "standard_fee", "1500"});
+            }
+        }
+        batch(jdbcTemplate, "insert into oc_order_product (order_id, order_line_id, product_id, prod_item_id, product_type_code) values (?, ?, ?, ?, ?)", products);
+        batch(jdbcTemplate, "insert into oc_order_product_item (order_id, prod_item_id, attr_code, attr_value) values (?, ?, ?, ?)", productItems);
+        batch(jdbcTemplate, "insert into oc_order_element (order_id, order_line_id, element_item_id, prod_item_id, element_id) values (?, ?, ?, ?, ?)", elements);
+        batch(jdbcTemplate, "insert into oc_order_element_item (order_id, element_item_id, attr_code, attr_value) values (?, ?, ?, ?)", elementItems);
+
+        List<Object[]> relations = new ArrayList<>();
+        List<Object[]> existing = new ArrayList<>();
+        for (long m = 1; m <= members; m++) {
+            long memberUserId = 20_000L + m;
+            relations.add(new Object[]{GROUP_USER_ID, memberUserId, PARENT_SERIAL_NUMBER, "SN" + memberUserId, null, null, START, END});
+            if (m % 10 == 0) {
+                existing.add(new Object[]{GROUP_ORDER_ID, 1_000L + m, "SN" + memberUserId, memberUserId, "192", 1, PARENT_SERIAL_NUMBER});
+            }
+        }
+        List<Object[]> huntingUsers = new ArrayList<>();
+        for (long h = 1; h <= HUNTING_USERS; h++) {
+            long huntingUserId = 30_000L + h;
+            relations.add(new Object[]{null, huntingUserId, null, "HSN" + huntingUserId, String.valueOf(GROUP_USER_ID), "citinet_grp_user_id", START, END});
+            huntingUsers.add(new Object[]{huntingUserId, "HSN" + huntingUserId, "MOB", null});
+        }
+        huntingUsers.add(new Object[]{GROUP_USER_ID, PARENT_SERIAL_NUMBER, "CP", "citinet"});
+        batch(jdbcTemplate, "insert into tf_f_user_relation (user_id_a, user_id_b, serial_number_a, serial_number_b, rsrv_value, rsrv_value_code, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?, ?)", relations);
+        batch(jdbcTemplate, "insert into oc_order_line (order_id, order_line_id, serial_number, sn_user_id, trade_type_code, line_level, parent_serial_number) values (?, ?, ?, ?, ?, ?, ?)", existing);
+        batch(jdbcTemplate, "insert into tf_f_user (user_id, serial_number, net_type_code, user_diff_code) values (?, ?, ?, ?)", huntingUsers);
+    }
+
+    /**
+     * 停机：一个账户下 users 个用户，每个用户两条正常服务状态、一条停机状态；每 3 个用户 1 个只有 IDD 付费关系，
+     * 每 4 个用户 1 个没有正常服务（不处理）
+     */
+    public static void seedSuspend(JdbcTemplate jdbcTemplate, int users) {
+        jdbcTemplate.update("insert into oc_order_line (order_id, order_line_id, trade_type_code, cancel_tag, line_level) values (?, ?, ?, ?, ?)",
+                SUSPEND_ORDER_ID, SUSPEND_ORDER_LINE_ID, "7220", "0", 1);
+        jdbcTemplate.update("insert into oc_order_line_item (order_id, order_line_id, attr_code, attr_value, modify_tag) values (?, ?, ?, ?, ?)",
+                SUSPEND_ORDER_ID, SUSPEND_ORDER_LINE_ID, "ACCOUNT_ID", String.valueOf(SUSPEND_ACCOUNT_ID), "0");
+
+        List<Object[]> payRelations = new ArrayList<>();
+        List<Object[]> svcStates = new ArrayList<>();
+        for (long u = 1; u <= users; u++) {
+            long userId = 70_000L + u;
+            payRelations.add(new Object[]{userId, SUSPEND_ACCOUNT_ID, u % 3 == 0 ? "I" : "N", START, END});
+            if (u % 4 != 0) {
+                svcStates.add(new Object[]{userId, "S_MAIN", "0", "1", START, END});
+                svcStates.add(new Object[]{userId, "IDD_SERVICE_CODE", "0", "0", START, END});
+            }
+            svcStates.add(new Object[]{userId, "S_VAS", "4", "0", START, END});
+        }
+        batch(jdbcTemplate, "insert into tf_f_payrelation (user_id, account_id, price_tag, start_date, end_date) values (?, ?, ?, ?, ?)", payRelations);
+        batch(jdbcTemplate, "insert into tf_f_user_svcstate (user_id, service_id, service_state_code, main_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?)", svcStates);
+    }
+
+    private static void batch(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.OtcCalcModels.OtcCalcRequest;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OTC 批量计费吞吐（请求数/秒）：逐个串行调用 vs 批量并行
+ * 每次调用处理 REQUESTS 个请求，请求之间的 amendOrderList 有重叠，用于体现批次内产品树共享
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OtcBatchCalcBenchmark {
+
+    private static final int REQUESTS = 500;
+    private static final int ORDERS = 200;
+    private static final int DNS_PER_ORDER = 5;
+
+    @Param({"1", "4", "8"})
+    public int workers;
+
+    private JdbcConnectionPool pool;
+    private OtcCalcService otcCalcService;
+    private OtcBatchCalcService batchService;
+    private List<OtcCalcRequest> requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = JdbcConnectionPool.create("jdbc:h2:mem:otc_bench_" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        pool.setMaxConnections(32);
+        new ResourceDatabasePopulator(new ClassPathResource("otc/otc-calc-schema.sql")).execute(pool);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(pool);
+        OrderTreeFixture.seedOtcOrders(jdbcTemplate, ORDERS, DNS_PER_ORDER, 4);
+
+        ProductCenterClient productCenterClient = new ProductCenterClient("OTC_DN,DN_OTC", "OTC_ORDER,ORDER_OTC");
+        List<DnSampler> samplers = List.of(new CountOffsetDnSampler(jdbcTemplate), new MinOrderLineIdDnSampler(jdbcTemplate));
+        otcCalcService = new OtcCalcService(jdbcTemplate, productCenterClient, OtcCalcService.FETCH_MODE_BULK,
+                samplers, CountOffsetDnSampler.NAME);
+        batchService = new OtcBatchCalcService(otcCalcService, jdbcTemplate, workers, 5000L, REQUESTS);
+
+        Random random = new Random(42);
+        requests = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            OtcCalcRequest req = new OtcCalcRequest();
+            // 热点订单集中在前 1/4，模拟同一客户多次计费
+            long first = 1 + random.nextInt(ORDERS / 4);
+            req.amendOrderList = List.of(first, 1L + random.nextInt(ORDERS));
+            req.trade_type_code = OrderTreeFixture.TRADE_TYPE;
+            req.cancel_tag = 0;
+            req.cancelDnQty = 0L;
+            requests.add(req);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        batchService.shutdown();
+        pool.dispose();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void serial(Blackhole bh) {
+        for (OtcCalcRequest req : requests) {
+            bh.consume(otcCalcService.calculate(req));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void batch(Blackhole bh) {
+        batchService.calculateAll(requests, bh::consume).join();
+    }
+}
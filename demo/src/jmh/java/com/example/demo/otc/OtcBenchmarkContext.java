@@ -0,0 +1,165 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.UuRelationService.UserCenterClient;
+import com.example.demo.otc.UuRelationService.UserRelationInfo;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * 基准测试用的最小 Spring + MyBatis 容器：内嵌 H2（按需 MySQL / Oracle 兼容模式）、统计 SQL 条数的数据源、
+ * 事务管理与被测 OTC 服务；MyBatis 使用 src/main/resources 下的 mybatis-config.xml 与 XML 映射
+ */
+public final class OtcBenchmarkContext implements AutoCloseable {
+
+    public static final String MODE_MYSQL = "MySQL";
+    /**
+     * CreditTerminateMapper、SuspendMapper 的 SQL 使用 SYSDATE / DUAL，按 Oracle 兼容模式建库
+     */
+    public static final String MODE_ORACLE = "Oracle";
+
+    private final JdbcConnectionPool pool;
+    private final StatementCountingDataSource dataSource;
+    private final AnnotationConfigApplicationContext context;
+    private final TransactionTemplate transactionTemplate;
+
+    private OtcBenchmarkContext(String mode) {
+        this.pool = JdbcConnectionPool.create(
+                "jdbc:h2:mem:otc_bench_" + UUID.randomUUID() + ";MODE=" + mode + ";DB_CLOSE_DELAY=-1", "sa", "");
+        this.pool.setMaxConnections(32);
+        new ResourceDatabasePopulator(new ClassPathResource("otc/otc-order-schema.sql")).execute(pool);
+        this.dataSource = new StatementCountingDataSource(pool);
+
+        this.context = new AnnotationConfigApplicationContext();
+        context.registerBean("dataSource", DataSource.class, () -> dataSource);
+        context.register(Config.class,
+                CountOffsetDnSampler.class, MinOrderLineIdDnSampler.class, OtcCalcService.class,
+                SegmentIdAllocator.class, WorkingDayCalendar.class, UserCenterCache.class, CreditTerminateService.class, UuRelationService.class, GroupMemberTerminationService.class,
+                SuspendService.class);
+        context.refresh();
+        this.transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    public static OtcBenchmarkContext start(String mode) {
+        return new OtcBenchmarkContext(mode);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public <T> List<T> getBeans(Class<T> type) {
+        return new ArrayList<>(context.getBeansOfType(type).values());
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return context.getBean(JdbcTemplate.class);
+    }
+
+    public long statementCount() {
+        return dataSource.getStatementCount();
+    }
+
+    /**
+     * 在事务中执行并在结束时回滚：服务自身的 @Transactional 加入该事务，每次调用前后库内数据保持不变
+     */
+    public <T> T inRolledBackTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> {
+            status.setRollbackOnly();
+            return action.get();
+        });
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        pool.dispose();
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class Config {
+
+        @Bean
+        public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public SqlSessionFactory sqlSessionFactory(DataSource dataSource) throws Exception {
+            SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setConfigLocation(new ClassPathResource("mybatis-config.xml"));
+            factory.setMapperLocations(new ClassPathResource("mapper/GroupMemberTerminationMapper.xml"));
+            return factory.getObject();
+        }
+
+        @Bean
+        public MapperFactoryBean<CreditTerminateMapper> creditTerminateMapper(SqlSessionFactory sqlSessionFactory) {
+            MapperFactoryBean<CreditTerminateMapper> factory = new MapperFactoryBean<>(CreditTerminateMapper.class);
+            factory.setSqlSessionFactory(sqlSessionFactory);
+            return factory;
+        }
+
+        @Bean
+        public MapperFactoryBean<GroupMemberTerminationMapper> groupMemberTerminationMapper(SqlSessionFactory sqlSessionFactory) {
+            MapperFactoryBean<GroupMemberTerminationMapper> factory = new MapperFactoryBean<>(GroupMemberTerminationMapper.class);
+            factory.setSqlSessionFactory(sqlSessionFactory);
+            return factory;
+        }
+
+        @Bean
+        public MapperFactoryBean<SuspendMapper> suspendMapper(SqlSessionFactory sqlSessionFactory) {
+            MapperFactoryBean<SuspendMapper> factory = new MapperFactoryBean<>(SuspendMapper.class);
+            factory.setSqlSessionFactory(sqlSessionFactory);
+            return factory;
+        }
+
+        @Bean
+        public ProductCenterClient productCenterClient() {
+            return new ProductCenterClient("OTC_DN,DN_OTC", "OTC_ORDER,ORDER_OTC");
+        }
+
+        /**
+         * 用户中心桩：固定返回一条群组关系
+         */
+        @Bean
+        public UserCenterClient userCenterClient() {
+            return (snUserId, parentSerialNumber) -> {
+                UserRelationInfo info = new UserRelationInfo();
+                info.relation_type_code = "IDAP";
+                info.user_id_a = "5000";
+                info.user_id_b = snUserId;
+                info.primary_serial_number = parentSerialNumber != null ? parentSerialNumber : OrderTreeFixture.PARENT_SERIAL_NUMBER;
+                info.serial_number_b = "SN" + snUserId;
+                info.call_sequence = "1";
+                info.is_main_number = "0";
+                info.start_date = LocalDateTime.of(2024, 1, 1, 0, 0);
+                return info;
+            };
+        }
+    }
+}
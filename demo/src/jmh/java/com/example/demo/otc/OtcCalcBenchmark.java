@@ -0,0 +1,56 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.OtcCalcModels.OtcCalcRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OtcCalcService.calculate：单个订单下 DN 数为 1 / 100 / 10000 时的吞吐、分配率（-prof gc）与单次 SQL 条数
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OtcCalcBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int dns;
+
+    @Param({OtcCalcService.FETCH_MODE_BULK, OtcCalcService.FETCH_MODE_LOOP})
+    public String fetchMode;
+
+    private OtcBenchmarkContext context;
+    private OtcCalcService otcCalcService;
+    private OtcCalcRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = OtcBenchmarkContext.start(OtcBenchmarkContext.MODE_MYSQL);
+        OrderTreeFixture.seedOtcOrders(context.jdbcTemplate(), 1, dns, 3);
+        otcCalcService = new OtcCalcService(context.jdbcTemplate(), context.getBean(ProductCenterClient.class), fetchMode,
+                context.getBeans(DnSampler.class), CountOffsetDnSampler.NAME);
+
+        request = new OtcCalcRequest();
+        request.amendOrderList = List.of(1L);
+        request.trade_type_code = OrderTreeFixture.TRADE_TYPE;
+        request.cancel_tag = 0;
+        request.cancelDnQty = 0L;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object calculate(SqlStatementCounters counters) {
+        long before = context.statementCount();
+        Object resp = otcCalcService.calculate(request);
+        counters.record(context.statementCount() - before);
+        return resp;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.otc;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 随基准结果输出的 SQL 条数：sqlStatements / invocations 即单次调用执行的 SQL 条数
+ * 基准方法在每次调用后通过 record 累加本次调用前后 StatementCountingDataSource 计数之差
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class SqlStatementCounters {
+
+    public long sqlStatements;
+    public long invocations;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        sqlStatements = 0;
+        invocations = 0;
+    }
+
+    public void record(long statements) {
+        sqlStatements += statements;
+        invocations++;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.otc;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SuspendService.processSuspend：账户下用户数为 1 / 100 / 1000 / 20000 时的吞吐、分配率（-prof gc）与单次 SQL 条数
+ * 付费关系与服务状态按每 1000 个用户一批查询、台账每 500 行一条 INSERT，SQL 条数应随账户规模按批增长而非逐用户增长
+ * 每次调用在回滚的事务中执行，库内数据在调用之间保持不变
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SuspendBenchmark {
+
+    @Param({"1", "100", "1000", "20000"})
+    public int users;
+
+    private OtcBenchmarkContext context;
+    private SuspendService suspendService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // SuspendMapper 使用 SYSDATE
+        context = OtcBenchmarkContext.start(OtcBenchmarkContext.MODE_ORACLE);
+        OrderTreeFixture.seedSuspend(context.jdbcTemplate(), users);
+        suspendService = context.getBean(SuspendService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void processSuspend(SqlStatementCounters counters) {
+        long before = context.statementCount();
+        context.inRolledBackTransaction(() -> {
+            suspendService.processSuspend(OrderTreeFixture.SUSPEND_ORDER_ID, OrderTreeFixture.SUSPEND_ORDER_LINE_ID, "7220");
+            return null;
+        });
+        counters.record(context.statementCount() - before);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.otc;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UuRelationService.generateUuLedger / generateUuLedgers：改号订单下 DN 数为 1 / 100 / 10000 时的吞吐、分配率（-prof gc）与单次 SQL 条数
+ * 台账写入在回滚的事务中执行
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UuRelationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int dns;
+
+    private OtcBenchmarkContext context;
+    private UuRelationService uuRelationService;
+    private UuRelationRequest request;
+    private List<UuRelationRequest> orderRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = OtcBenchmarkContext.start(OtcBenchmarkContext.MODE_MYSQL);
+        long lineId = OrderTreeFixture.seedUuRelation(context.jdbcTemplate(), dns);
+        uuRelationService = context.getBean(UuRelationService.class);
+
+        request = new UuRelationRequest();
+        request.order_id = OrderTreeFixture.UU_ORDER_ID;
+        request.order_line_id = lineId;
+        request.serial_number = "SN" + lineId;
+        request.parent_serial_number = OrderTreeFixture.PARENT_SERIAL_NUMBER;
+        request.sn_user_id = String.valueOf(lineId);
+
+        orderRequests = new ArrayList<>(dns);
+        for (long i = 1; i <= dns; i++) {
+            UuRelationRequest req = new UuRelationRequest();
+            req.order_id = OrderTreeFixture.UU_ORDER_ID;
+            req.order_line_id = i;
+            req.serial_number = "SN" + i;
+            req.parent_serial_number = OrderTreeFixture.PARENT_SERIAL_NUMBER;
+            req.sn_user_id = String.valueOf(i);
+            orderRequests.add(req);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object generateUuLedger(SqlStatementCounters counters) {
+        long before = context.statementCount();
+        Object resp = context.inRolledBackTransaction(() -> uuRelationService.generateUuLedger(request));
+        counters.record(context.statementCount() - before);
+        return resp;
+    }
+
+    /**
+     * 整个订单的 DN 一次批量生成台账（invocations 为每次调用，SQL 条数为整批）
+     */
+    @Benchmark
+    public Object generateUuLedgersForOrder(SqlStatementCounters counters) {
+        long before = context.statementCount();
+        Object resp = context.inRolledBackTransaction(() -> uuRelationService.generateUuLedgers(OrderTreeFixture.UU_ORDER_ID, orderRequests));
+        counters.record(context.statementCount() - before);
+        return resp;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并发工具类：命名守护线程池与 CompletableFuture 等待
+ */
+public final class ConcurrentUtils {
+
+    private ConcurrentUtils() {
+    }
+
+    /**
+     * 守护线程工厂，线程名为 namePrefix-序号（从 1 开始）
+     */
+    public static ThreadFactory daemonThreadFactory(String namePrefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, namePrefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * 固定大小的守护线程池（无界队列），threads 小于 1 时按 1
+     */
+    public static ExecutorService newDaemonPool(String namePrefix, int threads) {
+        int n = Math.max(1, threads);
+        return new ThreadPoolExecutor(n, n, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreadFactory(namePrefix));
+    }
+
+    /**
+     * 固定大小、有界队列的守护线程池，threads / queueCapacity 小于 1 时按 1；
+     * 队列满时由提交任务的线程自己执行（CallerRunsPolicy），任务不丢弃，积压也不超过队列容量
+     */
+    public static ExecutorService newBoundedDaemonPool(String namePrefix, int threads, int queueCapacity) {
+        int n = Math.max(1, threads);
+        return new ThreadPoolExecutor(n, n, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), daemonThreadFactory(namePrefix),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 等待完成并返回结果；任务抛出的 RuntimeException 原样抛出，受检异常仍包装在 CompletionException 中
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+}
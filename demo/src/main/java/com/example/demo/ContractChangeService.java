@@ -1,24 +1,56 @@
 package com.example.demo;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import com.example.demo.OrderTableRows.ElementItem;
+import com.example.demo.OrderTableRows.OrderLine;
+import com.example.demo.OrderTableRows.OrderLineItem;
+import com.example.demo.OrderTableRows.ProductElement;
+import com.example.demo.OrderTableRows.UserDiscnt;
+
 import java.util.*;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import static com.example.demo.InMemoryTable.key;
 
 /**
  * 合约属性变更台账处理服务
  * 实现合约属性变更的全流程台账生成与属性处理
+ * 各表按查询所用的组合键建哈希索引，每次查询只过滤索引命中的行，台账生成与订单规模成线性关系；
+ * 时间均为装载时解析好的 LedgerTimestamp，比较与加减秒为整数运算（SRD 入参在入口解析一次）
+ * 合约属性变更的各订单行互不依赖（只读本行用户的资费），可交给 lineExecutor 并行处理：
+ * 每个订单行的台账先写入本行的输出缓冲，新 item_id 先以行内的 ItemRef 占位，全部完成后按订单行顺序取号并写入模拟表，
+ * 取号顺序与顺序执行一致
  */
 public class ContractChangeService {
 
+    // 订单行并行处理的线程池（由调用方管理生命周期），为 null 时在调用线程逐行处理
+    private final Executor lineExecutor;
+    // 新 item_id 的生成方式，只在合并订单行输出的调用线程上调用
+    private final Supplier<String> itemIdGenerator;
+
     // 模拟数据库表
-    private final List<Map<String, Object>> ocOrderElementItem = new ArrayList<>();
-    private final List<Map<String, Object>> ocOrderProductElement = new ArrayList<>();
-    private final List<Map<String, Object>> ocOrderLine = new ArrayList<>();
-    private final List<Map<String, Object>> ocOrderLineItem = new ArrayList<>();
-    private final List<Map<String, Object>> userDiscntList = new ArrayList<>();
-    private final List<Map<String, Object>> userDiscntAttrList = new ArrayList<>();
+    private final InMemoryTable<ElementItem> ocOrderElementItem = new InMemoryTable<>();
+    private final InMemoryTable<ProductElement> ocOrderProductElement = new InMemoryTable<>();
+    private final InMemoryTable<OrderLine> ocOrderLine = new InMemoryTable<>();
+    private final InMemoryTable<OrderLineItem> ocOrderLineItem = new InMemoryTable<>();
+    private final InMemoryTable<UserDiscnt> userDiscntList = new InMemoryTable<>();
+    private final InMemoryTable<UserDiscnt> userDiscntAttrList = new InMemoryTable<>();
+
+    // 索引：order_id / order_id+order_line_id
+    private final InMemoryTable.Index<ElementItem> elementItemsByOrder = ocOrderElementItem.addIndex(r -> key(r.getOrderId()));
+    private final InMemoryTable.Index<ElementItem> elementItemsByLine = ocOrderElementItem.addIndex(r -> key(r.getOrderId(), r.getOrderLineId()));
+    private final InMemoryTable.Index<ProductElement> productElementsByLine = ocOrderProductElement.addIndex(r -> key(r.getOrderId(), r.getOrderLineId()));
+    private final InMemoryTable.Index<OrderLine> orderLinesByLine = ocOrderLine.addIndex(r -> key(r.getOrderId(), r.getOrderLineId()));
+    // 索引：order_line_id+attr_code
+    private final InMemoryTable.Index<OrderLineItem> lineItemsByLineAttr = ocOrderLineItem.addIndex(r -> key(r.getOrderLineId(), r.getAttrCode()));
+    // 索引：user_id+element_item_id / user_id+dst_item_id / user_id+product_id+prod_item_id
+    private final InMemoryTable.Index<UserDiscnt> discntsByUserItem = userDiscntList.addIndex(r -> key(r.getUserId(), r.getElementItemId()));
+    private final InMemoryTable.Index<UserDiscnt> discntsByUserDstItem = userDiscntList.addIndex(r -> key(r.getUserId(), r.getDstItemId()));
+    private final InMemoryTable.Index<UserDiscnt> discntsByUserProduct = userDiscntList.addIndex(r -> key(r.getUserId(), r.getProductId(), r.getProdItemId()));
+    // 索引：user_id+element_item_id / user_id+attr_code+attr_value
+    private final InMemoryTable.Index<UserDiscnt> discntAttrsByUserItem = userDiscntAttrList.addIndex(r -> key(r.getUserId(), r.getElementItemId()));
+    private final InMemoryTable.Index<UserDiscnt> discntAttrsByUserAttr = userDiscntAttrList.addIndex(r -> key(r.getUserId(), r.getAttrCode(), r.getAttrValue()));
 
     // 配置：合约属性编码
     private static final Set<String> CONTRACT_ATTR_CODES = Set.of(
@@ -32,357 +64,361 @@ public class ContractChangeService {
             "penalty_derate", "ref_sub_comp_id", "qty", "contract_perior", "contract_start_date", "contract_end_date", "contract_end_date_std"
     );
 
+    /**
+     * 顺序处理订单行
+     */
+    public ContractChangeService() {
+        this(null);
+    }
+
+    /**
+     * 订单行交给 lineExecutor 并行处理（可为 ForkJoinPool 或有界线程池）
+     */
+    public ContractChangeService(Executor lineExecutor) {
+        this(lineExecutor, () -> UUID.randomUUID().toString().replace("-", ""));
+    }
+
+    /**
+     * 指定新 item_id 的生成方式（测试中用可复现的序列比对台账）
+     */
+    public ContractChangeService(Executor lineExecutor, Supplier<String> itemIdGenerator) {
+        this.lineExecutor = lineExecutor;
+        this.itemIdGenerator = itemIdGenerator;
+    }
+
     /**
      * 合约属性变更台账主流程
      */
-    public void processContractChange(String orderId, String srd) {
+    public void processContractChange(String orderId, String srdText) {
+        LedgerTimestamp srd = LedgerTimestamp.parse(srdText);
         // 1. 查询合约属性变更台账信息，按order_line_id分组
-        Map<String, List<Map<String, Object>>> lineGroup = ocOrderElementItem.stream()
-                .filter(item -> orderId.equals(item.get("order_id"))
-                        && "2".equals(item.get("modify_tag"))
-                        && "D".equals(item.get("element_type_code"))
-                        && CONTRACT_ATTR_CODES.contains(item.get("attr_code")))
-                .collect(Collectors.groupingBy(item -> (String) item.get("order_line_id")));
-
-        for (String orderLineId : lineGroup.keySet()) {
-            List<Map<String, Object>> lineItems = lineGroup.get(orderLineId);
-
-            // 2. 获取用户原合约信息
-            Map<String, Object> orderLine = findFirst(ocOrderLine, l -> orderId.equals(l.get("order_id")) && orderLineId.equals(l.get("order_line_id")));
-            if (orderLine == null) continue;
-            String userId = (String) orderLine.get("user_id");
-            String acceptDate = (String) orderLine.get("accept_date");
-
-            // 3. 判断合约属性变更生效方式
-            String appendContractValue = findFirst(ocOrderLineItem, item ->
-                    orderLineId.equals(item.get("order_line_id"))
-                            && "Append Contract".equals(item.get("attr_code"))
-                            && "0".equals(item.get("modify_tag"))
-            ).map(item -> (String) item.get("value")).orElse("0");
-            boolean isAppend = "1".equals(appendContractValue);
-
-            // 4. 处理资费台账，按element_item_id分组
-            Map<String, List<Map<String, Object>>> itemGroup = lineItems.stream()
-                    .collect(Collectors.groupingBy(item -> (String) item.get("element_item_id")));
-            for (String elementItemId : itemGroup.keySet()) {
-                List<Map<String, Object>> itemList = itemGroup.get(elementItemId);
-                String elementId = (String) itemList.get(0).get("element_id");
-
-                // 4.0 判断element_id的sub_element_type
-                String subElementType = getSubElementType(elementId);
-
-                // 4.1 获取用户原资费、资费属性
-                Map<String, Object> userDiscnt = findFirst(userDiscntList, d -> userId.equals(d.get("user_id")) && elementId.equals(d.get("element_id")) && elementItemId.equals(d.get("element_item_id"))).orElse(null);
-                List<Map<String, Object>> userDiscntAttrs = userDiscntAttrList.stream()
-                        .filter(a -> userId.equals(a.get("user_id")) && elementItemId.equals(a.get("element_item_id")))
-                        .collect(Collectors.toList());
-
-                // 4.2 判断合约内/外
-                String contractEndDateStd = userDiscntAttrs.stream()
-                        .filter(a -> "contract_end_date_std".equals(a.get("attr_code")))
-                        .map(a -> (String) a.get("attr_value"))
-                        .findFirst().orElse("2099-12-31T23:59:59");
-                boolean isInContract = compareDate(contractEndDateStd, acceptDate) > 0;
-
-                // 4.3 合约内，立即生效，SRD <= contract_end_date_std
-                if (isInContract && !isAppend && compareDate(srd, contractEndDateStd) <= 0) {
-                    // 4.3.1 终止原资费
-                    insertProductElement(orderId, orderLineId, elementId, elementItemId, minusSeconds(srd, 1), "1");
-                    // 4.3.2 新增资费
-                    String newItemId = genItemId();
-                    insertProductElement(orderId, orderLineId, elementId, newItemId, srd, "0");
-                    // 4.3.3 终止原资费属性
-                    userDiscntAttrs.forEach(attr -> insertElementItem(orderId, orderLineId, elementId, elementItemId, attr, minusSeconds(srd, 1), "1", minusSeconds(srd, 1)));
-                    // 4.3.4 新增资费属性
-                    userDiscntAttrs.forEach(attr -> insertElementItem(orderId, orderLineId, elementId, newItemId, attr, srd, "0", null));
-                    // 4.3.5 追加未修改属性（略）
-                }
-                // 4.4 合约内，顺延
-                else if (isInContract && isAppend) {
-                    insertProductElement(orderId, orderLineId, elementId, elementItemId, contractEndDateStd, "1");
-                    String newItemId = genItemId();
-                    String newStart = plusSeconds(contractEndDateStd, 1);
-                    insertProductElement(orderId, orderLineId, elementId, newItemId, newStart, "0");
-                    userDiscntAttrs.forEach(attr -> insertElementItem(orderId, orderLineId, elementId, elementItemId, attr, contractEndDateStd, "1", contractEndDateStd));
-                    userDiscntAttrs.forEach(attr -> insertElementItem(orderId, orderLineId, elementId, newItemId, attr, newStart, "0", null));
-                }
-                // 4.5 合约外，顺延
-                else if (!isInContract && isAppend) {
-                    insertProductElement(orderId, orderLineId, elementId, elementItemId, contractEndDateStd, "1");
-                    String newItemId = genItemId();
-                    String newStart = plusSeconds(contractEndDateStd, 1);
-                    insertProductElement(orderId, orderLineId, elementId, newItemId, newStart, "0");
-                    userDiscntAttrs.forEach(attr -> {
-                        insertElementItem(orderId, orderLineId, elementId, elementItemId, attr, contractEndDateStd, "1", contractEndDateStd);
-                        insertElementItem(orderId, orderLineId, elementId, newItemId, attr, newStart, "0", null);
-                    });
-                }
-                // 4.6 合约外，SRD > contract_end_date_std，无顺延
-                else if (!isInContract && !isAppend && compareDate(srd, contractEndDateStd) > 0) {
-                    insertProductElement(orderId, orderLineId, elementId, elementItemId, contractEndDateStd, "1");
-                    if (compareDate(minusSeconds(srd, 1), contractEndDateStd) > 0 && "MRC".equals(subElementType)) {
-                        String noContractItemId = genItemId();
-                        String noContractStart = plusSeconds(contractEndDateStd, 1);
-                        String noContractEnd = minusSeconds(srd, 1);
-                        insertProductElement(orderId, orderLineId, elementId, noContractItemId, noContractStart, "0", noContractEnd);
-                        userDiscntAttrs.stream()
-                                .filter(attr -> !NO_COPY_ATTR_MRC.contains(attr.get("attr_code")))
-                                .forEach(attr -> insertElementItem(orderId, orderLineId, elementId, noContractItemId, attr, noContractStart, "0", noContractEnd));
-                        insertExtraContractAttrs(orderId, orderLineId, elementId, noContractItemId, noContractStart, noContractEnd);
-                    }
-                    String newItemId = genItemId();
-                    insertProductElement(orderId, orderLineId, elementId, newItemId, srd, "0");
-                    userDiscntAttrs.forEach(attr -> {
-                        insertElementItem(orderId, orderLineId, elementId, elementItemId, attr, contractEndDateStd, "1", contractEndDateStd);
-                        insertElementItem(orderId, orderLineId, elementId, newItemId, attr, srd, "0", null);
-                    });
+        Map<String, List<ElementItem>> lineGroup = new LinkedHashMap<>();
+        for (ElementItem item : elementItemsByOrder.select(key(orderId), item -> "2".equals(item.getModifyTag())
+                && "D".equals(item.getElementTypeCode())
+                && CONTRACT_ATTR_CODES.contains(item.getAttrCode()))) {
+            lineGroup.computeIfAbsent(item.getOrderLineId(), k -> new ArrayList<>()).add(item);
+        }
+
+        // 各订单行互不依赖，处理期间只读模拟表；台账在全部订单行处理完后按订单行顺序写入
+        List<LineOutput> outputs = new ArrayList<>(lineGroup.size());
+        if (lineExecutor == null || lineGroup.size() <= 1) {
+            for (Map.Entry<String, List<ElementItem>> line : lineGroup.entrySet()) {
+                outputs.add(processLine(orderId, line.getKey(), line.getValue(), srd));
+            }
+        } else {
+            List<CompletableFuture<LineOutput>> futures = new ArrayList<>(lineGroup.size());
+            for (Map.Entry<String, List<ElementItem>> line : lineGroup.entrySet()) {
+                futures.add(CompletableFuture.supplyAsync(() -> processLine(orderId, line.getKey(), line.getValue(), srd), lineExecutor));
+            }
+            for (CompletableFuture<LineOutput> future : futures) {
+                outputs.add(ConcurrentUtils.join(future));
+            }
+        }
+        for (LineOutput output : outputs) {
+            flush(output);
+        }
+    }
+
+    /**
+     * 处理单个订单行，台账只写入返回的输出缓冲
+     */
+    private LineOutput processLine(String orderId, String orderLineId, List<ElementItem> lineItems, LedgerTimestamp srd) {
+        LineOutput out = new LineOutput();
+        // 2. 获取用户原合约信息
+        OrderLine orderLine = orderLinesByLine.first(key(orderId, orderLineId), l -> true);
+        if (orderLine == null) return out;
+        String userId = orderLine.getUserId();
+        LedgerTimestamp acceptDate = orderLine.getAcceptDate();
+
+        // 3. 判断合约属性变更生效方式
+        OrderLineItem appendContract = lineItemsByLineAttr.first(key(orderLineId, "Append Contract"), item -> "0".equals(item.getModifyTag()));
+        String appendContractValue = appendContract != null ? appendContract.getValue() : "0";
+        boolean isAppend = "1".equals(appendContractValue);
+
+        // 4. 处理资费台账，按element_item_id分组
+        Map<String, List<ElementItem>> itemGroup = new LinkedHashMap<>();
+        for (ElementItem item : lineItems) {
+            itemGroup.computeIfAbsent(item.getElementItemId(), k -> new ArrayList<>()).add(item);
+        }
+        for (String elementItemId : itemGroup.keySet()) {
+            List<ElementItem> itemList = itemGroup.get(elementItemId);
+            String elementId = itemList.get(0).getElementId();
+            ItemRef originalItemId = ItemRef.of(elementItemId);
+
+            // 4.0 判断element_id的sub_element_type
+            String subElementType = getSubElementType(elementId);
+
+            // 4.1 获取用户原资费、资费属性
+            UserDiscnt userDiscnt = discntsByUserItem.first(key(userId, elementItemId), d -> elementId.equals(d.getElementId()));
+            List<UserDiscnt> userDiscntAttrs = new ArrayList<>(discntAttrsByUserItem.get(key(userId, elementItemId)));
+
+            // 4.2 判断合约内/外
+            LedgerTimestamp contractEndDateStd = userDiscntAttrs.stream()
+                    .filter(a -> "contract_end_date_std".equals(a.getAttrCode()))
+                    .findFirst()
+                    .map(a -> LedgerTimestamp.parseOrNull(a.getAttrValue()))
+                    .orElse(LedgerTimestamp.MAX);
+            boolean isInContract = compareDate(contractEndDateStd, acceptDate) > 0;
+
+            // 4.3 合约内，立即生效，SRD <= contract_end_date_std
+            if (isInContract && !isAppend && compareDate(srd, contractEndDateStd) <= 0) {
+                // 4.3.1 终止原资费
+                insertProductElement(out, orderId, orderLineId, elementId, originalItemId, minusSeconds(srd, 1), "1");
+                // 4.3.2 新增资费
+                ItemRef newItemId = out.newItemId();
+                insertProductElement(out, orderId, orderLineId, elementId, newItemId, srd, "0");
+                // 4.3.3 终止原资费属性
+                userDiscntAttrs.forEach(attr -> insertElementItem(out, orderId, orderLineId, elementId, originalItemId, attr, minusSeconds(srd, 1), "1", minusSeconds(srd, 1)));
+                // 4.3.4 新增资费属性
+                userDiscntAttrs.forEach(attr -> insertElementItem(out, orderId, orderLineId, elementId, newItemId, attr, srd, "0", null));
+                // 4.3.5 追加未修改属性（略）
+            }
+            // 4.4 合约内，顺延
+            else if (isInContract && isAppend) {
+                insertProductElement(out, orderId, orderLineId, elementId, originalItemId, contractEndDateStd, "1");
+                ItemRef newItemId = out.newItemId();
+                LedgerTimestamp newStart = plusSeconds(contractEndDateStd, 1);
+                insertProductElement(out, orderId, orderLineId, elementId, newItemId, newStart, "0");
+                userDiscntAttrs.forEach(attr -> insertElementItem(out, orderId, orderLineId, elementId, originalItemId, attr, contractEndDateStd, "1", contractEndDateStd));
+                userDiscntAttrs.forEach(attr -> insertElementItem(out, orderId, orderLineId, elementId, newItemId, attr, newStart, "0", null));
+            }
+            // 4.5 合约外，顺延
+            else if (!isInContract && isAppend) {
+                insertProductElement(out, orderId, orderLineId, elementId, originalItemId, contractEndDateStd, "1");
+                ItemRef newItemId = out.newItemId();
+                LedgerTimestamp newStart = plusSeconds(contractEndDateStd, 1);
+                insertProductElement(out, orderId, orderLineId, elementId, newItemId, newStart, "0");
+                userDiscntAttrs.forEach(attr -> {
+                    insertElementItem(out, orderId, orderLineId, elementId, originalItemId, attr, contractEndDateStd, "1", contractEndDateStd);
+                    insertElementItem(out, orderId, orderLineId, elementId, newItemId, attr, newStart, "0", null);
+                });
+            }
+            // 4.6 合约外，SRD > contract_end_date_std，无顺延
+            else if (!isInContract && !isAppend && compareDate(srd, contractEndDateStd) > 0) {
+                insertProductElement(out, orderId, orderLineId, elementId, originalItemId, contractEndDateStd, "1");
+                if (compareDate(minusSeconds(srd, 1), contractEndDateStd) > 0 && "MRC".equals(subElementType)) {
+                    ItemRef noContractItemId = out.newItemId();
+                    LedgerTimestamp noContractStart = plusSeconds(contractEndDateStd, 1);
+                    LedgerTimestamp noContractEnd = minusSeconds(srd, 1);
+                    insertProductElement(out, orderId, orderLineId, elementId, noContractItemId, noContractStart, "0", noContractEnd);
+                    userDiscntAttrs.stream()
+                            .filter(attr -> !NO_COPY_ATTR_MRC.contains(attr.getAttrCode()))
+                            .forEach(attr -> insertElementItem(out, orderId, orderLineId, elementId, noContractItemId, attr, noContractStart, "0", noContractEnd));
+                    insertExtraContractAttrs(out, orderId, orderLineId, elementId, noContractItemId, noContractStart, noContractEnd);
                 }
-                // 4.7 合约内，非顺延，SRD > contract_end_date_std
-                else if (isInContract && !isAppend && compareDate(srd, contractEndDateStd) > 0) {
-                    insertProductElement(orderId, orderLineId, elementId, elementItemId, contractEndDateStd, "1");
-                    if (compareDate(minusSeconds(srd, 1), contractEndDateStd) > 0 && "MRC".equals(subElementType)) {
-                        String noContractItemId = genItemId();
-                        String noContractStart = plusSeconds(contractEndDateStd, 1);
-                        String noContractEnd = minusSeconds(srd, 1);
-                        insertProductElement(orderId, orderLineId, elementId, noContractItemId, noContractStart, "0", noContractEnd);
-                        userDiscntAttrs.stream()
-                                .filter(attr -> !NO_COPY_ATTR_MRC.contains(attr.get("attr_code")))
-                                .forEach(attr -> insertElementItem(orderId, orderLineId, elementId, noContractItemId, attr, noContractStart, "0", noContractEnd));
-                        insertExtraContractAttrs(orderId, orderLineId, elementId, noContractItemId, noContractStart, noContractEnd);
-                    }
-                    String newItemId = genItemId();
-                    insertProductElement(orderId, orderLineId, elementId, newItemId, srd, "0");
-                    userDiscntAttrs.forEach(attr -> {
-                        insertElementItem(orderId, orderLineId, elementId, elementItemId, attr, contractEndDateStd, "1", contractEndDateStd);
-                        insertElementItem(orderId, orderLineId, elementId, newItemId, attr, srd, "0", null);
-                    });
+                ItemRef newItemId = out.newItemId();
+                insertProductElement(out, orderId, orderLineId, elementId, newItemId, srd, "0");
+                userDiscntAttrs.forEach(attr -> {
+                    insertElementItem(out, orderId, orderLineId, elementId, originalItemId, attr, contractEndDateStd, "1", contractEndDateStd);
+                    insertElementItem(out, orderId, orderLineId, elementId, newItemId, attr, srd, "0", null);
+                });
+            }
+            // 4.7 合约内，非顺延，SRD > contract_end_date_std
+            else if (isInContract && !isAppend && compareDate(srd, contractEndDateStd) > 0) {
+                insertProductElement(out, orderId, orderLineId, elementId, originalItemId, contractEndDateStd, "1");
+                if (compareDate(minusSeconds(srd, 1), contractEndDateStd) > 0 && "MRC".equals(subElementType)) {
+                    ItemRef noContractItemId = out.newItemId();
+                    LedgerTimestamp noContractStart = plusSeconds(contractEndDateStd, 1);
+                    LedgerTimestamp noContractEnd = minusSeconds(srd, 1);
+                    insertProductElement(out, orderId, orderLineId, elementId, noContractItemId, noContractStart, "0", noContractEnd);
+                    userDiscntAttrs.stream()
+                            .filter(attr -> !NO_COPY_ATTR_MRC.contains(attr.getAttrCode()))
+                            .forEach(attr -> insertElementItem(out, orderId, orderLineId, elementId, noContractItemId, attr, noContractStart, "0", noContractEnd));
+                    insertExtraContractAttrs(out, orderId, orderLineId, elementId, noContractItemId, noContractStart, noContractEnd);
                 }
+                ItemRef newItemId = out.newItemId();
+                insertProductElement(out, orderId, orderLineId, elementId, newItemId, srd, "0");
+                userDiscntAttrs.forEach(attr -> {
+                    insertElementItem(out, orderId, orderLineId, elementId, originalItemId, attr, contractEndDateStd, "1", contractEndDateStd);
+                    insertElementItem(out, orderId, orderLineId, elementId, newItemId, attr, srd, "0", null);
+                });
             }
         }
+        return out;
     }
 
     /**
      * 只修改MRC时自动补全rebate属性变更台账
      */
-    public void supplementRebateChangeForMRC(String orderId, String orderLineId, String userId, String srd) {
+    public void supplementRebateChangeForMRC(String orderId, String orderLineId, String userId, String srdText) {
+        LedgerTimestamp srd = LedgerTimestamp.parse(srdText);
+        LedgerTimestamp now = LedgerTimestamp.now();
         // 1. 查询本次合约属性变更的MRC
-        List<Map<String, Object>> mrcItems = ocOrderElementItem.stream()
-                .filter(item -> orderId.equals(item.get("order_id"))
-                        && orderLineId.equals(item.get("order_line_id"))
-                        && "2".equals(item.get("modify_tag"))
-                        && "D".equals(item.get("element_type_code"))
-                        && CONTRACT_ATTR_CODES.contains(item.get("attr_code")))
-                .collect(Collectors.groupingBy(item -> (String) item.get("element_id")))
-                .entrySet().stream()
-                .filter(e -> "MRC".equals(getSubElementType(e.getKey())))
-                .flatMap(e -> e.getValue().stream())
-                .collect(Collectors.toList());
-
-        for (Map<String, Object> mrc : mrcItems) {
-            String elementItemId = (String) mrc.get("element_item_id");
+        List<ElementItem> mrcItems = elementItemsByLine.select(key(orderId, orderLineId), item -> "2".equals(item.getModifyTag())
+                && "D".equals(item.getElementTypeCode())
+                && CONTRACT_ATTR_CODES.contains(item.getAttrCode())
+                && "MRC".equals(getSubElementType(item.getElementId())));
+
+        for (ElementItem mrc : mrcItems) {
+            String elementItemId = mrc.getElementItemId();
             // 1.2 获取MRC对应rebate
-            Optional<Map<String, Object>> ref = findFirst(userDiscntAttrList, a ->
-                    userId.equals(a.get("user_id"))
-                            && "ref_sub_comp_id".equals(a.get("attr_code"))
-                            && elementItemId.equals(a.get("attr_value"))
-                            && compareDate((String) a.getOrDefault("end_date", "2099-12-31T23:59:59"), nowStr()) > 0
-            );
-            if (ref.isEmpty()) continue;
-            String rebateItemId = (String) ref.get().get("dst_item_id");
+            UserDiscnt ref = discntAttrsByUserAttr.first(key(userId, "ref_sub_comp_id", elementItemId),
+                    a -> compareDate(endOrMax(a.getEndDate()), now) > 0);
+            if (ref == null) continue;
+            String rebateItemId = ref.getDstItemId();
             // 1.3.1 获取rebate discnt_code
-            Optional<Map<String, Object>> rebate = findFirst(userDiscntList, d ->
-                    userId.equals(d.get("user_id"))
-                            && rebateItemId.equals(d.get("element_item_id"))
-                            && compareDate((String) d.getOrDefault("end_date", "2099-12-31T23:59:59"), nowStr()) > 0
-            );
-            if (rebate.isEmpty()) continue;
-            String rebateDiscntCode = (String) rebate.get().get("element_id");
+            UserDiscnt rebate = discntsByUserItem.first(key(userId, rebateItemId), d -> compareDate(endOrMax(d.getEndDate()), now) > 0);
+            if (rebate == null) continue;
+            String rebateDiscntCode = rebate.getElementId();
             // 1.3.2 判断rebate是否已有属性变更
-            boolean hasRebateChange = anyMatch(ocOrderElementItem, item ->
-                    orderId.equals(item.get("order_id"))
-                            && orderLineId.equals(item.get("order_line_id"))
-                            && rebateDiscntCode.equals(item.get("element_id"))
-                            && "D".equals(item.get("element_type_code"))
-                            && CONTRACT_ATTR_CODES.contains(item.get("attr_code"))
-                            && rebateItemId.equals(item.get("element_item_id"))
-                            && "2".equals(item.get("modify_tag"))
-                            && compareDate((String) item.getOrDefault("end_date", "2099-12-31T23:59:59"), (String) item.getOrDefault("start_date", "1970-01-01T00:00:00")) > 0
+            boolean hasRebateChange = elementItemsByLine.exists(key(orderId, orderLineId), item ->
+                    rebateDiscntCode.equals(item.getElementId())
+                            && "D".equals(item.getElementTypeCode())
+                            && CONTRACT_ATTR_CODES.contains(item.getAttrCode())
+                            && rebateItemId.equals(item.getElementItemId())
+                            && "2".equals(item.getModifyTag())
+                            && compareDate(endOrMax(item.getEndDate()), startOrMin(item.getStartDate())) > 0
             );
             if (hasRebateChange) continue;
             // 1.3.3 判断rebate是否被删除
-            boolean rebateDeleted = anyMatch(ocOrderProductElement, pe ->
-                    orderId.equals(pe.get("order_id"))
-                            && orderLineId.equals(pe.get("order_line_id"))
-                            && rebateDiscntCode.equals(pe.get("element_id"))
-                            && "D".equals(pe.get("element_type_code"))
-                            && "1".equals(pe.get("modify_tag"))
+            boolean rebateDeleted = productElementsByLine.exists(key(orderId, orderLineId), pe ->
+                    rebateDiscntCode.equals(pe.getElementId())
+                            && "D".equals(pe.getElementTypeCode())
+                            && "1".equals(pe.getModifyTag())
             );
             if (rebateDeleted) continue;
             // 1.3.4 增补rebate属性变更台账
-            Optional<Map<String, Object>> rebateFee = findFirst(userDiscntAttrList, a ->
-                    userId.equals(a.get("user_id"))
-                            && rebateItemId.equals(a.get("element_item_id"))
-                            && "rebate_fee".equals(a.get("attr_code"))
-                            && compareDate((String) a.getOrDefault("end_date", "2099-12-31T23:59:59"), nowStr()) > 0
-            );
-            rebateFee.ifPresent(fee -> insertAttrChange(orderId, orderLineId, rebateDiscntCode, rebateItemId, "rebate_fee", fee.get("attr_value"), srd));
+            UserDiscnt rebateFee = discntAttrsByUserItem.first(key(userId, rebateItemId), a ->
+                    "rebate_fee".equals(a.getAttrCode()) && compareDate(endOrMax(a.getEndDate()), now) > 0);
+            if (rebateFee != null) {
+                insertAttrChange(orderId, orderLineId, rebateDiscntCode, rebateItemId, "rebate_fee", rebateFee.getAttrValue(), srd);
+            }
         }
     }
 
     /**
      * 只修改rebate时自动补全MRC属性变更台账
      */
-    public void supplementMRCChangeForRebate(String orderId, String orderLineId, String userId, String srd) {
+    public void supplementMRCChangeForRebate(String orderId, String orderLineId, String userId, String srdText) {
+        LedgerTimestamp srd = LedgerTimestamp.parse(srdText);
+        LedgerTimestamp now = LedgerTimestamp.now();
         // 1. 查询本次合约属性变更的rebate
-        List<Map<String, Object>> rebateItems = ocOrderElementItem.stream()
-                .filter(item -> orderId.equals(item.get("order_id"))
-                        && orderLineId.equals(item.get("order_line_id"))
-                        && "2".equals(item.get("modify_tag"))
-                        && "D".equals(item.get("element_type_code"))
-                        && CONTRACT_ATTR_CODES.contains(item.get("attr_code")))
-                .collect(Collectors.groupingBy(item -> (String) item.get("element_id")))
-                .entrySet().stream()
-                .filter(e -> "rebate".equals(getSubElementType(e.getKey())))
-                .flatMap(e -> e.getValue().stream())
-                .collect(Collectors.toList());
-
-        for (Map<String, Object> rebate : rebateItems) {
-            String elementItemId = (String) rebate.get("element_item_id");
+        List<ElementItem> rebateItems = elementItemsByLine.select(key(orderId, orderLineId), item -> "2".equals(item.getModifyTag())
+                && "D".equals(item.getElementTypeCode())
+                && CONTRACT_ATTR_CODES.contains(item.getAttrCode())
+                && "rebate".equals(getSubElementType(item.getElementId())));
+
+        for (ElementItem rebate : rebateItems) {
+            String elementItemId = rebate.getElementItemId();
             // 1.2 获取rebate对应MRC
-            Optional<Map<String, Object>> ref = findFirst(userDiscntList, d ->
-                    userId.equals(d.get("user_id"))
-                            && elementItemId.equals(d.get("dst_item_id"))
-                            && "ref_sub_comp_id".equals(d.get("attr_code"))
-                            && compareDate((String) d.getOrDefault("end_date", "2099-12-31T23:59:59"), nowStr()) > 0
-            );
-            if (ref.isEmpty()) continue;
-            String mrcItemId = (String) ref.get().get("attr_value");
+            UserDiscnt ref = discntsByUserDstItem.first(key(userId, elementItemId), d ->
+                    "ref_sub_comp_id".equals(d.getAttrCode()) && compareDate(endOrMax(d.getEndDate()), now) > 0);
+            if (ref == null) continue;
+            String mrcItemId = ref.getAttrValue();
             // 1.3.1 获取MRC discnt_code
-            Optional<Map<String, Object>> mrc = findFirst(userDiscntList, d ->
-                    userId.equals(d.get("user_id"))
-                            && mrcItemId.equals(d.get("element_item_id"))
-                            && compareDate((String) d.getOrDefault("end_date", "2099-12-31T23:59:59"), nowStr()) > 0
-            );
-            if (mrc.isEmpty()) continue;
-            String mrcDiscntCode = (String) mrc.get().get("element_id");
+            UserDiscnt mrc = discntsByUserItem.first(key(userId, mrcItemId), d -> compareDate(endOrMax(d.getEndDate()), now) > 0);
+            if (mrc == null) continue;
+            String mrcDiscntCode = mrc.getElementId();
             // 1.3.2 判断MRC是否已有属性变更
-            boolean hasMRCChange = anyMatch(ocOrderElementItem, item ->
-                    orderId.equals(item.get("order_id"))
-                            && orderLineId.equals(item.get("order_line_id"))
-                            && mrcDiscntCode.equals(item.get("element_id"))
-                            && "D".equals(item.get("element_type_code"))
-                            && CONTRACT_ATTR_CODES.contains(item.get("attr_code"))
-                            && "2".equals(item.get("modify_tag"))
-                            && compareDate((String) item.getOrDefault("end_date", "2099-12-31T23:59:59"), (String) item.getOrDefault("start_date", "1970-01-01T00:00:00")) > 0
+            boolean hasMRCChange = elementItemsByLine.exists(key(orderId, orderLineId), item ->
+                    mrcDiscntCode.equals(item.getElementId())
+                            && "D".equals(item.getElementTypeCode())
+                            && CONTRACT_ATTR_CODES.contains(item.getAttrCode())
+                            && "2".equals(item.getModifyTag())
+                            && compareDate(endOrMax(item.getEndDate()), startOrMin(item.getStartDate())) > 0
             );
             if (hasMRCChange) continue;
             // 1.3.4 增补MRC属性变更台账
-            Optional<Map<String, Object>> rentFee = findFirst(userDiscntAttrList, a ->
-                    userId.equals(a.get("user_id"))
-                            && mrcItemId.equals(a.get("element_item_id"))
-                            && "rent_fee".equals(a.get("attr_code"))
-                            && compareDate((String) a.getOrDefault("end_date", "2099-12-31T23:59:59"), nowStr()) > 0
-            );
-            rentFee.ifPresent(fee -> insertAttrChange(orderId, orderLineId, mrcDiscntCode, mrcItemId, "rent_fee", fee.get("attr_value"), srd));
+            UserDiscnt rentFee = discntAttrsByUserItem.first(key(userId, mrcItemId), a ->
+                    "rent_fee".equals(a.getAttrCode()) && compareDate(endOrMax(a.getEndDate()), now) > 0);
+            if (rentFee != null) {
+                insertAttrChange(orderId, orderLineId, mrcDiscntCode, mrcItemId, "rent_fee", rentFee.getAttrValue(), srd);
+            }
         }
     }
 
     /**
      * 针对DDI line变更时MRC的qty属性台账增补
      */
-    public void supplementMRCQtyForDDILine(String orderId, String orderLineId, String snUserId, String srd) {
+    public void supplementMRCQtyForDDILine(String orderId, String orderLineId, String snUserId, String srdText) {
+        LedgerTimestamp srd = LedgerTimestamp.parse(srdText);
+        LedgerTimestamp now = LedgerTimestamp.now();
         // 1. 查询ddi_line_qty
-        Optional<Map<String, Object>> ddiLine = findFirst(ocOrderProductElement, item ->
-                orderId.equals(item.get("order_id"))
-                        && orderLineId.equals(item.get("order_line_id"))
-                        && "ddi_line_qty".equals(item.get("attr_code"))
-                        && "0".equals(item.get("modify_tag"))
-        );
-        if (ddiLine.isEmpty()) return;
-        String qtyValue = (String) ddiLine.get().get("attr_value");
-        String productId = (String) ddiLine.get().get("product_id");
-        String prodItemId = (String) ddiLine.get().get("prod_item_id");
+        ProductElement ddiLine = productElementsByLine.first(key(orderId, orderLineId), item ->
+                "ddi_line_qty".equals(item.getAttrCode()) && "0".equals(item.getModifyTag()));
+        if (ddiLine == null) return;
+        String qtyValue = ddiLine.getAttrValue();
+        String productId = ddiLine.getProductId();
+        String prodItemId = ddiLine.getProdItemId();
 
         // 1.1 增补本次有合约属性变更的MRC的qty属性
         Set<String> chgMrcContractSet = new HashSet<>();
-        List<Map<String, Object>> mrcChangeList = ocOrderElementItem.stream()
-                .filter(item -> orderId.equals(item.get("order_id"))
-                        && orderLineId.equals(item.get("order_line_id"))
-                        && CONTRACT_ATTR_CODES.contains(item.get("attr_code"))
-                        && "2".equals(item.get("modify_tag")))
-                .collect(Collectors.toList());
-        for (Map<String, Object> mrc : mrcChangeList) {
-            String elementId = (String) mrc.get("element_id");
-            String elementItemId = (String) mrc.get("element_item_id");
+        List<ElementItem> mrcChangeList = elementItemsByLine.select(key(orderId, orderLineId), item ->
+                CONTRACT_ATTR_CODES.contains(item.getAttrCode()) && "2".equals(item.getModifyTag()));
+        for (ElementItem mrc : mrcChangeList) {
+            String elementId = mrc.getElementId();
+            String elementItemId = mrc.getElementItemId();
             // 排除非本产品MRC
-            boolean valid = anyMatch(userDiscntList, d ->
-                    snUserId.equals(d.get("user_id"))
-                            && productId.equals(d.get("product_id"))
-                            && prodItemId.equals(d.get("prod_item_id"))
-                            && elementId.equals(d.get("discnt_code"))
-                            && elementItemId.equals(d.get("dst_item_id"))
-                            && compareDate((String) d.getOrDefault("end_date", "2099-12-31T23:59:59"), nowStr()) > 0
+            boolean valid = discntsByUserProduct.exists(key(snUserId, productId, prodItemId), d ->
+                    elementId.equals(d.getDiscntCode())
+                            && elementItemId.equals(d.getDstItemId())
+                            && compareDate(endOrMax(d.getEndDate()), now) > 0
             );
             if (!valid) continue;
             // 随机取一条合约属性
-            Optional<Map<String, Object>> attr = findFirst(ocOrderElementItem, item ->
-                    orderId.equals(item.get("order_id"))
-                            && orderLineId.equals(item.get("order_line_id"))
-                            && elementId.equals(item.get("element_id"))
-                            && "D".equals(item.get("element_type_code"))
-                            && elementItemId.equals(item.get("element_item_id"))
-                            && CONTRACT_ATTR_CODES.contains(item.get("attr_code"))
-                            && "2".equals(item.get("modify_tag"))
+            ElementItem attr = elementItemsByLine.first(key(orderId, orderLineId), item ->
+                    elementId.equals(item.getElementId())
+                            && "D".equals(item.getElementTypeCode())
+                            && elementItemId.equals(item.getElementItemId())
+                            && CONTRACT_ATTR_CODES.contains(item.getAttrCode())
+                            && "2".equals(item.getModifyTag())
             );
-            if (attr.isPresent()) {
-                insertAttrChange(orderId, orderLineId, elementId, elementItemId, "qty", qtyValue, (String) attr.get().get("start_date"));
+            if (attr != null) {
+                insertAttrChange(orderId, orderLineId, elementId, elementItemId, "qty", qtyValue, attr.getStartDate());
                 chgMrcContractSet.add(elementId + "#" + elementItemId);
             }
         }
         // 1.2 增补本次未变更的MRC的qty
-        List<Map<String, Object>> userMRCs = userDiscntList.stream()
-                .filter(d -> snUserId.equals(d.get("user_id"))
-                        && productId.equals(d.get("product_id"))
-                        && prodItemId.equals(d.get("prod_item_id"))
-                        && compareDate((String) d.getOrDefault("end_date", "2099-12-31T23:59:59"), nowStr()) > 0)
-                .collect(Collectors.toList());
-        for (Map<String, Object> mrc : userMRCs) {
-            String discntCode = (String) mrc.get("discnt_code");
-            String dstItemId = (String) mrc.get("dst_item_id");
+        List<UserDiscnt> userMRCs = discntsByUserProduct.select(key(snUserId, productId, prodItemId), d ->
+                compareDate(endOrMax(d.getEndDate()), now) > 0);
+        for (UserDiscnt mrc : userMRCs) {
+            String discntCode = mrc.getDiscntCode();
+            String dstItemId = mrc.getDstItemId();
             if (chgMrcContractSet.contains(discntCode + "#" + dstItemId)) continue;
             // 排除本次订单删除的MRC
-            boolean deleted = anyMatch(ocOrderProductElement, pe ->
-                    orderId.equals(pe.get("order_id"))
-                            && orderLineId.equals(pe.get("order_line_id"))
-                            && discntCode.equals(pe.get("element_id"))
-                            && "D".equals(pe.get("element_type_code"))
-                            && dstItemId.equals(pe.get("element_item_id"))
-                            && "1".equals(pe.get("modify_tag"))
+            boolean deleted = productElementsByLine.exists(key(orderId, orderLineId), pe ->
+                    discntCode.equals(pe.getElementId())
+                            && "D".equals(pe.getElementTypeCode())
+                            && dstItemId.equals(pe.getElementItemId())
+                            && "1".equals(pe.getModifyTag())
             );
             if (deleted) continue;
             insertAttrChange(orderId, orderLineId, discntCode, dstItemId, "qty", qtyValue, srd);
         }
     }
 
-    // 工具方法：查找第一个匹配项
-    private static <T> Optional<T> findFirst(Collection<T> list, Predicate<T> predicate) {
-        for (T t : list) {
-            if (predicate.test(t)) return Optional.of(t);
-        }
-        return Optional.empty();
+    // 模拟表（装载测试 / 基准数据及核对台账用）
+    public InMemoryTable<ElementItem> ocOrderElementItem() {
+        return ocOrderElementItem;
     }
 
-    // 工具方法：是否存在匹配项
-    private static <T> boolean anyMatch(Collection<T> list, Predicate<T> predicate) {
-        for (T t : list) {
-            if (predicate.test(t)) return true;
-        }
-        return false;
+    public InMemoryTable<ProductElement> ocOrderProductElement() {
+        return ocOrderProductElement;
+    }
+
+    public InMemoryTable<OrderLine> ocOrderLine() {
+        return ocOrderLine;
     }
 
-    // 获取当前时间字符串
-    private static String nowStr() {
-        return LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    public InMemoryTable<OrderLineItem> ocOrderLineItem() {
+        return ocOrderLineItem;
+    }
+
+    public InMemoryTable<UserDiscnt> userDiscntList() {
+        return userDiscntList;
+    }
+
+    public InMemoryTable<UserDiscnt> userDiscntAttrList() {
+        return userDiscntAttrList;
+    }
+
+    // 未填结束/开始时间时按永久有效处理
+    private static LedgerTimestamp endOrMax(LedgerTimestamp endDate) {
+        return endDate != null ? endDate : LedgerTimestamp.MAX;
+    }
+
+    private static LedgerTimestamp startOrMin(LedgerTimestamp startDate) {
+        return startDate != null ? startDate : LedgerTimestamp.MIN;
     }
 
     // 获取资费类型
@@ -394,107 +430,157 @@ public class ContractChangeService {
     }
 
     // 插入资费台账
-    private void insertProductElement(String orderId, String orderLineId, String elementId, String elementItemId, String date, String modifyTag) {
-        insertProductElement(orderId, orderLineId, elementId, elementItemId, date, modifyTag, null);
+    private void insertProductElement(LineOutput out, String orderId, String orderLineId, String elementId, ItemRef elementItemId, LedgerTimestamp date, String modifyTag) {
+        insertProductElement(out, orderId, orderLineId, elementId, elementItemId, date, modifyTag, null);
     }
-    private void insertProductElement(String orderId, String orderLineId, String elementId, String elementItemId, String startDate, String modifyTag, String endDate) {
-        Map<String, Object> row = new HashMap<>();
-        row.put("order_id", orderId);
-        row.put("order_line_id", orderLineId);
-        row.put("element_id", elementId);
-        row.put("element_item_id", elementItemId);
-        row.put("start_date", startDate);
-        row.put("modify_tag", modifyTag);
-        if (endDate != null) row.put("end_date", endDate);
-        ocOrderProductElement.add(row);
+    private void insertProductElement(LineOutput out, String orderId, String orderLineId, String elementId, ItemRef elementItemId, LedgerTimestamp startDate, String modifyTag, LedgerTimestamp endDate) {
+        ProductElement row = new ProductElement();
+        row.setOrderId(orderId);
+        row.setOrderLineId(orderLineId);
+        row.setElementId(elementId);
+        row.setStartDate(startDate);
+        row.setModifyTag(modifyTag);
+        row.setEndDate(endDate);
+        out.add(row, elementItemId);
     }
 
-    // 插入资费属性台账
-    private void insertElementItem(String orderId, String orderLineId, String elementId, String elementItemId, Map<String, Object> attr, String date, String modifyTag, String endDate) {
-        Map<String, Object> row = new HashMap<>(attr);
-        row.put("order_id", orderId);
-        row.put("order_line_id", orderLineId);
-        row.put("element_id", elementId);
-        row.put("element_item_id", elementItemId);
-        row.put("start_date", date);
-        row.put("modify_tag", modifyTag);
+    // 插入资费属性台账（属性编码、值及未指定时的结束时间取自用户原资费属性）
+    private void insertElementItem(LineOutput out, String orderId, String orderLineId, String elementId, ItemRef elementItemId, UserDiscnt attr, LedgerTimestamp date, String modifyTag, LedgerTimestamp endDate) {
+        ElementItem row = new ElementItem();
+        row.setOrderId(orderId);
+        row.setOrderLineId(orderLineId);
+        row.setElementId(elementId);
+        row.setAttrCode(attr.getAttrCode());
+        row.setAttrValue(attr.getAttrValue());
+        row.setStartDate(date);
+        row.setModifyTag(modifyTag);
+        row.setEndDate(attr.getEndDate());
         if (endDate != null) {
-            row.put("end_date", endDate);
-            if ("contract_end_date".equals(row.get("attr_code"))) {
-                row.put("attr_value", endDate);
+            row.setEndDate(endDate);
+            if ("contract_end_date".equals(row.getAttrCode())) {
+                row.setAttrValue(endDate.toString());
             }
         }
-        ocOrderElementItem.add(row);
+        out.add(row, elementItemId);
     }
 
     // 统一插入属性变更台账
-    private void insertAttrChange(String orderId, String orderLineId, String elementId, String elementItemId, String attrCode, Object attrValue, String startDate) {
-        Map<String, Object> row = new HashMap<>();
-        row.put("order_id", orderId);
-        row.put("order_line_id", orderLineId);
-        row.put("element_id", elementId);
-        row.put("element_type_code", "D");
-        row.put("element_item_id", elementItemId);
-        row.put("attr_code", attrCode);
-        row.put("attr_value", attrValue);
-        row.put("start_date", startDate);
-        row.put("end_date", "2099-12-31T23:59:59");
-        row.put("modify_tag", "2");
-        ocOrderElementItem.add(row);
+    private void insertAttrChange(String orderId, String orderLineId, String elementId, String elementItemId, String attrCode, String attrValue, LedgerTimestamp startDate) {
+        ElementItem row = new ElementItem();
+        row.setOrderId(orderId);
+        row.setOrderLineId(orderLineId);
+        row.setElementId(elementId);
+        row.setElementTypeCode("D");
+        row.setElementItemId(elementItemId);
+        row.setAttrCode(attrCode);
+        row.setAttrValue(attrValue);
+        row.setStartDate(startDate);
+        row.setEndDate(LedgerTimestamp.MAX);
+        row.setModifyTag("2");
+        ocOrderElementItem.insert(row);
     }
 
     // 增补contract_perior等属性
-    private void insertExtraContractAttrs(String orderId, String orderLineId, String elementId, String elementItemId, String startDate, String endDate) {
-        List<Map<String, Object>> attrs = List.of(
-                Map.of("attr_code", "contract_perior", "attr_value", "FTG"),
-                Map.of("attr_code", "contract_start_date", "attr_value", startDate),
-                Map.of("attr_code", "contract_end_date", "attr_value", endDate),
-                Map.of("attr_code", "contract_end_date_std", "attr_value", endDate)
-        );
-        for (Map<String, Object> attr : attrs) {
-            Map<String, Object> row = new HashMap<>(attr);
-            row.put("order_id", orderId);
-            row.put("order_line_id", orderLineId);
-            row.put("element_id", elementId);
-            row.put("element_item_id", elementItemId);
-            row.put("start_date", startDate);
-            row.put("end_date", endDate);
-            row.put("modify_tag", "0");
-            ocOrderElementItem.add(row);
+    private void insertExtraContractAttrs(LineOutput out, String orderId, String orderLineId, String elementId, ItemRef elementItemId, LedgerTimestamp startDate, LedgerTimestamp endDate) {
+        String[][] attrs = {
+                {"contract_perior", "FTG"},
+                {"contract_start_date", text(startDate)},
+                {"contract_end_date", text(endDate)},
+                {"contract_end_date_std", text(endDate)}
+        };
+        for (String[] attr : attrs) {
+            ElementItem row = new ElementItem();
+            row.setOrderId(orderId);
+            row.setOrderLineId(orderLineId);
+            row.setElementId(elementId);
+            row.setAttrCode(attr[0]);
+            row.setAttrValue(attr[1]);
+            row.setStartDate(startDate);
+            row.setEndDate(endDate);
+            row.setModifyTag("0");
+            out.add(row, elementItemId);
         }
     }
 
-    // 时间加/减秒
-    private String plusSeconds(String dateTime, int seconds) {
-        try {
-            LocalDateTime dt = LocalDateTime.parse(dateTime, DateTimeFormatter.ISO_LOCAL_DATE_TIME).plusSeconds(seconds);
-            return dt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        } catch (Exception e) {
-            return dateTime;
-        }
+    // 时间加/减秒（时间缺失时保持缺失）
+    private static LedgerTimestamp plusSeconds(LedgerTimestamp dateTime, int seconds) {
+        return dateTime == null ? null : dateTime.plusSeconds(seconds);
     }
-    private String minusSeconds(String dateTime, int seconds) {
-        try {
-            LocalDateTime dt = LocalDateTime.parse(dateTime, DateTimeFormatter.ISO_LOCAL_DATE_TIME).minusSeconds(seconds);
-            return dt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        } catch (Exception e) {
-            return dateTime;
-        }
+    private static LedgerTimestamp minusSeconds(LedgerTimestamp dateTime, int seconds) {
+        return dateTime == null ? null : dateTime.minusSeconds(seconds);
     }
 
-    // 时间比较
-    private int compareDate(String d1, String d2) {
-        try {
-            LocalDateTime dt1 = LocalDateTime.parse(d1, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            LocalDateTime dt2 = LocalDateTime.parse(d2, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            return dt1.compareTo(dt2);
-        } catch (Exception e) {
-            return 0;
-        }
+    // 时间比较（任一缺失时视为相等）
+    private static int compareDate(LedgerTimestamp d1, LedgerTimestamp d2) {
+        return LedgerTimestamp.compare(d1, d2);
+    }
+
+    private static String text(LedgerTimestamp dateTime) {
+        return dateTime == null ? null : dateTime.toString();
     }
 
     // 生成唯一item_id（模拟序列服务）
     private String genItemId() {
-        return UUID.randomUUID().toString().replace("-", "");
+        return itemIdGenerator.get();
+    }
+
+    // 将订单行输出缓冲写入模拟表：按行内创建顺序为新 item_id 取号，再写入各行台账
+    private void flush(LineOutput out) {
+        for (ItemRef itemId : out.newItemIds) {
+            itemId.value = genItemId();
+        }
+        for (int i = 0; i < out.productElements.size(); i++) {
+            ProductElement row = out.productElements.get(i);
+            row.setElementItemId(out.productElementItemIds.get(i).value);
+            ocOrderProductElement.insert(row);
+        }
+        for (int i = 0; i < out.elementItems.size(); i++) {
+            ElementItem row = out.elementItems.get(i);
+            row.setElementItemId(out.elementItemItemIds.get(i).value);
+            ocOrderElementItem.insert(row);
+        }
+    }
+
+    /**
+     * 台账行引用的 item_id：原有 item_id 直接持有其值，新 item_id 在合并订单行输出时才赋值
+     */
+    private static final class ItemRef {
+        String value;
+
+        private ItemRef(String value) {
+            this.value = value;
+        }
+
+        static ItemRef of(String elementItemId) {
+            return new ItemRef(elementItemId);
+        }
+    }
+
+    /**
+     * 单个订单行的台账输出缓冲（仅由处理该订单行的线程写入），每个台账行记下所引用的 ItemRef
+     */
+    private static final class LineOutput {
+        final List<ProductElement> productElements = new ArrayList<>();
+        final List<ItemRef> productElementItemIds = new ArrayList<>();
+        final List<ElementItem> elementItems = new ArrayList<>();
+        final List<ItemRef> elementItemItemIds = new ArrayList<>();
+        // 本行新 item_id，按创建顺序取号
+        final List<ItemRef> newItemIds = new ArrayList<>();
+
+        ItemRef newItemId() {
+            ItemRef itemId = new ItemRef(null);
+            newItemIds.add(itemId);
+            return itemId;
+        }
+
+        void add(ProductElement row, ItemRef itemId) {
+            productElements.add(row);
+            productElementItemIds.add(itemId);
+        }
+
+        void add(ElementItem row, ItemRef itemId) {
+            elementItems.add(row);
+            elementItemItemIds.add(itemId);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 内存模拟表：行按插入顺序保存，可按组合键建立二级哈希索引，新增行时同步维护各索引
+ * 查询先按索引键定位候选行，再对候选行做其余条件过滤，代替对整张表的线性扫描
+ * 索引键所用的列在行插入后不应再修改（非索引列可直接改）
+ *
+ * @param <R> 行类型
+ */
+public class InMemoryTable<R> {
+
+    private final List<R> rows = new ArrayList<>();
+    private final List<Index<R>> indexes = new ArrayList<>();
+
+    /**
+     * 组合键：单列时即列值本身，多列时为按顺序的列值列表（允许 null）
+     */
+    public static Object key(Object... columns) {
+        return columns.length == 1 ? columns[0] : Arrays.asList(columns);
+    }
+
+    /**
+     * 建立二级索引（已有行一并纳入），keyFn 用 key(...) 取行的组合键
+     */
+    public Index<R> addIndex(Function<? super R, Object> keyFn) {
+        Index<R> index = new Index<>(keyFn);
+        for (R row : rows) {
+            index.add(row);
+        }
+        indexes.add(index);
+        return index;
+    }
+
+    public void insert(R row) {
+        rows.add(row);
+        for (Index<R> index : indexes) {
+            index.add(row);
+        }
+    }
+
+    public List<R> rows() {
+        return Collections.unmodifiableList(rows);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * 组合键哈希索引：键 -> 该键下的行（按插入顺序）
+     */
+    public static final class Index<R> {
+
+        private final Function<? super R, Object> keyFn;
+        private final Map<Object, List<R>> buckets = new HashMap<>();
+
+        private Index(Function<? super R, Object> keyFn) {
+            this.keyFn = keyFn;
+        }
+
+        private void add(R row) {
+            buckets.computeIfAbsent(keyFn.apply(row), k -> new ArrayList<>(2)).add(row);
+        }
+
+        /**
+         * 键下的全部行（只读视图，遍历期间不要向同一张表插入行）
+         */
+        public List<R> get(Object key) {
+            List<R> bucket = buckets.get(key);
+            return bucket == null ? Collections.emptyList() : Collections.unmodifiableList(bucket);
+        }
+
+        /**
+         * 键下满足条件的行（副本，可在遍历时向表中插入行）
+         */
+        public List<R> select(Object key, Predicate<? super R> filter) {
+            List<R> result = new ArrayList<>();
+            for (R row : get(key)) {
+                if (filter.test(row)) {
+                    result.add(row);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * 键下第一条满足条件的行，没有时返回 null
+         */
+        public R first(Object key, Predicate<? super R> filter) {
+            for (R row : get(key)) {
+                if (filter.test(row)) {
+                    return row;
+                }
+            }
+            return null;
+        }
+
+        public boolean exists(Object key, Predicate<? super R> filter) {
+            return first(key, filter) != null;
+        }
+    }
+}
@@ -9,6 +9,8 @@ import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -22,17 +24,33 @@ public class KafkaListenerConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    // 批量消费失败后整批重试的间隔
+    @Value("${kafka.batch.retry-interval-ms:5000}")
+    private long batchRetryIntervalMs = 5000;
+
     /**
-     * 批量消费工厂
+     * 批量消费工厂：监听方法正常返回后提交本批 offset
+     * 监听方法抛出异常时由 batchErrorHandler 暂停拉取、按间隔整批重投，直到处理成功才提交；失败的批次不会被跳过
      */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, String> batchFactory() {
         ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.setBatchListener(true); // 启用批量消费
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.setCommonErrorHandler(batchErrorHandler(batchRetryIntervalMs));
         return factory;
     }
 
+    /**
+     * 批量消费的错误处理：不限次数重试（默认的 DefaultErrorHandler 重试 9 次后会跳过本批并提交 offset）
+     * 不限次数时只有重试成功才会正常返回，保留 ackAfterHandle 默认值，由容器随后提交本批 offset；
+     * 重试期间容器停止则抛出异常，本批不提交
+     */
+    static DefaultErrorHandler batchErrorHandler(long retryIntervalMs) {
+        return new DefaultErrorHandler(new FixedBackOff(retryIntervalMs, FixedBackOff.UNLIMITED_ATTEMPTS));
+    }
+
     /**
      * 手动ack工厂
      */
@@ -55,6 +73,7 @@ public class KafkaListenerConfig {
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false); // offset 由容器按 AckMode 提交
         return new DefaultKafkaConsumerFactory<>(props);
     }
 }
\ No newline at end of file
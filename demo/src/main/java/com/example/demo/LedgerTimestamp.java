@@ -0,0 +1,231 @@
+package com.example.demo;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 台账时间：不可变值，保存本地时间（不做时区换算）的 epoch 秒，并缓存规范文本 yyyy-MM-dd HH:mm:ss
+ * 台账数据装载时解析一次（兼容 ISO 的 'T' 分隔与只有日期的写法），之后的比较、加减秒 / 天只做整数运算，
+ * 不再对字符串反复解析；其他格式经线程安全的 DateTimeFormatter 缓存格式化 / 解析
+ */
+public final class LedgerTimestamp implements Comparable<LedgerTimestamp> {
+
+    public static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private static final long SECONDS_PER_DAY = 86_400L;
+    private static final ConcurrentMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    public static final LedgerTimestamp MIN = parse("1970-01-01 00:00:00");
+    public static final LedgerTimestamp MAX = parse("2099-12-31 23:59:59");
+
+    private final long epochSecond;
+    // 规范文本，首次需要时生成；并发生成的结果相同，无需同步
+    private String text;
+
+    private LedgerTimestamp(long epochSecond, String text) {
+        this.epochSecond = epochSecond;
+        this.text = text;
+    }
+
+    public static LedgerTimestamp ofEpochSecond(long epochSecond) {
+        return new LedgerTimestamp(epochSecond, null);
+    }
+
+    public static LedgerTimestamp of(LocalDateTime dateTime) {
+        return new LedgerTimestamp(dateTime.toEpochSecond(ZoneOffset.UTC), null);
+    }
+
+    public static LedgerTimestamp now() {
+        return of(LocalDateTime.now().withNano(0));
+    }
+
+    /**
+     * 解析 yyyy-MM-dd HH:mm:ss / yyyy-MM-ddTHH:mm:ss / yyyy-MM-dd（当天 00:00:00）
+     * @throws IllegalArgumentException 文本为空或不是上述格式的合法时间
+     */
+    public static LedgerTimestamp parse(String text) {
+        LedgerTimestamp t = parseOrNull(text);
+        if (t == null) {
+            throw new IllegalArgumentException("无法解析的时间: " + text);
+        }
+        return t;
+    }
+
+    /**
+     * 同 parse，无法解析时返回 null
+     */
+    public static LedgerTimestamp parseOrNull(String text) {
+        if (text == null || (text.length() != 19 && text.length() != 10)) {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if (year < 0 || month < 0 || day < 0 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return null;
+        }
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        if (text.length() == 19) {
+            char sep = text.charAt(10);
+            hour = digits(text, 11, 2);
+            minute = digits(text, 14, 2);
+            second = digits(text, 17, 2);
+            if ((sep != ' ' && sep != 'T') || hour < 0 || minute < 0 || second < 0
+                    || text.charAt(13) != ':' || text.charAt(16) != ':') {
+                return null;
+            }
+        }
+        try {
+            long epochSecond = LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(ZoneOffset.UTC);
+            boolean canonical = text.length() == 19 && text.charAt(10) == ' ';
+            return new LedgerTimestamp(epochSecond, canonical ? text : null);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 按指定格式解析（格式器取自缓存）
+     */
+    public static LedgerTimestamp parse(String text, String pattern) {
+        return of(LocalDateTime.parse(text, formatter(pattern)));
+    }
+
+    /**
+     * 按格式串取缓存的 DateTimeFormatter（不可变，多线程共用）
+     */
+    public static DateTimeFormatter formatter(String pattern) {
+        return FORMATTERS.computeIfAbsent(pattern, DateTimeFormatter::ofPattern);
+    }
+
+    /**
+     * 比较两个时间，任一为 null 时返回 0（沿用原字符串比较解析失败时视为相等的约定）
+     */
+    public static int compare(LedgerTimestamp a, LedgerTimestamp b) {
+        return a == null || b == null ? 0 : Long.compare(a.epochSecond, b.epochSecond);
+    }
+
+    public long epochSecond() {
+        return epochSecond;
+    }
+
+    public LedgerTimestamp plusSeconds(long seconds) {
+        return seconds == 0 ? this : new LedgerTimestamp(epochSecond + seconds, null);
+    }
+
+    public LedgerTimestamp minusSeconds(long seconds) {
+        return plusSeconds(-seconds);
+    }
+
+    public LedgerTimestamp plusDays(long days) {
+        return plusSeconds(days * SECONDS_PER_DAY);
+    }
+
+    public LedgerTimestamp minusDays(long days) {
+        return plusSeconds(-days * SECONDS_PER_DAY);
+    }
+
+    /**
+     * 按日历月加减，目标月没有该日时取月末（同 LocalDateTime.plusMonths / Calendar.add）
+     */
+    public LedgerTimestamp plusMonths(long months) {
+        return months == 0 ? this : of(toLocalDateTime().plusMonths(months));
+    }
+
+    /**
+     * 当天 00:00:00
+     */
+    public LedgerTimestamp startOfDay() {
+        return plusSeconds(-Math.floorMod(epochSecond, SECONDS_PER_DAY));
+    }
+
+    /**
+     * 当天 23:59:59
+     */
+    public LedgerTimestamp endOfDay() {
+        return startOfDay().plusSeconds(SECONDS_PER_DAY - 1);
+    }
+
+    public boolean isAfter(LedgerTimestamp other) {
+        return epochSecond > other.epochSecond;
+    }
+
+    public boolean isBefore(LedgerTimestamp other) {
+        return epochSecond < other.epochSecond;
+    }
+
+    public LocalDateTime toLocalDateTime() {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    public String format(String pattern) {
+        return PATTERN.equals(pattern) ? toString() : toLocalDateTime().format(formatter(pattern));
+    }
+
+    @Override
+    public int compareTo(LedgerTimestamp other) {
+        return Long.compare(epochSecond, other.epochSecond);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof LedgerTimestamp && ((LedgerTimestamp) o).epochSecond == epochSecond);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(epochSecond);
+    }
+
+    /**
+     * 规范文本 yyyy-MM-dd HH:mm:ss
+     */
+    @Override
+    public String toString() {
+        String s = text;
+        if (s == null) {
+            LocalDateTime t = toLocalDateTime();
+            char[] buf = new char[19];
+            put(buf, 0, t.getYear(), 4);
+            buf[4] = '-';
+            put(buf, 5, t.getMonthValue(), 2);
+            buf[7] = '-';
+            put(buf, 8, t.getDayOfMonth(), 2);
+            buf[10] = ' ';
+            put(buf, 11, t.getHour(), 2);
+            buf[13] = ':';
+            put(buf, 14, t.getMinute(), 2);
+            buf[16] = ':';
+            put(buf, 17, t.getSecond(), 2);
+            s = new String(buf);
+            text = s;
+        }
+        return s;
+    }
+
+    // 读取 len 位十进制数字，含非数字时返回 -1
+    private static int digits(String s, int from, int len) {
+        int n = 0;
+        for (int i = from; i < from + len; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    private static void put(char[] buf, int from, int value, int len) {
+        for (int i = from + len - 1; i >= from; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
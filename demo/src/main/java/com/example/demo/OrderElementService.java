@@ -1,52 +1,79 @@
 package com.example.demo;
 
+import com.example.demo.OrderTableRows.ElementItem;
+import com.example.demo.OrderTableRows.OrderExpansion;
+import com.example.demo.OrderTableRows.OrderNumSvcState;
+import com.example.demo.OrderTableRows.ProductElement;
+import com.example.demo.OrderTableRows.UserDiscnt;
+import com.example.demo.OrderTableRows.UserOther;
+import com.example.demo.OrderTableRows.UserServiceItem;
+import com.example.demo.OrderTableRows.UserSvcState;
+
 import java.util.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+
+import static com.example.demo.InMemoryTable.key;
 
 /**
  * 订单元素台账处理服务
  * 实现资费属性删除、合约期判断、台账生成等核心逻辑
+ * 各表按查询所用的组合键建哈希索引，逐元素的属性 / 服务状态查询只过滤索引命中的行；
+ * 时间均为 LedgerTimestamp（SRD 入参在入口解析一次），比较不再解析字符串
  */
 public class OrderElementService {
 
     // 模拟数据库表
-    private List<Map<String, Object>> ocOrderProductElement = new ArrayList<>();
-    private List<Map<String, Object>> ocOrderElementItem = new ArrayList<>();
-    private List<Map<String, Object>> tfFUserDiscntItem = new ArrayList<>();
-    private List<Map<String, Object>> tfFUserOther = new ArrayList<>();
-    private List<Map<String, Object>> ocOrderExpansion = new ArrayList<>();
-    private List<Map<String, Object>> tfFUserServiceItem = new ArrayList<>();
-    private List<Map<String, Object>> tfFUserSvcState = new ArrayList<>();
-    private List<Map<String, Object>> ocOrderNumSvcState = new ArrayList<>();
+    private final InMemoryTable<ProductElement> ocOrderProductElement = new InMemoryTable<>();
+    private final InMemoryTable<ElementItem> ocOrderElementItem = new InMemoryTable<>();
+    private final InMemoryTable<UserDiscnt> tfFUserDiscntItem = new InMemoryTable<>();
+    private final InMemoryTable<UserOther> tfFUserOther = new InMemoryTable<>();
+    private final InMemoryTable<OrderExpansion> ocOrderExpansion = new InMemoryTable<>();
+    private final InMemoryTable<UserServiceItem> tfFUserServiceItem = new InMemoryTable<>();
+    private final InMemoryTable<UserSvcState> tfFUserSvcState = new InMemoryTable<>();
+    private final InMemoryTable<OrderNumSvcState> ocOrderNumSvcState = new InMemoryTable<>();
+
+    // 索引：order_id+order_line_id
+    private final InMemoryTable.Index<ProductElement> productElementsByLine = ocOrderProductElement.addIndex(r -> key(r.getOrderId(), r.getOrderLineId()));
+    private final InMemoryTable.Index<ElementItem> elementItemsByLine = ocOrderElementItem.addIndex(r -> key(r.getOrderId(), r.getOrderLineId()));
+    // 索引：order_line_id+element_id+element_item_id
+    private final InMemoryTable.Index<ElementItem> elementItemsByLineElement = ocOrderElementItem.addIndex(r -> key(r.getOrderLineId(), r.getElementId(), r.getElementItemId()));
+    // 索引：user_id+discnt_code+dst_item_id
+    private final InMemoryTable.Index<UserDiscnt> discntItemsByUserItem = tfFUserDiscntItem.addIndex(r -> key(r.getUserId(), r.getDiscntCode(), r.getDstItemId()));
+    // 索引：user_id+rsrv_value_code+rsrv_value
+    private final InMemoryTable.Index<UserOther> userOthersByValue = tfFUserOther.addIndex(r -> key(r.getUserId(), r.getRsrvValueCode(), r.getRsrvValue()));
+    // 索引：user_id+service_id+service_item_id
+    private final InMemoryTable.Index<UserServiceItem> serviceItemsByUserItem = tfFUserServiceItem.addIndex(r -> key(r.getUserId(), r.getServiceId(), r.getServiceItemId()));
+    // 索引：user_id+service_id
+    private final InMemoryTable.Index<UserSvcState> svcStatesByUserService = tfFUserSvcState.addIndex(r -> key(r.getUserId(), r.getServiceId()));
 
     /**
      * 主处理入口
      */
-    public void deleteOrderElementWithContractLogic(String orderId, String orderLineId, String modifyTag, String elementTypeCode, String srd, String userId) {
-        List<Map<String, Object>> productElements = queryProductElements(orderId, orderLineId, modifyTag, elementTypeCode);
+    public void deleteOrderElementWithContractLogic(String orderId, String orderLineId, String modifyTag, String elementTypeCode, String srdText, String userId) {
+        LedgerTimestamp srd = LedgerTimestamp.parse(srdText);
+        LedgerTimestamp now = LedgerTimestamp.now();
+        List<ProductElement> productElements = queryProductElements(orderId, orderLineId, modifyTag, elementTypeCode);
 
-        for (Map<String, Object> pe : productElements) {
-            String elementId = (String) pe.get("element_id");
-            String elementItemId = (String) pe.get("element_item_id");
-            String elementSubType = (String) pe.get("element_sub_type");
-            String endDate = (String) pe.get("end_date");
+        for (ProductElement pe : productElements) {
+            String elementId = pe.getElementId();
+            String elementItemId = pe.getElementItemId();
+            String elementSubType = pe.getElementSubType();
+            LedgerTimestamp endDate = pe.getEndDate();
 
             boolean hasElementItem = queryElementItem(orderLineId, elementId, elementTypeCode, modifyTag, elementItemId);
 
             if (!hasElementItem) {
                 if ("MRC".equalsIgnoreCase(elementSubType) || "rebate".equalsIgnoreCase(elementSubType)) {
-                    String contractEndDateStd = getContractEndDateStd(userId, elementId, elementItemId, endDate);
+                    LedgerTimestamp contractEndDateStd = getContractEndDateStd(userId, elementId, elementItemId, endDate);
                     boolean inContract = compareSRDWithContractEnd(srd, contractEndDateStd);
 
                     if (inContract) {
-                        List<Map<String, Object>> discntAttrs = queryDiscntAttrs(userId, elementId, elementItemId, endDate);
-                        for (Map<String, Object> attr : discntAttrs) {
+                        List<UserDiscnt> discntAttrs = queryDiscntAttrs(userId, elementId, elementItemId, endDate);
+                        for (UserDiscnt attr : discntAttrs) {
                             insertDeleteElementItem(attr, endDate);
                         }
                     } else {
-                        List<Map<String, Object>> discntAttrs = queryDiscntAttrs(userId, elementId, elementItemId, endDate);
-                        for (Map<String, Object> attr : discntAttrs) {
+                        List<UserDiscnt> discntAttrs = queryDiscntAttrs(userId, elementId, elementItemId, endDate);
+                        for (UserDiscnt attr : discntAttrs) {
                             updateProductElementEndDate(orderId, orderLineId, elementTypeCode, elementId, elementItemId, contractEndDateStd);
                             insertDeleteElementItem(attr, contractEndDateStd);
                             if ("MRC".equalsIgnoreCase(elementSubType)) {
@@ -55,302 +82,227 @@ public class OrderElementService {
                         }
                     }
                 } else {
-                    List<Map<String, Object>> discntAttrs = queryDiscntAttrs(userId, elementId, elementItemId, endDate);
-                    for (Map<String, Object> attr : discntAttrs) {
+                    List<UserDiscnt> discntAttrs = queryDiscntAttrs(userId, elementId, elementItemId, endDate);
+                    for (UserDiscnt attr : discntAttrs) {
                         insertDeleteElementItem(attr, endDate);
                     }
                 }
             }
         }
 
-        List<Map<String, Object>> expansionAttrs = queryExpansionAttrs(orderId, orderLineId, elementTypeCode, modifyTag);
-        for (Map<String, Object> attr : expansionAttrs) {
+        List<ElementItem> expansionAttrs = queryExpansionAttrs(orderId, orderLineId, elementTypeCode, modifyTag, now);
+        for (ElementItem attr : expansionAttrs) {
             String snUserId = userId;
-            String attrCode = (String) attr.get("attr_code");
-            String attrValue = (String) attr.get("attr_value");
-            String startDate = getUserOtherStartDate(snUserId, attrCode, attrValue);
-            String expansionEndDate = (String) attr.get("end_date");
+            String attrCode = attr.getAttrCode();
+            String attrValue = attr.getAttrValue();
+            LedgerTimestamp startDate = getUserOtherStartDate(snUserId, attrCode, attrValue, now);
+            LedgerTimestamp expansionEndDate = attr.getEndDate();
             insertOrderExpansion(attrCode, attrValue, "1", startDate, expansionEndDate);
         }
     }
 
     // 查询 oc_order_product_element
-    private List<Map<String, Object>> queryProductElements(String orderId, String orderLineId, String modifyTag, String elementTypeCode) {
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Map<String, Object> row : ocOrderProductElement) {
-            if (Objects.equals(row.get("order_id"), orderId)
-                    && Objects.equals(row.get("order_line_id"), orderLineId)
-                    && Objects.equals(row.get("modify_tag"), modifyTag)
-                    && Objects.equals(row.get("element_type_code"), elementTypeCode)) {
-                result.add(row);
-            }
-        }
-        return result;
+    private List<ProductElement> queryProductElements(String orderId, String orderLineId, String modifyTag, String elementTypeCode) {
+        return productElementsByLine.select(key(orderId, orderLineId), row ->
+                Objects.equals(row.getModifyTag(), modifyTag)
+                        && Objects.equals(row.getElementTypeCode(), elementTypeCode));
     }
 
     // 查询 oc_order_element_item 是否有记录
     private boolean queryElementItem(String orderLineId, String elementId, String elementTypeCode, String modifyTag, String elementItemId) {
-        for (Map<String, Object> row : ocOrderElementItem) {
-            if (Objects.equals(row.get("order_line_id"), orderLineId)
-                    && Objects.equals(row.get("element_id"), elementId)
-                    && Objects.equals(row.get("element_type_code"), elementTypeCode)
-                    && Objects.equals(row.get("modify_tag"), modifyTag)
-                    && Objects.equals(row.get("element_item_id"), elementItemId)) {
-                return true;
-            }
-        }
-        return false;
+        return elementItemsByLineElement.exists(key(orderLineId, elementId, elementItemId), row ->
+                Objects.equals(row.getElementTypeCode(), elementTypeCode)
+                        && Objects.equals(row.getModifyTag(), modifyTag));
     }
 
     // 获取合约结束时间
-    private String getContractEndDateStd(String userId, String elementId, String elementItemId, String endDate) {
-        for (Map<String, Object> row : tfFUserDiscntItem) {
-            if (Objects.equals(row.get("user_id"), userId)
-                    && Objects.equals(row.get("discnt_code"), elementId)
-                    && Objects.equals(row.get("dst_item_id"), elementItemId)
-                    && Objects.equals(row.get("attr_code"), "contract_end_date_std")
-                    && compareDate((String) row.get("end_date"), endDate) > 0) {
-                String val = (String) row.get("attr_value");
-                if (val != null && compareDate(val, "2099-12-31T23:59:59") < 0) {
+    private LedgerTimestamp getContractEndDateStd(String userId, String elementId, String elementItemId, LedgerTimestamp endDate) {
+        for (UserDiscnt row : discntItemsByUserItem.get(key(userId, elementId, elementItemId))) {
+            if ("contract_end_date_std".equals(row.getAttrCode())
+                    && compareDate(row.getEndDate(), endDate) > 0) {
+                LedgerTimestamp val = LedgerTimestamp.parseOrNull(row.getAttrValue());
+                if (val != null && val.isBefore(LedgerTimestamp.MAX)) {
                     return val;
                 }
             }
         }
-        return "2099-12-31T23:59:59";
+        return LedgerTimestamp.MAX;
     }
 
-    // 日期比较辅助
-    private int compareDate(String d1, String d2) {
-        try {
-            LocalDateTime dt1 = LocalDateTime.parse(d1, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            LocalDateTime dt2 = LocalDateTime.parse(d2, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            return dt1.compareTo(dt2);
-        } catch (Exception e) {
-            return 0;
-        }
+    // 日期比较辅助（任一缺失时视为相等）
+    private static int compareDate(LedgerTimestamp d1, LedgerTimestamp d2) {
+        return LedgerTimestamp.compare(d1, d2);
     }
 
     // 比较 SRD-1天 <= contract_end_date_std
-    private boolean compareSRDWithContractEnd(String srd, String contractEndDateStd) {
-        try {
-            LocalDateTime srdDate = LocalDateTime.parse(srd, DateTimeFormatter.ISO_LOCAL_DATE_TIME).minusDays(1);
-            LocalDateTime contractEnd = LocalDateTime.parse(contractEndDateStd, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            return !srdDate.isAfter(contractEnd);
-        } catch (Exception e) {
-            return false;
-        }
+    private boolean compareSRDWithContractEnd(LedgerTimestamp srd, LedgerTimestamp contractEndDateStd) {
+        return !srd.minusDays(1).isAfter(contractEndDateStd);
     }
 
     // 查询资费属性
-    private List<Map<String, Object>> queryDiscntAttrs(String userId, String elementId, String elementItemId, String endDate) {
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Map<String, Object> row : tfFUserDiscntItem) {
-            if (Objects.equals(row.get("user_id"), userId)
-                    && Objects.equals(row.get("discnt_code"), elementId)
-                    && Objects.equals(row.get("dst_item_id"), elementItemId)
-                    && compareDate((String) row.get("end_date"), endDate) > 0) {
-                result.add(row);
-            }
-        }
-        return result;
+    private List<UserDiscnt> queryDiscntAttrs(String userId, String elementId, String elementItemId, LedgerTimestamp endDate) {
+        return discntItemsByUserItem.select(key(userId, elementId, elementItemId), row -> compareDate(row.getEndDate(), endDate) > 0);
     }
 
-    // 插入删除台账
-    private void insertDeleteElementItem(Map<String, Object> attr, String endDate) {
-        Map<String, Object> item = new HashMap<>(attr);
-        item.put("action", "delete");
-        item.put("end_date", endDate);
-        ocOrderElementItem.add(item);
+    // 插入删除台账（复制原资费属性）
+    private void insertDeleteElementItem(UserDiscnt attr, LedgerTimestamp endDate) {
+        ElementItem item = new ElementItem();
+        item.setElementId(attr.getDiscntCode());
+        item.setElementItemId(attr.getDstItemId());
+        item.setAttrCode(attr.getAttrCode());
+        item.setAttrValue(attr.getAttrValue());
+        item.setStartDate(attr.getStartDate());
+        item.setAction("delete");
+        item.setEndDate(endDate);
+        ocOrderElementItem.insert(item);
     }
 
     // 修改当前资费台账的结束时间
-    private void updateProductElementEndDate(String orderId, String orderLineId, String elementTypeCode, String elementId, String elementItemId, String contractEndDateStd) {
-        for (Map<String, Object> row : ocOrderProductElement) {
-            if (Objects.equals(row.get("order_id"), orderId)
-                    && Objects.equals(row.get("order_line_id"), orderLineId)
-                    && Objects.equals(row.get("element_type_code"), elementTypeCode)
-                    && Objects.equals(row.get("element_id"), elementId)
-                    && Objects.equals(row.get("element_item_id"), elementItemId)) {
-                row.put("end_date", contractEndDateStd);
+    private void updateProductElementEndDate(String orderId, String orderLineId, String elementTypeCode, String elementId, String elementItemId, LedgerTimestamp contractEndDateStd) {
+        for (ProductElement row : productElementsByLine.get(key(orderId, orderLineId))) {
+            if (Objects.equals(row.getElementTypeCode(), elementTypeCode)
+                    && Objects.equals(row.getElementId(), elementId)
+                    && Objects.equals(row.getElementItemId(), elementItemId)) {
+                row.setEndDate(contractEndDateStd);
             }
         }
     }
 
     // 增补标准月租台账及属性
-    private void insertStandardMRCTally(String orderId, String orderLineId, String elementId, String elementItemId, String contractEndDateStd, String endDate) {
-        Map<String, Object> productElement = new HashMap<>();
-        productElement.put("order_id", orderId);
-        productElement.put("order_line_id", orderLineId);
-        productElement.put("element_id", elementId);
-        productElement.put("element_item_id", elementItemId);
-        productElement.put("start_date", plusSeconds(contractEndDateStd, 1));
-        productElement.put("end_date", endDate);
-        productElement.put("modify_tag", "0");
-        productElement.put("element_type_code", "D");
-        ocOrderProductElement.add(productElement);
-
-        Map<String, Object> elementItem = new HashMap<>();
-        elementItem.put("element_item_id", elementItemId);
-        elementItem.put("start_date", plusSeconds(contractEndDateStd, 1));
-        elementItem.put("end_date", endDate);
-        elementItem.put("modify_tag", "0");
-        elementItem.put("contract_perior", "FTG");
-        elementItem.put("contract_start_date", plusSeconds(contractEndDateStd, 1));
-        elementItem.put("contract_end_date", endDate);
-        elementItem.put("contract_end_date_std", endDate);
-        ocOrderElementItem.add(elementItem);
+    private void insertStandardMRCTally(String orderId, String orderLineId, String elementId, String elementItemId, LedgerTimestamp contractEndDateStd, LedgerTimestamp endDate) {
+        LedgerTimestamp startDate = contractEndDateStd.plusSeconds(1);
+        ProductElement productElement = new ProductElement();
+        productElement.setOrderId(orderId);
+        productElement.setOrderLineId(orderLineId);
+        productElement.setElementId(elementId);
+        productElement.setElementItemId(elementItemId);
+        productElement.setStartDate(startDate);
+        productElement.setEndDate(endDate);
+        productElement.setModifyTag("0");
+        productElement.setElementTypeCode("D");
+        ocOrderProductElement.insert(productElement);
+
+        String[][] attrs = {
+                {"contract_perior", "FTG"},
+                {"contract_start_date", startDate.toString()},
+                {"contract_end_date", text(endDate)},
+                {"contract_end_date_std", text(endDate)}
+        };
+        for (String[] attr : attrs) {
+            ElementItem elementItem = new ElementItem();
+            elementItem.setElementItemId(elementItemId);
+            elementItem.setAttrCode(attr[0]);
+            elementItem.setAttrValue(attr[1]);
+            elementItem.setStartDate(startDate);
+            elementItem.setEndDate(endDate);
+            elementItem.setModifyTag("0");
+            ocOrderElementItem.insert(elementItem);
+        }
     }
 
-    // 时间加秒辅助
-    private String plusSeconds(String dateTime, int seconds) {
-        try {
-            LocalDateTime dt = LocalDateTime.parse(dateTime, DateTimeFormatter.ISO_LOCAL_DATE_TIME).plusSeconds(seconds);
-            return dt.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        } catch (Exception e) {
-            return dateTime;
-        }
+    private static String text(LedgerTimestamp dateTime) {
+        return dateTime == null ? null : dateTime.toString();
     }
 
     // 查询 oc_order_element_item 需扩展的属性
-    private List<Map<String, Object>> queryExpansionAttrs(String orderId, String orderLineId, String elementTypeCode, String modifyTag) {
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Map<String, Object> row : ocOrderElementItem) {
-            if (Objects.equals(row.get("order_id"), orderId)
-                    && Objects.equals(row.get("order_line_id"), orderLineId)
-                    && Objects.equals(row.get("element_type_code"), elementTypeCode)
-                    && Objects.equals(row.get("modify_tag"), modifyTag)
-                    && compareDate((String) row.get("end_date"), LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)) > 0) {
-                result.add(row);
-            }
-        }
-        return result;
+    private List<ElementItem> queryExpansionAttrs(String orderId, String orderLineId, String elementTypeCode, String modifyTag, LedgerTimestamp now) {
+        return elementItemsByLine.select(key(orderId, orderLineId), row ->
+                Objects.equals(row.getElementTypeCode(), elementTypeCode)
+                        && Objects.equals(row.getModifyTag(), modifyTag)
+                        && compareDate(row.getEndDate(), now) > 0);
     }
 
     // 查询 tf_F_user_other 获取 start_date
-    private String getUserOtherStartDate(String snUserId, String attrCode, String attrValue) {
-        for (Map<String, Object> row : tfFUserOther) {
-            if (Objects.equals(row.get("user_id"), snUserId)
-                    && Objects.equals(row.get("rsrv_value_code"), attrCode)
-                    && Objects.equals(row.get("rsrv_value"), attrValue)
-                    && compareDate((String) row.get("end_date"), LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)) > 0) {
-                return (String) row.get("start_date");
-            }
-        }
-        return LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    private LedgerTimestamp getUserOtherStartDate(String snUserId, String attrCode, String attrValue, LedgerTimestamp now) {
+        UserOther row = userOthersByValue.first(key(snUserId, attrCode, attrValue), r -> compareDate(r.getEndDate(), now) > 0);
+        return row != null ? row.getStartDate() : now;
     }
 
     // 插入 oc_order_expansion 台账
-    private void insertOrderExpansion(String reservedCode, String reservedValue, String modifyTag, String startDate, String endDate) {
-        Map<String, Object> expansion = new HashMap<>();
-        expansion.put("RESERVED_CODE", reservedCode);
-        expansion.put("RESERVED_VALUE", reservedValue);
-        expansion.put("modify_tag", modifyTag);
-        expansion.put("start_date", startDate);
-        expansion.put("end_date", endDate);
-        ocOrderExpansion.add(expansion);
+    private void insertOrderExpansion(String reservedCode, String reservedValue, String modifyTag, LedgerTimestamp startDate, LedgerTimestamp endDate) {
+        OrderExpansion expansion = new OrderExpansion();
+        expansion.setReservedCode(reservedCode);
+        expansion.setReservedValue(reservedValue);
+        expansion.setModifyTag(modifyTag);
+        expansion.setStartDate(startDate);
+        expansion.setEndDate(endDate);
+        ocOrderExpansion.insert(expansion);
     }
 
     /**
      * 服务类（element_type_code='S'）属性删除与台账处理
      */
     public void deleteOrderServiceElementWithContractLogic(String orderId, String orderLineId, String modifyTag, String elementTypeCode, String userId, String snSerialNumber, String srd) {
-        List<Map<String, Object>> productElements = queryProductElements(orderId, orderLineId, modifyTag, elementTypeCode);
+        LedgerTimestamp now = LedgerTimestamp.now();
+        List<ProductElement> productElements = queryProductElements(orderId, orderLineId, modifyTag, elementTypeCode);
 
-        for (Map<String, Object> pe : productElements) {
-            String elementId = (String) pe.get("element_id");
-            String elementItemId = (String) pe.get("element_item_id");
-            String endDate = (String) pe.get("end_date");
-            boolean isMainElement = "1".equals(String.valueOf(pe.get("is_main_element")));
+        for (ProductElement pe : productElements) {
+            String elementId = pe.getElementId();
+            String elementItemId = pe.getElementItemId();
+            LedgerTimestamp endDate = pe.getEndDate();
+            boolean isMainElement = "1".equals(pe.getIsMainElement());
 
             // 1.1 删除服务属性
             boolean hasElementItem = queryElementItem(orderLineId, elementId, elementTypeCode, modifyTag, elementItemId);
             if (!hasElementItem) {
-                List<Map<String, Object>> serviceAttrs = queryServiceAttrs(userId, elementId, elementItemId, endDate);
-                for (Map<String, Object> attr : serviceAttrs) {
+                List<UserServiceItem> serviceAttrs = queryServiceAttrs(userId, elementId, elementItemId, endDate);
+                for (UserServiceItem attr : serviceAttrs) {
                     insertDeleteServiceElementItem(orderId, orderLineId, attr, elementItemId, endDate);
                 }
             }
 
             // 1.2 主服务状态终止
             if (isMainElement) {
-                Map<String, Object> svcState = queryMainServiceState(userId, elementId);
+                UserSvcState svcState = queryMainServiceState(userId, elementId, now);
                 if (svcState != null) {
-                    insertTerminateMainServiceState(orderId, orderLineId, snSerialNumber, userId, elementId, svcState, endDate);
+                    insertTerminateNumServiceState(orderId, orderLineId, snSerialNumber, userId, elementId, svcState, endDate);
                 }
             }
 
             // 2.2 非主服务状态终止（如IDD服务，参数配置）
             if (isIddService(elementId)) {
-                Map<String, Object> svcState = queryServiceState(userId, elementId);
+                UserSvcState svcState = queryServiceState(userId, elementId, now);
                 if (svcState != null) {
                     insertTerminateNumServiceState(orderId, orderLineId, snSerialNumber, userId, elementId, svcState, endDate);
                 }
             }
         }
 
-        List<Map<String, Object>> expansionAttrs = queryExpansionAttrs(orderId, orderLineId, elementTypeCode, modifyTag, Arrays.asList("PCFN", "OWDN", "GRUP", "INTC"));
-        for (Map<String, Object> attr : expansionAttrs) {
-            String attrCode = (String) attr.get("attr_code");
-            String attrValue = (String) attr.get("attr_value");
-            String startDate = getUserOtherStartDate(userId, attrCode, attrValue);
-            String expansionEndDate = (String) attr.get("end_date");
+        List<ElementItem> expansionAttrs = queryExpansionAttrs(orderId, orderLineId, elementTypeCode, modifyTag, Arrays.asList("PCFN", "OWDN", "GRUP", "INTC"), now);
+        for (ElementItem attr : expansionAttrs) {
+            String attrCode = attr.getAttrCode();
+            String attrValue = attr.getAttrValue();
+            LedgerTimestamp startDate = getUserOtherStartDate(userId, attrCode, attrValue, now);
+            LedgerTimestamp expansionEndDate = attr.getEndDate();
             insertOrderExpansion(attrCode, attrValue, "1", startDate, expansionEndDate);
         }
     }
 
     // 查询服务属性
-    private List<Map<String, Object>> queryServiceAttrs(String userId, String serviceId, String serviceItemId, String endDate) {
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Map<String, Object> row : tfFUserServiceItem) {
-            if (Objects.equals(row.get("user_id"), userId)
-                    && Objects.equals(row.get("service_id"), serviceId)
-                    && Objects.equals(row.get("service_item_id"), serviceItemId)
-                    && compareDate((String) row.get("end_date"), endDate) > 0) {
-                result.add(row);
-            }
-        }
-        return result;
+    private List<UserServiceItem> queryServiceAttrs(String userId, String serviceId, String serviceItemId, LedgerTimestamp endDate) {
+        return serviceItemsByUserItem.select(key(userId, serviceId, serviceItemId), row -> compareDate(row.getEndDate(), endDate) > 0);
     }
 
     // 插入删除服务属性台账到 oc_order_element_item
-    private void insertDeleteServiceElementItem(String orderId, String orderLineId, Map<String, Object> attr, String serviceItemId, String endDate) {
-        Map<String, Object> item = new HashMap<>(attr);
-        item.put("order_id", orderId);
-        item.put("order_line_id", orderLineId);
-        item.put("element_item_id", serviceItemId);
-        item.put("action", "delete_service");
-        item.put("end_date", endDate);
-        item.put("modify_tag", "1");
-        ocOrderElementItem.add(item);
+    private void insertDeleteServiceElementItem(String orderId, String orderLineId, UserServiceItem attr, String serviceItemId, LedgerTimestamp endDate) {
+        ElementItem item = new ElementItem();
+        item.setOrderId(orderId);
+        item.setOrderLineId(orderLineId);
+        item.setElementId(attr.getServiceId());
+        item.setElementItemId(serviceItemId);
+        item.setAttrCode(attr.getAttrCode());
+        item.setAttrValue(attr.getAttrValue());
+        item.setStartDate(attr.getStartDate());
+        item.setAction("delete_service");
+        item.setEndDate(endDate);
+        item.setModifyTag("1");
+        ocOrderElementItem.insert(item);
     }
 
     // 查询主服务状态
-    private Map<String, Object> queryMainServiceState(String userId, String serviceId) {
-        for (Map<String, Object> row : tfFUserSvcState) {
-            if (Objects.equals(row.get("user_id"), userId)
-                    && Objects.equals(row.get("service_id"), serviceId)
-                    && Objects.equals(row.get("main_tag"), "1")
-                    && compareDate((String) row.get("end_date"), LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)) > 0) {
-                return row;
-            }
-        }
-        return null;
-    }
-
-    // 插入终止主服务状态台账
-    private void insertTerminateMainServiceState(String orderId, String orderLineId, String snSerialNumber, String userId, String serviceId, Map<String, Object> svcState, String endDate) {
-        Map<String, Object> item = new HashMap<>(svcState);
-        item.put("order_id", orderId);
-        item.put("order_line_id", orderLineId);
-        item.put("SERIAL_NUMBER", snSerialNumber);
-        item.put("user_id", userId);
-        item.put("SERVICE_ID", serviceId);
-        item.put("SERVICE_STATE_CODE", svcState.get("service_state_code"));
-        item.put("MAIN_TAG", svcState.get("main_tag"));
-        item.put("START_DATE", svcState.get("start_date"));
-        item.put("end_date", endDate);
-        item.put("modify_tag", "1");
-        ocOrderElementItem.add(item);
+    private UserSvcState queryMainServiceState(String userId, String serviceId, LedgerTimestamp now) {
+        return svcStatesByUserService.first(key(userId, serviceId), row ->
+                Objects.equals(row.getMainTag(), "1") && compareDate(row.getEndDate(), now) > 0);
     }
 
     // 判断是否为IDD服务（参数配置）
@@ -359,46 +311,65 @@ public class OrderElementService {
     }
 
     // 查询服务状态
-    private Map<String, Object> queryServiceState(String userId, String serviceId) {
-        for (Map<String, Object> row : tfFUserSvcState) {
-            if (Objects.equals(row.get("user_id"), userId)
-                    && Objects.equals(row.get("service_id"), serviceId)
-                    && compareDate((String) row.get("end_date"), LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)) > 0) {
-                return row;
-            }
-        }
-        return null;
+    private UserSvcState queryServiceState(String userId, String serviceId, LedgerTimestamp now) {
+        return svcStatesByUserService.first(key(userId, serviceId), row -> compareDate(row.getEndDate(), now) > 0);
     }
 
-    // 插入oc_order_num_svcstate
-    private void insertTerminateNumServiceState(String orderId, String orderLineId, String snSerialNumber, String userId, String serviceId, Map<String, Object> svcState, String endDate) {
-        Map<String, Object> item = new HashMap<>(svcState);
-        item.put("order_id", orderId);
-        item.put("order_line_id", orderLineId);
-        item.put("SERIAL_NUMBER", snSerialNumber);
-        item.put("user_id", userId);
-        item.put("SERVICE_ID", serviceId);
-        item.put("SERVICE_STATE_CODE", svcState.get("service_state_code"));
-        item.put("MAIN_TAG", svcState.get("main_tag"));
-        item.put("START_DATE", svcState.get("start_date"));
-        item.put("end_date", endDate);
-        item.put("modify_tag", "1");
-        ocOrderNumSvcState.add(item);
+    // 插入oc_order_num_svcstate（终止主服务状态与非主服务状态共用）
+    private void insertTerminateNumServiceState(String orderId, String orderLineId, String snSerialNumber, String userId, String serviceId, UserSvcState svcState, LedgerTimestamp endDate) {
+        OrderNumSvcState item = new OrderNumSvcState();
+        item.setOrderId(orderId);
+        item.setOrderLineId(orderLineId);
+        item.setSerialNumber(snSerialNumber);
+        item.setUserId(userId);
+        item.setServiceId(serviceId);
+        item.setServiceStateCode(svcState.getServiceStateCode());
+        item.setMainTag(svcState.getMainTag());
+        item.setStartDate(svcState.getStartDate());
+        item.setEndDate(endDate);
+        item.setModifyTag("1");
+        ocOrderNumSvcState.insert(item);
     }
 
     // 扩展台账相关模拟方法（重载，支持属性过滤）
-    private List<Map<String, Object>> queryExpansionAttrs(String orderId, String orderLineId, String elementTypeCode, String modifyTag, List<String> attrCodes) {
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (Map<String, Object> row : ocOrderElementItem) {
-            if (Objects.equals(row.get("order_id"), orderId)
-                    && Objects.equals(row.get("order_line_id"), orderLineId)
-                    && Objects.equals(row.get("element_type_code"), elementTypeCode)
-                    && Objects.equals(row.get("modify_tag"), modifyTag)
-                    && attrCodes.contains(row.get("attr_code"))
-                    && compareDate((String) row.get("end_date"), LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)) > 0) {
-                result.add(row);
-            }
-        }
-        return result;
+    private List<ElementItem> queryExpansionAttrs(String orderId, String orderLineId, String elementTypeCode, String modifyTag, List<String> attrCodes, LedgerTimestamp now) {
+        return elementItemsByLine.select(key(orderId, orderLineId), row ->
+                Objects.equals(row.getElementTypeCode(), elementTypeCode)
+                        && Objects.equals(row.getModifyTag(), modifyTag)
+                        && attrCodes.contains(row.getAttrCode())
+                        && compareDate(row.getEndDate(), now) > 0);
+    }
+
+    // 模拟表（装载测试 / 基准数据及核对台账用）
+    public InMemoryTable<ProductElement> ocOrderProductElement() {
+        return ocOrderProductElement;
+    }
+
+    public InMemoryTable<ElementItem> ocOrderElementItem() {
+        return ocOrderElementItem;
+    }
+
+    public InMemoryTable<UserDiscnt> tfFUserDiscntItem() {
+        return tfFUserDiscntItem;
+    }
+
+    public InMemoryTable<UserOther> tfFUserOther() {
+        return tfFUserOther;
+    }
+
+    public InMemoryTable<OrderExpansion> ocOrderExpansion() {
+        return ocOrderExpansion;
+    }
+
+    public InMemoryTable<UserServiceItem> tfFUserServiceItem() {
+        return tfFUserServiceItem;
+    }
+
+    public InMemoryTable<UserSvcState> tfFUserSvcState() {
+        return tfFUserSvcState;
+    }
+
+    public InMemoryTable<OrderNumSvcState> ocOrderNumSvcState() {
+        return ocOrderNumSvcState;
     }
-}
\ No newline at end of file
+}
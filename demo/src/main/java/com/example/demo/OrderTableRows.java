@@ -0,0 +1,776 @@
+package com.example.demo;
+
+/**
+ * ContractChangeService / OrderElementService 内存模拟表的行类型，字段对应表列（时间列装载时即解析为 LedgerTimestamp）
+ * 与 entity 包中的实体一致，字段私有、经 getter / setter 读写
+ */
+public final class OrderTableRows {
+
+    private OrderTableRows() {
+    }
+
+    /**
+     * oc_order_line
+     */
+    public static class OrderLine {
+        private String orderId;
+        private String orderLineId;
+        private String userId;
+        private LedgerTimestamp acceptDate;
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public void setOrderId(String orderId) {
+            this.orderId = orderId;
+        }
+
+        public String getOrderLineId() {
+            return orderLineId;
+        }
+
+        public void setOrderLineId(String orderLineId) {
+            this.orderLineId = orderLineId;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public LedgerTimestamp getAcceptDate() {
+            return acceptDate;
+        }
+
+        public void setAcceptDate(LedgerTimestamp acceptDate) {
+            this.acceptDate = acceptDate;
+        }
+    }
+
+    /**
+     * oc_order_line_item
+     */
+    public static class OrderLineItem {
+        private String orderId;
+        private String orderLineId;
+        private String attrCode;
+        private String value;
+        private String modifyTag;
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public void setOrderId(String orderId) {
+            this.orderId = orderId;
+        }
+
+        public String getOrderLineId() {
+            return orderLineId;
+        }
+
+        public void setOrderLineId(String orderLineId) {
+            this.orderLineId = orderLineId;
+        }
+
+        public String getAttrCode() {
+            return attrCode;
+        }
+
+        public void setAttrCode(String attrCode) {
+            this.attrCode = attrCode;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+
+        public String getModifyTag() {
+            return modifyTag;
+        }
+
+        public void setModifyTag(String modifyTag) {
+            this.modifyTag = modifyTag;
+        }
+    }
+
+    /**
+     * oc_order_product_element（DDI line 的 ddi_line_qty 也以属性形式记在本表）
+     */
+    public static class ProductElement {
+        private String orderId;
+        private String orderLineId;
+        private String productId;
+        private String prodItemId;
+        private String elementId;
+        private String elementTypeCode;
+        private String elementItemId;
+        private String elementSubType;
+        private String isMainElement;
+        private String attrCode;
+        private String attrValue;
+        private LedgerTimestamp startDate;
+        private LedgerTimestamp endDate;
+        private String modifyTag;
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public void setOrderId(String orderId) {
+            this.orderId = orderId;
+        }
+
+        public String getOrderLineId() {
+            return orderLineId;
+        }
+
+        public void setOrderLineId(String orderLineId) {
+            this.orderLineId = orderLineId;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public void setProductId(String productId) {
+            this.productId = productId;
+        }
+
+        public String getProdItemId() {
+            return prodItemId;
+        }
+
+        public void setProdItemId(String prodItemId) {
+            this.prodItemId = prodItemId;
+        }
+
+        public String getElementId() {
+            return elementId;
+        }
+
+        public void setElementId(String elementId) {
+            this.elementId = elementId;
+        }
+
+        public String getElementTypeCode() {
+            return elementTypeCode;
+        }
+
+        public void setElementTypeCode(String elementTypeCode) {
+            this.elementTypeCode = elementTypeCode;
+        }
+
+        public String getElementItemId() {
+            return elementItemId;
+        }
+
+        public void setElementItemId(String elementItemId) {
+            this.elementItemId = elementItemId;
+        }
+
+        public String getElementSubType() {
+            return elementSubType;
+        }
+
+        public void setElementSubType(String elementSubType) {
+            this.elementSubType = elementSubType;
+        }
+
+        public String getIsMainElement() {
+            return isMainElement;
+        }
+
+        public void setIsMainElement(String isMainElement) {
+            this.isMainElement = isMainElement;
+        }
+
+        public String getAttrCode() {
+            return attrCode;
+        }
+
+        public void setAttrCode(String attrCode) {
+            this.attrCode = attrCode;
+        }
+
+        public String getAttrValue() {
+            return attrValue;
+        }
+
+        public void setAttrValue(String attrValue) {
+            this.attrValue = attrValue;
+        }
+
+        public LedgerTimestamp getStartDate() {
+            return startDate;
+        }
+
+        public void setStartDate(LedgerTimestamp startDate) {
+            this.startDate = startDate;
+        }
+
+        public LedgerTimestamp getEndDate() {
+            return endDate;
+        }
+
+        public void setEndDate(LedgerTimestamp endDate) {
+            this.endDate = endDate;
+        }
+
+        public String getModifyTag() {
+            return modifyTag;
+        }
+
+        public void setModifyTag(String modifyTag) {
+            this.modifyTag = modifyTag;
+        }
+    }
+
+    /**
+     * oc_order_element_item
+     */
+    public static class ElementItem {
+        private String orderId;
+        private String orderLineId;
+        private String elementId;
+        private String elementTypeCode;
+        private String elementItemId;
+        private String attrCode;
+        private String attrValue;
+        private LedgerTimestamp startDate;
+        private LedgerTimestamp endDate;
+        private String modifyTag;
+        // 删除台账的来源：delete（资费属性）/ delete_service（服务属性）
+        private String action;
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public void setOrderId(String orderId) {
+            this.orderId = orderId;
+        }
+
+        public String getOrderLineId() {
+            return orderLineId;
+        }
+
+        public void setOrderLineId(String orderLineId) {
+            this.orderLineId = orderLineId;
+        }
+
+        public String getElementId() {
+            return elementId;
+        }
+
+        public void setElementId(String elementId) {
+            this.elementId = elementId;
+        }
+
+        public String getElementTypeCode() {
+            return elementTypeCode;
+        }
+
+        public void setElementTypeCode(String elementTypeCode) {
+            this.elementTypeCode = elementTypeCode;
+        }
+
+        public String getElementItemId() {
+            return elementItemId;
+        }
+
+        public void setElementItemId(String elementItemId) {
+            this.elementItemId = elementItemId;
+        }
+
+        public String getAttrCode() {
+            return attrCode;
+        }
+
+        public void setAttrCode(String attrCode) {
+            this.attrCode = attrCode;
+        }
+
+        public String getAttrValue() {
+            return attrValue;
+        }
+
+        public void setAttrValue(String attrValue) {
+            this.attrValue = attrValue;
+        }
+
+        public LedgerTimestamp getStartDate() {
+            return startDate;
+        }
+
+        public void setStartDate(LedgerTimestamp startDate) {
+            this.startDate = startDate;
+        }
+
+        public LedgerTimestamp getEndDate() {
+            return endDate;
+        }
+
+        public void setEndDate(LedgerTimestamp endDate) {
+            this.endDate = endDate;
+        }
+
+        public String getModifyTag() {
+            return modifyTag;
+        }
+
+        public void setModifyTag(String modifyTag) {
+            this.modifyTag = modifyTag;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public void setAction(String action) {
+            this.action = action;
+        }
+    }
+
+    /**
+     * 用户资费及资费属性（tf_f_user_discnt / tf_f_user_discnt_item）
+     * 资费行以 element_id / element_item_id 标识；属性行以 discnt_code / dst_item_id 指向所属资费，
+     * ref_sub_comp_id 属性的 attr_value 为关联资费的 element_item_id
+     */
+    public static class UserDiscnt {
+        private String userId;
+        private String productId;
+        private String prodItemId;
+        private String elementId;
+        private String elementItemId;
+        private String discntCode;
+        private String dstItemId;
+        private String attrCode;
+        private String attrValue;
+        private LedgerTimestamp startDate;
+        private LedgerTimestamp endDate;
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public void setProductId(String productId) {
+            this.productId = productId;
+        }
+
+        public String getProdItemId() {
+            return prodItemId;
+        }
+
+        public void setProdItemId(String prodItemId) {
+            this.prodItemId = prodItemId;
+        }
+
+        public String getElementId() {
+            return elementId;
+        }
+
+        public void setElementId(String elementId) {
+            this.elementId = elementId;
+        }
+
+        public String getElementItemId() {
+            return elementItemId;
+        }
+
+        public void setElementItemId(String elementItemId) {
+            this.elementItemId = elementItemId;
+        }
+
+        public String getDiscntCode() {
+            return discntCode;
+        }
+
+        public void setDiscntCode(String discntCode) {
+            this.discntCode = discntCode;
+        }
+
+        public String getDstItemId() {
+            return dstItemId;
+        }
+
+        public void setDstItemId(String dstItemId) {
+            this.dstItemId = dstItemId;
+        }
+
+        public String getAttrCode() {
+            return attrCode;
+        }
+
+        public void setAttrCode(String attrCode) {
+            this.attrCode = attrCode;
+        }
+
+        public String getAttrValue() {
+            return attrValue;
+        }
+
+        public void setAttrValue(String attrValue) {
+            this.attrValue = attrValue;
+        }
+
+        public LedgerTimestamp getStartDate() {
+            return startDate;
+        }
+
+        public void setStartDate(LedgerTimestamp startDate) {
+            this.startDate = startDate;
+        }
+
+        public LedgerTimestamp getEndDate() {
+            return endDate;
+        }
+
+        public void setEndDate(LedgerTimestamp endDate) {
+            this.endDate = endDate;
+        }
+    }
+
+    /**
+     * tf_f_user_other
+     */
+    public static class UserOther {
+        private String userId;
+        private String rsrvValueCode;
+        private String rsrvValue;
+        private LedgerTimestamp startDate;
+        private LedgerTimestamp endDate;
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public String getRsrvValueCode() {
+            return rsrvValueCode;
+        }
+
+        public void setRsrvValueCode(String rsrvValueCode) {
+            this.rsrvValueCode = rsrvValueCode;
+        }
+
+        public String getRsrvValue() {
+            return rsrvValue;
+        }
+
+        public void setRsrvValue(String rsrvValue) {
+            this.rsrvValue = rsrvValue;
+        }
+
+        public LedgerTimestamp getStartDate() {
+            return startDate;
+        }
+
+        public void setStartDate(LedgerTimestamp startDate) {
+            this.startDate = startDate;
+        }
+
+        public LedgerTimestamp getEndDate() {
+            return endDate;
+        }
+
+        public void setEndDate(LedgerTimestamp endDate) {
+            this.endDate = endDate;
+        }
+    }
+
+    /**
+     * oc_order_expansion
+     */
+    public static class OrderExpansion {
+        private String reservedCode;
+        private String reservedValue;
+        private String modifyTag;
+        private LedgerTimestamp startDate;
+        private LedgerTimestamp endDate;
+
+        public String getReservedCode() {
+            return reservedCode;
+        }
+
+        public void setReservedCode(String reservedCode) {
+            this.reservedCode = reservedCode;
+        }
+
+        public String getReservedValue() {
+            return reservedValue;
+        }
+
+        public void setReservedValue(String reservedValue) {
+            this.reservedValue = reservedValue;
+        }
+
+        public String getModifyTag() {
+            return modifyTag;
+        }
+
+        public void setModifyTag(String modifyTag) {
+            this.modifyTag = modifyTag;
+        }
+
+        public LedgerTimestamp getStartDate() {
+            return startDate;
+        }
+
+        public void setStartDate(LedgerTimestamp startDate) {
+            this.startDate = startDate;
+        }
+
+        public LedgerTimestamp getEndDate() {
+            return endDate;
+        }
+
+        public void setEndDate(LedgerTimestamp endDate) {
+            this.endDate = endDate;
+        }
+    }
+
+    /**
+     * tf_f_user_service_item
+     */
+    public static class UserServiceItem {
+        private String userId;
+        private String serviceId;
+        private String serviceItemId;
+        private String attrCode;
+        private String attrValue;
+        private LedgerTimestamp startDate;
+        private LedgerTimestamp endDate;
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public String getServiceId() {
+            return serviceId;
+        }
+
+        public void setServiceId(String serviceId) {
+            this.serviceId = serviceId;
+        }
+
+        public String getServiceItemId() {
+            return serviceItemId;
+        }
+
+        public void setServiceItemId(String serviceItemId) {
+            this.serviceItemId = serviceItemId;
+        }
+
+        public String getAttrCode() {
+            return attrCode;
+        }
+
+        public void setAttrCode(String attrCode) {
+            this.attrCode = attrCode;
+        }
+
+        public String getAttrValue() {
+            return attrValue;
+        }
+
+        public void setAttrValue(String attrValue) {
+            this.attrValue = attrValue;
+        }
+
+        public LedgerTimestamp getStartDate() {
+            return startDate;
+        }
+
+        public void setStartDate(LedgerTimestamp startDate) {
+            this.startDate = startDate;
+        }
+
+        public LedgerTimestamp getEndDate() {
+            return endDate;
+        }
+
+        public void setEndDate(LedgerTimestamp endDate) {
+            this.endDate = endDate;
+        }
+    }
+
+    /**
+     * tf_f_user_svcstate
+     */
+    public static class UserSvcState {
+        private String userId;
+        private String serviceId;
+        private String serviceStateCode;
+        private String mainTag;
+        private LedgerTimestamp startDate;
+        private LedgerTimestamp endDate;
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public String getServiceId() {
+            return serviceId;
+        }
+
+        public void setServiceId(String serviceId) {
+            this.serviceId = serviceId;
+        }
+
+        public String getServiceStateCode() {
+            return serviceStateCode;
+        }
+
+        public void setServiceStateCode(String serviceStateCode) {
+            this.serviceStateCode = serviceStateCode;
+        }
+
+        public String getMainTag() {
+            return mainTag;
+        }
+
+        public void setMainTag(String mainTag) {
+            this.mainTag = mainTag;
+        }
+
+        public LedgerTimestamp getStartDate() {
+            return startDate;
+        }
+
+        public void setStartDate(LedgerTimestamp startDate) {
+            this.startDate = startDate;
+        }
+
+        public LedgerTimestamp getEndDate() {
+            return endDate;
+        }
+
+        public void setEndDate(LedgerTimestamp endDate) {
+            this.endDate = endDate;
+        }
+    }
+
+    /**
+     * oc_order_num_svcstate
+     */
+    public static class OrderNumSvcState {
+        private String orderId;
+        private String orderLineId;
+        private String serialNumber;
+        private String userId;
+        private String serviceId;
+        private String serviceStateCode;
+        private String mainTag;
+        private LedgerTimestamp startDate;
+        private LedgerTimestamp endDate;
+        private String modifyTag;
+
+        public String getOrderId() {
+            return orderId;
+        }
+
+        public void setOrderId(String orderId) {
+            this.orderId = orderId;
+        }
+
+        public String getOrderLineId() {
+            return orderLineId;
+        }
+
+        public void setOrderLineId(String orderLineId) {
+            this.orderLineId = orderLineId;
+        }
+
+        public String getSerialNumber() {
+            return serialNumber;
+        }
+
+        public void setSerialNumber(String serialNumber) {
+            this.serialNumber = serialNumber;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public String getServiceId() {
+            return serviceId;
+        }
+
+        public void setServiceId(String serviceId) {
+            this.serviceId = serviceId;
+        }
+
+        public String getServiceStateCode() {
+            return serviceStateCode;
+        }
+
+        public void setServiceStateCode(String serviceStateCode) {
+            this.serviceStateCode = serviceStateCode;
+        }
+
+        public String getMainTag() {
+            return mainTag;
+        }
+
+        public void setMainTag(String mainTag) {
+            this.mainTag = mainTag;
+        }
+
+        public LedgerTimestamp getStartDate() {
+            return startDate;
+        }
+
+        public void setStartDate(LedgerTimestamp startDate) {
+            this.startDate = startDate;
+        }
+
+        public LedgerTimestamp getEndDate() {
+            return endDate;
+        }
+
+        public void setEndDate(LedgerTimestamp endDate) {
+            this.endDate = endDate;
+        }
+
+        public String getModifyTag() {
+            return modifyTag;
+        }
+
+        public void setModifyTag(String modifyTag) {
+            this.modifyTag = modifyTag;
+        }
+    }
+}
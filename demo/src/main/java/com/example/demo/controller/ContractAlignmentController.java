@@ -1,5 +1,6 @@
 package com.example.demo.controller;
 
+import com.example.demo.entity.OcOrderElementItem;
 import com.example.demo.service.ContractAlignmentService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -7,6 +8,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -24,7 +26,7 @@ public class ContractAlignmentController {
     /**
      * 对齐非主资费的合约与主资费的UAT
      * 
-     * @param request 请求参数，包含orderId、orderLineId、srd
+     * @param request 请求参数，包含orderId、orderLineId、srd；dryRun=true 时只试算、返回计划写入的属性行
      * @return 执行结果
      */
     @PostMapping("/align")
@@ -65,6 +67,20 @@ public class ContractAlignmentController {
                 return ResponseEntity.badRequest().body(response);
             }
             
+            // 试算：不写表，返回计划写入的属性行
+            if ("true".equalsIgnoreCase(request.get("dryRun"))) {
+                List<OcOrderElementItem> items = contractAlignmentService.planNonMainContractAlignment(orderId, orderLineId, srd);
+                response.put("success", true);
+                response.put("message", "合约对齐试算完成，计划写入 " + items.size() + " 条属性");
+                response.put("data", Map.of(
+                    "orderId", orderId,
+                    "orderLineId", orderLineId,
+                    "srd", srd,
+                    "items", items
+                ));
+                return ResponseEntity.ok(response);
+            }
+            
             // 执行业务逻辑
             contractAlignmentService.alignNonMainContractWithMainUat(orderId, orderLineId, srd);
             
@@ -64,11 +64,6 @@ public interface ContractAlignmentMapper {
                                                      @Param("modifyTag") String modifyTag,
                                                      @Param("isMainElement") String isMainElement);
 
-    /**
-     * 插入元素属性
-     */
-    int insertElementItem(OcOrderElementItem item);
-
     /**
      * 更新元素属性
      */
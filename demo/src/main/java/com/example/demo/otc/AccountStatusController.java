@@ -0,0 +1,24 @@
+package com.example.demo.otc;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/account-status")
+public class AccountStatusController {
+
+    private final AccountStatusService accountStatusService;
+
+    public AccountStatusController(AccountStatusService accountStatusService) {
+        this.accountStatusService = accountStatusService;
+    }
+
+    /**
+     * 账户冻结任务进度：当前/最近一次运行的分块数、账户数、吞吐与断点
+     */
+    @GetMapping("/progress")
+    public AccountStatusJobProgress progress() {
+        return accountStatusService.getProgress();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.otc;
+
+import java.time.LocalDateTime;
+
+/**
+ * 账户冻结任务进度与吞吐快照（最近一次运行）
+ */
+public class AccountStatusJobProgress {
+
+    public static final String STATE_IDLE = "IDLE";
+    public static final String STATE_RUNNING = "RUNNING";
+    public static final String STATE_DONE = "DONE";
+    public static final String STATE_FAILED = "FAILED";
+
+    private String state;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Long resumedFromAccountId; // 本次运行的起点（上次断点），0 表示从头开始
+    private Long checkpointAccountId;  // 已持久化的断点
+    private long chunksSubmitted;
+    private long chunksCompleted;
+    private long chunksFailed;
+    private long accountsScanned;
+    private long accountsFrozen;
+    private long elapsedMillis;
+    private double accountsPerSecond;
+    private String lastError;
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(LocalDateTime startTime) {
+        this.startTime = startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(LocalDateTime endTime) {
+        this.endTime = endTime;
+    }
+
+    public Long getResumedFromAccountId() {
+        return resumedFromAccountId;
+    }
+
+    public void setResumedFromAccountId(Long resumedFromAccountId) {
+        this.resumedFromAccountId = resumedFromAccountId;
+    }
+
+    public Long getCheckpointAccountId() {
+        return checkpointAccountId;
+    }
+
+    public void setCheckpointAccountId(Long checkpointAccountId) {
+        this.checkpointAccountId = checkpointAccountId;
+    }
+
+    public long getChunksSubmitted() {
+        return chunksSubmitted;
+    }
+
+    public void setChunksSubmitted(long chunksSubmitted) {
+        this.chunksSubmitted = chunksSubmitted;
+    }
+
+    public long getChunksCompleted() {
+        return chunksCompleted;
+    }
+
+    public void setChunksCompleted(long chunksCompleted) {
+        this.chunksCompleted = chunksCompleted;
+    }
+
+    public long getChunksFailed() {
+        return chunksFailed;
+    }
+
+    public void setChunksFailed(long chunksFailed) {
+        this.chunksFailed = chunksFailed;
+    }
+
+    public long getAccountsScanned() {
+        return accountsScanned;
+    }
+
+    public void setAccountsScanned(long accountsScanned) {
+        this.accountsScanned = accountsScanned;
+    }
+
+    public long getAccountsFrozen() {
+        return accountsFrozen;
+    }
+
+    public void setAccountsFrozen(long accountsFrozen) {
+        this.accountsFrozen = accountsFrozen;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public double getAccountsPerSecond() {
+        return accountsPerSecond;
+    }
+
+    public void setAccountsPerSecond(double accountsPerSecond) {
+        this.accountsPerSecond = accountsPerSecond;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.otc;
 
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
@@ -24,4 +25,43 @@ public interface AccountStatusMapper {
 
     @Update("UPDATE tf_f_account SET account_status = #{newStatus}, status_date = NOW() WHERE account_id = #{accountId}")
     void updateAccountStatus(@Param("accountId") Long accountId, @Param("newStatus") Integer newStatus);
+
+    // ===== 分块冻结任务 =====
+
+    // 按 account_id 键集分页：取 afterAccountId 之后的 limit 个指定状态账户
+    @Select("SELECT account_id FROM tf_f_account WHERE account_status = #{status} AND account_id > #{afterAccountId} " +
+            "ORDER BY account_id LIMIT #{limit}")
+    List<Long> queryAccountIdsAfter(@Param("status") Integer status, @Param("afterAccountId") Long afterAccountId,
+                                    @Param("limit") int limit);
+
+    // (fromAccountId, toAccountId] 范围内可冻结的账户：无有效用户，且无在途订单（反连接，一次查询覆盖整个分块）
+    @Select("SELECT a.account_id FROM tf_f_account a " +
+            "WHERE a.account_status = #{status} AND a.account_id > #{fromAccountId} AND a.account_id <= #{toAccountId} " +
+            "AND NOT EXISTS (SELECT 1 FROM tf_f_payrelation p WHERE p.account_id = a.account_id AND p.end_date > NOW()) " +
+            "AND NOT EXISTS (SELECT 1 FROM oc_order_payrelation r JOIN oc_order_line l " +
+            "    ON l.order_id = r.order_id AND l.order_line_id = r.order_line_id AND l.cancel_tag = '0' " +
+            "    WHERE r.account_id = a.account_id AND r.modify_tag = '0') " +
+            "ORDER BY a.account_id")
+    List<Long> queryFreezableAccountIds(@Param("status") Integer status, @Param("fromAccountId") Long fromAccountId,
+                                        @Param("toAccountId") Long toAccountId);
+
+    // 批量修改账户状态；仅修改仍为 fromStatus 的账户，断点续跑重复处理同一分块时不会重复修改
+    @Update("<script>" +
+            "UPDATE tf_f_account SET account_status = #{newStatus}, status_date = NOW() " +
+            "WHERE account_status = #{fromStatus} AND account_id IN " +
+            "<foreach collection='accountIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int updateAccountStatusBatch(@Param("accountIds") List<Long> accountIds, @Param("fromStatus") Integer fromStatus,
+                                 @Param("newStatus") Integer newStatus);
+
+    @Select("SELECT * FROM batch_job_checkpoint WHERE job_name = #{jobName}")
+    BatchJobCheckpoint queryCheckpoint(@Param("jobName") String jobName);
+
+    @Update("UPDATE batch_job_checkpoint SET last_account_id = #{lastAccountId}, status = #{status}, " +
+            "processed_count = #{processedCount}, frozen_count = #{frozenCount}, update_time = NOW() WHERE job_name = #{jobName}")
+    int updateCheckpoint(BatchJobCheckpoint checkpoint);
+
+    @Insert("INSERT INTO batch_job_checkpoint (job_name, last_account_id, status, processed_count, frozen_count, update_time) " +
+            "VALUES (#{jobName}, #{lastAccountId}, #{status}, #{processedCount}, #{frozenCount}, NOW())")
+    void insertCheckpoint(BatchJobCheckpoint checkpoint);
 }
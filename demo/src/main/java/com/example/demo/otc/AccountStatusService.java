@@ -1,21 +1,51 @@
 package com.example.demo.otc;
 
+import com.example.demo.ConcurrentUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * 账户冻结任务：状态正常、无有效用户且无在途订单的账户改为 Final
+ * 按 account_id 键集分页切分为分块，每块用一次反连接查询找出可冻结账户、一次批量 UPDATE 修改状态；
+ * 分块在工作线程池中并行处理，每块一个事务。已连续完成的分块推进断点（batch_job_checkpoint），
+ * 任务中断或失败后下次运行从断点之后续跑；重复处理断点之后已提交的分块不会重复修改（UPDATE 带原状态条件）
+ */
 @Service
 public class AccountStatusService {
 
     private static final Logger logger = LoggerFactory.getLogger(AccountStatusService.class);
+
+    static final String JOB_NAME = "account_status_freeze";
+    private static final int STATUS_ACTIVE = 1;
+    private static final int STATUS_FINAL = 2; // Final/Frozen
+
     private final AccountStatusMapper accountStatusMapper;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+    private final int workers;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Run lastRun;
 
-    public AccountStatusService(AccountStatusMapper accountStatusMapper) {
+    public AccountStatusService(AccountStatusMapper accountStatusMapper, PlatformTransactionManager transactionManager,
+                                @Value("${otc.account-status.chunk-size:1000}") int chunkSize,
+                                @Value("${otc.account-status.workers:4}") int workers) {
         this.accountStatusMapper = accountStatusMapper;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.workers = Math.max(1, workers);
     }
 
     /**
@@ -29,60 +59,274 @@ public class AccountStatusService {
     }
 
     /**
-     * 处理逻辑
+     * 处理逻辑；同一时刻只允许一个运行，上次未完成时从断点续跑
      * @return 执行结果摘要
      */
-    @Transactional(rollbackFor = Exception.class)
     public String processAccountStatus() {
-        logger.info("Fetching active accounts...");
-        // 1. 获取全量状态正常的账户
-        List<TfFAccount> activeAccounts = accountStatusMapper.queryAccountsByStatus(1); // 1 = Active
-        int processedCount = 0;
-        int updatedCount = 0;
-
-        for (TfFAccount account : activeAccounts) {
-            processedCount++;
-            Long accountId = account.getAccountId();
-
-            // 1.1.1 查询此账户下是否有正常用户
-            int activeUserCount = accountStatusMapper.countActiveUsersByAccount(accountId);
-            if (activeUserCount > 0) {
-                // 有效用户，跳过
-                continue;
-            }
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("Account status job is already running, skipped.");
+            return "Account status job is already running.";
+        }
+        try {
+            return runJob();
+        } finally {
+            running.set(false);
+        }
+    }
 
-            // 1.2.1 查询此账户下是否有在途订单
-            boolean hasInflightOrders = false;
-            List<OcOrderPayRelation> relations = accountStatusMapper.queryOrderPayRelations(accountId);
-            if (relations != null && !relations.isEmpty()) {
-                for (OcOrderPayRelation relation : relations) {
-                    int validOrderLineCount = accountStatusMapper.countActiveOrderLines(relation.getOrderId(), relation.getOrderLineId());
-                    if (validOrderLineCount > 0) {
-                        hasInflightOrders = true;
-                        break; // 发现有效订单，停止检查
+    /**
+     * 最近一次运行的进度与吞吐
+     */
+    public AccountStatusJobProgress getProgress() {
+        Run run = lastRun;
+        if (run == null) {
+            AccountStatusJobProgress progress = new AccountStatusJobProgress();
+            progress.setState(AccountStatusJobProgress.STATE_IDLE);
+            return progress;
+        }
+        return run.snapshot();
+    }
+
+    private String runJob() {
+        BatchJobCheckpoint checkpoint = accountStatusMapper.queryCheckpoint(JOB_NAME);
+        Run run;
+        if (checkpoint != null && !BatchJobCheckpoint.STATUS_DONE.equals(checkpoint.getStatus())) {
+            logger.info("Resuming account status job after account {}", checkpoint.getLastAccountId());
+            run = new Run(nvl(checkpoint.getLastAccountId()), nvl(checkpoint.getProcessedCount()), nvl(checkpoint.getFrozenCount()));
+        } else {
+            run = new Run(0L, 0L, 0L);
+        }
+        lastRun = run;
+        run.saveCheckpoint(BatchJobCheckpoint.STATUS_RUNNING);
+
+        ExecutorService executor = ConcurrentUtils.newDaemonPool("account-status", workers);
+        // 限制已提交未完成的分块数，分页查询不会远超处理速度
+        int maxInFlight = workers * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        try {
+            long cursor = run.resumedFrom;
+            while (!run.isFailed()) {
+                // 1. 键集分页取下一块状态正常的账户
+                List<Long> accountIds = accountStatusMapper.queryAccountIdsAfter(STATUS_ACTIVE, cursor, chunkSize);
+                if (accountIds.isEmpty()) {
+                    break;
+                }
+                Chunk chunk = new Chunk(run.nextSeq(), cursor, accountIds.get(accountIds.size() - 1), accountIds.size());
+                cursor = chunk.toAccountId;
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        processChunk(run, chunk);
+                    } finally {
+                        inFlight.release();
                     }
+                });
+                if (accountIds.size() < chunkSize) {
+                    break;
                 }
             }
-
-            // 如果既无有效用户，也无在途订单
-            if (!hasInflightOrders) {
-                logger.info("Freezing account: {}", accountId);
-                // 调用BRM接口修改账户状态为 Final (Mock)
-                callBrmInterface(accountId);
-                
-                // 修改本地记录
-                accountStatusMapper.updateAccountStatus(accountId, 2); // 2 = Final/Frozen
-                updatedCount++;
-            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.fail(null, e);
+        } catch (RuntimeException e) {
+            logger.error("Account status job paging failed", e);
+            run.fail(null, e);
+        } finally {
+            // 等待已提交的分块全部结束
+            inFlight.acquireUninterruptibly(maxInFlight);
+            executor.shutdown();
         }
 
-        String result = String.format("Processed %d accounts, froze %d accounts.", processedCount, updatedCount);
+        run.finish();
+        String result = run.isFailed()
+                ? String.format("Account status job failed after account %d, processed %d accounts, froze %d accounts; will resume on next run.",
+                run.watermark, run.processedTotal(), run.frozenTotal())
+                : String.format("Processed %d accounts, froze %d accounts.", run.processedTotal(), run.frozenTotal());
         logger.info(result);
         return result;
     }
 
+    private void processChunk(Run run, Chunk chunk) {
+        if (run.isFailed()) {
+            // 已有分块失败，不再处理后续分块（断点不会越过失败分块，下次运行会重新处理）
+            return;
+        }
+        try {
+            Integer frozen = chunkTransaction.execute(status -> freezeChunk(chunk));
+            run.complete(chunk, frozen == null ? 0 : frozen);
+        } catch (RuntimeException e) {
+            logger.error("Account status chunk ({}, {}] failed", chunk.fromAccountId, chunk.toAccountId, e);
+            run.fail(chunk, e);
+        }
+    }
+
+    /**
+     * 单个分块：(fromAccountId, toAccountId] 内既无有效用户、也无在途订单的账户一次查出并批量冻结
+     */
+    private int freezeChunk(Chunk chunk) {
+        List<Long> freezable = accountStatusMapper.queryFreezableAccountIds(STATUS_ACTIVE, chunk.fromAccountId, chunk.toAccountId);
+        if (freezable.isEmpty()) {
+            return 0;
+        }
+        for (Long accountId : freezable) {
+            logger.info("Freezing account: {}", accountId);
+            // 调用BRM接口修改账户状态为 Final (Mock)
+            callBrmInterface(accountId);
+        }
+        // 修改本地记录
+        return accountStatusMapper.updateAccountStatusBatch(freezable, STATUS_ACTIVE, STATUS_FINAL);
+    }
+
     private void callBrmInterface(Long accountId) {
         // Mock BRM call
         logger.info("Mock BRM call: Account {} status set to Final", accountId);
     }
+
+    private static long nvl(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    /**
+     * 分块：账户范围 (fromAccountId, toAccountId]，seq 为提交顺序
+     */
+    private static final class Chunk {
+        final int seq;
+        final long fromAccountId;
+        final long toAccountId;
+        final int size;
+        int frozen;
+
+        Chunk(int seq, long fromAccountId, long toAccountId, int size) {
+            this.seq = seq;
+            this.fromAccountId = fromAccountId;
+            this.toAccountId = toAccountId;
+            this.size = size;
+        }
+    }
+
+    /**
+     * 单次运行的状态：分块乱序完成，断点只推进到连续完成的最后一个分块
+     */
+    private final class Run {
+        final long resumedFrom;
+        final long processedBase;
+        final long frozenBase;
+        final LocalDateTime startTime = LocalDateTime.now();
+        final long startNanos = System.nanoTime();
+
+        // 已完成但前面还有未完成分块的分块，按 seq 暂存
+        final Map<Integer, Chunk> pendingCommit = new HashMap<>();
+        int submitted;
+        int nextToCommit;
+        long watermark;
+        long committedProcessed;
+        long committedFrozen;
+        long chunksCompleted;
+        long chunksFailed;
+        long accountsScanned;
+        long accountsFrozen;
+        volatile boolean failed;
+        String lastError;
+        String state = AccountStatusJobProgress.STATE_RUNNING;
+        LocalDateTime endTime;
+        long elapsedNanos = -1;
+
+        Run(long resumedFrom, long processedBase, long frozenBase) {
+            this.resumedFrom = resumedFrom;
+            this.processedBase = processedBase;
+            this.frozenBase = frozenBase;
+            this.watermark = resumedFrom;
+        }
+
+        synchronized int nextSeq() {
+            return submitted++;
+        }
+
+        boolean isFailed() {
+            return failed;
+        }
+
+        synchronized void complete(Chunk chunk, int frozen) {
+            chunk.frozen = frozen;
+            chunksCompleted++;
+            accountsScanned += chunk.size;
+            accountsFrozen += frozen;
+            pendingCommit.put(chunk.seq, chunk);
+            boolean advanced = false;
+            Chunk next;
+            while ((next = pendingCommit.remove(nextToCommit)) != null) {
+                nextToCommit++;
+                watermark = next.toAccountId;
+                committedProcessed += next.size;
+                committedFrozen += next.frozen;
+                advanced = true;
+            }
+            if (advanced) {
+                saveCheckpoint(BatchJobCheckpoint.STATUS_RUNNING);
+            }
+        }
+
+        synchronized void fail(Chunk chunk, Exception e) {
+            failed = true;
+            if (chunk != null) {
+                chunksFailed++;
+            }
+            lastError = e.getMessage();
+        }
+
+        synchronized void finish() {
+            elapsedNanos = System.nanoTime() - startNanos;
+            endTime = LocalDateTime.now();
+            state = failed ? AccountStatusJobProgress.STATE_FAILED : AccountStatusJobProgress.STATE_DONE;
+            saveCheckpoint(failed ? BatchJobCheckpoint.STATUS_FAILED : BatchJobCheckpoint.STATUS_DONE);
+        }
+
+        synchronized long processedTotal() {
+            return processedBase + committedProcessed;
+        }
+
+        synchronized long frozenTotal() {
+            return frozenBase + committedFrozen;
+        }
+
+        /**
+         * 持久化断点（自动提交，与分块事务无关）；写断点失败只记日志，下次推进时覆盖
+         */
+        void saveCheckpoint(String status) {
+            BatchJobCheckpoint checkpoint = new BatchJobCheckpoint();
+            checkpoint.setJobName(JOB_NAME);
+            checkpoint.setStatus(status);
+            synchronized (this) {
+                checkpoint.setLastAccountId(watermark);
+                checkpoint.setProcessedCount(processedBase + committedProcessed);
+                checkpoint.setFrozenCount(frozenBase + committedFrozen);
+            }
+            try {
+                if (accountStatusMapper.updateCheckpoint(checkpoint) == 0) {
+                    accountStatusMapper.insertCheckpoint(checkpoint);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Save account status checkpoint failed: {}", watermark, e);
+            }
+        }
+
+        synchronized AccountStatusJobProgress snapshot() {
+            long elapsed = (elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos) / 1_000_000L;
+            AccountStatusJobProgress progress = new AccountStatusJobProgress();
+            progress.setState(state);
+            progress.setStartTime(startTime);
+            progress.setEndTime(endTime);
+            progress.setResumedFromAccountId(resumedFrom);
+            progress.setCheckpointAccountId(watermark);
+            progress.setChunksSubmitted(submitted);
+            progress.setChunksCompleted(chunksCompleted);
+            progress.setChunksFailed(chunksFailed);
+            progress.setAccountsScanned(accountsScanned);
+            progress.setAccountsFrozen(accountsFrozen);
+            progress.setElapsedMillis(elapsed);
+            progress.setAccountsPerSecond(elapsed > 0 ? accountsScanned * 1000.0 / elapsed : 0);
+            progress.setLastError(lastError);
+            return progress;
+        }
+    }
 }
@@ -0,0 +1,68 @@
+package com.example.demo.otc;
+
+import java.time.LocalDateTime;
+
+/**
+ * 批处理任务断点（batch_job_checkpoint）：last_account_id 之前（含）的账户已全部处理并提交
+ */
+public class BatchJobCheckpoint {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_DONE = "DONE";
+
+    private String jobName;
+    private Long lastAccountId;
+    private String status; // RUNNING / FAILED: 未完成，下次从 lastAccountId 之后续跑; DONE: 已完成
+    private Long processedCount;
+    private Long frozenCount;
+    private LocalDateTime updateTime;
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public void setJobName(String jobName) {
+        this.jobName = jobName;
+    }
+
+    public Long getLastAccountId() {
+        return lastAccountId;
+    }
+
+    public void setLastAccountId(Long lastAccountId) {
+        this.lastAccountId = lastAccountId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getProcessedCount() {
+        return processedCount;
+    }
+
+    public void setProcessedCount(Long processedCount) {
+        this.processedCount = processedCount;
+    }
+
+    public Long getFrozenCount() {
+        return frozenCount;
+    }
+
+    public void setFrozenCount(Long frozenCount) {
+        this.frozenCount = frozenCount;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
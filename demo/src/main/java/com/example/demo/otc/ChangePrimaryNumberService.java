@@ -6,7 +6,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class ChangePrimaryNumberService {
@@ -14,7 +13,11 @@ public class ChangePrimaryNumberService {
     @Autowired
     private ChangePrimaryNumberMapper mapper;
 
-    private AtomicLong sequenceGenerator = new AtomicLong(10000);
+    @Autowired
+    private SegmentIdAllocator idAllocator;
+
+    @Autowired
+    private UserCenterCache userCenterCache;
 
     @Transactional
     public void processChangePrimaryNumber(Long orderId) {
@@ -35,7 +38,8 @@ public class ChangePrimaryNumberService {
             // 2. Get member relations
             // Use sn_user_id from trigger line as user_id_a (primary user)
             Long primaryUserId = triggerLine.getSnUserId();
-            List<TfFUserRelation> relations = mapper.getMemberRelations(primaryUserId);
+            List<TfFUserRelation> relations = userCenterCache.get(UserCenterCache.Entity.USER_RELATION, primaryUserId, "members",
+                    () -> mapper.getMemberRelations(primaryUserId));
             
             if (relations != null) {
                 for (TfFUserRelation relation : relations) {
@@ -60,10 +64,11 @@ public class ChangePrimaryNumberService {
         String memberSerialNumber = relation.getSerialNumberB();
         
         // 2.2.1 Insert oc_order_line
-        Long newOrderLineId = sequenceGenerator.incrementAndGet();
+        Long newOrderLineId = idAllocator.nextId(SegmentIdAllocator.ORDER_LINE_ID);
         
         // Get member user info
-        TfFUser memberUserInfo = mapper.getUserInfo(memberUserId);
+        TfFUser memberUserInfo = userCenterCache.get(UserCenterCache.Entity.USER, memberUserId,
+                () -> mapper.getUserInfo(memberUserId));
         
         OcOrderLine newLine = new OcOrderLine();
         newLine.setOrderId(triggerLine.getOrderId());
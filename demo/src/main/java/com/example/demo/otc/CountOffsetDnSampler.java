@@ -0,0 +1,48 @@
+package com.example.demo.otc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机抽样：复用统计得到的 DN 数量，随机取一个偏移量后 limit 1 offset n，不做排序
+ */
+@Component
+public class CountOffsetDnSampler implements DnSampler {
+
+    public static final String NAME = "count-offset";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CountOffsetDnSampler(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Optional<DnKey> pick(DnScope scope, DnStats stats) {
+        if (stats.getCount() <= 0) return Optional.empty();
+
+        long offset = ThreadLocalRandom.current().nextLong(stats.getCount());
+        Optional<DnKey> key = queryAt(scope, offset);
+        if (key.isEmpty() && offset > 0) {
+            // 统计与抽样之间有 DN 被撤销，偏移越界时退回第一条
+            key = queryAt(scope, 0);
+        }
+        return key;
+    }
+
+    private Optional<DnKey> queryAt(DnScope scope, long offset) {
+        String sql = "select order_id, order_line_id from oc_order_line where " + scope.where() + " limit 1 offset ?";
+        List<DnKey> list = jdbcTemplate.query(sql, scope.params(offset),
+                (rs, rn) -> new DnKey(rs.getLong("order_id"), rs.getLong("order_line_id")));
+        return list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.otc;
+
+import java.util.List;
+
+/**
+ * 批量信控拆机结果：按输入顺序逐个账户返回处理结果，失败的账户只回滚自身事务
+ */
+public class CreditTerminateBatchResult {
+    private int successCount;
+    private int failureCount;
+    private List<AccountResult> accountResults;
+
+    public CreditTerminateBatchResult(List<AccountResult> accountResults) {
+        this.accountResults = accountResults;
+        for (AccountResult r : accountResults) {
+            if (r.isSuccess()) {
+                successCount++;
+            } else {
+                failureCount++;
+            }
+        }
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public void setSuccessCount(int successCount) {
+        this.successCount = successCount;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public void setFailureCount(int failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    public List<AccountResult> getAccountResults() {
+        return accountResults;
+    }
+
+    public void setAccountResults(List<AccountResult> accountResults) {
+        this.accountResults = accountResults;
+    }
+
+    public static class AccountResult {
+        private Long accountId;
+        private boolean success;
+        private CreditTerminateResult result;
+        private String error;
+
+        public AccountResult(Long accountId, CreditTerminateResult result) {
+            this.accountId = accountId;
+            this.success = true;
+            this.result = result;
+        }
+
+        public AccountResult(Long accountId, String error) {
+            this.accountId = accountId;
+            this.success = false;
+            this.error = error;
+        }
+
+        public Long getAccountId() {
+            return accountId;
+        }
+
+        public void setAccountId(Long accountId) {
+            this.accountId = accountId;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public void setSuccess(boolean success) {
+            this.success = success;
+        }
+
+        public CreditTerminateResult getResult() {
+            return result;
+        }
+
+        public void setResult(CreditTerminateResult result) {
+            this.result = result;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.otc;
+
+import com.example.demo.ConcurrentUtils;
+import com.example.demo.otc.CreditTerminateBatchResult.AccountResult;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 批量信控拆机（催缴批次）
+ * 固定大小的工作线程池并行处理多个账户，每个账户一个独立事务（经 CreditTerminateService 代理开启）；
+ * 单个账户失败只回滚该账户，其余账户照常提交，结果按输入顺序汇总
+ */
+@Service
+public class CreditTerminateBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditTerminateBatchService.class);
+
+    private final CreditTerminateService creditTerminateService;
+    private final int maxAccounts;
+    private final ExecutorService executor;
+
+    public CreditTerminateBatchService(CreditTerminateService creditTerminateService,
+                                       @Value("${otc.credit-terminate.batch.workers:4}") int workers,
+                                       @Value("${otc.credit-terminate.batch.max-accounts:1000}") int maxAccounts) {
+        this.creditTerminateService = creditTerminateService;
+        this.maxAccounts = maxAccounts;
+        this.executor = ConcurrentUtils.newDaemonPool("credit-terminate-batch", workers);
+    }
+
+    /**
+     * 并行处理一批账户，拆机订单行均增补在 orderId 下；全部账户处理完成后返回
+     */
+    public CreditTerminateBatchResult processAccounts(Long orderId, List<Long> accountIds) {
+        if (accountIds == null || accountIds.isEmpty()) {
+            return new CreditTerminateBatchResult(new ArrayList<>());
+        }
+        if (accountIds.size() > maxAccounts) {
+            throw new IllegalArgumentException("批量信控拆机账户数超过上限: " + accountIds.size() + " > " + maxAccounts);
+        }
+
+        List<CompletableFuture<AccountResult>> futures = new ArrayList<>(accountIds.size());
+        for (Long accountId : accountIds) {
+            futures.add(CompletableFuture.supplyAsync(() -> processOne(orderId, accountId), executor));
+        }
+        List<AccountResult> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<AccountResult> future : futures) {
+            results.add(future.join());
+        }
+        return new CreditTerminateBatchResult(results);
+    }
+
+    private AccountResult processOne(Long orderId, Long accountId) {
+        try {
+            return new AccountResult(accountId, creditTerminateService.processCreditTerminateForAccount(orderId, accountId));
+        } catch (RuntimeException ex) {
+            logger.warn("账户 {} 信控拆机失败", accountId, ex);
+            return new AccountResult(accountId, ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
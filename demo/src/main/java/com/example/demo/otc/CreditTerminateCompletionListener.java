@@ -0,0 +1,84 @@
+package com.example.demo.otc;
+
+import com.example.demo.ConcurrentUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 信控拆机竣工消息消费（消息体为 order_id）
+ * 经 batchFactory 批量拉取，按 order_id 哈希分到固定数量的分区：同一订单的消息总在同一分区内按先后处理，
+ * 各分区并行、各自一个事务（CreditTerminateService.processCompletionMessages，按分区批量查询）。
+ * 所有分区事务提交后监听方法才返回，容器随后提交本批 offset；任一分区失败则抛出异常，本批 offset 不提交并由容器重投
+ * （已提交的分区会被重复处理，竣工处理本身可重入：is_allow_amend 只改 N -> Y）
+ */
+@Component
+public class CreditTerminateCompletionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CreditTerminateCompletionListener.class);
+
+    private final CreditTerminateService creditTerminateService;
+    private final int partitions;
+    private final ExecutorService executor;
+
+    public CreditTerminateCompletionListener(CreditTerminateService creditTerminateService,
+                                             @Value("${otc.credit-terminate.completion.workers:4}") int workers) {
+        this.creditTerminateService = creditTerminateService;
+        this.partitions = Math.max(1, workers);
+        this.executor = ConcurrentUtils.newDaemonPool("credit-terminate-completion", partitions);
+    }
+
+    @KafkaListener(topics = "${otc.credit-terminate.completion.topic:otc-credit-terminate-completion}",
+            groupId = "${otc.credit-terminate.completion.group-id:otc-credit-terminate}",
+            containerFactory = "batchFactory")
+    public void onCompletionMessages(List<String> messages) {
+        List<List<Long>> orderIdsByPartition = partition(messages);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(partitions);
+        for (List<Long> orderIds : orderIdsByPartition) {
+            if (!orderIds.isEmpty()) {
+                futures.add(CompletableFuture.runAsync(() -> creditTerminateService.processCompletionMessages(orderIds), executor));
+            }
+        }
+        try {
+            ConcurrentUtils.join(CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])));
+        } catch (RuntimeException ex) {
+            logger.warn("竣工消息批次处理失败，本批 offset 不提交: {}", ex.getMessage());
+            throw ex;
+        }
+    }
+
+    /**
+     * 按 order_id 分区，分区内保持消息原有顺序；无法解析的消息记录后跳过（重投也无法处理，避免阻塞整个分区）
+     */
+    private List<List<Long>> partition(List<String> messages) {
+        List<List<Long>> orderIdsByPartition = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            orderIdsByPartition.add(new ArrayList<>());
+        }
+        for (String message : messages) {
+            Long orderId;
+            try {
+                orderId = Long.valueOf(message.trim());
+            } catch (RuntimeException ex) {
+                logger.warn("无法解析的竣工消息，已跳过: {}", message);
+                continue;
+            }
+            orderIdsByPartition.get(Math.floorMod(orderId.hashCode(), partitions)).add(orderId);
+        }
+        return orderIdsByPartition;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -4,6 +4,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/credit-terminate")
 @CrossOrigin(origins = "*")
@@ -12,6 +14,9 @@ public class CreditTerminateController {
     @Autowired
     private CreditTerminateService creditTerminateService;
 
+    @Autowired
+    private CreditTerminateBatchService creditTerminateBatchService;
+
     @PostMapping("/process")
     public ResponseEntity<?> processCreditTerminate(@RequestBody CreditTerminateRequest request) {
         try {
@@ -44,6 +49,43 @@ public class CreditTerminateController {
         }
     }
     
+    /**
+     * 批量信控拆机：多个账户并行处理，每个账户一个事务，返回逐账户结果
+     */
+    @PostMapping("/process-batch")
+    public ResponseEntity<?> processCreditTerminateBatch(@RequestBody CreditTerminateBatchRequest request) {
+        try {
+            CreditTerminateBatchResult result = creditTerminateBatchService.processAccounts(request.getOrderId(), request.getAccountIds());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("处理失败: " + e.getMessage());
+        }
+    }
+
+    public static class CreditTerminateBatchRequest {
+        private Long orderId;
+        private List<Long> accountIds;
+
+        public Long getOrderId() {
+            return orderId;
+        }
+
+        public void setOrderId(Long orderId) {
+            this.orderId = orderId;
+        }
+
+        public List<Long> getAccountIds() {
+            return accountIds;
+        }
+
+        public void setAccountIds(List<Long> accountIds) {
+            this.accountIds = accountIds;
+        }
+    }
+
     @PostMapping("/process-completion")
     public ResponseEntity<?> processCompletionMessage(@RequestBody CompletionRequest request) {
         try {
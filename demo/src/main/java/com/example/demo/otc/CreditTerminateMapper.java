@@ -29,21 +29,6 @@ public interface CreditTerminateMapper {
     @Select("SELECT srd FROM oc_order_line WHERE order_id = #{orderId} AND order_line_id = #{orderLineId}")
     LocalDate getOrderLineSrd(@Param("orderId") Long orderId, @Param("orderLineId") Long orderLineId);
 
-    @Insert("INSERT INTO oc_order_line_item (order_id, order_line_id, attr_code, attr_value, modify_tag, start_date, end_date) " +
-            "VALUES (#{orderId}, #{orderLineId}, #{attrCode}, #{attrValue}, #{modifyTag}, #{startDate}, #{endDate})")
-    void insertOrderLineItem(OrderLineItem item);
-
-    @Insert("INSERT INTO oc_order_line (order_id, order_line_id, serial_number, user_id, net_type_code, main_product_id, main_product_name, main_product_type, product_family, trade_type_code, scene_type) " +
-            "VALUES (#{orderId}, #{orderLineId}, #{serialNumber}, #{userId}, #{netTypeCode}, #{mainProductId}, #{mainProductName}, #{mainProductType}, #{productFamily}, #{tradeTypeCode}, #{sceneType})")
-    void insertOrderLine(OcOrderLine line);
-
-    @Insert("INSERT INTO oc_order_item (order_id, attr_code, attr_value, modify_tag, start_date, end_date) " +
-            "VALUES (#{orderId}, #{attrCode}, #{attrValue}, #{modifyTag}, #{startDate}, #{endDate})")
-    void insertOrderItem(OcOrderItem item);
-
-    @Update("UPDATE oc_order_line SET order_node_state = '04', cancel_tag = 'Z', remark = #{remark} WHERE order_id = #{orderId} AND order_line_id = #{orderLineId}")
-    void terminateOrderLine(@Param("orderId") Long orderId, @Param("orderLineId") Long orderLineId, @Param("remark") String remark);
-
     @Select("SELECT * FROM tf_f_user WHERE user_id = #{userId}")
     TfFUser getUserInfo(@Param("userId") Long userId);
 
@@ -51,6 +36,11 @@ public interface CreditTerminateMapper {
     @Select("SELECT relation_type_code FROM tf_f_user_relation WHERE user_id = #{userId} AND end_date > SYSDATE")
     String getUserRelationTypeCode(@Param("userId") Long userId);
 
+    // 账户下有效的 IDAP 成员
+    @Select("SELECT DISTINCT r.user_id FROM tf_f_user_relation r JOIN tf_f_payrelation p ON p.user_id = r.user_id " +
+            "WHERE p.account_id = #{accountId} AND p.end_date > SYSDATE AND r.relation_type_code = 'IDAP' AND r.end_date > SYSDATE")
+    List<Long> getIdapUserIdsByAccountId(@Param("accountId") Long accountId);
+
     // 获取序列号 (模拟)
     @Select("SELECT serial_number FROM oc_order_line WHERE order_id = #{orderId} AND order_line_id = #{orderLineId}")
     String getSerialNumber(@Param("orderId") Long orderId, @Param("orderLineId") Long orderLineId);
@@ -58,10 +48,6 @@ public interface CreditTerminateMapper {
     @Select("SELECT SYSDATE FROM DUAL")
     LocalDateTime getSysDate();
     
-    // 模拟获取香港公共假期 (需要建表维护)
-    @Select("SELECT holiday_date FROM hk_public_holidays")
-    List<LocalDate> getHkPublicHolidays();
-
     // 1.1 在途单判断
     @Select("SELECT * FROM oc_order_line WHERE user_id = #{userId} AND trade_type_code NOT IN ('7230', '615') AND cancel_tag = '0' AND line_level IN (0, 1) AND (produce_order_state IS NULL OR produce_order_state < 1)")
     List<OcOrderLine> queryOcOrderLineForInFlight(@Param("userId") Long userId);
@@ -82,10 +68,6 @@ public interface CreditTerminateMapper {
     @Select("SELECT COUNT(1) FROM tf_b_trade_fulfill_action WHERE order_id = #{orderId} AND order_line_id = #{orderLineId} AND action_id IN ('Temp Comp', 'comp')")
     int countTradeFulfillAction(@Param("orderId") Long orderId, @Param("orderLineId") Long orderLineId);
 
-    // 1.1.3 更新 cancel_tag
-    @Update("UPDATE oc_order_line SET cancel_tag = #{cancelTag} WHERE order_id = #{orderId} AND order_line_id = #{orderLineId}")
-    void updateOcOrderLineCancelTag(@Param("orderId") Long orderId, @Param("orderLineId") Long orderLineId, @Param("cancelTag") String cancelTag);
-
     // 2.1 获取 account_id 下的新开在途单
     @Select("SELECT DISTINCT order_id, order_line_id FROM oc_order_payrelation WHERE account_id = #{accountId} AND modify_tag = '0'")
     List<OcOrderPayRelation> queryNewInFlightOrders(@Param("accountId") Long accountId);
@@ -113,4 +95,90 @@ public interface CreditTerminateMapper {
     // 更新 oc_order_line_item 值
     @Update("UPDATE oc_order_line_item SET attr_value = #{newValue} WHERE order_id = #{orderId} AND order_line_id = #{orderLineId} AND attr_code = #{attrCode}")
     void updateOrderLineItemValue(@Param("orderId") Long orderId, @Param("orderLineId") Long orderLineId, @Param("attrCode") String attrCode, @Param("newValue") String newValue);
+
+    // ---- 竣工消息批量处理：一批订单的属性、订单行与用户状态各一次查出 ----
+
+    // 一批订单中带指定属性的订单行属性
+    @Select("<script>" +
+            "SELECT * FROM oc_order_line_item WHERE attr_code = #{attrCode} AND order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<OrderLineItem> queryOrderLineItemsByOrderIds(@Param("orderIds") List<Long> orderIds, @Param("attrCode") String attrCode);
+
+    // 一批订单中带指定属性的订单行
+    @Select("<script>" +
+            "SELECT l.* FROM oc_order_line l WHERE l.order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND EXISTS (SELECT 1 FROM oc_order_line_item i WHERE i.order_id = l.order_id AND i.order_line_id = l.order_line_id AND i.attr_code = #{attrCode})" +
+            "</script>")
+    List<OcOrderLine> queryOcOrderLinesWithItem(@Param("orderIds") List<Long> orderIds, @Param("attrCode") String attrCode);
+
+    // 一批用户的停机服务状态（同 getUserCeaseSvcState）
+    @Select("<script>" +
+            "SELECT * FROM tf_f_user_svcstate WHERE main_tag = '1' AND service_state_code IN ('4', '5') AND end_date > SYSDATE AND user_id IN " +
+            "<foreach collection='userIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<TfFUserSvcState> getUserCeaseSvcStates(@Param("userIds") List<Long> userIds);
+
+    // 一批用户的在途拆机订单行（同 getInFlightCeaseOrderLines，srd 随行带出）
+    @Select("<script>" +
+            "SELECT * FROM oc_order_line WHERE trade_type_code IN ('136', '7220') AND user_id IN " +
+            "<foreach collection='userIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<OcOrderLine> getInFlightCeaseOrderLinesByUserIds(@Param("userIds") List<Long> userIds);
+
+    // 一批用户中的 IDAP 成员
+    @Select("<script>" +
+            "SELECT DISTINCT user_id FROM tf_f_user_relation WHERE relation_type_code = 'IDAP' AND end_date > SYSDATE AND user_id IN " +
+            "<foreach collection='userIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Long> getIdapUserIds(@Param("userIds") List<Long> userIds);
+
+    // 一批订单的属性值统一修改（如 is_allow_amend N -> Y）
+    @Update("<script>" +
+            "UPDATE oc_order_line_item SET attr_value = #{newValue} WHERE attr_code = #{attrCode} AND attr_value = #{oldValue} AND order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int updateOrderLineItemValues(@Param("orderIds") List<Long> orderIds, @Param("attrCode") String attrCode,
+                                  @Param("oldValue") String oldValue, @Param("newValue") String newValue);
+
+    // ---- 写缓冲（CreditTerminateWriteBuffer）批量执行：多行 INSERT，订单行更新按相同取值合并为一条 ----
+
+    @Insert("<script>" +
+            "INSERT INTO oc_order_line (order_id, order_line_id, serial_number, user_id, net_type_code, main_product_id, main_product_name, main_product_type, product_family, trade_type_code, scene_type) VALUES " +
+            "<foreach collection='lines' item='l' separator=','>" +
+            "(#{l.orderId}, #{l.orderLineId}, #{l.serialNumber}, #{l.userId}, #{l.netTypeCode}, #{l.mainProductId}, #{l.mainProductName}, #{l.mainProductType}, #{l.productFamily}, #{l.tradeTypeCode}, #{l.sceneType})" +
+            "</foreach>" +
+            "</script>")
+    void batchInsertOrderLines(@Param("lines") List<OcOrderLine> lines);
+
+    @Insert("<script>" +
+            "INSERT INTO oc_order_item (order_id, attr_code, attr_value, modify_tag, start_date, end_date) VALUES " +
+            "<foreach collection='items' item='i' separator=','>" +
+            "(#{i.orderId}, #{i.attrCode}, #{i.attrValue}, #{i.modifyTag}, #{i.startDate}, #{i.endDate})" +
+            "</foreach>" +
+            "</script>")
+    void batchInsertOrderItems(@Param("items") List<OcOrderItem> items);
+
+    @Insert("<script>" +
+            "INSERT INTO oc_order_line_item (order_id, order_line_id, attr_code, attr_value, modify_tag, start_date, end_date) VALUES " +
+            "<foreach collection='items' item='i' separator=','>" +
+            "(#{i.orderId}, #{i.orderLineId}, #{i.attrCode}, #{i.attrValue}, #{i.modifyTag}, #{i.startDate}, #{i.endDate})" +
+            "</foreach>" +
+            "</script>")
+    void batchInsertOrderLineItems(@Param("items") List<OrderLineItem> items);
+
+    // 1.1.3 更新 cancel_tag（lines 只用 order_id / order_line_id）
+    @Update("<script>" +
+            "UPDATE oc_order_line SET cancel_tag = #{cancelTag} WHERE " +
+            "<foreach collection='lines' item='l' open='(' separator=' OR ' close=')'>(order_id = #{l.orderId} AND order_line_id = #{l.orderLineId})</foreach>" +
+            "</script>")
+    void updateOcOrderLineCancelTags(@Param("lines") List<OcOrderLine> lines, @Param("cancelTag") String cancelTag);
+
+    // 2.4.3 拆机异常：order_node_state = 04, cancel_tag = 'Z'（lines 只用 order_id / order_line_id）
+    @Update("<script>" +
+            "UPDATE oc_order_line SET order_node_state = '04', cancel_tag = 'Z', remark = #{remark} WHERE " +
+            "<foreach collection='lines' item='l' open='(' separator=' OR ' close=')'>(order_id = #{l.orderId} AND order_line_id = #{l.orderLineId})</foreach>" +
+            "</script>")
+    void terminateOrderLines(@Param("lines") List<OcOrderLine> lines, @Param("remark") String remark);
 }
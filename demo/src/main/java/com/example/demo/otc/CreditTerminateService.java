@@ -1,53 +1,106 @@
 package com.example.demo.otc;
 
+import com.example.demo.otc.DnSampler.DnKey;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class CreditTerminateService {
 
+    private static final int QUERY_BATCH_SIZE = 1000;
+    private static final String CREDIT_TERMINATION_INDICATOR = "credit_termination_indicato";
+
     @Autowired
     private CreditTerminateMapper creditTerminateMapper;
 
     @Autowired
     private ProductCenterClient productCenterClient;
-    
-    // 存放需撤单的详细信息
-    private List<CancelOrderDetail> cancelOrderDetailList = new ArrayList<>();
-    // 存放不处理订单明细 (这里使用 String 存放 userId 或 serial_number，根据上下文)
-    private List<Long> notProcessSNList = new ArrayList<>();
-    
-    // 存放需处理的在途订单 order_id 归类后列表
-    private List<Long> sortOrderList = new ArrayList<>();
-    // 全局变量 sortOrder
-    private AtomicLong sortOrder = new AtomicLong(0);
 
-    private AtomicLong sequenceGenerator = new AtomicLong(5000);
-    
+    @Autowired
+    private WorkingDayCalendar workingDayCalendar;
+
+    @Autowired
+    private SegmentIdAllocator idAllocator;
+
+    @Autowired
+    private UserCenterCache userCenterCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // 写缓冲攒够多少行提前批量执行一次
+    @Value("${otc.credit-terminate.write-flush-size:500}")
+    private int writeFlushSize = 500;
+
+    /**
+     * 单次信控拆机的处理上下文：每次调用各自一份，服务本身无状态，多个账户可并发处理
+     */
+    private static final class TerminateContext {
+        final Long accountId;
+        // 写入属性的信控 account_id（订单行上的原始 serial_number）
+        final String accountIdStr;
+        // 存放需撤单的详细信息
+        final List<CancelOrderDetail> cancelOrderDetailList = new ArrayList<>();
+        // 需撤单的在途订单行按 user_id 归类（生成明细时用户已知），步骤 2.2 直接按用户取，无需逐条回查
+        final Map<Long, List<OcOrderLine>> cancelLinesByUser = new HashMap<>();
+        // 存放不处理订单明细的 user_id，保持加入顺序
+        final Set<Long> notProcessUserIds = new LinkedHashSet<>();
+        // 存放需处理的在途订单 order_id，去重且保持加入顺序
+        final Set<Long> sortOrderIds = new LinkedHashSet<>();
+        // 账户下的 IDAP 成员 user_id（计算 SRD 用，一次查出）
+        Set<Long> idapUserIds = Collections.emptySet();
+        // 账户下的用户、用户信息与 product_id -> credit_termination_indicato：事务开启前查出；标签为 null 表示查询失败
+        List<Long> userIds = Collections.emptyList();
+        final Map<Long, TfFUser> userInfos = new HashMap<>();
+        Map<String, String> terminationIndicators = Collections.emptyMap();
+        // 本次已置 cancel_tag='Z' 的订单行：更新可能仍在写缓冲中，按 cancel_tag='0' 的查询结果需在内存中排除
+        final Set<DnKey> cancelledLines = new HashSet<>();
+        // 本次的增改语句，返回前统一批量执行
+        final CreditTerminateWriteBuffer writes;
+
+        TerminateContext(Long accountId, String accountIdStr, CreditTerminateWriteBuffer writes) {
+            this.accountId = accountId;
+            this.accountIdStr = accountIdStr;
+            this.writes = writes;
+        }
+
+        void cancelLine(Long orderId, Long orderLineId) {
+            cancelledLines.add(new DnKey(orderId, orderLineId));
+            writes.updateOcOrderLineCancelTag(orderId, orderLineId, "Z");
+        }
+
+        boolean isCancelled(OcOrderLine line) {
+            return cancelledLines.contains(new DnKey(line.getOrderId(), line.getOrderLineId()));
+        }
+    }
+
     // 模拟功能服务调用 (步骤 1, 2, 3)
-    private void callFunctionService17(Long accountId) {
-        cancelOrderDetailList.clear();
-        notProcessSNList.clear();
-        sortOrderList.clear();
-        sortOrder.set(0);
-
-        // 1.0 获取此账户下的所有用户
-        List<Long> userIds = creditTerminateMapper.getUserIdsByAccountId(accountId);
-        if (userIds != null && !userIds.isEmpty()) {
-            for (Long userId : userIds) {
-                processInFlightOrderForUser(userId, accountId);
-            }
+    private void callFunctionService17(TerminateContext ctx) {
+        Long accountId = ctx.accountId;
+
+        // 1.0 此账户下的所有用户（事务开启前已查出）
+        for (Long userId : ctx.userIds) {
+            processInFlightOrderForUser(ctx, userId);
         }
         
         // 对 sortOrderList 中待撤的 order_id 的 oc_order_item 增加属性
-        for (Long orderId : sortOrderList) {
+        for (Long orderId : ctx.sortOrderIds) {
              OcOrderItem attrItem = new OcOrderItem();
              attrItem.setOrderId(orderId);
              attrItem.setAttrCode("cancel_for_credit_termination");
@@ -55,18 +108,19 @@ public class CreditTerminateService {
              attrItem.setModifyTag("0"); // 假设
              attrItem.setStartDate(LocalDateTime.now());
              attrItem.setEndDate(LocalDateTime.of(2099, 12, 31, 23, 59, 59));
-             creditTerminateMapper.insertOrderItem(attrItem);
+             ctx.writes.insertOrderItem(attrItem);
         }
 
         // 2. 按 account_id 判断是否有新开在途单，并处理在途单
-        processNewInFlightOrderForAccount(accountId);
+        processNewInFlightOrderForAccount(ctx);
 
         // 3. 在途单撤单
-        processCancelOrders();
+        processCancelOrders(ctx);
     }
     
     // 步骤 1：按号码判断是否有在途单,处理在途单
-    private void processInFlightOrderForUser(Long userId, Long currentAccountId) {
+    private void processInFlightOrderForUser(TerminateContext ctx, Long userId) {
+        Long currentAccountId = ctx.accountId;
         // 1.1 在途单判断
         List<OcOrderLine> inFlightLines = creditTerminateMapper.queryOcOrderLineForInFlight(userId);
         
@@ -120,9 +174,7 @@ public class CreditTerminateService {
                      
                      if (isSrdBeforeToday || isFulfillStateMatch) {
                          // 压入对应的 user_id 到 notProcessSNList
-                         if (!notProcessSNList.contains(userId)) {
-                             notProcessSNList.add(userId);
-                         }
+                         ctx.notProcessUserIds.add(userId);
                          // 跳过本次循环，继续下个用户
                          return;
                      }
@@ -131,15 +183,10 @@ public class CreditTerminateService {
             
             if (isValid) {
                 // 1.1.3：更新 1.1 步骤中对应订单行的 cancel_tag =’Z‘
-                creditTerminateMapper.updateOcOrderLineCancelTag(orderId, orderLineId, "Z");
+                ctx.cancelLine(orderId, orderLineId);
                 
-                // 同时比较 sortOrderId 与 在途单 order_id 是否相同
-                if (sortOrder.get() != orderId) {
-                    if (!sortOrderList.contains(orderId)) {
-                        sortOrderList.add(orderId);
-                    }
-                    sortOrder.set(orderId);
-                }
+                // 同时将在途单 order_id 归入 sortOrderList（已存在则忽略）
+                ctx.sortOrderIds.add(orderId);
                 
                 // 1.1.4: 压入此订单行的相关数据到 cancelOrderDetailList
                 CancelOrderDetail detail = new CancelOrderDetail();
@@ -148,42 +195,43 @@ public class CreditTerminateService {
                 detail.setOrderLineId(orderLineId);
                 detail.setTradeTypeCode(tradeTypeCode);
                 detail.setSrd(line.getSrd());
-                cancelOrderDetailList.add(detail);
+                ctx.cancelOrderDetailList.add(detail);
+                ctx.cancelLinesByUser.computeIfAbsent(userId, k -> new ArrayList<>()).add(line);
             }
         }
     }
 
     // 步骤 2：按 account_id 判断是否有新开在途单，并处理在途单
-    private void processNewInFlightOrderForAccount(Long accountId) {
+    private void processNewInFlightOrderForAccount(TerminateContext ctx) {
         // 2.1: 获取 account_id 下是否有新开在途单
-        List<OcOrderPayRelation> relations = creditTerminateMapper.queryNewInFlightOrders(accountId);
+        List<OcOrderPayRelation> relations = creditTerminateMapper.queryNewInFlightOrders(ctx.accountId);
         if (relations != null) {
             for (OcOrderPayRelation rel : relations) {
                 // 2.1.1
                 List<OcOrderLine> lines = creditTerminateMapper.queryOcOrderLineForNewInFlight(rel.getOrderId(), rel.getOrderLineId());
                 for (OcOrderLine line : lines) {
+                    if (ctx.isCancelled(line)) {
+                        continue;
+                    }
                     // 2.1.2：通过 order_id+order_line_id 更新对应订单行的 cancel_tag =’Z‘
-                    creditTerminateMapper.updateOcOrderLineCancelTag(line.getOrderId(), line.getOrderLineId(), "Z");
+                    ctx.cancelLine(line.getOrderId(), line.getOrderLineId());
                     
-                    // 2.1.3：比较 sortOrderId 与 在途单 order_id 是否相同
-                     if (sortOrder.get() != line.getOrderId()) {
-                        if (!sortOrderList.contains(line.getOrderId())) {
-                            sortOrderList.add(line.getOrderId());
-                        }
-                        // 题目未明确是否要更新 sortOrder，但按逻辑应该更新
-                        sortOrder.set(line.getOrderId());
-                    }
+                    // 2.1.3：将在途单 order_id 归入 sortOrderList（已存在则忽略）
+                    ctx.sortOrderIds.add(line.getOrderId());
                 }
             }
         }
     }
 
     // 步骤 3：在途单撤单
-    private void processCancelOrders() {
+    private void processCancelOrders(TerminateContext ctx) {
         // 循环上一步骤构建的 sortOrderList，按 order_id 的维度循环完成撤单订单下单
-        for (Long orderId : sortOrderList) {
+        for (Long orderId : ctx.sortOrderIds) {
             // 3.1: 通过 order_id + line_level in（0，2）+ cancel_tag= ‘0’ 查询 oc_order_line
             List<OcOrderLine> lines = creditTerminateMapper.queryOcOrderLinesForCancel(orderId);
+            if (lines != null) {
+                lines.removeIf(ctx::isCancelled);
+            }
             
             if (lines != null && !lines.isEmpty()) {
                 // 拼撤单下单报文完成该客户单的撤单 (模拟调用接口)
@@ -210,9 +258,9 @@ public class CreditTerminateService {
 
     /**
      * 信控拆机处理逻辑
+     * 产品中心标签在事务开启前一次查出，事务内只访问数据库
      * @param inputOrderLineId 输入的订单行ID，用于获取 account_id (serial_number)
      */
-    @Transactional
     public CreditTerminateResult processCreditTerminate(Long inputOrderId, Long inputOrderLineId) {
         // 信控拆机，account_id 为对应订单行的 serial_number
         String accountIdStr = creditTerminateMapper.getSerialNumber(inputOrderId, inputOrderLineId);
@@ -220,37 +268,85 @@ public class CreditTerminateService {
             throw new RuntimeException("Account ID not found for OrderLineId: " + inputOrderLineId);
         }
         Long accountId = Long.valueOf(accountIdStr);
+        return terminateInTransaction(inputOrderId, new TerminateContext(accountId, accountIdStr, newWriteBuffer()));
+    }
 
-        // 1. 增加在途单处理逻辑：如果有在途的MACD单要先撤销对应的在途单
-        callFunctionService17(accountId);
+    /**
+     * 按账户信控拆机（批量入口使用），拆机订单行增补在 orderId 下
+     * 每次调用一个独立事务，多个账户可在不同线程中并发调用
+     */
+    public CreditTerminateResult processCreditTerminateForAccount(Long orderId, Long accountId) {
+        return terminateInTransaction(orderId, new TerminateContext(accountId, String.valueOf(accountId), newWriteBuffer()));
+    }
+
+    private CreditTerminateResult terminateInTransaction(Long inputOrderId, TerminateContext ctx) {
+        loadUsersAndTags(ctx);
+        return new TransactionTemplate(transactionManager).execute(status -> terminate(inputOrderId, ctx));
+    }
 
-        // 2. 获取此账户下的所有用户
-        List<Long> userIds = creditTerminateMapper.getUserIdsByAccountId(accountId);
+    /**
+     * 事务开启前查出账户下的用户与用户信息，并按全部 product_id 一次查询 credit_termination_indicato，
+     * 远程调用期间不占用数据库连接；标签查询失败时这些用户本次不拆机，列入 notProcessSNList 由调用方重试，不影响撤单等其余处理
+     */
+    private void loadUsersAndTags(TerminateContext ctx) {
+        List<Long> userIds = creditTerminateMapper.getUserIdsByAccountId(ctx.accountId);
         if (userIds == null || userIds.isEmpty()) {
-            return new CreditTerminateResult(new ArrayList<>(cancelOrderDetailList), new ArrayList<>(notProcessSNList), "Account has no users.");
+            return;
         }
-
-        // 循环补充对应的台账
+        ctx.userIds = userIds;
+        Set<String> productIds = new LinkedHashSet<>();
         for (Long userId : userIds) {
             // 2.a 获取用户基本信息中增加 product_id 返回
             // 模拟调用用户中心服务获取 user info
-            TfFUser userInfo = creditTerminateMapper.getUserInfo(userId); 
-            String productId = userInfo != null ? userInfo.getProductId() : "DEFAULT_PROD";
+            TfFUser userInfo = userCenterCache.get(UserCenterCache.Entity.USER, userId,
+                    () -> creditTerminateMapper.getUserInfo(userId));
+            ctx.userInfos.put(userId, userInfo);
+            productIds.add(productIdOf(userInfo));
+        }
+        ctx.terminationIndicators = productCenterClient.getProductTags(productIds, CREDIT_TERMINATION_INDICATOR);
+    }
 
+    private static String productIdOf(TfFUser userInfo) {
+        return userInfo != null ? userInfo.getProductId() : "DEFAULT_PROD";
+    }
+
+    private CreditTerminateResult terminate(Long inputOrderId, TerminateContext ctx) {
+        Long accountId = ctx.accountId;
+        String accountIdStr = ctx.accountIdStr;
+
+        // 1. 增加在途单处理逻辑：如果有在途的MACD单要先撤销对应的在途单
+        callFunctionService17(ctx);
+
+        // 2. 此账户下的所有用户
+        if (ctx.userIds.isEmpty()) {
+            ctx.writes.flush();
+            return new CreditTerminateResult(ctx.cancelOrderDetailList, new ArrayList<>(ctx.notProcessUserIds), "Account has no users.");
+        }
+        ctx.idapUserIds = new HashSet<>(creditTerminateMapper.getIdapUserIdsByAccountId(accountId));
+
+        // 循环补充对应的台账
+        for (Long userId : ctx.userIds) {
+            TfFUser userInfo = ctx.userInfos.get(userId);
+
+            // 产品中心标签查询失败：无法判断是否应跳过，本次不处理此号码
+            if (ctx.terminationIndicators == null) {
+                ctx.notProcessUserIds.add(userId);
+                continue;
+            }
             // 通过 product_id 查询产品中心服务查询产品标签 credit_termination_indicato
-            String indicator = productCenterClient.getProductTag(productId, "credit_termination_indicato");
+            String indicator = ctx.terminationIndicators.get(productIdOf(userInfo));
             // 如果有此标签，且值为N，则跳过此号码
             if ("N".equals(indicator)) {
                 continue;
             }
 
             // 2.1：通过循环的 user_id 到 notProcessSNList 中过滤是否有对应的记录
-            if (notProcessSNList.contains(userId)) {
+            if (ctx.notProcessUserIds.contains(userId)) {
                 continue;
             }
 
             // 2.2：否则通过 循环中的 user_id 到 cancelOrderDetailList 过滤是否有对应的记录
-            List<OcOrderLine> pendingCancelLines = getPendingCancelLinesForUser(userId);
+            List<OcOrderLine> pendingCancelLines = getPendingCancelLinesForUser(ctx, userId);
             if (!pendingCancelLines.isEmpty()) {
                 for (OcOrderLine pendingLine : pendingCancelLines) {
                     // 2.2.1: 增加 oc_order_line_item 属性
@@ -262,7 +358,7 @@ public class CreditTerminateService {
                     item.setStartDate(LocalDateTime.now());
                     item.setEndDate(LocalDateTime.of(2099, 12, 31, 23, 59, 59));
                     
-                    creditTerminateMapper.insertOrderLineItem(item);
+                    ctx.writes.insertOrderLineItem(item);
                 }
                 // 2.2.2：跳过本次循环，继续下一个用户
                 continue;
@@ -271,15 +367,13 @@ public class CreditTerminateService {
             // -- 以下为对信控账号下无在途单的用户增加拆机订单信息 --
 
             // 2.3 增补订单行
-            Long newOrderLineId = sequenceGenerator.incrementAndGet();
+            Long newOrderLineId = idAllocator.nextId(SegmentIdAllocator.ORDER_LINE_ID);
             OcOrderLine newOrderLine = new OcOrderLine();
             newOrderLine.setOrderId(inputOrderId); // order_id 不变
             newOrderLine.setOrderLineId(newOrderLineId);
             
             // 调用用户中心服务获取对应的 serial_number, net_type_code, cust_id, main_product_id
-            if (userInfo == null) {
-                 userInfo = creditTerminateMapper.getUserInfo(userId);
-            }
+            // （2.a 已取得，查无结果同样经 UserCenterCache 缓存，不再重复查询）
             if (userInfo != null) {
                 newOrderLine.setSerialNumber(userInfo.getSerialNumber());
                 newOrderLine.setUserId(userId);
@@ -296,17 +390,18 @@ public class CreditTerminateService {
             // line_level=1 (assuming field exists or mapped appropriately)
             
             // 插入新的 OrderLine (模拟)
-            creditTerminateMapper.insertOrderLine(newOrderLine);
+            ctx.writes.insertOrderLine(newOrderLine);
 
             // SRD 取值逻辑
-            LocalDate srd = calculateSRD(userId, userInfo != null ? userInfo.getBrandCode() : null);
+            LocalDate srd = calculateSRD(userId, userInfo != null ? userInfo.getBrandCode() : null, ctx.idapUserIds);
 
             // 2.4 增补 Cease Rental Date 属性
             LocalDate ceaseDate = null;
 
             // 2.4.1：判断此号码用户状态
             // 通过 user_id + main_tag= '1' and SERVICE_STATE_CODE in（4，5） and end_date > sysdate 查询用户中心服务
-            TfFUserSvcState svcState = creditTerminateMapper.getUserCeaseSvcState(userId);
+            TfFUserSvcState svcState = userCenterCache.get(UserCenterCache.Entity.USER_SVC_STATE, userId, "cease",
+                    () -> creditTerminateMapper.getUserCeaseSvcState(userId));
             if (svcState != null) {
                 ceaseDate = svcState.getStartDate().toLocalDate(); // 取整到天
             } else {
@@ -323,7 +418,7 @@ public class CreditTerminateService {
             if (ceaseDate == null) {
                 // 如果以上两个步骤都不满足
                 // 修改 oc_order_line 表的 order_node_state = 04, cancel_tag = 'Z'
-                creditTerminateMapper.terminateOrderLine(inputOrderId, newOrderLineId, "当前号码状态不满足信控拆机，此号码拆机异常");
+                ctx.writes.terminateOrderLine(inputOrderId, newOrderLineId, "当前号码状态不满足信控拆机，此号码拆机异常");
                 // 终止本次循环，继续下个用户循环
                 continue;
             } else {
@@ -349,61 +444,48 @@ public class CreditTerminateService {
                 ceaseDateItem.setStartDate(LocalDateTime.now()); // 使用 sysdate
                 ceaseDateItem.setEndDate(LocalDateTime.of(2099, 12, 31, 23, 59, 59));
                 
-                creditTerminateMapper.insertOrderLineItem(ceaseDateItem);
+                ctx.writes.insertOrderLineItem(ceaseDateItem);
             }
 
             // 2.5：编排公共构建服务
             buildCommonServices(inputOrderId, newOrderLineId);
         }
         
-        return new CreditTerminateResult(new ArrayList<>(cancelOrderDetailList), new ArrayList<>(notProcessSNList), "Success");
+        ctx.writes.flush();
+        return new CreditTerminateResult(ctx.cancelOrderDetailList, new ArrayList<>(ctx.notProcessUserIds), "Success");
+    }
+
+    private CreditTerminateWriteBuffer newWriteBuffer() {
+        return new CreditTerminateWriteBuffer(creditTerminateMapper, writeFlushSize);
     }
     
-    // 辅助方法：获取待撤销的订单行
-    private List<OcOrderLine> getPendingCancelLinesForUser(Long userId) {
-        List<OcOrderLine> result = new ArrayList<>();
-        
-        for (CancelOrderDetail detail : cancelOrderDetailList) {
-            // 根据 orderId 和 orderLineId 从数据库重新查询 OcOrderLine
-            // 这是一个比较重的操作，但在 Demo 中可以接受
-            OcOrderLine line = creditTerminateMapper.queryOcOrderLineById(detail.getOrderId(), detail.getOrderLineId());
-            if (line != null && line.getUserId().equals(userId)) {
-                result.add(line);
-            }
-        }
-        return result;
+    // 辅助方法：获取该用户待撤销的订单行
+    private List<OcOrderLine> getPendingCancelLinesForUser(TerminateContext ctx, Long userId) {
+        return ctx.cancelLinesByUser.getOrDefault(userId, Collections.emptyList());
     }
     
-    private LocalDate calculateSRD(Long userId, String brandCode) {
-        LocalDate srd;
+    /**
+     * SRD：BBI 品牌或 IDAP 成员为 T+5 个工作日，其余 T+1 个工作日
+     * @param idapUserIds 预先查出的 IDAP 成员，为 null 时按用户单独查询
+     */
+    private LocalDate calculateSRD(Long userId, String brandCode, Set<Long> idapUserIds) {
         int daysToAdd = 1; // 默认 T+1
         
         boolean isBBI = "BBI".equals(brandCode);
-        boolean isIdap = false;
         
         if (isBBI) {
             daysToAdd = 5;
         } else {
             // 判断是否为 idap 成员
-            String relationCode = creditTerminateMapper.getUserRelationTypeCode(userId);
-            if ("IDAP".equals(relationCode)) {
-                isIdap = true;
+            boolean isIdap = (idapUserIds != null)
+                    ? idapUserIds.contains(userId)
+                    : "IDAP".equals(creditTerminateMapper.getUserRelationTypeCode(userId));
+            if (isIdap) {
                 daysToAdd = 5;
             }
         }
         
-        // 开始计算 SRD
-        srd = LocalDate.now();
-        List<LocalDate> holidays = creditTerminateMapper.getHkPublicHolidays();
-        
-        int addedDays = 0;
-        while (addedDays < daysToAdd) {
-            srd = srd.plusDays(1);
-            if (isWorkingDay(srd, holidays)) {
-                addedDays++;
-            }
-        }
-        return srd;
+        return workingDayCalendar.addWorkingDays(LocalDate.now(), daysToAdd);
     }
     
     private void buildCommonServices(Long orderId, Long orderLineId) {
@@ -411,70 +493,112 @@ public class CreditTerminateService {
         // 拆机终止产品、付费关系、地址等相关信息
     }
 
-    private boolean isWorkingDay(LocalDate date, List<LocalDate> holidays) {
-        java.time.DayOfWeek day = date.getDayOfWeek();
-        if (day == java.time.DayOfWeek.SATURDAY || day == java.time.DayOfWeek.SUNDAY) {
-            return false;
-        }
-        if (holidays != null && holidays.contains(date)) {
-            return false;
-        }
-        return true;
-    }
-
     /**
      * 处理竣工消息逻辑
      */
     @Transactional
     public void processCompletionMessage(Long orderId) {
-        // 逻辑 2: 查询 oc_order_line_item 是否有 attr_code = 'cancel_for_credit_termination'
-        List<OrderLineItem> items = creditTerminateMapper.queryOrderLineItems(orderId, "cancel_for_credit_termination");
-        if (items != null && !items.isEmpty()) {
-            for (OrderLineItem item : items) {
+        processCompletionMessages(Collections.singletonList(orderId));
+    }
+
+    /**
+     * 一批竣工消息在同一事务内处理（Kafka 竣工消息消费按分区调用）
+     * 订单属性、订单行、停机状态、在途拆机单、IDAP 关系各按批一次查出，is_allow_amend 一条 UPDATE 修改；
+     * 订单按传入顺序逐个处理（同一订单多条消息保持先后），结果与逐条调用 processCompletionMessage 一致
+     */
+    @Transactional
+    public void processCompletionMessages(List<Long> orderIds) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            return;
+        }
+        List<Long> distinctOrderIds = new ArrayList<>(new LinkedHashSet<>(orderIds));
+
+        // 逻辑 2: 查询 oc_order_line_item 是否有 attr_code = 'cancel_for_credit_termination'，及对应订单行
+        Map<Long, List<OrderLineItem>> itemsByOrder = new HashMap<>();
+        Map<DnKey, OcOrderLine> linesByKey = new HashMap<>();
+        forEachChunk(distinctOrderIds, chunk -> {
+            for (OrderLineItem item : creditTerminateMapper.queryOrderLineItemsByOrderIds(chunk, "cancel_for_credit_termination")) {
+                itemsByOrder.computeIfAbsent(item.getOrderId(), k -> new ArrayList<>()).add(item);
+            }
+            for (OcOrderLine line : creditTerminateMapper.queryOcOrderLinesWithItem(chunk, "cancel_for_credit_termination")) {
+                linesByKey.putIfAbsent(new DnKey(line.getOrderId(), line.getOrderLineId()), line);
+            }
+        });
+
+        // 2.4.1 / 2.4.2 涉及用户的停机状态与在途拆机单
+        Set<Long> userIds = new LinkedHashSet<>();
+        for (OcOrderLine line : linesByKey.values()) {
+            if (line.getUserId() != null) {
+                userIds.add(line.getUserId());
+            }
+        }
+        Map<Long, LocalDate> ceaseDates = loadCeaseDates(new ArrayList<>(userIds));
+        Set<Long> idapUserIds = new HashSet<>();
+        forEachChunk(new ArrayList<>(ceaseDates.keySet()), chunk -> idapUserIds.addAll(creditTerminateMapper.getIdapUserIds(chunk)));
+
+        for (Long orderId : orderIds) {
+            for (OrderLineItem item : itemsByOrder.getOrDefault(orderId, Collections.emptyList())) {
                 // 2.1 获取 sn_user_id
-                Long orderLineId = item.getOrderLineId();
-                OcOrderLine line = creditTerminateMapper.queryOcOrderLineById(orderId, orderLineId);
-                
-                if (line != null && line.getUserId() != null) { // sn_user_id stored as userId in bean
-                     Long userId = line.getUserId();
-                     
-                     // 2.4.1 判断此号码用户状态
-                     LocalDate ceaseDate = null;
-                     TfFUserSvcState svcState = creditTerminateMapper.getUserCeaseSvcState(userId);
-                     if (svcState != null) {
-                         ceaseDate = svcState.getStartDate().toLocalDate();
-                     } else {
-                         // 2.4.2 否则查询是否有在途拆机单
-                         List<OcOrderLine> inFlightLines = creditTerminateMapper.getInFlightCeaseOrderLines(userId);
-                         if (inFlightLines != null && !inFlightLines.isEmpty()) {
-                             OcOrderLine inFlightLine = inFlightLines.get(0);
-                             ceaseDate = creditTerminateMapper.getOrderLineSrd(inFlightLine.getOrderId(), inFlightLine.getOrderLineId());
-                         }
-                     }
-                     
-                     // 2.4.3
-                     if (ceaseDate != null) {
-                         // SRD 取值逻辑
-                         LocalDate srd = calculateSRD(userId, null); // 传递 null 因为逻辑内部会查询 brandCode 或关系，或者我们需要在此处先查询
-                         
-                         // 模拟下信控拆机订单
-                         createCreditTerminateOrder(line, srd, ceaseDate);
-                     }
+                OcOrderLine line = linesByKey.get(new DnKey(orderId, item.getOrderLineId()));
+                if (line == null || line.getUserId() == null) { // sn_user_id stored as userId in bean
+                    continue;
+                }
+                // 2.4.3
+                LocalDate ceaseDate = ceaseDates.get(line.getUserId());
+                if (ceaseDate != null) {
+                    // SRD 取值逻辑
+                    LocalDate srd = calculateSRD(line.getUserId(), null, idapUserIds);
+
+                    // 模拟下信控拆机订单
+                    createCreditTerminateOrder(line, srd, ceaseDate);
                 }
             }
         }
-        
-        // 逻辑 3: 查询 oc_order_line_item 是否有 attr_code='is_allow_amend' + attr_value='N'
-        List<OrderLineItem> amendItems = creditTerminateMapper.queryOrderLineItemsWithValue(orderId, "is_allow_amend", "N");
-        if (amendItems != null && !amendItems.isEmpty()) {
-            for (OrderLineItem item : amendItems) {
-                // 修改 attr_value='Y'
-                creditTerminateMapper.updateOrderLineItemValue(orderId, item.getOrderLineId(), "is_allow_amend", "Y");
+
+        // 逻辑 3: oc_order_line_item 中 attr_code='is_allow_amend' + attr_value='N' 的改为 'Y'
+        forEachChunk(distinctOrderIds, chunk -> creditTerminateMapper.updateOrderLineItemValues(chunk, "is_allow_amend", "N", "Y"));
+    }
+
+    /**
+     * 用户停机日期：有停机状态取其开始时间（2.4.1），否则取首条在途拆机单的 SRD（2.4.2）；两者都没有的用户不在结果中
+     */
+    private Map<Long, LocalDate> loadCeaseDates(List<Long> userIds) {
+        Map<Long, LocalDate> ceaseDates = new HashMap<>();
+        forEachChunk(userIds, chunk -> {
+            for (TfFUserSvcState svcState : creditTerminateMapper.getUserCeaseSvcStates(chunk)) {
+                ceaseDates.putIfAbsent(svcState.getUserId(), svcState.getStartDate().toLocalDate());
+            }
+        });
+        List<Long> remaining = new ArrayList<>();
+        for (Long userId : userIds) {
+            if (!ceaseDates.containsKey(userId)) {
+                remaining.add(userId);
             }
         }
+        Set<Long> firstLineSeen = new HashSet<>();
+        forEachChunk(remaining, chunk -> {
+            for (OcOrderLine inFlightLine : creditTerminateMapper.getInFlightCeaseOrderLinesByUserIds(chunk)) {
+                if (firstLineSeen.add(inFlightLine.getUserId()) && inFlightLine.getSrd() != null) {
+                    ceaseDates.put(inFlightLine.getUserId(), inFlightLine.getSrd().toLocalDate());
+                }
+            }
+        });
+        return ceaseDates;
     }
 
-    private void createCreditTerminateOrder(OcOrderLine sourceLine, LocalDate srd, LocalDate ceaseDate) {
+    /**
+     * 按 QUERY_BATCH_SIZE 分块执行 IN 查询（兼顾 Oracle IN 列表上限）
+     */
+    private static void forEachChunk(List<Long> ids, Consumer<List<Long>> action) {
+        for (int from = 0; from < ids.size(); from += QUERY_BATCH_SIZE) {
+            action.accept(ids.subList(from, Math.min(ids.size(), from + QUERY_BATCH_SIZE)));
+        }
+    }
+
+    /**
+     * 下信控拆机订单（包内可见，测试中由子类记录每笔订单的用户、SRD 与停机日期）
+     */
+    void createCreditTerminateOrder(OcOrderLine sourceLine, LocalDate srd, LocalDate ceaseDate) {
          // 模拟下信控拆机订单
          // TRADE_STAFF_ID=system
          // serial_number, net_type_code, sn_cust_id, sn_user_id 从 sourceLine 获取
@@ -0,0 +1,98 @@
+package com.example.demo.otc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 信控拆机写缓冲（write-behind）：处理过程中的增改先记入缓冲，在事务结束前经 CreditTerminateMapper 按表批量执行
+ * 新增为 foreach 拼出的多行 INSERT，订单行更新按相同的 cancel_tag / remark 合并为一条 UPDATE，
+ * SQL 往返从按行数降为按表数；缓冲行数达到 flushSize 时提前刷新以限制内存
+ * 非线程安全，每次信控拆机调用各自一份，须在同一事务内使用
+ */
+public class CreditTerminateWriteBuffer {
+
+    private final CreditTerminateMapper mapper;
+    private final int flushSize;
+
+    private final List<OcOrderLine> orderLines = new ArrayList<>();
+    // cancel_tag -> 订单行
+    private final Map<String, List<OcOrderLine>> cancelTags = new LinkedHashMap<>();
+    // remark -> 订单行
+    private final Map<String, List<OcOrderLine>> terminatedLines = new LinkedHashMap<>();
+    private final List<OcOrderItem> orderItems = new ArrayList<>();
+    private final List<OrderLineItem> orderLineItems = new ArrayList<>();
+    private int pending;
+
+    public CreditTerminateWriteBuffer(CreditTerminateMapper mapper, int flushSize) {
+        this.mapper = mapper;
+        this.flushSize = Math.max(1, flushSize);
+    }
+
+    public void insertOrderLine(OcOrderLine line) {
+        orderLines.add(line);
+        added();
+    }
+
+    public void updateOcOrderLineCancelTag(Long orderId, Long orderLineId, String cancelTag) {
+        cancelTags.computeIfAbsent(cancelTag, k -> new ArrayList<>()).add(lineKey(orderId, orderLineId));
+        added();
+    }
+
+    public void terminateOrderLine(Long orderId, Long orderLineId, String remark) {
+        terminatedLines.computeIfAbsent(remark, k -> new ArrayList<>()).add(lineKey(orderId, orderLineId));
+        added();
+    }
+
+    public void insertOrderItem(OcOrderItem item) {
+        orderItems.add(item);
+        added();
+    }
+
+    public void insertOrderLineItem(OrderLineItem item) {
+        orderLineItems.add(item);
+        added();
+    }
+
+    /**
+     * 执行全部缓冲的语句；新增订单行先于对其的更新执行
+     */
+    public void flush() {
+        if (pending == 0) return;
+        if (!orderLines.isEmpty()) {
+            mapper.batchInsertOrderLines(orderLines);
+            orderLines.clear();
+        }
+        for (Map.Entry<String, List<OcOrderLine>> e : cancelTags.entrySet()) {
+            mapper.updateOcOrderLineCancelTags(e.getValue(), e.getKey());
+        }
+        cancelTags.clear();
+        for (Map.Entry<String, List<OcOrderLine>> e : terminatedLines.entrySet()) {
+            mapper.terminateOrderLines(e.getValue(), e.getKey());
+        }
+        terminatedLines.clear();
+        if (!orderItems.isEmpty()) {
+            mapper.batchInsertOrderItems(orderItems);
+            orderItems.clear();
+        }
+        if (!orderLineItems.isEmpty()) {
+            mapper.batchInsertOrderLineItems(orderLineItems);
+            orderLineItems.clear();
+        }
+        pending = 0;
+    }
+
+    private void added() {
+        if (++pending >= flushSize) {
+            flush();
+        }
+    }
+
+    private static OcOrderLine lineKey(Long orderId, Long orderLineId) {
+        OcOrderLine line = new OcOrderLine();
+        line.setOrderId(orderId);
+        line.setOrderLineId(orderLineId);
+        return line;
+    }
+}
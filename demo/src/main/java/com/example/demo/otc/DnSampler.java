@@ -0,0 +1,118 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.OtcCalcModels.OtcCalcRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * OTC 计费的 DN 抽样策略
+ * 统计与抽样共用同一条 WHERE（{@link DnScope}），统计结果（{@link DnStats}）在一次扫描中同时得到 DN 数量与最小 order_line_id，
+ * 抽样时不再对全量 DN 排序（替代原 order by rand()）
+ */
+public interface DnSampler {
+
+    /**
+     * 策略名，对应配置项 otc.calc.dn-sampler
+     */
+    String name();
+
+    /**
+     * 在统计结果的基础上抽取一条 DN，范围内无 DN 时返回空
+     */
+    Optional<DnKey> pick(DnScope scope, DnStats stats);
+
+    /**
+     * 参与计费的 DN 范围：amendOrderList 对应的 oc_order_line 过滤条件与参数
+     */
+    final class DnScope {
+        private static final String COMMON_WHERE = " trace_type_code <> '615' and (produce_order_state = '' or produce_order_state = '0') and line_leve in (0,1) ";
+
+        private final String where;
+        private final List<Object> params;
+
+        private DnScope(String where, List<Object> params) {
+            this.where = where;
+            this.params = params;
+        }
+
+        public static DnScope of(OtcCalcRequest req) {
+            String inSql = req.amendOrderList.stream().map(x -> "?").collect(Collectors.joining(","));
+            List<Object> params = new ArrayList<>(req.amendOrderList);
+            String where;
+            if (!Objects.equals(req.cancel_tag, 3)) {
+                where = "order_id in (" + inSql + ") and trade_type_code = ? and cancel_tag = '0' and " + COMMON_WHERE;
+                params.add(req.trade_type_code);
+            } else {
+                where = "order_id in (" + inSql + ") and cancel_tag = '3' and " + COMMON_WHERE;
+            }
+            return new DnScope(where, Collections.unmodifiableList(params));
+        }
+
+        public String where() {
+            return where;
+        }
+
+        /**
+         * 过滤参数后追加额外参数
+         */
+        public Object[] params(Object... extra) {
+            Object[] args = new Object[params.size() + extra.length];
+            for (int i = 0; i < params.size(); i++) {
+                args[i] = params.get(i);
+            }
+            System.arraycopy(extra, 0, args, params.size(), extra.length);
+            return args;
+        }
+    }
+
+    /**
+     * 一次扫描得到的 DN 统计：数量与最小 order_line_id
+     */
+    final class DnStats {
+        public static final DnStats EMPTY = new DnStats(0L, null);
+
+        private final long count;
+        private final Long minOrderLineId;
+
+        public DnStats(long count, Long minOrderLineId) {
+            this.count = count;
+            this.minOrderLineId = minOrderLineId;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public Long getMinOrderLineId() {
+            return minOrderLineId;
+        }
+    }
+
+    final class DnKey {
+        public final long order_id;
+        public final long order_line_id;
+
+        public DnKey(long orderId, long orderLineId) {
+            this.order_id = orderId;
+            this.order_line_id = orderLineId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DnKey)) return false;
+            DnKey k = (DnKey) o;
+            return order_id == k.order_id && order_line_id == k.order_line_id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(order_id) * 31 + Long.hashCode(order_line_id);
+        }
+    }
+}
@@ -28,16 +28,15 @@ public interface GroupMemberTerminationMapper {
                                             @Param("orderLineId") Long orderLineId,
                                             @Param("prodItemId") Long prodItemId);
 
-    // Query Element Items
-    List<OcOrderElementItem> queryOrderElementItems(@Param("orderId") Long orderId, 
-                                                    @Param("elementItemId") Long elementItemId);
+    // Query Element Items of all template elements
+    List<OcOrderElementItem> queryOrderElementItemsByElements(@Param("orderId") Long orderId,
+                                                              @Param("elementItemIds") List<Long> elementItemIds);
 
     // Query Group Members
     List<TfFUserRelation> queryGroupMembers(@Param("primaryUserId") Long primaryUserId);
 
-    // Check existing member order
-    List<OcOrderLine> checkMemberOrder(@Param("orderId") Long orderId, 
-                                       @Param("userId") Long userId, 
+    // Members (sn_user_id) that already have a termination order line
+    List<Long> queryMemberOrderUserIds(@Param("orderId") Long orderId,
                                        @Param("tradeTypeCode") String tradeTypeCode,
                                        @Param("parentSerialNumber") String parentSerialNumber);
 
@@ -50,12 +49,18 @@ public interface GroupMemberTerminationMapper {
     // Query Hunting Users (using rsrv_value logic)
     List<TfFUser> queryHuntingUsers(@Param("userId") Long userId);
 
-    // Insert methods
-    void insertOrderLine(OcOrderLine orderLine);
-    void insertOrderProduct(OcOrderProduct product);
-    void insertOrderProductItem(OcOrderProductItem item);
-    void insertOrderElement(OcOrderElement element);
-    void insertOrderElementItem(OcOrderElementItem item);
+    // Bulk: user diff codes of group users
+    List<TfFUser> queryUserDiffCodes(@Param("userIds") List<Long> userIds);
+
+    // Bulk: hunting users of citinet groups, ordered by group then user
+    List<HuntingGroupUser> queryHuntingUsersByGroups(@Param("groupUserIds") List<String> groupUserIds);
+
+    // Multi-row insert methods
+    void batchInsertOrderLines(@Param("lines") List<OcOrderLine> lines);
+    void batchInsertOrderProducts(@Param("products") List<OcOrderProduct> products);
+    void batchInsertOrderProductItems(@Param("items") List<OcOrderProductItem> items);
+    void batchInsertOrderElements(@Param("elements") List<OcOrderElement> elements);
+    void batchInsertOrderElementItems(@Param("items") List<OcOrderElementItem> items);
 
     // For step 3: query group completion order
     List<OcOrderLine> queryGroupCompletionOrder(@Param("orderId") Long orderId, 
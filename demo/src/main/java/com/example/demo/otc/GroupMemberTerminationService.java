@@ -1,21 +1,41 @@
 package com.example.demo.otc;
 
+import com.example.demo.ConcurrentUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
 @Service
 public class GroupMemberTerminationService {
 
+    // 多行 INSERT 每条语句的最大行数
+    private static final int INSERT_BATCH_SIZE = 500;
+
     private final GroupMemberTerminationMapper mapper;
+    private final SegmentIdAllocator idAllocator;
+    // hunting 群组拆机订单行的生成线程池：固定线程数、有界队列，队列满时由调用线程执行
+    private final ExecutorService huntingExecutor;
 
-    public GroupMemberTerminationService(GroupMemberTerminationMapper mapper) {
+    public GroupMemberTerminationService(GroupMemberTerminationMapper mapper, SegmentIdAllocator idAllocator,
+                                         @Value("${otc.group-termination.hunting-workers:4}") int huntingWorkers,
+                                         @Value("${otc.group-termination.hunting-queue-capacity:64}") int huntingQueueCapacity) {
         this.mapper = mapper;
+        this.idAllocator = idAllocator;
+        this.huntingExecutor = ConcurrentUtils.newBoundedDaemonPool("hunting-termination", huntingWorkers, huntingQueueCapacity);
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -25,99 +45,117 @@ public class GroupMemberTerminationService {
         if (lines == null || lines.isEmpty()) {
             throw new RuntimeException("No member termination order line found for orderId: " + orderId);
         }
-        
-        // 1.1 获取对应的订单行数据 (作为模板)
-        OcOrderLine templateLine = lines.get(0);
-        Long templateOrderLineId = templateLine.getOrderLineId();
-
-        // 1.2 获取对应DN级的OTC产品
-        OcOrderProduct templateProduct = null;
-        List<OcOrderProductItem> templateProductItems = new ArrayList<>();
-        List<OcOrderElement> templateElements = new ArrayList<>();
-        List<OcOrderElementItem> templateElementItems = new ArrayList<>();
 
-        List<OcOrderProduct> products = mapper.queryOrderProduct(orderId, templateOrderLineId);
-        for (OcOrderProduct product : products) {
-            // 模拟校验是否为DN级别的OTC产品
-            if (isDnLevelOtcProduct(product.getProductId())) {
-                templateProduct = product;
-                // 获取关联的 Items, Elements, ElementItems
-                templateProductItems = mapper.queryOrderProductItems(orderId, product.getProdItemId());
-                templateElements = mapper.queryOrderElements(orderId, templateOrderLineId, product.getProdItemId());
-                for (OcOrderElement ele : templateElements) {
-                    List<OcOrderElementItem> items = mapper.queryOrderElementItems(orderId, ele.getElementItemId());
-                    templateElementItems.addAll(items);
-                }
-                break; // 假设只找一个
-            }
-        }
+        // 1.1 ~ 1.2 加载模板（订单行 + DN级OTC产品及其 Items / Elements / ElementItems），所有成员共用
+        MemberTemplate template = loadTemplate(orderId, lines.get(0));
 
         // 2. 获取拆机群组下的所有成员
         List<TfFUserRelation> members = mapper.queryGroupMembers(groupUserId);
-        
+
+        // 2.1 判断群组成员是否有对应的拆机台账（一次查出已有台账的成员）
+        Set<Long> handled = new HashSet<>(mapper.queryMemberOrderUserIds(orderId, "192", parentSerialNumber));
+        List<TfFUserRelation> pending = new ArrayList<>();
         for (TfFUserRelation member : members) {
             Long memberUserId = member.getUserIdB(); // 假设 user_id_b 是成员 ID
-            
-            // 2.1 判断群组成员是否有对应的拆机台账
-            List<OcOrderLine> existingLines = mapper.checkMemberOrder(orderId, memberUserId, "192", parentSerialNumber);
-            if (existingLines != null && !existingLines.isEmpty()) {
-                continue; // 跳过
+            if (handled.add(memberUserId)) {
+                pending.add(member);
             }
+        }
 
-            // 2.2 增补订单行数据
-            Long newOrderLineId = generateId();
-            OcOrderLine newLine = copyOrderLine(templateLine, newOrderLineId, member);
-            mapper.insertOrderLine(newLine);
+        // 2.2 ~ 2.3 按模板为全部成员生成订单行及DN级OTC产品订单数据，按表批量写入
+        if (!pending.isEmpty()) {
+            List<OcOrderLine> newLines = cloneForMembers(template, pending);
 
-            // 2.3 增加DN级OTC产品订单数据
-            if (templateProduct != null) {
-                Long newProdItemId = generateId();
-                OcOrderProduct newProduct = copyProduct(templateProduct, newLine.getOrderLineId(), newProdItemId);
-                mapper.insertOrderProduct(newProduct);
+            // 2.4 编排公共构建服务 (Mock)
+            for (OcOrderLine newLine : newLines) {
+                mockCommonConstructionServices(newLine);
+            }
+        }
 
-                // 复制 Product Items
-                for (OcOrderProductItem item : templateProductItems) {
-                    mapper.insertOrderProductItem(copyProductItem(item, newProdItemId));
-                }
+        // 3. 针对citinet 群组拆机连带终止关联的hunting群组
+        // 获取拆机的群组订单行 (CP网)
+        List<OcOrderLine> groupLines = mapper.queryGroupCompletionOrder(orderId, "192", 2, "CP");
+        terminateHuntingGroups(orderId, groupLines);
 
-                // 复制 Elements and Items
-                for (OcOrderElement ele : templateElements) {
-                    Long newElementItemId = generateId();
-                    mapper.insertOrderElement(copyElement(ele, newLine.getOrderLineId(), newProdItemId, newElementItemId));
-                    
-                    // Find items belonging to this element (simplified matching by ID logic if strict needed, here assumes bulk copy logic needs refinement if multiple elements exist, but for demo taking all items matching old element ID logic is complex without map. Simplified: Assuming one element for demo or flat structure)
-                    // Correct logic: Filter specific items for this element.
-                    // Since we collected all element items into one list earlier, we need to filter or query again.
-                    // Better approach: Query DB again for specific element template
-                    List<OcOrderElementItem> specificItems = mapper.queryOrderElementItems(orderId, ele.getElementItemId());
-                    for (OcOrderElementItem item : specificItems) {
-                        mapper.insertOrderElementItem(copyElementItem(item, newElementItemId));
+        return "Process completed successfully";
+    }
+
+    /**
+     * 加载成员拆机模板；元素属性按元素一次查询
+     */
+    private MemberTemplate loadTemplate(Long orderId, OcOrderLine templateLine) {
+        Long templateOrderLineId = templateLine.getOrderLineId();
+        List<OcOrderProduct> products = mapper.queryOrderProduct(orderId, templateOrderLineId);
+        for (OcOrderProduct product : products) {
+            // 模拟校验是否为DN级别的OTC产品
+            if (isDnLevelOtcProduct(product.getProductId())) {
+                List<OcOrderProductItem> productItems = mapper.queryOrderProductItems(orderId, product.getProdItemId());
+                List<OcOrderElement> elements = mapper.queryOrderElements(orderId, templateOrderLineId, product.getProdItemId());
+                Map<Long, List<OcOrderElementItem>> elementItems = new HashMap<>();
+                if (!elements.isEmpty()) {
+                    List<Long> elementItemIds = new ArrayList<>(elements.size());
+                    for (OcOrderElement ele : elements) {
+                        elementItemIds.add(ele.getElementItemId());
+                    }
+                    for (OcOrderElementItem item : mapper.queryOrderElementItemsByElements(orderId, elementItemIds)) {
+                        elementItems.computeIfAbsent(item.getElementItemId(), k -> new ArrayList<>()).add(item);
                     }
                 }
+                // 假设只找一个
+                return new MemberTemplate(templateLine, product, productItems, elements, elementItems);
             }
+        }
+        return new MemberTemplate(templateLine, null, List.of(), List.of(), Map.of());
+    }
 
-            // 2.4 编排公共构建服务 (Mock)
-            mockCommonConstructionServices(newLine);
+    /**
+     * 按模板为成员生成订单数据：ID 按表一次预取，各表多行 INSERT 批量写入
+     */
+    private List<OcOrderLine> cloneForMembers(MemberTemplate template, List<TfFUserRelation> members) {
+        int n = members.size();
+        long[] orderLineIds = idAllocator.nextIds(SegmentIdAllocator.ORDER_LINE_ID, n);
+        List<OcOrderLine> newLines = new ArrayList<>(n);
+        for (int m = 0; m < n; m++) {
+            newLines.add(copyOrderLine(template.line, orderLineIds[m], members.get(m)));
         }
+        insertInBatches(newLines, mapper::batchInsertOrderLines);
 
-        // 3. 针对citinet 群组拆机连带终止关联的hunting群组
-        // 获取拆机的群组订单行 (CP网)
-        List<OcOrderLine> groupLines = mapper.queryGroupCompletionOrder(orderId, "192", 2, "CP");
-        for (OcOrderLine groupLine : groupLines) {
-             Long snUserId = groupLine.getSnUserId();
-             String userDiffCode = mapper.getUserDiffCode(snUserId);
-             
-             // 判断是否是 citinet 群组 (假设 code 为 'citinet')
-             if ("citinet".equalsIgnoreCase(userDiffCode)) {
-                 List<TfFUser> huntingUsers = mapper.queryHuntingUsers(snUserId);
-                 for (TfFUser huntingUser : huntingUsers) {
-                     // 后台循环模拟生成群组的拆机订单
-                     createHuntingTerminationOrder(orderId, huntingUser);
-                 }
-             }
+        if (template.product == null) {
+            return newLines;
+        }
+        long[] prodItemIds = idAllocator.nextIds(SegmentIdAllocator.PROD_ITEM_ID, n);
+        long[] elementItemIds = idAllocator.nextIds(SegmentIdAllocator.ELEMENT_ITEM_ID, n * template.elements.size());
+        List<OcOrderProduct> newProducts = new ArrayList<>(n);
+        List<OcOrderProductItem> newProductItems = new ArrayList<>(n * template.productItems.size());
+        List<OcOrderElement> newElements = new ArrayList<>(elementItemIds.length);
+        List<OcOrderElementItem> newElementItems = new ArrayList<>();
+        int e = 0;
+        for (int m = 0; m < n; m++) {
+            Long orderLineId = orderLineIds[m];
+            Long newProdItemId = prodItemIds[m];
+            newProducts.add(copyProduct(template.product, orderLineId, newProdItemId));
+            for (OcOrderProductItem item : template.productItems) {
+                newProductItems.add(copyProductItem(item, newProdItemId));
+            }
+            for (OcOrderElement ele : template.elements) {
+                Long newElementItemId = elementItemIds[e++];
+                newElements.add(copyElement(ele, orderLineId, newProdItemId, newElementItemId));
+                for (OcOrderElementItem item : template.itemsOf(ele)) {
+                    newElementItems.add(copyElementItem(item, newElementItemId));
+                }
+            }
         }
+        insertInBatches(newProducts, mapper::batchInsertOrderProducts);
+        insertInBatches(newProductItems, mapper::batchInsertOrderProductItems);
+        insertInBatches(newElements, mapper::batchInsertOrderElements);
+        insertInBatches(newElementItems, mapper::batchInsertOrderElementItems);
+        return newLines;
+    }
 
-        return "Process completed successfully";
+    private static <T> void insertInBatches(List<T> rows, Consumer<List<T>> insert) {
+        for (int from = 0; from < rows.size(); from += INSERT_BATCH_SIZE) {
+            insert.accept(rows.subList(from, Math.min(rows.size(), from + INSERT_BATCH_SIZE)));
+        }
     }
 
     private boolean isDnLevelOtcProduct(String productId) {
@@ -125,10 +163,6 @@ public class GroupMemberTerminationService {
         return true;
     }
 
-    private Long generateId() {
-        return Math.abs(UUID.randomUUID().getMostSignificantBits());
-    }
-
     private OcOrderLine copyOrderLine(OcOrderLine template, Long newId, TfFUserRelation member) {
         OcOrderLine newLine = new OcOrderLine();
         newLine.setOrderId(template.getOrderId());
@@ -189,20 +223,119 @@ public class GroupMemberTerminationService {
         System.out.println("Executing common construction services for line: " + line.getOrderLineId());
     }
 
-    private void createHuntingTerminationOrder(Long orderId, TfFUser huntingUser) {
-        OcOrderLine line = new OcOrderLine();
-        line.setOrderId(orderId);
-        line.setOrderLineId(generateId());
-        line.setSerialNumber(huntingUser.getSerialNumber());
-        line.setSnUserId(huntingUser.getUserId());
-        line.setTradeTypeCode("192");
-        line.setSceneType("19201");
-        line.setLineLevel(2);
-        line.setSrd(LocalDateTime.now());
-        // Insert line
-        mapper.insertOrderLine(line);
-        
-        // Mock adding ORDER_LINE_ATTR_INFO for Cease Rental Date
-        System.out.println("Adding Cease Rental Date attr for hunting user: " + huntingUser.getUserId());
+    /**
+     * 成员拆机模板（只读）：模板订单行、DN级OTC产品及其属性、元素，元素属性按模板 element_item_id 分组
+     */
+    private static final class MemberTemplate {
+        final OcOrderLine line;
+        final OcOrderProduct product;
+        final List<OcOrderProductItem> productItems;
+        final List<OcOrderElement> elements;
+        final Map<Long, List<OcOrderElementItem>> elementItems;
+
+        MemberTemplate(OcOrderLine line, OcOrderProduct product, List<OcOrderProductItem> productItems,
+                       List<OcOrderElement> elements, Map<Long, List<OcOrderElementItem>> elementItems) {
+            this.line = line;
+            this.product = product;
+            this.productItems = List.copyOf(productItems);
+            this.elements = List.copyOf(elements);
+            Map<Long, List<OcOrderElementItem>> copy = new HashMap<>();
+            elementItems.forEach((k, v) -> copy.put(k, List.copyOf(v)));
+            this.elementItems = Map.copyOf(copy);
+        }
+
+        List<OcOrderElementItem> itemsOf(OcOrderElement element) {
+            return elementItems.getOrDefault(element.getElementItemId(), List.of());
+        }
+    }
+
+    /**
+     * citinet 群组连带终止 hunting 用户：各群组的 userDiffCode 与 hunting 用户一次批量查出，
+     * 各群组订单行在线程池中并行生成拆机订单行，再按群组订单行顺序合并、分配 ID 并批量写入，结果与逐个处理一致
+     */
+    private void terminateHuntingGroups(Long orderId, List<OcOrderLine> groupLines) {
+        Set<Long> groupUserIds = new LinkedHashSet<>();
+        for (OcOrderLine groupLine : groupLines) {
+            if (groupLine.getSnUserId() != null) {
+                groupUserIds.add(groupLine.getSnUserId());
+            }
+        }
+        if (groupUserIds.isEmpty()) {
+            return;
+        }
+
+        // 判断是否是 citinet 群组 (假设 code 为 'citinet')
+        Set<Long> citinetUserIds = new HashSet<>();
+        for (TfFUser user : mapper.queryUserDiffCodes(new ArrayList<>(groupUserIds))) {
+            if ("citinet".equalsIgnoreCase(user.getUserDiffCode())) {
+                citinetUserIds.add(Long.valueOf(user.getUserId()));
+            }
+        }
+        if (citinetUserIds.isEmpty()) {
+            return;
+        }
+        List<String> citinetGroupIds = new ArrayList<>(citinetUserIds.size());
+        for (Long userId : citinetUserIds) {
+            citinetGroupIds.add(String.valueOf(userId));
+        }
+        Map<String, List<HuntingGroupUser>> huntingUsersByGroup = new HashMap<>();
+        for (HuntingGroupUser huntingUser : mapper.queryHuntingUsersByGroups(citinetGroupIds)) {
+            huntingUsersByGroup.computeIfAbsent(huntingUser.getGroupUserId(), k -> new ArrayList<>()).add(huntingUser);
+        }
+
+        // 后台并行生成各群组的拆机订单
+        List<CompletableFuture<List<OcOrderLine>>> futures = new ArrayList<>();
+        for (OcOrderLine groupLine : groupLines) {
+            Long snUserId = groupLine.getSnUserId();
+            if (snUserId == null || !citinetUserIds.contains(snUserId)) {
+                continue;
+            }
+            List<HuntingGroupUser> huntingUsers = huntingUsersByGroup.getOrDefault(String.valueOf(snUserId), List.of());
+            futures.add(CompletableFuture.supplyAsync(() -> buildHuntingTerminationLines(orderId, huntingUsers), huntingExecutor));
+        }
+
+        // 按群组订单行顺序合并
+        List<OcOrderLine> huntingLines = new ArrayList<>();
+        for (CompletableFuture<List<OcOrderLine>> future : futures) {
+            huntingLines.addAll(ConcurrentUtils.join(future));
+        }
+        if (huntingLines.isEmpty()) {
+            return;
+        }
+
+        long[] orderLineIds = idAllocator.nextIds(SegmentIdAllocator.ORDER_LINE_ID, huntingLines.size());
+        for (int i = 0; i < huntingLines.size(); i++) {
+            huntingLines.get(i).setOrderLineId(orderLineIds[i]);
+        }
+        insertInBatches(huntingLines, mapper::batchInsertOrderLines);
+
+        for (OcOrderLine line : huntingLines) {
+            // Mock adding ORDER_LINE_ATTR_INFO for Cease Rental Date
+            System.out.println("Adding Cease Rental Date attr for hunting user: " + line.getSnUserId());
+        }
+    }
+
+    /**
+     * 单个群组：为每个 hunting 用户生成拆机订单行（在 huntingExecutor 中执行，order_line_id 在合并后统一分配）
+     */
+    List<OcOrderLine> buildHuntingTerminationLines(Long orderId, List<HuntingGroupUser> huntingUsers) {
+        List<OcOrderLine> lines = new ArrayList<>(huntingUsers.size());
+        for (HuntingGroupUser huntingUser : huntingUsers) {
+            OcOrderLine line = new OcOrderLine();
+            line.setOrderId(orderId);
+            line.setSerialNumber(huntingUser.getSerialNumber());
+            line.setSnUserId(Long.valueOf(huntingUser.getUserId()));
+            line.setTradeTypeCode("192");
+            line.setSceneType("19201");
+            line.setLineLevel(2);
+            line.setSrd(LocalDateTime.now());
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        huntingExecutor.shutdown();
     }
 }
@@ -0,0 +1,34 @@
+package com.example.demo.otc;
+
+/**
+ * citinet 群组关联的 hunting 用户（tf_f_user_relation.rsrv_value 为群组用户 ID）
+ */
+public class HuntingGroupUser {
+    private String groupUserId; // rsrv_value
+    private String userId;
+    private String serialNumber;
+
+    public String getGroupUserId() {
+        return groupUserId;
+    }
+
+    public void setGroupUserId(String groupUserId) {
+        this.groupUserId = groupUserId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getSerialNumber() {
+        return serialNumber;
+    }
+
+    public void setSerialNumber(String serialNumber) {
+        this.serialNumber = serialNumber;
+    }
+}
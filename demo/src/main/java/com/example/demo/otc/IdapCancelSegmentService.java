@@ -1,11 +1,12 @@
 package com.example.demo.otc;
 
-import com.example.demo.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * IDAP 取消号段并连带对散号拆机的业务服务（Mock实现）
@@ -14,7 +15,7 @@ import java.util.stream.Collectors;
  * 1. 获取取消号段的订单：通过 order_id + trade_type_code = 110 获取群组用户的订单行
  * 2. 获取对应取消的号段：通过 order_id + order_line_id + modify_tag='1' + action_type='30' 查询 oc_order_num_segment
  * 3. 获取号段对应的散号：
- *    - 号段解析出散号：号段 + 00..99
+ *    - 号段解析出散号：号段 + 00..99（segment_width 位，默认 2 位，支持 1k / 10k 号段）
  *    - 通过入参 user_id（群组用户标识，tf_F_user_relation.user_id_a） + 拆分号码（tf_F_user_relation.serial_number_b截取后8位）
  *      调用户中心服务判断是否有对应的 uu 关系（此处 Mock），有则继续
  * 4. 轮询对每个散号增补拆机订单：
@@ -31,21 +32,30 @@ import java.util.stream.Collectors;
 public class IdapCancelSegmentService {
 
     /**
-     * Mock: oc_order_line 表记录
+     * 号段后缀位数默认值（2 位即 00..99）与上限（5 位即 10 万个散号）
      */
-    private final List<OcOrderLine> ocOrderLines = Collections.synchronizedList(new ArrayList<>());
+    static final int DEFAULT_SEGMENT_WIDTH = 2;
+    static final int MAX_SEGMENT_WIDTH = 5;
+
+    @Autowired
+    private SegmentIdAllocator idAllocator;
+
+    /**
+     * Mock: oc_order_line 表记录，按 order_id 索引
+     */
+    private final Map<Long, List<OcOrderLine>> ocOrderLinesByOrderId = new ConcurrentHashMap<>();
 
     /**
-     * Mock: oc_order_num_segment 号段表记录
+     * Mock: oc_order_num_segment 号段表记录，按 order_id 索引
      */
-    private final List<OcOrderNumSegment> ocOrderNumSegments = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Long, List<OcOrderNumSegment>> ocOrderNumSegmentsByOrderId = new ConcurrentHashMap<>();
 
     /**
      * 初始化一些 Mock 数据，便于演示
      */
     public IdapCancelSegmentService() {
         // 初始化一条群组订单行 trade_type_code = 110
-        ocOrderLines.add(OcOrderLine.builder()
+        addOrderLine(OcOrderLine.builder()
                 .orderId(1001L)
                 .orderLineId(2001L)
                 .tradeTypeCode("110")
@@ -62,15 +72,30 @@ public class IdapCancelSegmentService {
                 .build());
 
         // 初始化对应取消号段 modify_tag=1, action_type=30
-        ocOrderNumSegments.add(OcOrderNumSegment.builder()
+        addNumSegment(OcOrderNumSegment.builder()
                 .orderId(1001L)
                 .orderLineId(2001L)
                 .modifyTag("1")
                 .actionType("30")
                 .segmentPrefix("13800138") // 号段前缀（示例）
+                .segmentWidth(DEFAULT_SEGMENT_WIDTH)
                 .build());
     }
 
+    /**
+     * Mock: 写入 oc_order_line
+     */
+    void addOrderLine(OcOrderLine line) {
+        ocOrderLinesByOrderId.computeIfAbsent(line.getOrderId(), k -> new CopyOnWriteArrayList<>()).add(line);
+    }
+
+    /**
+     * Mock: 写入 oc_order_num_segment
+     */
+    void addNumSegment(OcOrderNumSegment segment) {
+        ocOrderNumSegmentsByOrderId.computeIfAbsent(segment.getOrderId(), k -> new CopyOnWriteArrayList<>()).add(segment);
+    }
+
     /**
      * 执行业务主流程
      */
@@ -81,130 +106,200 @@ public class IdapCancelSegmentService {
         resp.setCreatedLines(new ArrayList<>());
         resp.setBuildSteps(new ArrayList<>());
 
-        // 1. 获取取消号段的订单行（trade_type_code = 110）
-        List<OcOrderLine> groupLines = ocOrderLines.stream()
-                .filter(l -> Objects.equals(l.getOrderId(), req.getOrderId()))
-                .filter(l -> "110".equals(l.getTradeTypeCode()))
-                .collect(Collectors.toList());
-
-        if (groupLines.isEmpty()) {
+        // 1. 获取取消号段的订单行（trade_type_code = 110），简化：取第一条作为基线
+        OcOrderLine baseLine = null;
+        for (OcOrderLine l : ocOrderLinesByOrderId.getOrDefault(req.getOrderId(), List.of())) {
+            if ("110".equals(l.getTradeTypeCode())) {
+                baseLine = l;
+                break;
+            }
+        }
+        if (baseLine == null) {
             resp.setMessage("未找到 trade_type_code=110 的群组订单行");
             return resp;
         }
-        // 简化：取第一条作为基线
-        OcOrderLine baseLine = groupLines.get(0);
-
-        // 2. 查询对应取消的号段
-        Optional<OcOrderNumSegment> segmentOpt = ocOrderNumSegments.stream()
-                .filter(s -> Objects.equals(s.getOrderId(), baseLine.getOrderId()))
-                .filter(s -> Objects.equals(s.getOrderLineId(), baseLine.getOrderLineId()))
-                .filter(s -> "1".equals(s.getModifyTag()))
-                .filter(s -> "30".equals(s.getActionType()))
-                .findFirst();
-
-        if (segmentOpt.isEmpty()) {
+
+        // 2. 查询对应取消的号段（取第一条符合条件的号段）
+        OcOrderNumSegment segment = null;
+        for (OcOrderNumSegment s : ocOrderNumSegmentsByOrderId.getOrDefault(baseLine.getOrderId(), List.of())) {
+            if (Objects.equals(s.getOrderLineId(), baseLine.getOrderLineId())
+                    && "1".equals(s.getModifyTag()) && "30".equals(s.getActionType())) {
+                segment = s;
+                break;
+            }
+        }
+        if (segment == null) {
             resp.setMessage("未找到符合条件的号段记录（modify_tag=1, action_type=30）");
             return resp;
         }
 
-        String segmentPrefix = segmentOpt.get().getSegmentPrefix(); // 如 "13800138"
-        // 3. 号段解析散号：prefix + 00..99
-        List<String> scatteredNumbers = new ArrayList<>();
-        for (int i = 0; i <= 99; i++) {
-            scatteredNumbers.add(segmentPrefix + String.format("%02d", i));
+        int width = segmentWidth(segment);
+        if (width < 1 || width > MAX_SEGMENT_WIDTH) {
+            resp.setMessage("号段位数不支持: " + width + "（1~" + MAX_SEGMENT_WIDTH + "）");
+            return resp;
         }
 
-        // 4. 轮询每个散号，判断是否有 uu 关系（Mock），有则增补拆机订单
-        List<String> buildSteps = resp.getBuildSteps();
+        // 3. 号段解析散号：prefix + 0..0 ~ 9..9
+        List<String> scatteredNumbers = expandSegment(segment.getSegmentPrefix(), width);
 
+        // 4. 整个号段一次判断 uu 关系（Mock），有则增补拆机订单
+        List<String> buildSteps = resp.getBuildSteps();
+        Set<String> related = mockQueryUuRelations(req.getUserId(), scatteredNumbers);
+        List<String> toDisassemble = new ArrayList<>(related.size());
         for (String msisdn : scatteredNumbers) {
-            boolean hasUuRel = mockHasUuRelation(req.getUserId(), msisdn);
-            if (!hasUuRel) {
+            if (related.contains(msisdn)) {
+                toDisassemble.add(msisdn);
+            } else {
                 buildSteps.add("散号 " + msisdn + " 无 uu 关系，跳过");
-                continue;
             }
-            // 4.1 复制并生成新拆机订单行
-            OcOrderLine newLine = buildDisassembleOrderLine(baseLine, msisdn, req);
-            ocOrderLines.add(newLine);
-            resp.getCreatedLines().add(newLine);
+        }
+
+        // 4.1 复制并生成新拆机订单行（用户中心 / 商品中心按号段批量查询）
+        List<OcOrderLine> createdLines = resp.getCreatedLines();
+        if (!toDisassemble.isEmpty()) {
+            createdLines.addAll(buildDisassembleOrderLines(baseLine, toDisassemble));
+        }
 
-            // 4.2 编排公共构建服务（占位）
+        // 4.2 编排公共构建服务（占位）
+        for (int i = 0; i < createdLines.size(); i++) {
             buildSteps.add("编排服务-九：default");
             buildSteps.add("编排服务-十：default");
             buildSteps.add("编排服务-十一：default");
             buildSteps.add("编排服务-十二：default");
             buildSteps.add("编排服务-四：default");
         }
+        if (!createdLines.isEmpty()) {
+            ocOrderLinesByOrderId.computeIfAbsent(baseLine.getOrderId(), k -> new CopyOnWriteArrayList<>()).addAll(createdLines);
+        }
 
         resp.setSuccess(true);
         resp.setMessage("处理完成");
         return resp;
     }
 
+    private static int segmentWidth(OcOrderNumSegment segment) {
+        return segment.getSegmentWidth() == null ? DEFAULT_SEGMENT_WIDTH : segment.getSegmentWidth();
+    }
+
+    /**
+     * 号段展开为散号：prefix 后接 width 位序号，按序号递增
+     * 复用一个字符缓冲逐位进位，每个号码只创建一个 String
+     */
+    static List<String> expandSegment(String prefix, int width) {
+        int count = 1;
+        for (int i = 0; i < width; i++) {
+            count *= 10;
+        }
+        int start = prefix.length();
+        char[] buf = new char[start + width];
+        prefix.getChars(0, start, buf, 0);
+        Arrays.fill(buf, start, buf.length, '0');
+        List<String> numbers = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            numbers.add(new String(buf));
+            for (int p = buf.length - 1; p >= start; p--) {
+                if (buf[p] == '9') {
+                    buf[p] = '0';
+                } else {
+                    buf[p]++;
+                    break;
+                }
+            }
+        }
+        return numbers;
+    }
+
     /**
-     * Mock：判断是否存在 UU 关系
+     * Mock：批量判断 UU 关系，返回存在 uu 关系的号码（一次调用覆盖整个号段）
      * 简化逻辑：如果号码末尾为偶数则认为存在 UU 关系
      */
-    private boolean mockHasUuRelation(String userIdA, String serialNumberB) {
-        if (serialNumberB == null || serialNumberB.isEmpty()) return false;
-        char last = serialNumberB.charAt(serialNumberB.length() - 1);
-        return Character.isDigit(last) && ((last - '0') % 2 == 0);
+    private Set<String> mockQueryUuRelations(String userIdA, List<String> serialNumbersB) {
+        Set<String> related = new HashSet<>();
+        for (String serialNumberB : serialNumbersB) {
+            if (serialNumberB == null || serialNumberB.isEmpty()) continue;
+            char last = serialNumberB.charAt(serialNumberB.length() - 1);
+            if (Character.isDigit(last) && ((last - '0') % 2 == 0)) {
+                related.add(serialNumberB);
+            }
+        }
+        return related;
     }
 
     /**
-     * 构建拆机订单行（复制基线订单行并替换必要字段）
+     * 构建拆机订单行（复制基线订单行并替换必要字段）；order_line_id 一次预取
      */
-    private OcOrderLine buildDisassembleOrderLine(OcOrderLine base, String msisdn, IdapCancelSegmentRequest req) {
-        long newLineId = SnowflakeIdGenerator.nextId();
+    private List<OcOrderLine> buildDisassembleOrderLines(OcOrderLine base, List<String> msisdns) {
+        long[] newLineIds = idAllocator.nextIds(SegmentIdAllocator.ORDER_LINE_ID, msisdns.size());
 
         // Mock 用户中心：通过 serialNumber + net_type_code=30 获取 user_id/cust_id/main_product_id
-        UserCenterInfo userCenter = mockQueryUserCenter(msisdn, "30");
-
-        // Mock 商品中心：通过 main_product_id 获取产品名称/类型/族群
-        ProductInfo productInfo = mockQueryProductCenter(userCenter.getMainProductId());
-
-        Map<String, Object> newAttrs = new HashMap<>();
-        newAttrs.put("created_at", LocalDateTime.now().toString());
-        newAttrs.put("source_line_id", base.getOrderLineId());
-        newAttrs.put("disassemble_reason", "IDAP");
-
-        return OcOrderLine.builder()
-                .orderId(base.getOrderId())
-                .orderLineId(newLineId)
-                .tradeTypeCode("110") // 与基线一致
-                .netTypeCode("30")    // 指定拆机网别
-                .lineLevel(1)         // 拆机行级别
-                .serialNumber(msisdn)
-                .userId(userCenter.getUserId())
-                .custId(userCenter.getCustId())
-                .mainProductId(userCenter.getMainProductId())
-                .mainProductName(productInfo.getMainProductName())
-                .mainProductType(productInfo.getMainProductType())
-                .productFamily(productInfo.getProductFamily())
-                .extraAttrs(newAttrs)
-                .build();
+        Map<String, UserCenterInfo> userCenter = mockQueryUserCenter(msisdns, "30");
+
+        // Mock 商品中心：通过 main_product_id 获取产品名称/类型/族群（去重后一次查询）
+        Set<String> mainProductIds = new LinkedHashSet<>();
+        for (UserCenterInfo info : userCenter.values()) {
+            mainProductIds.add(info.getMainProductId());
+        }
+        Map<String, ProductInfo> products = mockQueryProductCenter(mainProductIds);
+
+        String createdAt = LocalDateTime.now().toString();
+        List<OcOrderLine> lines = new ArrayList<>(msisdns.size());
+        for (int i = 0; i < msisdns.size(); i++) {
+            String msisdn = msisdns.get(i);
+            UserCenterInfo user = userCenter.get(msisdn);
+            ProductInfo productInfo = products.get(user.getMainProductId());
+
+            Map<String, Object> newAttrs = new HashMap<>();
+            newAttrs.put("created_at", createdAt);
+            newAttrs.put("source_line_id", base.getOrderLineId());
+            newAttrs.put("disassemble_reason", "IDAP");
+
+            lines.add(OcOrderLine.builder()
+                    .orderId(base.getOrderId())
+                    .orderLineId(newLineIds[i])
+                    .tradeTypeCode("110") // 与基线一致
+                    .netTypeCode("30")    // 指定拆机网别
+                    .lineLevel(1)         // 拆机行级别
+                    .serialNumber(msisdn)
+                    .userId(user.getUserId())
+                    .custId(user.getCustId())
+                    .mainProductId(user.getMainProductId())
+                    .mainProductName(productInfo.getMainProductName())
+                    .mainProductType(productInfo.getMainProductType())
+                    .productFamily(productInfo.getProductFamily())
+                    .extraAttrs(newAttrs)
+                    .build());
+        }
+        return lines;
     }
 
-    // Mock: 用户中心返回信息
-    private UserCenterInfo mockQueryUserCenter(String serialNumber, String netTypeCode) {
-        String suffix = (serialNumber != null && serialNumber.length() >= 4)
-                ? serialNumber.substring(serialNumber.length() - 4)
-                : "0000";
-        UserCenterInfo info = new UserCenterInfo();
-        info.setSerialNumber(serialNumber);
-        info.setUserId("U-" + suffix);
-        info.setCustId("C-" + suffix);
-        info.setMainProductId("PROD-" + suffix);
-        return info;
+    // Mock: 用户中心批量返回信息，key 为 serialNumber
+    private Map<String, UserCenterInfo> mockQueryUserCenter(List<String> serialNumbers, String netTypeCode) {
+        Map<String, UserCenterInfo> result = new HashMap<>(serialNumbers.size() * 2);
+        for (String serialNumber : serialNumbers) {
+            String suffix = (serialNumber != null && serialNumber.length() >= 4)
+                    ? serialNumber.substring(serialNumber.length() - 4)
+                    : "0000";
+            UserCenterInfo info = new UserCenterInfo();
+            info.setSerialNumber(serialNumber);
+            info.setUserId("U-" + suffix);
+            info.setCustId("C-" + suffix);
+            info.setMainProductId("PROD-" + suffix);
+            result.put(serialNumber, info);
+        }
+        return result;
     }
 
-    // Mock: 商品中心返回信息
-    private ProductInfo mockQueryProductCenter(String mainProductId) {
-        ProductInfo info = new ProductInfo();
-        info.setMainProductName("default-product-name");
-        info.setMainProductType("default-product-type");
-        info.setProductFamily("default-product-family");
-        return info;
+    // Mock: 商品中心批量返回信息，key 为 main_product_id
+    private Map<String, ProductInfo> mockQueryProductCenter(Collection<String> mainProductIds) {
+        Map<String, ProductInfo> result = new HashMap<>(mainProductIds.size() * 2);
+        for (String mainProductId : mainProductIds) {
+            ProductInfo info = new ProductInfo();
+            info.setMainProductName("default-product-name");
+            info.setMainProductType("default-product-type");
+            info.setProductFamily("default-product-family");
+            result.put(mainProductId, info);
+        }
+        return result;
     }
 
     // ========= DTO / Mock 表结构 =========
@@ -315,6 +410,7 @@ public class IdapCancelSegmentService {
         private String modifyTag;
         private String actionType;
         private String segmentPrefix;
+        private Integer segmentWidth; // 号段后缀位数：2 = 100 个散号，3 = 1000 个，4 = 10000 个
 
         public static Builder builder() { return new Builder(); }
         public static class Builder {
@@ -324,6 +420,7 @@ public class IdapCancelSegmentService {
             public Builder modifyTag(String v) { s.modifyTag = v; return this; }
             public Builder actionType(String v) { s.actionType = v; return this; }
             public Builder segmentPrefix(String v) { s.segmentPrefix = v; return this; }
+            public Builder segmentWidth(Integer v) { s.segmentWidth = v; return this; }
             public OcOrderNumSegment build() { return s; }
         }
 
@@ -332,6 +429,7 @@ public class IdapCancelSegmentService {
         public String getModifyTag() { return modifyTag; }
         public String getActionType() { return actionType; }
         public String getSegmentPrefix() { return segmentPrefix; }
+        public Integer getSegmentWidth() { return segmentWidth; }
     }
 
     public static class UserCenterInfo {
@@ -6,7 +6,6 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class IddService {
@@ -14,8 +13,9 @@ public class IddService {
     @Autowired
     private IddMapper iddMapper;
 
-    // 模拟序列生成服务
-    private AtomicLong sequenceGenerator = new AtomicLong(1000);
+    // 序列生成服务
+    @Autowired
+    private SegmentIdAllocator idAllocator;
 
     @Transactional
     public void processIdd(Long orderId, Long orderLineId) {
@@ -31,7 +31,7 @@ public class IddService {
         if (items != null && !items.isEmpty()) {
             for (OrderLineItem item : items) {
                 // 1.1 调用序列生成服务生成 cust_id_a
-                Long custIdA = sequenceGenerator.incrementAndGet();
+                Long custIdA = idAllocator.nextId(SegmentIdAllocator.CUST_ID);
 
                 // 1.2 生成 oc_order_relation_cc 台账
                 OcOrderRelationCc relationCc = new OcOrderRelationCc();
@@ -48,7 +48,7 @@ public class IddService {
 
         // IDD业务更新 oc_order_line 表的 serial_number、cust_id
         // 1. 调用序列生成服务生成 serial_number (IDD + 8位序列)
-        long seq = sequenceGenerator.incrementAndGet();
+        long seq = idAllocator.nextId(SegmentIdAllocator.IDD_SERIAL_NUMBER);
         String serialNumber = String.format("IDD%08d", seq);
 
         // 2. 更新 oc_order_line 表
@@ -1,28 +1,41 @@
 package com.example.demo.otc;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class IddSuspendService {
 
+    private static final Logger logger = LoggerFactory.getLogger(IddSuspendService.class);
+
     @Autowired
     private IddSuspendMapper iddSuspendMapper;
 
     @Autowired
     private ProductCenterClient productCenterClient;
 
-    private AtomicLong sequenceGenerator = new AtomicLong(3000);
+    @Autowired
+    private SegmentIdAllocator idAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-    @Transactional
+    /**
+     * 用户列表与产品标签在事务外查出（标签为远程调用，不占用数据库连接），其余查询与写入在一个事务内
+     */
     public void processIddSuspend(Long orderId, Long orderLineId, String tradeTypeCode) {
         List<Long> userIds = new ArrayList<>();
         
@@ -49,14 +62,34 @@ public class IddSuspendService {
             return;
         }
 
+        // 1.a 产品 suspend_indicator：全部用户的主产品一次查询
+        Set<String> mainProductIds = new LinkedHashSet<>();
+        for (Long userId : userIds) {
+            mainProductIds.add(mainProductIdOf(userId));
+        }
+        Map<String, String> suspendIndicators = productCenterClient.getProductTags(mainProductIds, "suspend_indicator");
+        if (suspendIndicators == null) {
+            // 标签查询失败，无法判断哪些号码应跳过：本次不处理也不归档，订单保留待重新处理
+            logger.warn("产品标签查询失败，订单 {} 本次不处理", orderId);
+            return;
+        }
+
+        List<Long> users = userIds;
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> suspendIdd(orderId, tradeTypeCode, users, suspendIndicators));
+    }
+
+    private static String mainProductIdOf(Long userId) {
+        return "PROD_001"; // 模拟获取
+    }
+
+    private void suspendIdd(Long orderId, String tradeTypeCode, List<Long> userIds, Map<String, String> suspendIndicators) {
         boolean anyUserProcessed = false;
         String iddServiceId = "IDD_SERVICE_CODE"; // 待定
 
         for (Long userId : userIds) {
             // 1.a 检查产品 suspend_indicator
-            String mainProductId = "PROD_001"; // 模拟获取
-            String suspendIndicator = productCenterClient.getProductTag(mainProductId, "suspend_indicator");
-            if ("N".equals(suspendIndicator)) {
+            if ("N".equals(suspendIndicators.get(mainProductIdOf(userId)))) {
                 continue; // 跳过
             }
 
@@ -69,7 +102,7 @@ public class IddSuspendService {
             anyUserProcessed = true;
 
             // 1.1 增补订单行 (模拟)
-            Long newOrderLineId = sequenceGenerator.incrementAndGet();
+            Long newOrderLineId = idAllocator.nextId(SegmentIdAllocator.ORDER_LINE_ID);
 
             // 1.2 增补服务状态台账
             // 1.2.1 再次确认状态 (逻辑复用)
@@ -0,0 +1,38 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.ProductCenterClient.OtcLevel;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于数据库表的产品中心数据源
+ * td_b_product_type_otc(product_type_code, otc_level[DN/ORDER]) 为分类
+ */
+@Component
+@ConditionalOnProperty(name = "otc.product-center.source", havingValue = "jdbc")
+public class JdbcProductCatalogSource implements ProductCatalogSource {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcProductCatalogSource(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Map<String, OtcLevel> loadOtcLevels() {
+        Map<String, OtcLevel> levels = new HashMap<>();
+        jdbcTemplate.query("select product_type_code, otc_level from td_b_product_type_otc", rs -> {
+            String level = rs.getString("otc_level");
+            if ("DN".equalsIgnoreCase(level)) {
+                levels.put(rs.getString("product_type_code"), OtcLevel.DN);
+            } else if ("ORDER".equalsIgnoreCase(level)) {
+                levels.put(rs.getString("product_type_code"), OtcLevel.ORDER);
+            }
+        });
+        return levels;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.otc;
 
+import com.example.demo.SnowflakeIdWorker;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -13,6 +14,7 @@ import java.util.List;
  * 3. 统一异常处理
  * 4. 提取常量，避免硬编码
  * 5. 精简冗余代码
+ * 6. 台账 ID 由雪花算法生成（前缀格式不变），并发请求同一毫秒内也不会重复
  */
 @Service
 public class MemberRelationSupplementService {
@@ -25,6 +27,12 @@ public class MemberRelationSupplementService {
     private static final String CHARGE_CATEGORY_PREFIX = "C";
     private static final String END_DATE_DEFAULT = "2099-12-31 23:59:59";
 
+    private final SnowflakeIdWorker idWorker;
+
+    public MemberRelationSupplementService(SnowflakeIdWorker idWorker) {
+        this.idWorker = idWorker;
+    }
+
     /**
      * 补充成员关系台账
      */
@@ -56,8 +64,9 @@ public class MemberRelationSupplementService {
                         MemberRelationSupplementResponse.InstallLedgerDto addLedger = new MemberRelationSupplementResponse.InstallLedgerDto();
                         addLedger.setOrderId(request.getOrderId());
                         addLedger.setOrderLineId(request.getOrderLineId());
-                        addLedger.setInstallId(INSTALL_ID_PREFIX + System.currentTimeMillis());
-                        addLedger.setInstallItemId(INSTALL_ITEM_ID_PREFIX + System.currentTimeMillis());
+                        long installId = idWorker.nextId();
+                        addLedger.setInstallId(INSTALL_ID_PREFIX + installId);
+                        addLedger.setInstallItemId(INSTALL_ITEM_ID_PREFIX + installId);
                         addLedger.setUserId(groupUserId);
                         addLedger.setAddress(groupInstallInfo.getAddress());
                         addLedger.setModifyTag("0");
@@ -71,8 +80,9 @@ public class MemberRelationSupplementService {
                         MemberRelationSupplementResponse.InstallLedgerDto delLedger = new MemberRelationSupplementResponse.InstallLedgerDto();
                         delLedger.setOrderId(request.getOrderId());
                         delLedger.setOrderLineId(request.getOrderLineId());
-                        delLedger.setInstallId(INSTALL_ID_PREFIX + (System.currentTimeMillis() + 1));
-                        delLedger.setInstallItemId(INSTALL_ITEM_ID_PREFIX + (System.currentTimeMillis() + 1));
+                        long installId = idWorker.nextId();
+                        delLedger.setInstallId(INSTALL_ID_PREFIX + installId);
+                        delLedger.setInstallItemId(INSTALL_ITEM_ID_PREFIX + installId);
                         delLedger.setUserId(request.getSnUserId());
                         delLedger.setAddress(currentInstallInfo.getAddress());
                         delLedger.setModifyTag("1");
@@ -113,7 +123,7 @@ public class MemberRelationSupplementService {
                         MemberRelationSupplementResponse.PayRelationLedgerDto addLedger = new MemberRelationSupplementResponse.PayRelationLedgerDto();
                         addLedger.setOrderId(request.getOrderId());
                         addLedger.setOrderLineId(request.getOrderLineId());
-                        addLedger.setPayRelationId(PAY_RELATION_ID_PREFIX + System.currentTimeMillis());
+                        addLedger.setPayRelationId(PAY_RELATION_ID_PREFIX + idWorker.nextId());
                         addLedger.setUserId(request.getSnUserId());
                         addLedger.setAccountId(groupPayRelation.getAccountId());
                         addLedger.setChargeCategory(groupPayRelation.getChargeCategory());
@@ -127,7 +137,7 @@ public class MemberRelationSupplementService {
                     MemberRelationSupplementResponse.PayRelationLedgerDto addLedger = new MemberRelationSupplementResponse.PayRelationLedgerDto();
                     addLedger.setOrderId(request.getOrderId());
                     addLedger.setOrderLineId(request.getOrderLineId());
-                    addLedger.setPayRelationId(PAY_RELATION_ID_PREFIX + System.currentTimeMillis());
+                    addLedger.setPayRelationId(PAY_RELATION_ID_PREFIX + idWorker.nextId());
                     addLedger.setUserId(request.getSnUserId());
                     addLedger.setAccountId(groupPayRelation.getAccountId());
                     addLedger.setChargeCategory(groupPayRelation.getChargeCategory());
@@ -0,0 +1,37 @@
+package com.example.demo.otc;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 确定性抽样：取统计时一并得到的最小 order_line_id，按主键点查对应 DN
+ */
+@Component
+public class MinOrderLineIdDnSampler implements DnSampler {
+
+    public static final String NAME = "min-order-line-id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MinOrderLineIdDnSampler(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Optional<DnKey> pick(DnScope scope, DnStats stats) {
+        if (stats.getCount() <= 0 || stats.getMinOrderLineId() == null) return Optional.empty();
+
+        String sql = "select order_id, order_line_id from oc_order_line where " + scope.where() + " and order_line_id = ? limit 1";
+        List<DnKey> list = jdbcTemplate.query(sql, scope.params(stats.getMinOrderLineId()),
+                (rs, rn) -> new DnKey(rs.getLong("order_id"), rs.getLong("order_line_id")));
+        return list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
+    }
+}
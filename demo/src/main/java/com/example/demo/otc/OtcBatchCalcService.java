@@ -0,0 +1,142 @@
+package com.example.demo.otc;
+
+import com.example.demo.ConcurrentUtils;
+import com.example.demo.otc.OtcCalcModels.OtcBatchCalcItem;
+import com.example.demo.otc.OtcCalcModels.OtcCalcRequest;
+import com.example.demo.otc.OtcCalcService.LineTreeCache;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * OTC 批量计费
+ * 固定大小的工作线程池并行计算；每个工作线程整批只占用一个数据库连接，逐个领取请求；
+ * 单个请求的超时通过连接上的截止时间下发到每条 SQL（statement query timeout），超时只影响该请求；
+ * 同一批次内抽到同一条 DN 的请求共享产品树查询结果
+ */
+@Service
+public class OtcBatchCalcService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OtcBatchCalcService.class);
+
+    private final OtcCalcService otcCalcService;
+    private final DataSource dataSource;
+    private final int workers;
+    private final long timeoutMs;
+    private final int maxRequests;
+    private final ExecutorService executor;
+
+    public OtcBatchCalcService(OtcCalcService otcCalcService, JdbcTemplate jdbcTemplate,
+                               @Value("${otc.calc.batch.workers:8}") int workers,
+                               @Value("${otc.calc.batch.timeout-ms:5000}") long timeoutMs,
+                               @Value("${otc.calc.batch.max-requests:10000}") int maxRequests) {
+        this.otcCalcService = otcCalcService;
+        // 与 OtcCalcService 使用同一数据源，线程上绑定的连接才会被其 JdbcTemplate 复用
+        this.dataSource = jdbcTemplate.getDataSource();
+        this.workers = Math.max(1, workers);
+        this.timeoutMs = timeoutMs;
+        this.maxRequests = maxRequests;
+        this.executor = ConcurrentUtils.newDaemonPool("otc-batch-calc", this.workers);
+    }
+
+    /**
+     * 并行计算一批请求，每完成一条即回调 sink（sink 可能被多个工作线程调用，调用已串行化）
+     * 返回的 future 在全部请求完成后结束；sink 抛出异常（如客户端断开）时停止领取剩余请求并以该异常结束
+     */
+    public CompletableFuture<Void> calculateAll(List<OtcCalcRequest> requests, Consumer<OtcBatchCalcItem> sink) {
+        if (requests == null || requests.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (requests.size() > maxRequests) {
+            throw new OtcBatchTooLargeException(requests.size(), maxRequests);
+        }
+
+        LineTreeCache cache = new LineTreeCache();
+        AtomicInteger cursor = new AtomicInteger();
+        AtomicBoolean aborted = new AtomicBoolean();
+        Object sinkLock = new Object();
+        Consumer<OtcBatchCalcItem> serialSink = item -> {
+            synchronized (sinkLock) {
+                sink.accept(item);
+            }
+        };
+
+        int n = Math.min(workers, requests.size());
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[n];
+        for (int i = 0; i < n; i++) {
+            futures[i] = CompletableFuture.runAsync(() -> runWorker(requests, cursor, aborted, cache, serialSink), executor);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * 单个工作线程：整批只获取一次连接并绑定到当前线程，逐个领取请求直到领完或被中止
+     */
+    private void runWorker(List<OtcCalcRequest> requests, AtomicInteger cursor, AtomicBoolean aborted,
+                           LineTreeCache cache, Consumer<OtcBatchCalcItem> sink) {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        ConnectionHolder holder = new ConnectionHolder(con);
+        TransactionSynchronizationManager.bindResource(dataSource, holder);
+        try {
+            int index;
+            while (!aborted.get() && (index = cursor.getAndIncrement()) < requests.size()) {
+                OtcBatchCalcItem item = calculateOne(index, requests.get(index), holder, cache);
+                try {
+                    sink.accept(item);
+                } catch (RuntimeException ex) {
+                    aborted.set(true);
+                    throw ex;
+                }
+            }
+        } finally {
+            TransactionSynchronizationManager.unbindResource(dataSource);
+            DataSourceUtils.releaseConnection(con, null);
+        }
+    }
+
+    private OtcBatchCalcItem calculateOne(int index, OtcCalcRequest req, ConnectionHolder holder, LineTreeCache cache) {
+        OtcBatchCalcItem item = new OtcBatchCalcItem();
+        item.index = index;
+        long start = System.currentTimeMillis();
+        // 截止时间从开始计算时算起，排队等待不计入；JdbcTemplate 按剩余时间设置每条 SQL 的超时
+        holder.clear();
+        if (timeoutMs > 0) {
+            holder.setTimeoutInMillis(timeoutMs);
+        }
+        try {
+            item.response = otcCalcService.calculate(req, cache);
+            item.status = OtcBatchCalcItem.STATUS_OK;
+        } catch (TransactionTimedOutException | QueryTimeoutException ex) {
+            item.status = OtcBatchCalcItem.STATUS_TIMEOUT;
+            item.error = "计费超时(" + timeoutMs + "ms)";
+        } catch (RuntimeException ex) {
+            logger.warn("OTC 批量计费第 {} 条失败", index, ex);
+            item.status = OtcBatchCalcItem.STATUS_ERROR;
+            item.error = ex.getMessage();
+        }
+        item.elapsed_ms = System.currentTimeMillis() - start;
+        return item;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.demo.otc;
+
+/**
+ * 批量计费请求数超过 otc.calc.batch.max-requests，属调用方错误
+ */
+public class OtcBatchTooLargeException extends RuntimeException {
+
+    public OtcBatchTooLargeException(int requests, int maxRequests) {
+        super("批量计费请求数超过上限: " + requests + " > " + maxRequests);
+    }
+}
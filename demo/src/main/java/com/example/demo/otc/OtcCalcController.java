@@ -1,21 +1,73 @@
 package com.example.demo.otc;
 
+import com.example.demo.otc.OtcCalcModels.OtcBatchCalcItem;
 import com.example.demo.otc.OtcCalcModels.OtcCalcRequest;
 import com.example.demo.otc.OtcCalcModels.OtcCalcResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/otc")
 public class OtcCalcController {
 
     private final OtcCalcService service;
+    private final OtcBatchCalcService batchService;
 
-    public OtcCalcController(OtcCalcService service) {
+    public OtcCalcController(OtcCalcService service, OtcBatchCalcService batchService) {
         this.service = service;
+        this.batchService = batchService;
     }
 
     @PostMapping("/calc")
     public OtcCalcResponse calc(@RequestBody OtcCalcRequest req) {
         return service.calculate(req);
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量计费：按完成顺序逐行返回（NDJSON），每行一个 OtcBatchCalcItem
+     */
+    @PostMapping(value = "/calc/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseBodyEmitter calcBatch(@RequestBody List<OtcCalcRequest> reqs) {
+        // 整批耗时由 otc.calc.batch.* 控制，这里不再另设异步请求超时
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);
+        batchService.calculateAll(reqs, item -> send(emitter, item))
+                .whenComplete((v, ex) -> {
+                    if (ex == null) {
+                        emitter.complete();
+                    } else {
+                        emitter.completeWithError(ex);
+                    }
+                });
+        return emitter;
+    }
+
+    /**
+     * 批量请求数超过 otc.calc.batch.max-requests 属调用方错误，返回 400 而不是全局的 500
+     */
+    @ExceptionHandler(OtcBatchTooLargeException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, Object> handleBatchTooLarge(OtcBatchTooLargeException ex) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("code", 400);
+        result.put("msg", ex.getMessage());
+        result.put("data", null);
+        return result;
+    }
+
+    private void send(ResponseBodyEmitter emitter, OtcBatchCalcItem item) {
+        try {
+            emitter.send(item, MediaType.APPLICATION_JSON);
+            emitter.send("\n", MediaType.TEXT_PLAIN);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -34,4 +34,19 @@ public class OtcCalcModels {
         public List<OtcItem> dnLevelOtcProductList;
         public List<OtcItem> orderLevelOtcProductList;
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量计费的单条结果，按完成顺序流式返回，index 对应请求列表下标
+     */
+    public static class OtcBatchCalcItem {
+        public static final String STATUS_OK = "OK";
+        public static final String STATUS_TIMEOUT = "TIMEOUT";
+        public static final String STATUS_ERROR = "ERROR";
+
+        public int index;
+        public String status;
+        public long elapsed_ms;
+        public OtcCalcResponse response;
+        public String error;
+    }
+}
@@ -1,30 +1,80 @@
 package com.example.demo.otc;
 
+import com.example.demo.otc.DnSampler.DnKey;
+import com.example.demo.otc.DnSampler.DnScope;
+import com.example.demo.otc.DnSampler.DnStats;
 import com.example.demo.otc.OtcCalcModels.OtcCalcRequest;
 import com.example.demo.otc.OtcCalcModels.OtcCalcResponse;
 import com.example.demo.otc.OtcCalcModels.OtcItem;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class OtcCalcService {
 
+    /**
+     * 逐条查询：产品 -> 元素 -> 元素属性，每个产品/元素各一次查询（N+1）
+     */
+    public static final String FETCH_MODE_LOOP = "loop";
+    /**
+     * 集合查询：产品、元素、元素属性各一次查询，内存中组装树
+     */
+    public static final String FETCH_MODE_BULK = "bulk";
+
     private final JdbcTemplate jdbcTemplate;
     private final ProductCenterClient productCenterClient;
+    private final String fetchMode;
+    private final DnSampler dnSampler;
 
-    public OtcCalcService(JdbcTemplate jdbcTemplate, ProductCenterClient productCenterClient) {
+    public OtcCalcService(JdbcTemplate jdbcTemplate, ProductCenterClient productCenterClient,
+                          @Value("${otc.calc.fetch-mode:bulk}") String fetchMode,
+                          List<DnSampler> dnSamplers,
+                          @Value("${otc.calc.dn-sampler:" + CountOffsetDnSampler.NAME + "}") String dnSamplerName) {
         this.jdbcTemplate = jdbcTemplate;
         this.productCenterClient = productCenterClient;
+        this.fetchMode = (fetchMode == null || fetchMode.trim().isEmpty()) ? FETCH_MODE_BULK : fetchMode.trim().toLowerCase();
+        this.dnSampler = selectSampler(dnSamplers, dnSamplerName);
+    }
+
+    private static DnSampler selectSampler(List<DnSampler> samplers, String name) {
+        String wanted = (name == null || name.trim().isEmpty()) ? CountOffsetDnSampler.NAME : name.trim().toLowerCase();
+        for (DnSampler sampler : samplers) {
+            if (sampler.name().equals(wanted)) {
+                return sampler;
+            }
+        }
+        throw new IllegalArgumentException("未知的 DN 抽样策略: " + name + "，可选: "
+                + samplers.stream().map(DnSampler::name).collect(Collectors.joining(",")));
     }
 
     public OtcCalcResponse calculate(OtcCalcRequest req) {
+        return calculate(req, null);
+    }
+
+    /**
+     * 批量计费时传入同一批次共享的 DN 产品树缓存，多个请求抽到同一条 DN 时只查询一次（仅集合模式生效）
+     */
+    public OtcCalcResponse calculate(OtcCalcRequest req, LineTreeCache cache) {
         OtcCalcResponse resp = new OtcCalcResponse();
-        long dnQty = computeDnQty(req);
+        if (req.amendOrderList == null || req.amendOrderList.isEmpty()) {
+            resp.dnQty = 0L;
+            resp.dnLevelOtcProductList = Collections.emptyList();
+            resp.orderLevelOtcProductList = Collections.emptyList();
+            return resp;
+        }
+
+        // 数量计算与抽样共用同一过滤条件与统计结果
+        DnScope scope = DnScope.of(req);
+        DnStats stats = queryDnStats(scope);
+        long dnQty = computeDnQty(req, stats.getCount());
         resp.dnQty = dnQty;
         if (dnQty <= 0) {
             resp.dnLevelOtcProductList = Collections.emptyList();
@@ -32,94 +82,42 @@ public class OtcCalcService {
             return resp;
         }
 
-        Optional<OrderLineKey> randomDn = selectRandomDn(req);
-        if (randomDn.isEmpty()) {
+        Optional<DnKey> sampledDn = dnSampler.pick(scope, stats);
+        if (sampledDn.isEmpty()) {
             resp.dnLevelOtcProductList = Collections.emptyList();
             resp.orderLevelOtcProductList = Collections.emptyList();
             return resp;
         }
 
-        OrderLineKey key = randomDn.get();
-        List<ProductRow> products = queryProducts(key.order_id, key.order_line_id);
+        DnKey key = sampledDn.get();
 
         List<OtcItem> dnLevelList = new ArrayList<>();
         List<OtcItem> orderLevelList = new ArrayList<>();
 
-        for (ProductRow pr : products) {
-            // DN级OTC产品逻辑
-            if (productCenterClient.isDnLevelOtcProduct(pr.product_type_code)) {
+        if (FETCH_MODE_LOOP.equals(fetchMode)) {
+            List<ProductRow> products = queryProducts(key.order_id, key.order_line_id);
+            for (ProductRow pr : products) {
+                boolean dnLevel = productCenterClient.isDnLevelOtcProduct(pr.product_type_code);
+                if (!dnLevel && !productCenterClient.isOrderLevelOtcProduct(pr.product_type_code)) {
+                    continue;
+                }
                 List<ElementRow> elements = queryElements(key.order_id, key.order_line_id, pr.product_id, pr.prod_item_id);
                 for (ElementRow er : elements) {
                     Map<String, Long> attrs = queryElementAttrs(er.element_id, er.element_item_id);
-
-                    Long standardFee = attrs.get("standard_fee");
-                    Long otcFee = attrs.get("otc_fee");
-                    Long rebateFee = attrs.get("rebate_fee");
-                    Long qtyAttr = attrs.get("qty");
-
-                    long realQty = (qtyAttr != null) ? qtyAttr : dnQty;
-
-                    if (otcFee != null) {
-                        OtcItem item = baseItem(req.trade_type_code, pr, er, standardFee, otcFee, rebateFee, realQty);
-                        Long waived = null;
-                        if (standardFee != null) {
-                            waived = standardFee - otcFee;
-                        }
-                        item.waived_fee = waived;
-                        item.total_fee = multiplySafe(otcFee, realQty);
-                        dnLevelList.add(item);
-                    }
-
-                    if (rebateFee != null) {
-                        OtcItem item = baseItem(req.trade_type_code, pr, er, standardFee, null, rebateFee, realQty);
-                        Long waived = null;
-                        if (standardFee != null && otcFee != null) {
-                            waived = standardFee - otcFee;
-                        }
-                        item.waived_fee = waived;
-                        item.total_fee = multiplySafe(rebateFee, realQty);
-                        orderLevelList.add(item);
-                    }
+                    appendOtcItems(req, pr, er, attrs, dnLevel, dnQty, dnLevelList, orderLevelList);
                 }
             }
-            // order级OTC产品逻辑
-            else if (productCenterClient.isOrderLevelOtcProduct(pr.product_type_code)) {
-                List<ElementRow> elements = queryElements(key.order_id, key.order_line_id, pr.product_id, pr.prod_item_id);
+        } else {
+            LineTree tree = (cache == null) ? loadLineTree(key) : cache.get(key, this::loadLineTree);
+            for (ProductRow pr : tree.products) {
+                boolean dnLevel = productCenterClient.isDnLevelOtcProduct(pr.product_type_code);
+                if (!dnLevel && !productCenterClient.isOrderLevelOtcProduct(pr.product_type_code)) {
+                    continue;
+                }
+                List<ElementRow> elements = tree.elementsByProduct.getOrDefault(new ProductKey(pr.product_id, pr.prod_item_id), Collections.emptyList());
                 for (ElementRow er : elements) {
-                    Map<String, Long> attrs = queryElementAttrs(er.element_id, er.element_item_id);
-
-                    Long standardFee = attrs.get("standard_fee");
-                    Long otcFee = attrs.get("otc_fee");
-                    Long rebateFee = attrs.get("rebate_fee");
-                    Long qtyAttr = attrs.get("qty");
-
-                    // 业务规则：qty=1
-                    long realQty = 1;
-
-                    // otc_fee 存在且不为空（对应otc资费）
-                    if (otcFee != null) {
-                        OtcItem item = baseItem(req.trade_type_code, pr, er, standardFee, otcFee, rebateFee, realQty);
-                        Long waived = null;
-                        if (standardFee != null) {
-                            waived = standardFee - otcFee;
-                        }
-                        item.waived_fee = waived;
-                        item.qty = 1L;
-                        item.total_fee = otcFee;
-                        orderLevelList.add(item);
-                    }
-                    // rebate_fee 存在且不为空（对应otc的rebate资费）
-                    if (rebateFee != null) {
-                        OtcItem item = baseItem(req.trade_type_code, pr, er, standardFee, otcFee, rebateFee, realQty);
-                        Long waived = null;
-                        if (standardFee != null && otcFee != null) {
-                            waived = standardFee - otcFee;
-                        }
-                        item.waived_fee = waived;
-                        item.qty = 1L;
-                        item.total_fee = rebateFee;
-                        orderLevelList.add(item);
-                    }
+                    Map<String, Long> attrs = tree.attrsByElement.getOrDefault(new ElementKey(er.element_id, er.element_item_id), Collections.emptyMap());
+                    appendOtcItems(req, pr, er, attrs, dnLevel, dnQty, dnLevelList, orderLevelList);
                 }
             }
         }
@@ -129,27 +127,87 @@ public class OtcCalcService {
         return resp;
     }
 
-    private long computeDnQty(OtcCalcRequest req) {
-        if (req.amendOrderList == null || req.amendOrderList.isEmpty()) return 0L;
-
-        String inSql = req.amendOrderList.stream().map(x -> "?").collect(Collectors.joining(","));
-        List<Object> args = new ArrayList<>(req.amendOrderList);
+    /**
+     * 按单个元素的资费属性生成 OTC 明细，DN 级与 order 级的取值规则与原逐条逻辑一致
+     */
+    private void appendOtcItems(OtcCalcRequest req, ProductRow pr, ElementRow er, Map<String, Long> attrs, boolean dnLevel,
+                                long dnQty, List<OtcItem> dnLevelList, List<OtcItem> orderLevelList) {
+        Long standardFee = attrs.get("standard_fee");
+        Long otcFee = attrs.get("otc_fee");
+        Long rebateFee = attrs.get("rebate_fee");
+        Long qtyAttr = attrs.get("qty");
+
+        // DN级OTC产品逻辑
+        if (dnLevel) {
+            long realQty = (qtyAttr != null) ? qtyAttr : dnQty;
+
+            if (otcFee != null) {
+                OtcItem item = baseItem(req.trade_type_code, pr, er, standardFee, otcFee, rebateFee, realQty);
+                Long waived = null;
+                if (standardFee != null) {
+                    waived = standardFee - otcFee;
+                }
+                item.waived_fee = waived;
+                item.total_fee = multiplySafe(otcFee, realQty);
+                dnLevelList.add(item);
+            }
 
-        String commonWhere = " trace_type_code <> '615' and (produce_order_state = '' or produce_order_state = '0') and line_leve in (0,1) ";
+            if (rebateFee != null) {
+                OtcItem item = baseItem(req.trade_type_code, pr, er, standardFee, null, rebateFee, realQty);
+                Long waived = null;
+                if (standardFee != null && otcFee != null) {
+                    waived = standardFee - otcFee;
+                }
+                item.waived_fee = waived;
+                item.total_fee = multiplySafe(rebateFee, realQty);
+                orderLevelList.add(item);
+            }
+            return;
+        }
 
-        String sqlCount;
-        List<Object> params = new ArrayList<>(args);
+        // order级OTC产品逻辑
+        // 业务规则：qty=1
+        long realQty = 1;
 
-        if (!Objects.equals(req.cancel_tag, 3)) {
-            sqlCount = "select count(1) from oc_order_line where order_id in (" + inSql + ") and trade_type_code = ? and cancel_tag = '0' and " + commonWhere;
-            params.add(req.trade_type_code);
-        } else {
-            sqlCount = "select count(1) from oc_order_line where order_id in (" + inSql + ") and cancel_tag = '3' and " + commonWhere;
+        // otc_fee 存在且不为空（对应otc资费）
+        if (otcFee != null) {
+            OtcItem item = baseItem(req.trade_type_code, pr, er, standardFee, otcFee, rebateFee, realQty);
+            Long waived = null;
+            if (standardFee != null) {
+                waived = standardFee - otcFee;
+            }
+            item.waived_fee = waived;
+            item.qty = 1L;
+            item.total_fee = otcFee;
+            orderLevelList.add(item);
+        }
+        // rebate_fee 存在且不为空（对应otc的rebate资费）
+        if (rebateFee != null) {
+            OtcItem item = baseItem(req.trade_type_code, pr, er, standardFee, otcFee, rebateFee, realQty);
+            Long waived = null;
+            if (standardFee != null && otcFee != null) {
+                waived = standardFee - otcFee;
+            }
+            item.waived_fee = waived;
+            item.qty = 1L;
+            item.total_fee = rebateFee;
+            orderLevelList.add(item);
         }
+    }
 
-        Long count = jdbcTemplate.queryForObject(sqlCount, params.toArray(), Long.class);
-        long c = (count == null ? 0L : count);
+    /**
+     * DN 统计：一次扫描同时得到范围内 DN 数量与最小 order_line_id，供数量计算与抽样共用
+     */
+    private DnStats queryDnStats(DnScope scope) {
+        String sql = "select count(1) as dn_cnt, min(order_line_id) as min_line_id from oc_order_line where " + scope.where();
+        DnStats stats = jdbcTemplate.queryForObject(sql, scope.params(), (rs, rn) -> {
+            long minLineId = rs.getLong("min_line_id");
+            return new DnStats(rs.getLong("dn_cnt"), rs.wasNull() ? null : minLineId);
+        });
+        return stats == null ? DnStats.EMPTY : stats;
+    }
 
+    private long computeDnQty(OtcCalcRequest req, long c) {
         long cancelDnQty = (req.cancelDnQty == null ? 0L : req.cancelDnQty);
 
         if (!Objects.equals(req.cancel_tag, 3)) {
@@ -167,33 +225,16 @@ public class OtcCalcService {
         }
     }
 
-    private Optional<OrderLineKey> selectRandomDn(OtcCalcRequest req) {
-        if (req.amendOrderList == null || req.amendOrderList.isEmpty()) return Optional.empty();
-
-        String inSql = req.amendOrderList.stream().map(x -> "?").collect(Collectors.joining(","));
-        List<Object> args = new ArrayList<>(req.amendOrderList);
-
-        String commonWhere = " trace_type_code <> '615' and (produce_order_state = '' or produce_order_state = '0') and line_leve in (0,1) ";
-
-        String sql;
-        List<Object> params = new ArrayList<>(args);
-
-        if (!Objects.equals(req.cancel_tag, 3)) {
-            sql = "select order_id, order_line_id from oc_order_line where order_id in (" + inSql + ") and trade_type_code = ? and cancel_tag = '0' and " + commonWhere + " order by rand() limit 1";
-            params.add(req.trade_type_code);
-        } else {
-            sql = "select order_id, order_line_id from oc_order_line where order_id in (" + inSql + ") and cancel_tag = '3' and " + commonWhere + " order by rand() limit 1";
-        }
-
-        List<OrderLineKey> list = jdbcTemplate.query(sql, params.toArray(), (rs, rn) -> {
-            OrderLineKey k = new OrderLineKey();
-            k.order_id = rs.getLong("order_id");
-            k.order_line_id = rs.getLong("order_line_id");
-            return k;
-        });
-
-        if (list.isEmpty()) return Optional.empty();
-        return Optional.of(list.get(0));
+    /**
+     * 集合模式：整条 DN 的产品、元素与元素属性各一次查询，按 (product_id, prod_item_id) / (element_id, element_item_id) 在内存中归组
+     */
+    private LineTree loadLineTree(DnKey key) {
+        List<ProductRow> products = queryProducts(key.order_id, key.order_line_id);
+        Map<ProductKey, List<ElementRow>> elementsByProduct = queryElementsByLine(key.order_id, key.order_line_id);
+        Map<ElementKey, Map<String, Long>> attrsByElement = elementsByProduct.isEmpty()
+                ? Collections.emptyMap()
+                : queryElementAttrsByLine(key.order_id, key.order_line_id);
+        return new LineTree(products, elementsByProduct, attrsByElement);
     }
 
     private List<ProductRow> queryProducts(long orderId, long orderLineId) {
@@ -238,15 +279,7 @@ public class OtcCalcService {
 
         List<Map.Entry<String, Long>> rows = jdbcTemplate.query(sql, new Object[]{elementId, elementItemId}, (rs, rn) -> {
             String code = rs.getString("attr_code");
-            String v = rs.getString("attr_value");
-            Long value = null;
-            if (v != null && !v.isEmpty()) {
-                try {
-                    value = Long.parseLong(v);
-                } catch (NumberFormatException ignore) {
-                }
-            }
-            return new AbstractMap.SimpleEntry<>(code, value);
+            return new AbstractMap.SimpleEntry<>(code, parseLong(rs.getString("attr_value")));
         });
 
         Map<String, Long> map = new HashMap<>();
@@ -256,6 +289,60 @@ public class OtcCalcService {
         return map;
     }
 
+    /**
+     * 一次查询整条 DN 下的全部有效元素，按 (product_id, prod_item_id) 归组，组内保持查询返回顺序
+     */
+    private Map<ProductKey, List<ElementRow>> queryElementsByLine(long orderId, long orderLineId) {
+        String sql = "select element_id, element_item_id, product_id, prod_item_id, start_date, end_date " +
+                "from oc_order_product_element " +
+                "where order_id = ? and order_line_id = ? and modify_tag = '0' and end_date > start_date";
+
+        Map<ProductKey, List<ElementRow>> grouped = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            ElementRow r = new ElementRow();
+            r.element_id = rs.getLong("element_id");
+            r.element_item_id = rs.getLong("element_item_id");
+            r.product_id = rs.getLong("product_id");
+            r.prod_item_id = rs.getLong("prod_item_id");
+            Timestamp s = rs.getTimestamp("start_date");
+            Timestamp e = rs.getTimestamp("end_date");
+            r.start_date = (s == null ? null : s.toLocalDateTime());
+            r.end_date = (e == null ? null : e.toLocalDateTime());
+            grouped.computeIfAbsent(new ProductKey(r.product_id, r.prod_item_id), k -> new ArrayList<>()).add(r);
+        }, orderId, orderLineId);
+        return grouped;
+    }
+
+    /**
+     * 一次查询整条 DN 下全部有效元素的资费属性（关联 oc_order_product_element），按 (element_id, element_item_id) 归组
+     */
+    private Map<ElementKey, Map<String, Long>> queryElementAttrsByLine(long orderId, long orderLineId) {
+        String sql = "select ei.element_id, ei.element_item_id, ei.attr_code, ei.attr_value " +
+                "from oc_order_element_item ei " +
+                "join oc_order_product_element pe on pe.element_id = ei.element_id and pe.element_item_id = ei.element_item_id " +
+                "where pe.order_id = ? and pe.order_line_id = ? and pe.modify_tag = '0' and pe.end_date > pe.start_date " +
+                "and ei.modify_tag = '0' and ei.end_date > now() and ei.attr_code in ('standard_fee','otc_fee','rebate_fee','qty')";
+
+        Map<ElementKey, Map<String, Long>> grouped = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            Long value = parseLong(rs.getString("attr_value"));
+            if (value != null) {
+                ElementKey k = new ElementKey(rs.getLong("element_id"), rs.getLong("element_item_id"));
+                grouped.computeIfAbsent(k, x -> new HashMap<>()).put(rs.getString("attr_code"), value);
+            }
+        }, orderId, orderLineId);
+        return grouped;
+    }
+
+    private Long parseLong(String v) {
+        if (v == null || v.isEmpty()) return null;
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException ignore) {
+            return null;
+        }
+    }
+
     private OtcItem baseItem(String tradeType, ProductRow pr, ElementRow er, Long standardFee, Long otcFee, Long rebateFee, long qty) {
         OtcItem item = new OtcItem();
         item.trade_type_code = tradeType;
@@ -282,9 +369,87 @@ public class OtcCalcService {
         }
     }
 
-    private static class OrderLineKey {
-        long order_id;
-        long order_line_id;
+    private static final class ProductKey {
+        final long product_id;
+        final long prod_item_id;
+
+        ProductKey(long productId, long prodItemId) {
+            this.product_id = productId;
+            this.prod_item_id = prodItemId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ProductKey)) return false;
+            ProductKey k = (ProductKey) o;
+            return product_id == k.product_id && prod_item_id == k.prod_item_id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(product_id) * 31 + Long.hashCode(prod_item_id);
+        }
+    }
+
+    private static final class ElementKey {
+        final long element_id;
+        final long element_item_id;
+
+        ElementKey(long elementId, long elementItemId) {
+            this.element_id = elementId;
+            this.element_item_id = elementItemId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ElementKey)) return false;
+            ElementKey k = (ElementKey) o;
+            return element_id == k.element_id && element_item_id == k.element_item_id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(element_id) * 31 + Long.hashCode(element_item_id);
+        }
+    }
+
+    /**
+     * 单条 DN 的产品树，加载后只读，可在同一批次的多个请求间共享
+     */
+    private static final class LineTree {
+        final List<ProductRow> products;
+        final Map<ProductKey, List<ElementRow>> elementsByProduct;
+        final Map<ElementKey, Map<String, Long>> attrsByElement;
+
+        LineTree(List<ProductRow> products, Map<ProductKey, List<ElementRow>> elementsByProduct,
+                 Map<ElementKey, Map<String, Long>> attrsByElement) {
+            this.products = products;
+            this.elementsByProduct = elementsByProduct;
+            this.attrsByElement = attrsByElement;
+        }
+    }
+
+    /**
+     * 批次内共享的 DN 产品树缓存，生命周期与一次批量计费相同；并发首次加载同一条 DN 时以先写入者为准
+     */
+    public static final class LineTreeCache {
+        private final Map<DnKey, LineTree> trees = new ConcurrentHashMap<>();
+
+        private LineTree get(DnKey key, Function<DnKey, LineTree> loader) {
+            LineTree tree = trees.get(key);
+            if (tree == null) {
+                tree = loader.apply(key);
+                LineTree prev = trees.putIfAbsent(key, tree);
+                if (prev != null) tree = prev;
+            }
+            return tree;
+        }
+
+        public int size() {
+            return trees.size();
+        }
     }
 
     private static class ProductRow {
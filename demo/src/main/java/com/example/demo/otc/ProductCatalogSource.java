@@ -0,0 +1,16 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.ProductCenterClient.OtcLevel;
+
+import java.util.Map;
+
+/**
+ * 产品中心数据来源，ProductCenterClient 定时从这里全量刷新产品类型分类（产品标签经 ProductTagClient 查询）
+ */
+public interface ProductCatalogSource {
+
+    /**
+     * 全量加载 product_type_code -> OTC 级别
+     */
+    Map<String, OtcLevel> loadOtcLevels();
+}
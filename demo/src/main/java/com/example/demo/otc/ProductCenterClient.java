@@ -1,58 +1,128 @@
 package com.example.demo.otc;
 
+import com.example.demo.ConcurrentUtils;
+import com.example.demo.service.ProductTagClient;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 产品中心判定桩：基于配置项 otc.dn.product-type-codes 判定是否为 DN 级 OTC 产品
+ * 产品中心缓存
+ * 产品类型分类（product_type_code -> OTC 级别）为只读查找表，后台按 otc.product-center.refresh-seconds 从 ProductCatalogSource 全量刷新后整体替换；
+ * 产品标签委托 ProductTagClient（与合约对齐共用同一份按 (product_id, tag) 的标签缓存与 product-center.tag.* 配置）
  */
 @Component
 public class ProductCenterClient {
 
-    private final Set<String> dnOtcTypes;
-    private final Set<String> orderOtcTypes;
+    private static final Logger logger = LoggerFactory.getLogger(ProductCenterClient.class);
 
-    public ProductCenterClient(
-            @Value("${otc.dn.product-type-codes:OTC_DN,DN_OTC}") String dnOtcTypesCsv,
-            @Value("${otc.order.product-type-codes:OTC_ORDER,ORDER_OTC}") String orderOtcTypesCsv
-    ) {
-        if (dnOtcTypesCsv == null || dnOtcTypesCsv.trim().isEmpty()) {
-            this.dnOtcTypes = new HashSet<>();
-        } else {
-            this.dnOtcTypes = new HashSet<>();
-            Arrays.stream(dnOtcTypesCsv.split(","))
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .forEach(s -> this.dnOtcTypes.add(s.toUpperCase()));
-        }
-        if (orderOtcTypesCsv == null || orderOtcTypesCsv.trim().isEmpty()) {
-            this.orderOtcTypes = new HashSet<>();
+    public enum OtcLevel {
+        DN, ORDER, NONE
+    }
+
+    private final ProductCatalogSource source;
+    private final ProductTagClient productTagClient;
+    private final ScheduledExecutorService refresher;
+    private volatile ProductTypeLevelTable levels;
+
+    @Autowired
+    public ProductCenterClient(ProductCatalogSource source, ProductTagClient productTagClient,
+                               @Value("${otc.product-center.refresh-seconds:60}") long refreshSeconds) {
+        this.source = source;
+        this.productTagClient = productTagClient;
+        // 启动时同步加载一次，加载失败直接启动失败
+        this.levels = new ProductTypeLevelTable(source.loadOtcLevels());
+        if (refreshSeconds > 0) {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(ConcurrentUtils.daemonThreadFactory("product-center-refresh"));
+            this.refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
         } else {
-            this.orderOtcTypes = new HashSet<>();
-            Arrays.stream(orderOtcTypesCsv.split(","))
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .forEach(s -> this.orderOtcTypes.add(s.toUpperCase()));
+            this.refresher = null;
         }
     }
 
+    /**
+     * 固定分类、不做后台刷新、没有产品标签（测试与基准使用）
+     */
+    public ProductCenterClient(String dnOtcTypesCsv, String orderOtcTypesCsv) {
+        this(new PropertiesProductCatalogSource("", dnOtcTypesCsv, orderOtcTypesCsv), null, 0L);
+    }
+
     /**
      * 基于 product_type_code 判定
      */
     public boolean isDnLevelOtcProduct(String productTypeCode) {
-        if (productTypeCode == null) return false;
-        return dnOtcTypes.contains(productTypeCode.toUpperCase());
+        return levels.levelOf(productTypeCode) == OtcLevel.DN;
     }
 
     /**
      * 判定是否为 order 级 OTC 产品
      */
     public boolean isOrderLevelOtcProduct(String productTypeCode) {
-        if (productTypeCode == null) return false;
-        return orderOtcTypes.contains(productTypeCode.toUpperCase());
+        return levels.levelOf(productTypeCode) == OtcLevel.ORDER;
+    }
+
+    public OtcLevel getOtcLevel(String productTypeCode) {
+        return levels.levelOf(productTypeCode);
+    }
+
+    /**
+     * 批量查询产品标签，返回 productId -> 标签值，无此标签的产品不在结果中（经 ProductTagClient 缓存，未命中的产品合并为一次请求）
+     * 远程调用会阻塞至 product-center.tag.timeout-ms，须在事务开启前调用；
+     * 查询超时或失败且没有缓存值时返回 null，由调用方决定标签未知的用户如何处理
+     */
+    public Map<String, String> getProductTags(Collection<String> productIds, String tag) {
+        if (productIds == null || productIds.isEmpty() || tag == null || productTagClient == null) {
+            return Collections.emptyMap();
+        }
+        try {
+            return productTagClient.getLabels(productIds, tag);
+        } catch (IllegalStateException e) {
+            logger.warn("产品标签 {} 查询失败: {}", tag, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 立即从数据源重新加载产品类型分类（产品中心变更通知时调用）
+     */
+    public void refresh() {
+        ProductTypeLevelTable table = new ProductTypeLevelTable(source.loadOtcLevels());
+        levels = table;
+        logger.info("产品类型分类已刷新，共 {} 个 OTC 产品类型", table.size());
+    }
+
+    /**
+     * 清除某个产品的标签缓存，productId 为 null 时全部清除
+     */
+    public void evictProductTags(String productId) {
+        if (productTagClient != null) {
+            productTagClient.evict(productId);
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // 刷新失败保留上一版分类
+            logger.warn("产品类型分类刷新失败，继续使用上一版", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
     }
 }
@@ -0,0 +1,63 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.ProductCenterClient.OtcLevel;
+
+import java.util.Map;
+
+/**
+ * product_type_code -> OTC 级别的只读查找表
+ * 开放寻址 + 忽略大小写的哈希/比较，构造后不再修改，查找过程不创建任何对象（不再逐次 toUpperCase）
+ */
+final class ProductTypeLevelTable {
+
+    private final String[] keys;
+    private final OtcLevel[] levels;
+    private final int mask;
+    private final int size;
+
+    ProductTypeLevelTable(Map<String, OtcLevel> source) {
+        int capacity = 8;
+        while (capacity < source.size() * 2) {
+            capacity <<= 1;
+        }
+        this.keys = new String[capacity];
+        this.levels = new OtcLevel[capacity];
+        this.mask = capacity - 1;
+        int n = 0;
+        for (Map.Entry<String, OtcLevel> e : source.entrySet()) {
+            String code = e.getKey() == null ? "" : e.getKey().trim();
+            if (code.isEmpty() || e.getValue() == null || e.getValue() == OtcLevel.NONE) continue;
+            int i = hash(code) & mask;
+            while (keys[i] != null && !keys[i].equalsIgnoreCase(code)) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == null) n++;
+            keys[i] = code;
+            levels[i] = e.getValue();
+        }
+        this.size = n;
+    }
+
+    OtcLevel levelOf(String productTypeCode) {
+        if (productTypeCode == null) return OtcLevel.NONE;
+        int i = hash(productTypeCode) & mask;
+        String k;
+        while ((k = keys[i]) != null) {
+            if (k.equalsIgnoreCase(productTypeCode)) return levels[i];
+            i = (i + 1) & mask;
+        }
+        return OtcLevel.NONE;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int hash(String s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + Character.toUpperCase(s.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+}
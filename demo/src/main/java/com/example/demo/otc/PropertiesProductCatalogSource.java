@@ -0,0 +1,73 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.ProductCenterClient.OtcLevel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 基于配置的产品中心数据源
+ * 配置了 otc.product-center.properties-location 时每次刷新重新读取该文件：
+ * otc.dn.product-type-codes / otc.order.product-type-codes 为分类；
+ * 未配置文件时使用应用配置中的 otc.dn.product-type-codes / otc.order.product-type-codes
+ */
+@Component
+@ConditionalOnProperty(name = "otc.product-center.source", havingValue = "properties", matchIfMissing = true)
+public class PropertiesProductCatalogSource implements ProductCatalogSource {
+
+    private static final String DN_KEY = "otc.dn.product-type-codes";
+    private static final String ORDER_KEY = "otc.order.product-type-codes";
+
+    private final String location;
+    private final String dnOtcTypesCsv;
+    private final String orderOtcTypesCsv;
+
+    public PropertiesProductCatalogSource(
+            @Value("${otc.product-center.properties-location:}") String location,
+            @Value("${otc.dn.product-type-codes:OTC_DN,DN_OTC}") String dnOtcTypesCsv,
+            @Value("${otc.order.product-type-codes:OTC_ORDER,ORDER_OTC}") String orderOtcTypesCsv) {
+        this.location = location == null ? "" : location.trim();
+        this.dnOtcTypesCsv = dnOtcTypesCsv;
+        this.orderOtcTypesCsv = orderOtcTypesCsv;
+    }
+
+    @Override
+    public Map<String, OtcLevel> loadOtcLevels() {
+        Properties props = readFile();
+        Map<String, OtcLevel> levels = new HashMap<>();
+        put(levels, props.getProperty(DN_KEY, dnOtcTypesCsv), OtcLevel.DN);
+        put(levels, props.getProperty(ORDER_KEY, orderOtcTypesCsv), OtcLevel.ORDER);
+        return levels;
+    }
+
+    private Properties readFile() {
+        Properties props = new Properties();
+        if (location.isEmpty()) return props;
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        if (!resource.exists()) return props;
+        try (InputStream in = resource.getInputStream()) {
+            props.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取产品中心配置失败: " + location, e);
+        }
+        return props;
+    }
+
+    private static void put(Map<String, OtcLevel> levels, String csv, OtcLevel level) {
+        if (csv == null || csv.trim().isEmpty()) return;
+        Arrays.stream(csv.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .forEach(s -> levels.put(s.toUpperCase(), level));
+    }
+}
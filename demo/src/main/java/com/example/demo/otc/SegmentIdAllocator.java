@@ -0,0 +1,203 @@
+package com.example.demo.otc;
+
+import com.example.demo.ConcurrentUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 号段式 ID 分配器，订单类服务生成 order_line_id / prod_item_id / element_item_id 等主键统一由此获取
+ * 每个 biz_tag 在 id_segment 表中一行，节点一次 UPDATE max_id = max_id + step 预占一段 ID，之后在内存中无锁发放；
+ * 当前号段用掉 80% 时后台异步预取下一段，用完即切换。号段预占在独立事务中提交，与调用方事务是否回滚无关，
+ * 多节点、重启后都不会重复（未用完的号段直接丢弃，ID 可能不连续）
+ */
+@Component
+public class SegmentIdAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentIdAllocator.class);
+
+    public static final String ORDER_LINE_ID = "order_line_id";
+    public static final String PROD_ITEM_ID = "prod_item_id";
+    public static final String ELEMENT_ITEM_ID = "element_item_id";
+    public static final String CUST_ID = "cust_id";
+    public static final String IDD_SERIAL_NUMBER = "idd_serial_number";
+
+    // 当前号段用掉该比例时开始预取下一段
+    private static final double PREFETCH_RATIO = 0.8;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+    private final int defaultStep;
+    private final Map<String, SegmentBuffer> buffers = new ConcurrentHashMap<>();
+    private final ExecutorService prefetcher;
+
+    public SegmentIdAllocator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              @Value("${otc.id-segment.step:1000}") int defaultStep) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.defaultStep = Math.max(1, defaultStep);
+        this.prefetcher = Executors.newSingleThreadExecutor(ConcurrentUtils.daemonThreadFactory("segment-id-prefetch"));
+    }
+
+    /**
+     * 取 bizTag 下一个 ID，线程安全
+     */
+    public long nextId(String bizTag) {
+        return buffers.computeIfAbsent(bizTag, SegmentBuffer::new).next();
+    }
+
+    /**
+     * 一次取 bizTag 的 count 个 ID，线程安全；同一号段内一次性划出，号段不足时跨段补齐
+     */
+    public long[] nextIds(String bizTag, int count) {
+        if (count <= 0) return new long[0];
+        return buffers.computeIfAbsent(bizTag, SegmentBuffer::new).next(count);
+    }
+
+    /**
+     * 在独立事务中为 bizTag 预占一个号段；表中无此 biz_tag 时按默认步长新建（从 1 开始）
+     */
+    private Segment reserve(String bizTag) {
+        return requiresNew.execute(status -> {
+            if (advance(bizTag) == 0) {
+                try {
+                    jdbcTemplate.update("INSERT INTO id_segment (biz_tag, max_id, step, update_time) VALUES (?, 0, ?, CURRENT_TIMESTAMP)",
+                            bizTag, defaultStep);
+                } catch (DuplicateKeyException e) {
+                    // 其他节点已创建
+                }
+                if (advance(bizTag) == 0) {
+                    throw new IllegalStateException("号段预占失败: " + bizTag);
+                }
+            }
+            Segment segment = jdbcTemplate.queryForObject("SELECT max_id, step FROM id_segment WHERE biz_tag = ?",
+                    (rs, rowNum) -> new Segment(rs.getLong(1) - rs.getInt(2) + 1, rs.getLong(1)), bizTag);
+            logger.debug("预占号段 {} [{}, {}]", bizTag, segment.start, segment.max);
+            return segment;
+        });
+    }
+
+    private int advance(String bizTag) {
+        return jdbcTemplate.update("UPDATE id_segment SET max_id = max_id + step, update_time = CURRENT_TIMESTAMP WHERE biz_tag = ?", bizTag);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetcher.shutdownNow();
+    }
+
+    /**
+     * 号段 [start, max]，cursor 为下一个待发放的 ID
+     */
+    private static final class Segment {
+        final long start;
+        final long max;
+        final long prefetchAt;
+        final AtomicLong cursor;
+
+        Segment(long start, long max) {
+            this.start = start;
+            this.max = max;
+            this.prefetchAt = start + (long) ((max - start + 1) * PREFETCH_RATIO);
+            this.cursor = new AtomicLong(start);
+        }
+    }
+
+    /**
+     * 单个 biz_tag 的双号段缓冲：current 发放中，next 为预取中或已就绪的下一段
+     */
+    private final class SegmentBuffer {
+        final String bizTag;
+        final AtomicBoolean prefetching = new AtomicBoolean();
+        volatile Segment current;
+        volatile CompletableFuture<Segment> next;
+
+        SegmentBuffer(String bizTag) {
+            this.bizTag = bizTag;
+        }
+
+        long next() {
+            while (true) {
+                Segment segment = current;
+                if (segment != null) {
+                    long id = segment.cursor.getAndIncrement();
+                    if (id <= segment.max) {
+                        prefetchIfNeeded(segment, id);
+                        return id;
+                    }
+                }
+                switchSegment(segment);
+            }
+        }
+
+        long[] next(int count) {
+            long[] ids = new long[count];
+            int filled = 0;
+            while (true) {
+                Segment segment = current;
+                if (segment != null) {
+                    long first = segment.cursor.getAndAdd(count - filled);
+                    if (first <= segment.max) {
+                        long last = Math.min(segment.max, first + (count - filled) - 1);
+                        for (long id = first; id <= last; id++) {
+                            ids[filled++] = id;
+                        }
+                        prefetchIfNeeded(segment, last);
+                        if (filled == count) {
+                            return ids;
+                        }
+                    }
+                }
+                switchSegment(segment);
+            }
+        }
+
+        private void prefetchIfNeeded(Segment segment, long id) {
+            if (id >= segment.prefetchAt && next == null && prefetching.compareAndSet(false, true)) {
+                next = CompletableFuture.supplyAsync(() -> reserve(bizTag), prefetcher);
+            }
+        }
+
+        /**
+         * 当前号段用完（或尚未加载）时切换：优先使用预取结果，预取未开始或失败时同步预占
+         */
+        private synchronized void switchSegment(Segment exhausted) {
+            if (current != exhausted) {
+                // 其他线程已切换
+                return;
+            }
+            Segment segment = null;
+            CompletableFuture<Segment> prefetched = next;
+            if (prefetched != null) {
+                try {
+                    segment = prefetched.join();
+                } catch (CompletionException e) {
+                    logger.warn("号段预取失败，同步重试 bizTag={}", bizTag, e.getCause());
+                }
+            }
+            if (segment == null) {
+                segment = reserve(bizTag);
+            }
+            next = null;
+            prefetching.set(false);
+            current = segment;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.example.demo.otc;
 
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * 站点群组关系接口
  * 重构说明：
@@ -42,4 +44,12 @@ public class SiteGroupRelationController {
             return resp;
         }
     }
+
+    /**
+     * 批量修改站点群组关系，结果按请求顺序返回；单个成员失败不影响其他成员
+     */
+    @PostMapping("/modify-batch")
+    public List<SiteGroupRelationResponse> modifySiteGroupRelations(@RequestBody List<SiteGroupRelationRequest> requests) {
+        return siteGroupRelationService.modifySiteGroupRelations(requests);
+    }
 }
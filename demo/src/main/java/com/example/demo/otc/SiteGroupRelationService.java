@@ -1,9 +1,16 @@
 package com.example.demo.otc;
 
+import com.example.demo.ConcurrentUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 /**
  * 站点群组关系服务
@@ -13,12 +20,22 @@ import java.util.List;
  * 3. 统一异常处理
  * 4. 提取常量，避免硬编码
  * 5. 精简冗余代码
+ * 6. 增加批量修改：新群组父号码与新群组用户按群组只查一次，成员分块并行处理
  */
 @Service
 public class SiteGroupRelationService {
 
     private static final String END_DATE_DEFAULT = "2099-12-31 23:59:59";
 
+    private final ExecutorService batchExecutor;
+    private final int batchChunkSize;
+
+    public SiteGroupRelationService(@Value("${otc.site-group-relation.batch-workers:4}") int batchWorkers,
+                                    @Value("${otc.site-group-relation.batch-chunk-size:200}") int batchChunkSize) {
+        this.batchChunkSize = Math.max(1, batchChunkSize);
+        this.batchExecutor = ConcurrentUtils.newDaemonPool("site-group-relation-batch", batchWorkers);
+    }
+
     /**
      * 修改站点群组关系台账
      */
@@ -30,7 +47,7 @@ public class SiteGroupRelationService {
             response.setUuLedgers(null);
             return response;
         }
-        List<SiteGroupRelationResponse.UuLedgerDto> ledgerList = new ArrayList<>();
+        List<SiteGroupRelationResponse.UuLedgerDto> ledgerList = new ArrayList<>(2);
 
         try {
             // 1. 查询oc_order_line_item，获取newParentSerialNumber
@@ -60,41 +77,8 @@ public class SiteGroupRelationService {
                 return response;
             }
 
-            // 4. 生成新增uu台账
-            SiteGroupRelationResponse.UuLedgerDto addLedger = new SiteGroupRelationResponse.UuLedgerDto();
-            addLedger.setOrderId(request.getOrderId());
-            addLedger.setOrderLineId(request.getOrderLineId());
-            addLedger.setRelationTypeCode(relationInfo.getRelationTypeCode());
-            addLedger.setUserIdA(newUserId);
-            addLedger.setUserIdB(request.getSnUserId());
-            addLedger.setSerialNumberA(newParentSerialNumber);
-            addLedger.setSerialNumberB(request.getSerialNumber());
-            addLedger.setCallSequence(relationInfo.getCallSequence());
-            addLedger.setIsPrimaryNumber(relationInfo.getIsPrimaryNumber());
-            addLedger.setRoleCodeA(relationInfo.getRoleCodeA());
-            addLedger.setRoleCodeB(relationInfo.getRoleCodeB());
-            addLedger.setModifyTag("0");
-            addLedger.setStartDate(request.getSrd());
-            addLedger.setEndDate(END_DATE_DEFAULT);
-            ledgerList.add(addLedger);
-
-            // 5. 生成删除uu台账
-            SiteGroupRelationResponse.UuLedgerDto delLedger = new SiteGroupRelationResponse.UuLedgerDto();
-            delLedger.setOrderId(request.getOrderId());
-            delLedger.setOrderLineId(request.getOrderLineId());
-            delLedger.setRelationTypeCode(relationInfo.getRelationTypeCode());
-            delLedger.setUserIdA(relationInfo.getPrimaryUserId());
-            delLedger.setUserIdB(relationInfo.getMemUserId());
-            delLedger.setSerialNumberA(relationInfo.getMemSerialNumber());
-            delLedger.setSerialNumberB(relationInfo.getPrimarySerialNumber());
-            delLedger.setCallSequence(relationInfo.getCallSequence());
-            delLedger.setIsPrimaryNumber(relationInfo.getIsPrimaryNumber());
-            delLedger.setRoleCodeA(relationInfo.getRoleCodeA());
-            delLedger.setRoleCodeB(relationInfo.getRoleCodeB());
-            delLedger.setModifyTag("1");
-            delLedger.setStartDate(relationInfo.getStartDate());
-            delLedger.setEndDate(calcEndDate(request.getSrd()));
-            ledgerList.add(delLedger);
+            // 4. 生成新增uu台账；5. 生成删除uu台账
+            addLedgers(ledgerList, request, newParentSerialNumber, newUserId, relationInfo);
 
             // 6. 返回
             response.setSuccess(true);
@@ -108,6 +92,160 @@ public class SiteGroupRelationService {
         return response;
     }
 
+    /**
+     * 批量修改站点群组关系台账，结果按请求顺序返回
+     * 新群组父号码按订单一次批量查询，新群组 user_id 按新父号码只查一次；成员按 otc.site-group-relation.batch-chunk-size
+     * 分块并行查询成员关系并组装台账。单个成员失败只记入其响应，不影响其他成员
+     */
+    public List<SiteGroupRelationResponse> modifySiteGroupRelations(List<SiteGroupRelationRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 1. 新群组父号码：按订单一次查询成员订单行属性
+        Map<Long, List<Long>> orderLineIdsByOrder = new HashMap<>();
+        for (SiteGroupRelationRequest request : requests) {
+            if (request != null && request.getOrderId() != null) {
+                orderLineIdsByOrder.computeIfAbsent(request.getOrderId(), k -> new ArrayList<>()).add(request.getOrderLineId());
+            }
+        }
+        Map<Long, Map<Long, String>> newParentSerialNumbers = new HashMap<>();
+        orderLineIdsByOrder.forEach((orderId, orderLineIds) ->
+                newParentSerialNumbers.put(orderId, mockQueryNewParentSerialNumbers(orderId, orderLineIds)));
+
+        // 2. 新群组 user_id：每个新父号码只查一次
+        Map<String, String> newUserIds = new HashMap<>();
+        for (Map<Long, String> byLine : newParentSerialNumbers.values()) {
+            for (String newParentSerialNumber : byLine.values()) {
+                if (newParentSerialNumber != null && !newParentSerialNumber.isEmpty() && !newUserIds.containsKey(newParentSerialNumber)) {
+                    newUserIds.put(newParentSerialNumber, mockQueryUserIdBySerialNumber(newParentSerialNumber));
+                }
+            }
+        }
+
+        // 3. 成员分块并行处理，按分块顺序合并
+        List<CompletableFuture<List<SiteGroupRelationResponse>>> chunks = new ArrayList<>();
+        for (int from = 0; from < requests.size(); from += batchChunkSize) {
+            List<SiteGroupRelationRequest> chunk = requests.subList(from, Math.min(requests.size(), from + batchChunkSize));
+            chunks.add(CompletableFuture.supplyAsync(() -> {
+                List<SiteGroupRelationResponse> chunkResponses = new ArrayList<>(chunk.size());
+                for (SiteGroupRelationRequest request : chunk) {
+                    chunkResponses.add(modifyMember(request, newParentSerialNumbers, newUserIds));
+                }
+                return chunkResponses;
+            }, batchExecutor));
+        }
+        List<SiteGroupRelationResponse> responses = new ArrayList<>(requests.size());
+        for (CompletableFuture<List<SiteGroupRelationResponse>> chunk : chunks) {
+            responses.addAll(ConcurrentUtils.join(chunk));
+        }
+        return responses;
+    }
+
+    /**
+     * 批量模式下单个成员的台账组装，群组级数据已预先解析；异常转为该成员的失败响应
+     */
+    private SiteGroupRelationResponse modifyMember(SiteGroupRelationRequest request, Map<Long, Map<Long, String>> newParentSerialNumbers,
+                                                   Map<String, String> newUserIds) {
+        if (request == null) {
+            return failResponse("请求参数不能为空");
+        }
+        try {
+            Map<Long, String> byLine = newParentSerialNumbers.get(request.getOrderId());
+            String newParentSerialNumber = byLine == null ? null : byLine.get(request.getOrderLineId());
+            if (newParentSerialNumber == null || newParentSerialNumber.isEmpty()) {
+                return failResponse("未找到新群组父号码（newParentSerialNumber），请检查订单行属性。");
+            }
+            String newUserId = newUserIds.get(newParentSerialNumber);
+            if (newUserId == null || newUserId.isEmpty()) {
+                return failResponse("未找到新群组用户，请检查新父号码。");
+            }
+            UserRelationInfo relationInfo = mockQueryUserRelation(request.getSnUserId(), newParentSerialNumber);
+            if (relationInfo == null) {
+                return failResponse("未找到当前成员的用户关系信息。");
+            }
+            List<SiteGroupRelationResponse.UuLedgerDto> ledgerList = new ArrayList<>(2);
+            addLedgers(ledgerList, request, newParentSerialNumber, newUserId, relationInfo);
+
+            SiteGroupRelationResponse response = new SiteGroupRelationResponse();
+            response.setSuccess(true);
+            response.setMessage("台账生成成功");
+            response.setUuLedgers(ledgerList);
+            return response;
+        } catch (Exception e) {
+            return failResponse("系统异常: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 生成成员的新增、删除两条uu台账
+     */
+    private void addLedgers(List<SiteGroupRelationResponse.UuLedgerDto> ledgerList, SiteGroupRelationRequest request,
+                            String newParentSerialNumber, String newUserId, UserRelationInfo relationInfo) {
+        // 新增uu台账
+        SiteGroupRelationResponse.UuLedgerDto addLedger = new SiteGroupRelationResponse.UuLedgerDto();
+        addLedger.setOrderId(request.getOrderId());
+        addLedger.setOrderLineId(request.getOrderLineId());
+        addLedger.setRelationTypeCode(relationInfo.getRelationTypeCode());
+        addLedger.setUserIdA(newUserId);
+        addLedger.setUserIdB(request.getSnUserId());
+        addLedger.setSerialNumberA(newParentSerialNumber);
+        addLedger.setSerialNumberB(request.getSerialNumber());
+        addLedger.setCallSequence(relationInfo.getCallSequence());
+        addLedger.setIsPrimaryNumber(relationInfo.getIsPrimaryNumber());
+        addLedger.setRoleCodeA(relationInfo.getRoleCodeA());
+        addLedger.setRoleCodeB(relationInfo.getRoleCodeB());
+        addLedger.setModifyTag("0");
+        addLedger.setStartDate(request.getSrd());
+        addLedger.setEndDate(END_DATE_DEFAULT);
+        ledgerList.add(addLedger);
+
+        // 删除uu台账
+        SiteGroupRelationResponse.UuLedgerDto delLedger = new SiteGroupRelationResponse.UuLedgerDto();
+        delLedger.setOrderId(request.getOrderId());
+        delLedger.setOrderLineId(request.getOrderLineId());
+        delLedger.setRelationTypeCode(relationInfo.getRelationTypeCode());
+        delLedger.setUserIdA(relationInfo.getPrimaryUserId());
+        delLedger.setUserIdB(relationInfo.getMemUserId());
+        delLedger.setSerialNumberA(relationInfo.getMemSerialNumber());
+        delLedger.setSerialNumberB(relationInfo.getPrimarySerialNumber());
+        delLedger.setCallSequence(relationInfo.getCallSequence());
+        delLedger.setIsPrimaryNumber(relationInfo.getIsPrimaryNumber());
+        delLedger.setRoleCodeA(relationInfo.getRoleCodeA());
+        delLedger.setRoleCodeB(relationInfo.getRoleCodeB());
+        delLedger.setModifyTag("1");
+        delLedger.setStartDate(relationInfo.getStartDate());
+        delLedger.setEndDate(calcEndDate(request.getSrd()));
+        ledgerList.add(delLedger);
+    }
+
+    private static SiteGroupRelationResponse failResponse(String message) {
+        SiteGroupRelationResponse response = new SiteGroupRelationResponse();
+        response.setSuccess(false);
+        response.setMessage(message);
+        response.setUuLedgers(null);
+        return response;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdown();
+    }
+
+    /**
+     * 伪方法：批量查询oc_order_line_item表，按 order_line_id 返回新群组父号码
+     */
+    private Map<Long, String> mockQueryNewParentSerialNumbers(Long orderId, List<Long> orderLineIds) {
+        // 实际应通过order_id/order_line_id in (...)/attr_code/modify_tag一次查询
+        Map<Long, String> result = new HashMap<>();
+        for (Long orderLineId : orderLineIds) {
+            if (orderLineId != null) {
+                result.put(orderLineId, mockQueryNewParentSerialNumber(orderId, orderLineId));
+            }
+        }
+        return result;
+    }
+
     /**
      * 伪方法：查询oc_order_line_item表
      */
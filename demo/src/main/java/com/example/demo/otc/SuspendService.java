@@ -1,17 +1,37 @@
 package com.example.demo.otc;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 停机服务：账户下所有用户增补停机订单行与服务状态台账
+ * 按账户用户列表分批（每批 QUERY_BATCH_SIZE 个用户，兼顾 Oracle IN 列表上限）一次查出付费关系与服务状态，
+ * 内存中按用户分组判断；订单行 ID 一次分配，服务状态台账按 INSERT_BATCH_SIZE 行一条多行 INSERT 写入。
+ * SQL 条数只随账户规模按批增长，不再与用户数成正比；产品中心 suspend_indicator 标签在事务开启前一次查出
+ */
 @Service
 public class SuspendService {
 
+    private static final Logger logger = LoggerFactory.getLogger(SuspendService.class);
+
+    private static final int QUERY_BATCH_SIZE = 1000;
+    private static final int INSERT_BATCH_SIZE = 500;
+    private static final String IDD_SERVICE_CODE = "IDD_SERVICE_CODE"; // IDD服务编码待定
+
     @Autowired
     private SuspendMapper suspendMapper;
 
@@ -19,9 +39,15 @@ public class SuspendService {
     @Autowired
     private ProductCenterClient productCenterClient;
 
-    private AtomicLong sequenceGenerator = new AtomicLong(2000);
+    @Autowired
+    private SegmentIdAllocator idAllocator;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-    @Transactional
+    /**
+     * 账户、用户列表与产品标签在事务外查出（标签为远程调用，不占用数据库连接），其余查询与写入在一个事务内
+     */
     public void processSuspend(Long orderId, Long orderLineId, String tradeTypeCode) {
         // 1. 获取 Account ID (模拟从订单行获取)
         String accountIdStr = suspendMapper.getAccountIdFromOrderLine(orderId, orderLineId);
@@ -32,77 +58,133 @@ public class SuspendService {
 
         // 2. 获取该账户下的所有用户
         List<TfFPayRelation> payRelations = suspendMapper.getPayRelationsByAccountId(accountId);
-        
-        if (payRelations == null || payRelations.isEmpty()) {
+
+        // 同一用户在该账户下可能有多条付费关系（如 IDD 与普通），每个用户只处理一次
+        Set<Long> distinctUserIds = new LinkedHashSet<>();
+        if (payRelations != null) {
+            for (TfFPayRelation relation : payRelations) {
+                distinctUserIds.add(relation.getUserId());
+            }
+        }
+        List<Long> userIds = new ArrayList<>(distinctUserIds);
+
+        // 检查 suspend_indicator：全部用户的主产品一次查询（产品中心按产品缓存）
+        Set<String> mainProductIds = new LinkedHashSet<>();
+        for (Long userId : userIds) {
+            mainProductIds.add(mainProductIdOf(userId));
+        }
+        Map<String, String> suspendIndicators = productCenterClient.getProductTags(mainProductIds, "suspend_indicator");
+        if (suspendIndicators == null) {
+            // 标签查询失败，无法判断哪些号码应跳过：本次不停机也不归档，订单保留待重新处理
+            logger.warn("产品标签查询失败，订单 {} 账户 {} 本次不处理", orderId, accountId);
+            return;
+        }
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> suspend(orderId, tradeTypeCode, accountId, userIds, suspendIndicators));
+    }
+
+    /**
+     * 用户主产品（模拟调用用户中心获取 main_product_id，此处简化逻辑，假设已有）
+     */
+    private static String mainProductIdOf(Long userId) {
+        return "PROD_001"; // 示例
+    }
+
+    /**
+     * @param suspendIndicators main_product_id -> suspend_indicator
+     */
+    private void suspend(Long orderId, String tradeTypeCode, Long accountId, List<Long> userIds, Map<String, String> suspendIndicators) {
+        if (userIds.isEmpty()) {
             // 如果没有用户，直接归档
             suspendMapper.archiveOrder(orderId);
             return;
         }
 
-        boolean anyUserProcessed = false;
-
-        for (TfFPayRelation relation : payRelations) {
-            Long userId = relation.getUserId();
+        // 3. 批量查出所有用户的付费关系与服务状态，按用户分组
+        Map<Long, List<TfFPayRelation>> userPayRelations = new HashMap<>();
+        Map<Long, List<TfFUserSvcState>> userSvcStates = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += QUERY_BATCH_SIZE) {
+            List<Long> batch = userIds.subList(from, Math.min(userIds.size(), from + QUERY_BATCH_SIZE));
+            for (TfFPayRelation relation : suspendMapper.getPayRelationsByUserIds(batch)) {
+                userPayRelations.computeIfAbsent(relation.getUserId(), k -> new ArrayList<>()).add(relation);
+            }
+            for (TfFUserSvcState svcState : suspendMapper.getSvcStatesByUserIds(batch)) {
+                userSvcStates.computeIfAbsent(svcState.getUserId(), k -> new ArrayList<>()).add(svcState);
+            }
+        }
 
+        List<Long> processedUserIds = new ArrayList<>();
+        for (Long userId : userIds) {
             // 1.a 获取用户产品信息并检查 suspend_indicator 标签
-            // 模拟调用用户中心获取 main_product_id (此处简化逻辑，假设已有)
-            String mainProductId = "PROD_001"; // 示例
-            
-            // 检查 suspend_indicator
-            String suspendIndicator = productCenterClient.getProductTag(mainProductId, "suspend_indicator");
-            if ("Y".equals(suspendIndicator)) {
+            if ("Y".equals(suspendIndicators.get(mainProductIdOf(userId)))) {
                 continue; // 跳过此号码
             }
 
             // 1.0 检查用户服务状态 (SERVICE_STATE_CODE = 0)
-            List<TfFUserSvcState> normalSvcStates = suspendMapper.getUserNormalSvcStates(userId);
-            if (normalSvcStates == null || normalSvcStates.isEmpty()) {
+            List<TfFUserSvcState> svcStates = userSvcStates.getOrDefault(userId, Collections.emptyList());
+            if (svcStates.stream().noneMatch(s -> "0".equals(s.getServiceStateCode()))) {
                 continue; // 本用户不处理
             }
 
-            anyUserProcessed = true;
-
             // 对应当前订单行的 senceType
             String senceType = "DefaultSence"; // 需根据业务逻辑获取
-            
+
             // 1.a 针对信控停 (trade_type_code = '7220')，判断是否仅有 IDD 账户
             if ("7220".equals(tradeTypeCode)) {
-                List<TfFPayRelation> iddRelations = suspendMapper.getPayRelationsByUserAndAccount(userId, accountId, "I");
-                if (iddRelations != null && iddRelations.size() == 1) {
+                long iddRelations = userPayRelations.getOrDefault(userId, Collections.emptyList()).stream()
+                        .filter(r -> accountId.equals(r.getAccountId()) && "I".equals(r.getPriceTag()))
+                        .count();
+                if (iddRelations == 1) {
                     senceType = "72201";
                 }
             }
 
-            // 1.1 增补订单行 (逻辑省略，通常涉及插入 oc_order_line 表)
-            Long newOrderLineId = sequenceGenerator.incrementAndGet();
-            // TODO: insert into oc_order_line ...
-
-            // 1.2 增补服务状态台账
-            processUserSvcState(orderId, newOrderLineId, userId, tradeTypeCode);
+            processedUserIds.add(userId);
         }
 
-        if (!anyUserProcessed) {
+        if (processedUserIds.isEmpty()) {
             suspendMapper.archiveOrder(orderId);
+            return;
+        }
+
+        // 1.1 增补订单行 (逻辑省略，通常涉及插入 oc_order_line 表)；订单行 ID 一次分配
+        long[] newOrderLineIds = idAllocator.nextIds(SegmentIdAllocator.ORDER_LINE_ID, processedUserIds.size());
+        // TODO: insert into oc_order_line ...
+
+        // 1.2 增补服务状态台账
+        LocalDateTime now = LocalDateTime.now();
+        List<OcOrderNumSvcState> rows = new ArrayList<>();
+        for (int i = 0; i < processedUserIds.size(); i++) {
+            Long userId = processedUserIds.get(i);
+            buildUserSvcStates(rows, orderId, newOrderLineIds[i], userId, tradeTypeCode,
+                    userPayRelations.getOrDefault(userId, Collections.emptyList()),
+                    userSvcStates.getOrDefault(userId, Collections.emptyList()), now);
         }
+        insertInBatches(rows, suspendMapper::batchInsertOrderNumSvcStates);
     }
 
-    private void processUserSvcState(Long orderId, Long orderLineId, Long userId, String tradeTypeCode) {
-        // 1.2.1 获取用户当前服务状态
-        List<TfFPayRelation> userPayRelations = suspendMapper.getUserPayRelations(userId);
-        
-        // 检查是否仅有 I (IDD)
+    /**
+     * 生成单个用户的停机/开机服务状态台账（追加到 rows）
+     */
+    private void buildUserSvcStates(List<OcOrderNumSvcState> rows, Long orderId, Long orderLineId, Long userId, String tradeTypeCode,
+                                    List<TfFPayRelation> userPayRelations, List<TfFUserSvcState> userSvcStates, LocalDateTime now) {
+        // 1.2.1 检查是否仅有 I (IDD)
         boolean onlyIdd = userPayRelations.stream().allMatch(r -> "I".equals(r.getPriceTag()));
-        
-        List<TfFUserSvcState> svcStatesToProcess;
 
+        List<TfFUserSvcState> svcStatesToProcess;
         if (onlyIdd) {
-            TfFUserSvcState iddSvcState = suspendMapper.getUserSvcStateByServiceId(userId, "IDD_SERVICE_CODE"); // IDD服务编码待定
-            svcStatesToProcess = (iddSvcState != null) ? Collections.singletonList(iddSvcState) : Collections.emptyList();
+            svcStatesToProcess = Collections.emptyList();
+            for (TfFUserSvcState svcState : userSvcStates) {
+                if (IDD_SERVICE_CODE.equals(svcState.getServiceId())) {
+                    svcStatesToProcess = Collections.singletonList(svcState);
+                    break;
+                }
+            }
         } else {
-            svcStatesToProcess = suspendMapper.getAllUserSvcStates(userId);
+            svcStatesToProcess = userSvcStates;
         }
 
-        LocalDateTime now = LocalDateTime.now();
         LocalDateTime endDate = LocalDateTime.of(2099, 12, 31, 23, 59, 59);
 
         for (TfFUserSvcState svcState : svcStatesToProcess) {
@@ -118,8 +200,7 @@ public class SuspendService {
                 stopState.setModifyTag("1");
                 stopState.setStartDate(now); // 实际应取原开始时间，这里简化
                 stopState.setEndDate(now.minusSeconds(1));
-                
-                suspendMapper.insertOrderNumSvcState(stopState);
+                rows.add(stopState);
 
                 // 1.2.1.2 生成开机服务状态台账 (新状态)
                 String newServiceStateCode = "0";
@@ -139,9 +220,14 @@ public class SuspendService {
                 startState.setModifyTag("0");
                 startState.setStartDate(now);
                 startState.setEndDate(endDate);
-
-                suspendMapper.insertOrderNumSvcState(startState);
+                rows.add(startState);
             }
         }
     }
+
+    private static <T> void insertInBatches(List<T> rows, Consumer<List<T>> insert) {
+        for (int from = 0; from < rows.size(); from += INSERT_BATCH_SIZE) {
+            insert.accept(rows.subList(from, Math.min(rows.size(), from + INSERT_BATCH_SIZE)));
+        }
+    }
 }
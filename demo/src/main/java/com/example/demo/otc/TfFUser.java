@@ -5,6 +5,11 @@ public class TfFUser {
     private String serialNumber;
     private String netTypeCode;
     private String removeTag;
+    private Long custId;
+    private String productId;
+    private String mainProductId;
+    private String brandCode;
+    private String userDiffCode;
 
     public String getUserId() {
         return userId;
@@ -37,4 +42,44 @@ public class TfFUser {
     public void setRemoveTag(String removeTag) {
         this.removeTag = removeTag;
     }
-}
\ No newline at end of file
+
+    public Long getCustId() {
+        return custId;
+    }
+
+    public void setCustId(Long custId) {
+        this.custId = custId;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public String getMainProductId() {
+        return mainProductId;
+    }
+
+    public void setMainProductId(String mainProductId) {
+        this.mainProductId = mainProductId;
+    }
+
+    public String getBrandCode() {
+        return brandCode;
+    }
+
+    public void setBrandCode(String brandCode) {
+        this.brandCode = brandCode;
+    }
+
+    public String getUserDiffCode() {
+        return userDiffCode;
+    }
+
+    public void setUserDiffCode(String userDiffCode) {
+        this.userDiffCode = userDiffCode;
+    }
+}
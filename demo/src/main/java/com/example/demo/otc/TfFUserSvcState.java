@@ -1,10 +1,14 @@
 package com.example.demo.otc;
 
+import java.time.LocalDateTime;
+
 public class TfFUserSvcState {
     private Long userId;
     private String serviceId;
     private String serviceStateCode;
     private String mainTag;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
 
     public Long getUserId() {
         return userId;
@@ -37,4 +41,20 @@ public class TfFUserSvcState {
     public void setMainTag(String mainTag) {
         this.mainTag = mainTag;
     }
-}
+
+    public LocalDateTime getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDateTime startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDateTime getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDateTime endDate) {
+        this.endDate = endDate;
+    }
+}
\ No newline at end of file
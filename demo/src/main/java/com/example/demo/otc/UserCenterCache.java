@@ -0,0 +1,322 @@
+package com.example.demo.otc;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 用户中心实体读穿缓存（tf_f_user / tf_f_user_relation / tf_f_payrelation / tf_f_user_svcstate）
+ * 一级：当前事务内一份，事务结束即丢弃；没有事务同步（非事务调用）时不使用一级缓存
+ * 二级：跨请求共享，按实体类型各自限制用户数（超出按最久未访问淘汰），条目有效期 otc.user-center-cache.ttl-seconds，
+ * ttl-seconds <= 0 时只用一级缓存
+ * 同一用户下同一实体可有多种查询（variant，如停机服务状态与全部服务状态），按 user_id 整体失效；查无结果（null）同样缓存
+ * 订单写入上述表后须调用 invalidate：立即清除一、二级缓存，事务提交后再清一次二级缓存；
+ * 同一事务内失效后重新读到的结果只进一级缓存，未提交的数据不会进入二级缓存
+ * 缓存值由各调用方共享，调用方不得修改返回的对象或列表
+ */
+@Component
+public class UserCenterCache {
+
+    public enum Entity {
+        USER, USER_RELATION, PAY_RELATION, USER_SVC_STATE
+    }
+
+    private static final String DEFAULT_VARIANT = "";
+
+    private final int maxUsers;
+    private final long ttlMs;
+    private final Map<Entity, Region> regions = new EnumMap<>(Entity.class);
+
+    @Autowired
+    public UserCenterCache(@Value("${otc.user-center-cache.max-users:10000}") int maxUsers,
+                           @Value("${otc.user-center-cache.ttl-seconds:60}") long ttlSeconds) {
+        this(maxUsers, ttlSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 指定有效期单位（测试使用）
+     */
+    public UserCenterCache(int maxUsers, long ttl, TimeUnit unit) {
+        this.maxUsers = Math.max(1, maxUsers);
+        this.ttlMs = unit.toMillis(ttl);
+        for (Entity entity : Entity.values()) {
+            regions.put(entity, new Region());
+        }
+    }
+
+    public <V> V get(Entity entity, Long userId, Supplier<V> loader) {
+        return get(entity, userId, DEFAULT_VARIANT, loader);
+    }
+
+    /**
+     * 依次查一级、二级缓存，都未命中时调用 loader 查库并回填
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Entity entity, Long userId, String variant, Supplier<V> loader) {
+        if (userId == null) {
+            return loader.get();
+        }
+        Region region = regions.get(entity);
+        Key key = new Key(entity, userId, variant);
+        Scope scope = currentScope();
+        if (scope != null && scope.values.containsKey(key)) {
+            region.l1Hits.increment();
+            return (V) scope.values.get(key);
+        }
+
+        boolean shared = ttlMs > 0 && (scope == null || !scope.dirty.contains(new Key(entity, userId, null)));
+        if (shared) {
+            Object[] hit = region.lookup(userId, variant);
+            if (hit != null) {
+                region.l2Hits.increment();
+                if (scope != null) {
+                    scope.values.put(key, hit[0]);
+                }
+                return (V) hit[0];
+            }
+        }
+
+        region.misses.increment();
+        long generation = region.generation();
+        V value = loader.get();
+        if (scope != null) {
+            scope.values.put(key, value);
+        }
+        if (shared) {
+            region.store(userId, variant, value, generation);
+        }
+        return value;
+    }
+
+    /**
+     * 订单写入用户中心表后清除该用户该实体的全部缓存
+     */
+    public void invalidate(Entity entity, Long userId) {
+        if (userId == null) {
+            return;
+        }
+        Region region = regions.get(entity);
+        region.evict(userId);
+        Scope scope = currentScope();
+        if (scope != null) {
+            scope.values.keySet().removeIf(k -> k.entity == entity && k.userId.equals(userId));
+            if (scope.dirty.add(new Key(entity, userId, null))) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        region.evict(userId);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 清除该用户全部实体的缓存
+     */
+    public void invalidateUser(Long userId) {
+        for (Entity entity : Entity.values()) {
+            invalidate(entity, userId);
+        }
+    }
+
+    /**
+     * 清空二级缓存（一级缓存随事务结束丢弃）
+     */
+    public void invalidateAll() {
+        for (Region region : regions.values()) {
+            region.clear();
+        }
+    }
+
+    /**
+     * 各实体类型的命中 / 未命中统计快照
+     */
+    public Map<Entity, Stats> stats() {
+        Map<Entity, Stats> result = new EnumMap<>(Entity.class);
+        for (Map.Entry<Entity, Region> e : regions.entrySet()) {
+            Region r = e.getValue();
+            result.put(e.getKey(), new Stats(r.l1Hits.sum(), r.l2Hits.sum(), r.misses.sum(),
+                    r.evictions.sum(), r.invalidations.sum(), r.size()));
+        }
+        return result;
+    }
+
+    // 当前事务的一级缓存：首次访问时绑定到事务，事务结束（提交或回滚）时解绑
+    private Scope currentScope() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Scope scope = (Scope) TransactionSynchronizationManager.getResource(this);
+        if (scope == null) {
+            Scope created = new Scope();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UserCenterCache.this);
+                }
+            });
+            scope = created;
+        }
+        return scope;
+    }
+
+    /**
+     * 某一实体类型的统计快照
+     */
+    public static final class Stats {
+        public final long l1Hits;
+        public final long l2Hits;
+        public final long misses;
+        // 超出容量或过期被淘汰的用户数
+        public final long evictions;
+        public final long invalidations;
+        public final int size;
+
+        Stats(long l1Hits, long l2Hits, long misses, long evictions, long invalidations, int size) {
+            this.l1Hits = l1Hits;
+            this.l2Hits = l2Hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+            this.size = size;
+        }
+
+        public double hitRatio() {
+            long total = l1Hits + l2Hits + misses;
+            return total == 0 ? 0.0 : (double) (l1Hits + l2Hits) / total;
+        }
+
+        @Override
+        public String toString() {
+            return "l1Hits=" + l1Hits + ", l2Hits=" + l2Hits + ", misses=" + misses + ", evictions=" + evictions
+                    + ", invalidations=" + invalidations + ", size=" + size;
+        }
+    }
+
+    /**
+     * 二级缓存的一个实体类型：user_id -> (variant -> 条目)，按访问顺序淘汰
+     * 每次失效递增世代号，查库期间本实体类型发生过失效则查询结果不回填，避免失效前读到的旧值写回
+     */
+    private final class Region {
+        final LongAdder l1Hits = new LongAdder();
+        final LongAdder l2Hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+        final LongAdder invalidations = new LongAdder();
+        private final LinkedHashMap<Long, Map<String, CacheEntry>> users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Map<String, CacheEntry>> eldest) {
+                if (size() > maxUsers) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        private long generation;
+
+        // 命中时返回 {value}（value 可为 null），未命中或已过期返回 null
+        synchronized Object[] lookup(Long userId, String variant) {
+            Map<String, CacheEntry> variants = users.get(userId);
+            if (variants == null) {
+                return null;
+            }
+            CacheEntry entry = variants.get(variant);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                variants.remove(variant);
+                if (variants.isEmpty()) {
+                    users.remove(userId);
+                    evictions.increment();
+                }
+                return null;
+            }
+            return new Object[]{entry.value};
+        }
+
+        synchronized long generation() {
+            return generation;
+        }
+
+        synchronized void store(Long userId, String variant, Object value, long loadedGeneration) {
+            if (loadedGeneration != generation) {
+                return;
+            }
+            users.computeIfAbsent(userId, k -> new HashMap<>(4))
+                    .put(variant, new CacheEntry(value, System.currentTimeMillis() + ttlMs));
+        }
+
+        synchronized void evict(Long userId) {
+            generation++;
+            users.remove(userId);
+            invalidations.increment();
+        }
+
+        synchronized void clear() {
+            generation++;
+            users.clear();
+        }
+
+        synchronized int size() {
+            return users.size();
+        }
+    }
+
+    private static final class CacheEntry {
+        final Object value;
+        final long expiresAt;
+
+        CacheEntry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // 一级缓存：本事务读到的值，以及本事务内已失效（可能已写入未提交数据）的 (实体, 用户)
+    private static final class Scope {
+        final Map<Key, Object> values = new HashMap<>();
+        final Set<Key> dirty = new HashSet<>();
+    }
+
+    private static final class Key {
+        final Entity entity;
+        final Long userId;
+        final String variant;
+
+        Key(Entity entity, Long userId, String variant) {
+            this.entity = entity;
+            this.userId = userId;
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return entity == k.entity && userId.equals(k.userId) && Objects.equals(variant, k.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return (entity.hashCode() * 31 + userId.hashCode()) * 31 + (variant == null ? 0 : variant.hashCode());
+        }
+    }
+}
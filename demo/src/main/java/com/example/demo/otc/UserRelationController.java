@@ -2,6 +2,8 @@ package com.example.demo.otc;
 
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * 用户关系台账接口
  * 重构说明：
@@ -41,4 +43,12 @@ public class UserRelationController {
             return resp;
         }
     }
+
+    /**
+     * 批量生成用户关系台账，结果按请求顺序返回；单个成员失败不影响其他成员
+     */
+    @PostMapping("/generate-batch")
+    public List<UserRelationResponse> generateBatch(@RequestBody List<UserRelationRequest> reqs) {
+        return service.generateUserLedgers(reqs);
+    }
 }
@@ -1,11 +1,16 @@
 package com.example.demo.otc;
 
+import com.example.demo.ConcurrentUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 /**
  * 用户关系台账服务
@@ -15,6 +20,7 @@ import java.util.*;
  * 3. 增加注释，提升可读性
  * 4. 精简工具方法
  * 5. 避免硬编码
+ * 6. 增加批量生成：群组级数据一次查出，成员分块并行处理，台账一次批量写入
  */
 @Service
 public class UserRelationService {
@@ -23,13 +29,24 @@ public class UserRelationService {
     private static final String ATTR_CALL_SEQUENCE = "Call sequence";
     private static final String ATTR_IS_PRIMARY_NUMBER = "Is Primary Number";
     private static final LocalDateTime END_DATE_DEFAULT = LocalDateTime.of(2099, 12, 31, 23, 59, 59);
+    private static final Set<String> SCENE_CALL_SEQUENCE = Set.of("34005");
+    private static final Set<String> SCENE_IS_MAIN_NUMBER = Set.of("34006", "34007");
+
+    private static final String INSERT_USER_LEDGER = "insert into oc_order_relation_uu (order_id, order_line_id, relation_type_code, user_id_a, user_id_b, serial_number_a, serial_number_b, call_sequence, is_primary_number, modify_tag, start_date, end_date) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     private final JdbcTemplate jdbcTemplate;
     private final UuRelationService.UserCenterClient userCenterClient;
+    private final ExecutorService batchExecutor;
+    private final int batchChunkSize;
 
-    public UserRelationService(JdbcTemplate jdbcTemplate, UuRelationService.UserCenterClient userCenterClient) {
+    public UserRelationService(JdbcTemplate jdbcTemplate, UuRelationService.UserCenterClient userCenterClient,
+                               @Value("${otc.user-relation.batch-workers:4}") int batchWorkers,
+                               @Value("${otc.user-relation.batch-chunk-size:200}") int batchChunkSize) {
         this.jdbcTemplate = jdbcTemplate;
         this.userCenterClient = userCenterClient;
+        this.batchChunkSize = Math.max(1, batchChunkSize);
+        this.batchExecutor = ConcurrentUtils.newDaemonPool("user-relation-batch", batchWorkers);
     }
 
     /**
@@ -86,20 +103,7 @@ public class UserRelationService {
         }
 
         // 组装台账
-        UserLedger ledger = new UserLedger();
-        ledger.order_id = req.order_id;
-        ledger.order_line_id = req.order_line_id;
-        ledger.relation_type_code = userRel.relation_type_code;
-        ledger.user_id_a = userRel.user_id_a;
-        ledger.user_id_b = userRel.user_id_b;
-        ledger.serial_number_b = newSerialNumberB;
-        ledger.serial_number_a = serialNumberA;
-        ledger.call_sequence = callSequence != null ? callSequence : userRel.call_sequence;
-        ledger.is_primary_number = isMainNumber != null ? isMainNumber : userRel.is_main_number;
-        ledger.modify_tag = 2;
-        ledger.start_date = userRel.start_date;
-        ledger.end_date = END_DATE_DEFAULT;
-
+        UserLedger ledger = newLedger(req, newSerialNumberB, callSequence, isMainNumber, serialNumberA, userRel);
         insertUserLedger(ledger);
 
         UserRelationResponse resp = new UserRelationResponse();
@@ -109,6 +113,115 @@ public class UserRelationService {
         return resp;
     }
 
+    /**
+     * 批量生成用户关系台账，结果按请求顺序返回
+     * 订单行属性、相关订单行（34005/34006/34007 修改订单、群组改号订单）与群组用户差异码各一次查询，
+     * 群组改号后的新号码按 (订单, 群组号码) 只解析一次；成员按 otc.user-relation.batch-chunk-size 分块并行调用用户中心，
+     * 单个成员失败只记入其响应，不影响其他成员；成功的台账一次 batchUpdate 写入
+     */
+    public List<UserRelationResponse> generateUserLedgers(List<UserRelationRequest> reqs) {
+        if (reqs == null || reqs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Long> orderIds = new LinkedHashSet<>();
+        Set<String> parentSerialNumbers = new LinkedHashSet<>();
+        for (UserRelationRequest req : reqs) {
+            if (req == null || req.order_id == null || req.order_line_id == null) {
+                continue;
+            }
+            orderIds.add(req.order_id);
+            if (req.parent_serial_number != null) {
+                parentSerialNumbers.add(req.parent_serial_number);
+            }
+        }
+        Map<Long, OrderData> orders = loadOrders(orderIds);
+        Map<String, String> userDiffCodes = queryUserDiffCodes(parentSerialNumbers);
+
+        // 成员分块并行处理，按分块顺序合并
+        List<CompletableFuture<List<UserRelationResponse>>> chunks = new ArrayList<>();
+        for (int from = 0; from < reqs.size(); from += batchChunkSize) {
+            List<UserRelationRequest> chunk = reqs.subList(from, Math.min(reqs.size(), from + batchChunkSize));
+            chunks.add(CompletableFuture.supplyAsync(() -> {
+                List<UserRelationResponse> chunkResponses = new ArrayList<>(chunk.size());
+                for (UserRelationRequest req : chunk) {
+                    chunkResponses.add(resolveMember(req, orders, userDiffCodes));
+                }
+                return chunkResponses;
+            }, batchExecutor));
+        }
+        List<UserRelationResponse> responses = new ArrayList<>(reqs.size());
+        List<UserLedger> ledgers = new ArrayList<>(reqs.size());
+        for (CompletableFuture<List<UserRelationResponse>> chunk : chunks) {
+            for (UserRelationResponse resp : ConcurrentUtils.join(chunk)) {
+                if (resp.success) {
+                    ledgers.add(resp.ledger);
+                }
+                responses.add(resp);
+            }
+        }
+        insertUserLedgers(ledgers);
+        return responses;
+    }
+
+    /**
+     * 批量模式下单个成员的台账组装（不写库），取值规则与 generateUserLedger 相同；异常转为该成员的失败响应
+     */
+    private UserRelationResponse resolveMember(UserRelationRequest req, Map<Long, OrderData> orders, Map<String, String> userDiffCodes) {
+        if (req == null || req.order_id == null || req.order_line_id == null) {
+            return failResp("请求参数不完整");
+        }
+        try {
+            OrderData order = orders.getOrDefault(req.order_id, OrderData.EMPTY);
+
+            // 步骤0：新号码
+            String newSerialNumberB = order.attr(req.order_line_id, ATTR_NEW_SERIAL_NUMBER);
+            if (newSerialNumberB == null || newSerialNumberB.isEmpty()) {
+                return failResp("未找到新号码（New Serial Number），无法生成台账");
+            }
+
+            // 步骤1：Call_Sequence 修改订单
+            OrderLineInfo callSequenceLine = order.findModifyLine(req.serial_number, req.parent_serial_number, SCENE_CALL_SEQUENCE);
+            String callSequence = callSequenceLine == null ? null : order.attr(callSequenceLine.order_line_id, ATTR_CALL_SEQUENCE);
+            if (callSequence != null) {
+                return ledgerResp(req, newSerialNumberB, callSequence, null, null, getUserRelation(req, null));
+            }
+
+            // 步骤2：is_main_number 修改订单
+            OrderLineInfo isMainNumberLine = order.findModifyLine(req.serial_number, req.parent_serial_number, SCENE_IS_MAIN_NUMBER);
+            String isMainNumber = isMainNumberLine == null ? null : order.attr(isMainNumberLine.order_line_id, ATTR_IS_PRIMARY_NUMBER);
+            if (isMainNumber != null) {
+                return ledgerResp(req, newSerialNumberB, null, isMainNumber, null, getUserRelation(req, null));
+            }
+
+            // 步骤3.1 / 4：群组级数据（已预先解析）
+            String serialNumberA = order.groupNewSerialNumbers.get(req.parent_serial_number);
+            String userDiffCode = req.parent_serial_number == null ? null : userDiffCodes.get(req.parent_serial_number);
+            boolean isCitinetOneEc = userDiffCode != null && (userDiffCode.equals("C001") || userDiffCode.equals("O002") || userDiffCode.equals("E002"));
+
+            // 步骤4.1：查用户关系
+            UuRelationService.UserRelationInfo userRel = getUserRelation(req, isCitinetOneEc ? null : req.parent_serial_number);
+            if (userRel == null) {
+                return failResp("未找到用户关系信息");
+            }
+            if (!(Objects.equals(userRel.primary_serial_number, req.parent_serial_number) && serialNumberA != null)) {
+                serialNumberA = userRel.primary_serial_number;
+            }
+            return ledgerResp(req, newSerialNumberB, null, null, serialNumberA, userRel);
+        } catch (RuntimeException e) {
+            return failResp("系统异常: " + e.getMessage());
+        }
+    }
+
+    private UserRelationResponse ledgerResp(UserRelationRequest req, String serialNumberB, String callSequence, String isMainNumber,
+                                            String serialNumberA, UuRelationService.UserRelationInfo userRel) {
+        if (userRel == null) return failResp("未找到用户关系信息");
+        UserRelationResponse resp = new UserRelationResponse();
+        resp.success = true;
+        resp.message = "台账生成成功";
+        resp.ledger = newLedger(req, serialNumberB, callSequence, isMainNumber, serialNumberA, userRel);
+        return resp;
+    }
+
     /**
      * 失败响应
      */
@@ -146,19 +259,7 @@ public class UserRelationService {
      */
     private UserRelationResponse buildLedgerResp(UserRelationRequest req, String serialNumberB, String callSequence, String isMainNumber, String serialNumberA, UuRelationService.UserRelationInfo userRel, String msg) {
         if (userRel == null) return failResp("未找到用户关系信息");
-        UserLedger ledger = new UserLedger();
-        ledger.order_id = req.order_id;
-        ledger.order_line_id = req.order_line_id;
-        ledger.relation_type_code = userRel.relation_type_code;
-        ledger.user_id_a = userRel.user_id_a;
-        ledger.user_id_b = userRel.user_id_b;
-        ledger.serial_number_b = serialNumberB;
-        ledger.serial_number_a = serialNumberA != null ? serialNumberA : userRel.primary_serial_number;
-        ledger.call_sequence = callSequence != null ? callSequence : userRel.call_sequence;
-        ledger.is_primary_number = isMainNumber != null ? isMainNumber : userRel.is_main_number;
-        ledger.modify_tag = 2;
-        ledger.start_date = userRel.start_date;
-        ledger.end_date = END_DATE_DEFAULT;
+        UserLedger ledger = newLedger(req, serialNumberB, callSequence, isMainNumber, serialNumberA, userRel);
 
         insertUserLedger(ledger);
 
@@ -187,13 +288,122 @@ public class UserRelationService {
         return list.isEmpty() ? null : list.get(0);
     }
 
+    /**
+     * 组装台账（不写库）
+     */
+    private UserLedger newLedger(UserRelationRequest req, String serialNumberB, String callSequence, String isMainNumber,
+                                 String serialNumberA, UuRelationService.UserRelationInfo userRel) {
+        UserLedger ledger = new UserLedger();
+        ledger.order_id = req.order_id;
+        ledger.order_line_id = req.order_line_id;
+        ledger.relation_type_code = userRel.relation_type_code;
+        ledger.user_id_a = userRel.user_id_a;
+        ledger.user_id_b = userRel.user_id_b;
+        ledger.serial_number_b = serialNumberB;
+        ledger.serial_number_a = serialNumberA != null ? serialNumberA : userRel.primary_serial_number;
+        ledger.call_sequence = callSequence != null ? callSequence : userRel.call_sequence;
+        ledger.is_primary_number = isMainNumber != null ? isMainNumber : userRel.is_main_number;
+        ledger.modify_tag = 2;
+        ledger.start_date = userRel.start_date;
+        ledger.end_date = END_DATE_DEFAULT;
+        return ledger;
+    }
+
+    /**
+     * 批量查询群组用户差异码，按 parent_serial_number 索引；同一号码多条时取第一条
+     */
+    private Map<String, String> queryUserDiffCodes(Collection<String> parentSerialNumbers) {
+        Map<String, String> userDiffCodes = new HashMap<>();
+        if (parentSerialNumbers.isEmpty()) {
+            return userDiffCodes;
+        }
+        String sql = "select parent_serial_number, user_diff_code from tf_f_user where parent_serial_number in (" + placeholders(parentSerialNumbers.size())
+                + ") and net_type_code = 'CP' and remove_tag = '0'";
+        jdbcTemplate.query(sql, rs -> {
+            userDiffCodes.putIfAbsent(rs.getString("parent_serial_number"), rs.getString("user_diff_code"));
+        }, parentSerialNumbers.toArray());
+        return userDiffCodes;
+    }
+
+    /**
+     * 批量加载订单数据：订单行属性一次查询，修改订单（340）与群组改号订单（279，line_level 2）一次查询；
+     * 群组改号订单的新号码按群组号码预先解析（同一群组号码取 order_line_id 最小的订单行，与单条查询取第一条一致），
+     * 修改订单按 (serial_number, parent_serial_number) 建索引
+     */
+    private Map<Long, OrderData> loadOrders(Collection<Long> orderIds) {
+        Map<Long, OrderData> orders = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return orders;
+        }
+        for (Long orderId : orderIds) {
+            orders.put(orderId, new OrderData());
+        }
+        String in = placeholders(orderIds.size());
+
+        List<Object> attrParams = new ArrayList<>(orderIds);
+        attrParams.add(ATTR_NEW_SERIAL_NUMBER);
+        attrParams.add(ATTR_CALL_SEQUENCE);
+        attrParams.add(ATTR_IS_PRIMARY_NUMBER);
+        jdbcTemplate.query("select order_id, order_line_id, attr_code, attr_value from oc_order_line_item where order_id in (" + in
+                + ") and attr_code in (?, ?, ?) and modify_tag in ('0','2')", rs -> {
+            orders.get(rs.getLong("order_id")).attrs
+                    .computeIfAbsent(rs.getLong("order_line_id"), k -> new HashMap<>(4))
+                    .putIfAbsent(rs.getString("attr_code"), rs.getString("attr_value"));
+        }, attrParams.toArray());
+
+        jdbcTemplate.query("select order_id, order_line_id, serial_number, parent_serial_number, trade_type_code, scene_type from oc_order_line where order_id in (" + in
+                + ") and cancel_tag = '0' and ((trade_type_code = '340' and scene_type in ('34005','34006','34007')) or (trade_type_code = '279' and line_level = '2'))"
+                + " order by order_id, order_line_id", rs -> {
+            OrderLineInfo line = new OrderLineInfo();
+            line.order_line_id = rs.getLong("order_line_id");
+            line.serial_number = rs.getString("serial_number");
+            line.parent_serial_number = rs.getString("parent_serial_number");
+            line.trade_type_code = rs.getString("trade_type_code");
+            line.scene_type = rs.getString("scene_type");
+            orders.get(rs.getLong("order_id")).lines.add(line);
+        }, orderIds.toArray());
+
+        for (OrderData order : orders.values()) {
+            for (OrderLineInfo line : order.lines) {
+                if ("279".equals(line.trade_type_code) && line.serial_number != null && !order.groupNewSerialNumbers.containsKey(line.serial_number)) {
+                    order.groupNewSerialNumbers.put(line.serial_number, order.attr(line.order_line_id, ATTR_NEW_SERIAL_NUMBER));
+                } else if ("340".equals(line.trade_type_code) && line.serial_number != null && line.parent_serial_number != null) {
+                    order.modifyLines.computeIfAbsent(new MemberKey(line.serial_number, line.parent_serial_number), k -> new ArrayList<>(2)).add(line);
+                }
+            }
+        }
+        return orders;
+    }
+
+    private static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
     /**
      * 插入台账
      */
     private void insertUserLedger(UserLedger ledger) {
-        String sql = "insert into oc_order_relation_uu (order_id, order_line_id, relation_type_code, user_id_a, user_id_b, serial_number_a, serial_number_b, call_sequence, is_primary_number, modify_tag, start_date, end_date) " +
-                "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        jdbcTemplate.update(sql,
+        jdbcTemplate.update(INSERT_USER_LEDGER, ledgerArgs(ledger));
+    }
+
+    /**
+     * 批量插入台账
+     */
+    private void insertUserLedgers(List<UserLedger> ledgers) {
+        if (ledgers.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(ledgers.size());
+        for (UserLedger ledger : ledgers) {
+            rows.add(ledgerArgs(ledger));
+        }
+        jdbcTemplate.batchUpdate(INSERT_USER_LEDGER, rows);
+    }
+
+    private static Object[] ledgerArgs(UserLedger ledger) {
+        return new Object[]{
                 ledger.order_id,
                 ledger.order_line_id,
                 ledger.relation_type_code,
@@ -206,6 +416,74 @@ public class UserRelationService {
                 ledger.modify_tag,
                 Timestamp.valueOf(ledger.start_date),
                 Timestamp.valueOf(ledger.end_date)
-        );
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdown();
+    }
+
+    /**
+     * 批量模式下一个订单的预加载数据（加载完成后只读，供工作线程并发读取）
+     */
+    private static final class OrderData {
+        static final OrderData EMPTY = new OrderData();
+
+        final Map<Long, Map<String, String>> attrs = new HashMap<>();
+        final List<OrderLineInfo> lines = new ArrayList<>();
+        // 群组号码 -> 群组改号订单的新号码
+        final Map<String, String> groupNewSerialNumbers = new HashMap<>();
+        // (号码, 群组号码) -> 修改订单（340）行，按 order_line_id 升序
+        final Map<MemberKey, List<OrderLineInfo>> modifyLines = new HashMap<>();
+
+        String attr(Long orderLineId, String attrCode) {
+            Map<String, String> lineAttrs = attrs.get(orderLineId);
+            return lineAttrs == null ? null : lineAttrs.get(attrCode);
+        }
+
+        /**
+         * 本号码在该群组下的修改订单（trade_type_code = 340，scene_type 在 scenes 中）
+         */
+        OrderLineInfo findModifyLine(String serialNumber, String parentSerialNumber, Set<String> scenes) {
+            if (serialNumber == null || parentSerialNumber == null) return null;
+            for (OrderLineInfo line : modifyLines.getOrDefault(new MemberKey(serialNumber, parentSerialNumber), Collections.emptyList())) {
+                if (scenes.contains(line.scene_type)) {
+                    return line;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class MemberKey {
+        final String serial_number;
+        final String parent_serial_number;
+
+        MemberKey(String serialNumber, String parentSerialNumber) {
+            this.serial_number = serialNumber;
+            this.parent_serial_number = parentSerialNumber;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MemberKey)) return false;
+            MemberKey k = (MemberKey) o;
+            return serial_number.equals(k.serial_number) && parent_serial_number.equals(k.parent_serial_number);
+        }
+
+        @Override
+        public int hashCode() {
+            return serial_number.hashCode() * 31 + parent_serial_number.hashCode();
+        }
+    }
+
+    private static final class OrderLineInfo {
+        Long order_line_id;
+        String serial_number;
+        String parent_serial_number;
+        String trade_type_code;
+        String scene_type;
     }
 }
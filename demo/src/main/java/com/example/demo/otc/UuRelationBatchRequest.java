@@ -0,0 +1,8 @@
+package com.example.demo.otc;
+
+import java.util.List;
+
+public class UuRelationBatchRequest {
+    public Long order_id;
+    public List<UuRelationRequest> requests;
+}
@@ -2,6 +2,8 @@ package com.example.demo.otc;
 
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/uu-relation")
 public class UuRelationController {
@@ -16,4 +18,12 @@ public class UuRelationController {
     public UuRelationResponse generate(@RequestBody UuRelationRequest req) {
         return service.generateUuLedger(req);
     }
+
+    /**
+     * 批量生成同一订单下的 UU 台账，结果按请求顺序返回
+     */
+    @PostMapping("/generate-batch")
+    public List<UuRelationResponse> generateBatch(@RequestBody UuRelationBatchRequest req) {
+        return service.generateUuLedgers(req.order_id, req.requests);
+    }
 }
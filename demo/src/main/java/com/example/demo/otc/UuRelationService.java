@@ -1,61 +1,126 @@
 package com.example.demo.otc;
 
+import com.example.demo.ConcurrentUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 @Service
 public class UuRelationService {
 
+    private static final String ATTR_CALL_SEQUENCE = "Call Sequence";
+    private static final String ATTR_IS_PRIMARY_NUMBER = "Is Primary Number";
+    private static final String ATTR_NEW_SERIAL_NUMBER = "New Serial Number";
+
+    private static final String INSERT_UU_LEDGER = "insert into oc_order_relation_uu (order_id, order_line_id, relation_type_code, user_id_a, user_id_b, serial_number_a, serial_number_b, call_sequence, is_primary_number, modify_tag, start_date, end_date) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final JdbcTemplate jdbcTemplate;
     private final UserCenterClient userCenterClient;
+    private final ExecutorService userCenterExecutor;
 
-    public UuRelationService(JdbcTemplate jdbcTemplate, UserCenterClient userCenterClient) {
+    public UuRelationService(JdbcTemplate jdbcTemplate, UserCenterClient userCenterClient,
+                             @Value("${otc.uu-relation.user-center-concurrency:8}") int userCenterConcurrency) {
         this.jdbcTemplate = jdbcTemplate;
         this.userCenterClient = userCenterClient;
+        this.userCenterExecutor = ConcurrentUtils.newDaemonPool("uu-relation-user-center", userCenterConcurrency);
     }
 
+    /**
+     * 生成单条改号订单行的 UU 台账
+     * 两次数据库往返：改号订单行（本号码 + 群组）一次查询，三个订单行属性一次 IN 查询；用户中心调用与属性查询并行
+     */
     public UuRelationResponse generateUuLedger(UuRelationRequest req) {
-        UuRelationResponse resp = new UuRelationResponse();
-        UuLedger ledger = new UuLedger();
+        // 步骤3 / 4.1：查本号码改号订单行与群组改号订单
+        List<SerialOrderInfo> serialOrders = querySerialOrders(req.order_id, req.serial_number, req.parent_serial_number);
+        SerialOrderInfo serialOrder1 = findSerialOrder(serialOrders, req.serial_number, req.parent_serial_number, 1);
+        SerialOrderInfo serialOrder2 = findSerialOrder(serialOrders, req.parent_serial_number, null, 2);
 
-        // 步骤1：查callSequence
-        String callSequence = queryOrderLineItemAttr(req.order_id, req.order_line_id, "Call Sequence");
-        // 步骤2：查isPrimaryNumber
-        String isPrimaryNumber = queryOrderLineItemAttr(req.order_id, req.order_line_id, "Is Primary Number");
+        // 步骤5.1：查用户关系（与属性查询并行）
+        CompletableFuture<UserRelationInfo> userRelFuture = queryUserRelationAsync(req, serialOrder1 != null);
 
-        // 步骤3：查本号码改号订单行
-        SerialOrderInfo serialOrder1 = querySerialOrder(req.order_id, req.serial_number, req.parent_serial_number, "1");
-        String serialNumberB = null;
-        if (serialOrder1 != null) {
-            serialNumberB = queryOrderLineItemAttr(serialOrder1.order_id, serialOrder1.order_line_id, "New Serial Number");
+        // 步骤1 / 2 / 3 / 4.1：callSequence、isPrimaryNumber 及两条改号订单行的 New Serial Number
+        List<Long> lineIds = new ArrayList<>(3);
+        lineIds.add(req.order_line_id);
+        if (serialOrder1 != null) lineIds.add(serialOrder1.order_line_id);
+        if (serialOrder2 != null) lineIds.add(serialOrder2.order_line_id);
+        Map<Long, Map<String, String>> attrs = queryOrderLineItemAttrs(req.order_id, lineIds);
+
+        UuRelationResponse resp = assembleLedger(req, attrs, serialOrder1, serialOrder2, ConcurrentUtils.join(userRelFuture));
+        if (resp.success) {
+            // 插入台账
+            insertUuLedger(resp.ledger);
         }
+        return resp;
+    }
 
-        // 步骤4.1：查群组改号订单
-        SerialOrderInfo serialOrder2 = querySerialOrder(req.order_id, req.parent_serial_number, null, "2");
-        String serialNumberA_4 = null;
-        if (serialOrder2 != null) {
-            serialNumberA_4 = queryOrderLineItemAttr(serialOrder2.order_id, serialOrder2.order_line_id, "New Serial Number");
+    /**
+     * 批量生成同一订单下多条改号订单行的 UU 台账，结果按请求顺序返回
+     * 整个订单的改号订单行与订单行属性各一次查询，用户中心调用并行执行，成功的台账一次 batchUpdate 写入
+     */
+    public List<UuRelationResponse> generateUuLedgers(Long orderId, List<UuRelationRequest> reqs) {
+        if (reqs == null || reqs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        for (UuRelationRequest req : reqs) {
+            if (!Objects.equals(orderId, req.order_id)) {
+                throw new IllegalArgumentException("批量生成台账只支持同一订单: " + req.order_id + " != " + orderId);
+            }
         }
 
-        // 步骤5.1：查用户关系
-        UserRelationInfo userRel;
-        if (serialOrder1 != null) {
-            userRel = userCenterClient.queryUserRelation(req.sn_user_id, null);
-        } else {
-            userRel = userCenterClient.queryUserRelation(req.sn_user_id, req.parent_serial_number);
+        List<SerialOrderInfo> serialOrders = querySerialOrders(orderId, null, null);
+        List<SerialOrderInfo[]> matched = new ArrayList<>(reqs.size());
+        List<CompletableFuture<UserRelationInfo>> userRelFutures = new ArrayList<>(reqs.size());
+        for (UuRelationRequest req : reqs) {
+            SerialOrderInfo serialOrder1 = findSerialOrder(serialOrders, req.serial_number, req.parent_serial_number, 1);
+            SerialOrderInfo serialOrder2 = findSerialOrder(serialOrders, req.parent_serial_number, null, 2);
+            matched.add(new SerialOrderInfo[]{serialOrder1, serialOrder2});
+            userRelFutures.add(queryUserRelationAsync(req, serialOrder1 != null));
+        }
+
+        Map<Long, Map<String, String>> attrs = queryOrderLineItemAttrs(orderId, null);
+
+        List<UuRelationResponse> responses = new ArrayList<>(reqs.size());
+        List<UuLedger> ledgers = new ArrayList<>(reqs.size());
+        for (int i = 0; i < reqs.size(); i++) {
+            SerialOrderInfo[] orders = matched.get(i);
+            UuRelationResponse resp = assembleLedger(reqs.get(i), attrs, orders[0], orders[1], ConcurrentUtils.join(userRelFutures.get(i)));
+            if (resp.success) {
+                ledgers.add(resp.ledger);
+            }
+            responses.add(resp);
         }
+        insertUuLedgers(ledgers);
+        return responses;
+    }
 
+    /**
+     * 按取值规则组装台账（不写库）
+     */
+    private UuRelationResponse assembleLedger(UuRelationRequest req, Map<Long, Map<String, String>> attrs,
+                                              SerialOrderInfo serialOrder1, SerialOrderInfo serialOrder2,
+                                              UserRelationInfo userRel) {
+        UuRelationResponse resp = new UuRelationResponse();
         if (userRel == null) {
             resp.success = false;
             resp.message = "未找到用户关系信息";
             return resp;
         }
 
+        String callSequence = attr(attrs, req.order_line_id, ATTR_CALL_SEQUENCE);
+        String isPrimaryNumber = attr(attrs, req.order_line_id, ATTR_IS_PRIMARY_NUMBER);
+        String serialNumberB = serialOrder1 != null ? attr(attrs, serialOrder1.order_line_id, ATTR_NEW_SERIAL_NUMBER) : null;
+        String serialNumberA_4 = serialOrder2 != null ? attr(attrs, serialOrder2.order_line_id, ATTR_NEW_SERIAL_NUMBER) : null;
+
         // 组装台账数据
+        UuLedger ledger = new UuLedger();
         ledger.order_id = req.order_id;
         ledger.order_line_id = req.order_line_id;
         ledger.relation_type_code = userRel.relation_type_code;
@@ -85,43 +150,109 @@ public class UuRelationService {
             ledger.is_primary_number = isPrimaryNumber != null ? isPrimaryNumber : userRel.is_main_number;
         }
 
-        // 插入台账
-        insertUuLedger(ledger);
-
         resp.success = true;
         resp.message = "台账生成成功";
         resp.ledger = ledger;
         return resp;
     }
 
-    private String queryOrderLineItemAttr(Long orderId, Long orderLineId, String attrCode) {
-        String sql = "select attr_value from oc_order_line_item where order_id = ? and order_line_id = ? and attr_code = ? and modify_tag in ('0','2') limit 1";
-        List<String> list = jdbcTemplate.query(sql, new Object[]{orderId, orderLineId, attrCode}, (rs, rn) -> rs.getString("attr_value"));
-        return list.isEmpty() ? null : list.get(0);
+    private CompletableFuture<UserRelationInfo> queryUserRelationAsync(UuRelationRequest req, boolean hasSerialOrder) {
+        String parentSerialNumber = hasSerialOrder ? null : req.parent_serial_number;
+        return CompletableFuture.supplyAsync(() -> userCenterClient.queryUserRelation(req.sn_user_id, parentSerialNumber), userCenterExecutor);
     }
 
-    private SerialOrderInfo querySerialOrder(Long orderId, String serialNumber, String parentSerialNumber, String lineLevel) {
-        String sql = "select order_id, order_line_id from oc_order_line where order_id = ? and serial_number = ?"
-                + (parentSerialNumber != null ? " and parent_serial_number = ?" : "")
-                + " and trade_type_code = '279' and cancel_tag = '0' and line_level = ?";
+    /**
+     * 订单行属性（Call Sequence / Is Primary Number / New Serial Number）一次查询，按 order_line_id、attr_code 索引；
+     * orderLineIds 为空时查整个订单。同一属性多条时取第一条
+     */
+    private Map<Long, Map<String, String>> queryOrderLineItemAttrs(Long orderId, List<Long> orderLineIds) {
+        StringBuilder sql = new StringBuilder("select order_line_id, attr_code, attr_value from oc_order_line_item where order_id = ?");
         List<Object> params = new ArrayList<>();
         params.add(orderId);
-        params.add(serialNumber);
-        if (parentSerialNumber != null) params.add(parentSerialNumber);
-        params.add(lineLevel);
-        List<SerialOrderInfo> list = jdbcTemplate.query(sql, params.toArray(), (rs, rn) -> {
+        if (orderLineIds != null) {
+            sql.append(" and order_line_id in (");
+            for (int i = 0; i < orderLineIds.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+                params.add(orderLineIds.get(i));
+            }
+            sql.append(")");
+        }
+        sql.append(" and attr_code in (?, ?, ?) and modify_tag in ('0','2')");
+        params.add(ATTR_CALL_SEQUENCE);
+        params.add(ATTR_IS_PRIMARY_NUMBER);
+        params.add(ATTR_NEW_SERIAL_NUMBER);
+
+        Map<Long, Map<String, String>> attrs = new HashMap<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            attrs.computeIfAbsent(rs.getLong("order_line_id"), k -> new HashMap<>(4))
+                    .putIfAbsent(rs.getString("attr_code"), rs.getString("attr_value"));
+        }, params.toArray());
+        return attrs;
+    }
+
+    private static String attr(Map<Long, Map<String, String>> attrs, Long orderLineId, String attrCode) {
+        Map<String, String> lineAttrs = attrs.get(orderLineId);
+        return lineAttrs == null ? null : lineAttrs.get(attrCode);
+    }
+
+    /**
+     * 改号订单行（trade_type_code = 279）一次查询：serialNumber 不为空时只查本号码（line_level 1）与群组号码（line_level 2），
+     * 为空时查整个订单；按 order_line_id 排序
+     */
+    private List<SerialOrderInfo> querySerialOrders(Long orderId, String serialNumber, String parentSerialNumber) {
+        String sql = "select order_id, order_line_id, serial_number, parent_serial_number, line_level from oc_order_line where order_id = ?"
+                + " and trade_type_code = '279' and cancel_tag = '0'";
+        List<Object> params = new ArrayList<>();
+        params.add(orderId);
+        if (serialNumber != null) {
+            sql += " and ((line_level = '1' and serial_number = ?) or (line_level = '2' and serial_number = ?))";
+            params.add(serialNumber);
+            params.add(parentSerialNumber);
+        } else {
+            sql += " and line_level in ('1', '2')";
+        }
+        sql += " order by order_line_id";
+        return jdbcTemplate.query(sql, (rs, rn) -> {
             SerialOrderInfo info = new SerialOrderInfo();
             info.order_id = rs.getLong("order_id");
             info.order_line_id = rs.getLong("order_line_id");
+            info.serial_number = rs.getString("serial_number");
+            info.parent_serial_number = rs.getString("parent_serial_number");
+            info.line_level = rs.getInt("line_level");
             return info;
-        });
-        return list.isEmpty() ? null : list.get(0);
+        }, params.toArray());
+    }
+
+    /**
+     * 在改号订单行中查找：serial_number 相同、line_level 相同，parentSerialNumber 不为空时 parent_serial_number 也需相同
+     */
+    private static SerialOrderInfo findSerialOrder(List<SerialOrderInfo> serialOrders, String serialNumber,
+                                                   String parentSerialNumber, int lineLevel) {
+        if (serialNumber == null) return null;
+        for (SerialOrderInfo info : serialOrders) {
+            if (info.line_level == lineLevel && serialNumber.equals(info.serial_number)
+                    && (parentSerialNumber == null || parentSerialNumber.equals(info.parent_serial_number))) {
+                return info;
+            }
+        }
+        return null;
     }
 
     private void insertUuLedger(UuLedger ledger) {
-        String sql = "insert into oc_order_relation_uu (order_id, order_line_id, relation_type_code, user_id_a, user_id_b, serial_number_a, serial_number_b, call_sequence, is_primary_number, modify_tag, start_date, end_date) " +
-                "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        jdbcTemplate.update(sql,
+        jdbcTemplate.update(INSERT_UU_LEDGER, ledgerArgs(ledger));
+    }
+
+    private void insertUuLedgers(List<UuLedger> ledgers) {
+        if (ledgers.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(ledgers.size());
+        for (UuLedger ledger : ledgers) {
+            rows.add(ledgerArgs(ledger));
+        }
+        jdbcTemplate.batchUpdate(INSERT_UU_LEDGER, rows);
+    }
+
+    private static Object[] ledgerArgs(UuLedger ledger) {
+        return new Object[]{
                 ledger.order_id,
                 ledger.order_line_id,
                 ledger.relation_type_code,
@@ -134,7 +265,12 @@ public class UuRelationService {
                 ledger.modify_tag,
                 Timestamp.valueOf(ledger.start_date),
                 Timestamp.valueOf(ledger.end_date)
-        );
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        userCenterExecutor.shutdown();
     }
 
     // 用户中心服务、tf_F_user_relation 查询桩
@@ -152,6 +288,9 @@ public class UuRelationService {
     public static class SerialOrderInfo {
         public Long order_id;
         public Long order_line_id;
+        public String serial_number;
+        public String parent_serial_number;
+        public int line_level;
     }
 
     // 用户中心服务接口
@@ -0,0 +1,183 @@
+package com.example.demo.otc;
+
+import com.example.demo.ConcurrentUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 香港工作日日历（周末及 hk_public_holidays 为非工作日），各 OTC 服务计算 SRD 共用
+ * 启动时加载一次，之后按 otc.calendar.refresh-seconds 后台刷新，或在假期表变更时调用 refresh() 立即刷新；
+ * 日历按 epoch day 存为位图，并预先算好工作日序号，“是否工作日”“加 N 个工作日”均为常数时间
+ */
+@Component
+public class WorkingDayCalendar {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkingDayCalendar.class);
+
+    // 日历覆盖范围：当前年份前 YEARS_BEFORE 年至后 YEARS_AFTER 年（假期超出此范围时自动扩展）
+    private static final int YEARS_BEFORE = 1;
+    private static final int YEARS_AFTER = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ScheduledExecutorService refresher;
+    private volatile Snapshot snapshot;
+
+    public WorkingDayCalendar(JdbcTemplate jdbcTemplate,
+                              @Value("${otc.calendar.refresh-seconds:3600}") long refreshSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        // 启动时同步加载一次，加载失败直接启动失败
+        this.snapshot = load();
+        if (refreshSeconds > 0) {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(ConcurrentUtils.daemonThreadFactory("working-day-calendar-refresh"));
+            this.refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        } else {
+            this.refresher = null;
+        }
+    }
+
+    /**
+     * 是否工作日
+     */
+    public boolean isWorkingDay(LocalDate date) {
+        return snapshot.isWorkingDay(date.toEpochDay());
+    }
+
+    /**
+     * date 之后的第 n 个工作日（不含 date 当天）；n <= 0 时返回 date
+     */
+    public LocalDate addWorkingDays(LocalDate date, int n) {
+        if (n <= 0) return date;
+        return LocalDate.ofEpochDay(snapshot.addWorkingDays(date.toEpochDay(), n));
+    }
+
+    /**
+     * 立即从 hk_public_holidays 重新加载（假期表维护后调用）
+     */
+    public void refresh() {
+        Snapshot s = load();
+        snapshot = s;
+        logger.info("工作日日历已刷新，共 {} 个公共假期", s.holidayCount);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // 刷新失败保留上一版日历
+            logger.warn("工作日日历刷新失败，继续使用上一版", e);
+        }
+    }
+
+    private Snapshot load() {
+        List<LocalDate> holidays = jdbcTemplate.queryForList("SELECT holiday_date FROM hk_public_holidays", LocalDate.class);
+        int year = LocalDate.now().getYear();
+        long first = LocalDate.of(year - YEARS_BEFORE, 1, 1).toEpochDay();
+        long last = LocalDate.of(year + YEARS_AFTER, 12, 31).toEpochDay();
+        for (LocalDate h : holidays) {
+            if (h == null) continue;
+            first = Math.min(first, h.toEpochDay());
+            last = Math.max(last, h.toEpochDay());
+        }
+        return new Snapshot(first, (int) (last - first + 1), holidays);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    private static boolean isWeekend(long epochDay) {
+        DayOfWeek day = LocalDate.ofEpochDay(epochDay).getDayOfWeek();
+        return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * 不可变的日历快照，刷新时整体替换
+     */
+    private static final class Snapshot {
+        final long firstDay;
+        final int span;
+        final int holidayCount;
+        // 下标为 epochDay - firstDay，置位表示非工作日
+        final BitSet nonWorking;
+        // workingBefore[i]：范围内偏移 < i 的工作日个数
+        final int[] workingBefore;
+        // workingDays[k]：范围内第 k 个（从 0 起）工作日的偏移
+        final int[] workingDays;
+
+        Snapshot(long firstDay, int span, List<LocalDate> holidays) {
+            this.firstDay = firstDay;
+            this.span = span;
+            this.nonWorking = new BitSet(span);
+            int count = 0;
+            for (LocalDate h : holidays) {
+                if (h == null) continue;
+                int off = (int) (h.toEpochDay() - firstDay);
+                if (!nonWorking.get(off)) {
+                    nonWorking.set(off);
+                    count++;
+                }
+            }
+            this.holidayCount = count;
+            for (int off = 0; off < span; off++) {
+                if (isWeekend(firstDay + off)) {
+                    nonWorking.set(off);
+                }
+            }
+            this.workingBefore = new int[span + 1];
+            this.workingDays = new int[span - nonWorking.cardinality()];
+            int k = 0;
+            for (int off = 0; off < span; off++) {
+                workingBefore[off] = k;
+                if (!nonWorking.get(off)) {
+                    workingDays[k++] = off;
+                }
+            }
+            workingBefore[span] = k;
+        }
+
+        boolean isWorkingDay(long epochDay) {
+            long off = epochDay - firstDay;
+            if (off < 0 || off >= span) {
+                // 超出日历范围只按周末判断
+                return !isWeekend(epochDay);
+            }
+            return !nonWorking.get((int) off);
+        }
+
+        long addWorkingDays(long epochDay, int n) {
+            long off = epochDay - firstDay;
+            if (off >= 0 && off < span) {
+                // 不晚于 date 的工作日个数 + n - 1 即为目标工作日的序号
+                int idx = workingBefore[(int) off + 1] + n - 1;
+                if (idx < workingDays.length) {
+                    return firstDay + workingDays[idx];
+                }
+            }
+            // 超出日历范围时逐日累加
+            long day = epochDay;
+            int added = 0;
+            while (added < n) {
+                day++;
+                if (isWorkingDay(day)) {
+                    added++;
+                }
+            }
+            return day;
+        }
+    }
+}
@@ -1,68 +1,128 @@
 package com.example.demo.service;
 
+import com.example.demo.LedgerTimestamp;
 import com.example.demo.entity.OcOrderElementItem;
 import com.example.demo.entity.OcOrderProduct;
 import com.example.demo.entity.OcOrderProductElement;
 import com.example.demo.mapper.ContractAlignmentMapper;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
  * 合约对齐服务类
  * 对齐非主资费的合约与主资费的UAT
+ * SRD 在入口解析为 LedgerTimestamp，UAT / 合约日期的推算均在其上完成，写表时再取规范文本；
+ * 直接取自属性值的日期（uat_end_day 的 uat_period、Customized_Contract_End_Date 的 contract_period）原样写入，
+ * 无法解析时记录日志并以原值作为推算结果，不中止整单
+ * 产品标签在开启事务前经 ProductTagClient 一次批量取回，等待产品中心期间不占用数据库连接；
+ * 标签查询失败且没有缓存值时整单失败、不写表（不把查询失败当作无标签）
+ * 主资费补齐的属性与各非主资费对齐的属性先在内存中生成为计划行，整单按 insert-chunk-size 分段多行插入；
+ * 试算（dry-run）只返回计划行、不写表
  */
 @Service
 public class ContractAlignmentService {
 
-    @Autowired
-    private ContractAlignmentMapper contractAlignmentMapper;
-
-    @Autowired
-    private RestTemplate restTemplate;
-
-    private static final String DEFAULT_END_DATE = "2099-12-31 23:59:59";
+    private static final String DEFAULT_END_DATE = LedgerTimestamp.MAX.toString();
     private static final String MODIFY_TAG_NEW = "0";
     private static final String ELEMENT_TYPE_D = "D";
     private static final String IS_MAIN_ELEMENT_YES = "1";
     private static final String IS_MAIN_ELEMENT_NO = "0";
+    private static final String LABEL_MISALIGNED_WITH_MAIN_CONTRACT = "misaligned_with_main_contract";
+
+    private static final Logger logger = LoggerFactory.getLogger(ContractAlignmentService.class);
+
+    private final ContractAlignmentMapper contractAlignmentMapper;
+    private final ProductTagClient productTagClient;
+    private final TransactionTemplate transactionTemplate;
+    private final int insertChunkSize;
+
+    public ContractAlignmentService(ContractAlignmentMapper contractAlignmentMapper, ProductTagClient productTagClient,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${contract-alignment.insert-chunk-size:500}") int insertChunkSize) {
+        this.contractAlignmentMapper = contractAlignmentMapper;
+        this.productTagClient = productTagClient;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.insertChunkSize = Math.max(1, insertChunkSize);
+    }
 
     /**
      * 对齐非主资费合约与主资费UAT
      * @param orderId 订单ID
      * @param orderLineId 订单行ID
-     * @param srd 服务请求日期
+     * @param srdText 服务请求日期
      */
-    @Transactional(rollbackFor = Exception.class)
-    public void alignNonMainContractWithMainUat(String orderId, String orderLineId, String srd) {
+    public void alignNonMainContractWithMainUat(String orderId, String orderLineId, String srdText) {
+        align(orderId, orderLineId, srdText, false);
+    }
+
+    /**
+     * 试算：返回对齐将写入 oc_order_element_item 的全部行（按产品、主资费在前的顺序），不写表
+     * @param orderId 订单ID
+     * @param orderLineId 订单行ID
+     * @param srdText 服务请求日期
+     */
+    public List<OcOrderElementItem> planNonMainContractAlignment(String orderId, String orderLineId, String srdText) {
+        return align(orderId, orderLineId, srdText, true);
+    }
+
+    private List<OcOrderElementItem> align(String orderId, String orderLineId, String srdText, boolean dryRun) {
+        LedgerTimestamp srd = LedgerTimestamp.parse(srdText);
         // 1. 获取是否有新增产品的台账
         List<OcOrderProduct> newProducts = contractAlignmentMapper.queryNewProducts(
                 orderId, orderLineId, MODIFY_TAG_NEW);
 
         if (newProducts == null || newProducts.isEmpty()) {
-            return;
+            return Collections.emptyList();
+        }
+
+        // 1.0 通过product_id批量调用产品中心服务获取产品标签（事务外）
+        List<String> productIds = new ArrayList<>();
+        for (OcOrderProduct product : newProducts) {
+            productIds.add(product.getProductId());
         }
+        Map<String, String> labels = productTagClient.getLabels(productIds, LABEL_MISALIGNED_WITH_MAIN_CONTRACT);
 
-        // 循环处理每个新增产品
+        if (dryRun) {
+            return planProducts(orderId, orderLineId, newProducts, labels, srd);
+        }
+
+        // 整单一个事务，任一异常全部回滚
+        return transactionTemplate.execute(status -> {
+            List<OcOrderElementItem> plan = planProducts(orderId, orderLineId, newProducts, labels, srd);
+            for (int from = 0; from < plan.size(); from += insertChunkSize) {
+                contractAlignmentMapper.batchInsertElementItems(plan.subList(from, Math.min(plan.size(), from + insertChunkSize)));
+            }
+            return plan;
+        });
+    }
+
+    /**
+     * 循环处理每个新增产品，生成待插入的属性行
+     */
+    private List<OcOrderElementItem> planProducts(String orderId, String orderLineId, List<OcOrderProduct> newProducts,
+                                                  Map<String, String> labels, LedgerTimestamp srd) {
+        List<OcOrderElementItem> plan = new ArrayList<>();
         for (OcOrderProduct product : newProducts) {
-            processProduct(orderId, orderLineId, product, srd);
+            if ("1".equals(labels.get(product.getProductId()))) {
+                continue;
+            }
+            planProduct(orderId, orderLineId, product, srd, plan);
         }
+        return plan;
     }
 
     /**
      * 处理单个产品
      */
-    private void processProduct(String orderId, String orderLineId, OcOrderProduct product, String srd) {
-        List<Map<String, String>> mainContractAttrList = new ArrayList<>();
-
-        // 1.0 通过product_id调用产品中心服务获取产品标签
-        if (shouldSkipProduct(product.getProductId())) {
-            return;
-        }
+    private void planProduct(String orderId, String orderLineId, OcOrderProduct product, LedgerTimestamp srd,
+                             List<OcOrderElementItem> plan) {
+        String srdText = srd.toString();
 
         // 1.1 判断是否有UAT属性:查询主资费元素
         OcOrderProductElement mainElement = contractAlignmentMapper.queryMainElement(
@@ -87,78 +147,55 @@ public class ContractAlignmentService {
         // 1.1.1.1 补齐UAT相关属性
         String uatEndDate = calculateUatEndDate(orderId, orderLineId, mainElement, mainElementUatPeriod, srd);
 
+        List<OcOrderElementItem> mainItems = new ArrayList<>();
+
         // 补充uat_end_date属性
-        insertElementItem(orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
-                "uat_end_date", uatEndDate, srd, DEFAULT_END_DATE);
+        mainItems.add(newElementItem(orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
+                "uat_end_date", uatEndDate, srdText, DEFAULT_END_DATE));
 
         // 补充uat_start_date属性
-        insertElementItem(orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
-                "uat_start_date", srd, srd, DEFAULT_END_DATE);
+        mainItems.add(newElementItem(orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
+                "uat_start_date", srdText, srdText, DEFAULT_END_DATE));
 
-        // 1.1.1.2 补齐MRC相关属性
-        String contractStartDate = plusSeconds(uatEndDate, 1);
+        // 1.1.1.2 补齐MRC相关属性（uat_end_date 无法解析时沿用原值）
+        LedgerTimestamp uatEnd = parseAttrDate(orderId, orderLineId, "uat_end_date", uatEndDate);
+        String contractStartDate = uatEnd == null ? uatEndDate : uatEnd.plusSeconds(1).toString();
 
         // 计算contract_end_date_std
-        String contractEndDateStd = calculateContractEndDate(orderId, orderLineId, mainElement, uatEndDate);
+        String contractEndDateStd = calculateContractEndDate(orderId, orderLineId, mainElement,
+                uatEnd == null ? null : uatEnd.plusSeconds(1), contractStartDate);
 
         // 补充contract_start_date
-        insertElementItem(orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
-                "contract_start_date", contractStartDate, srd, DEFAULT_END_DATE);
+        mainItems.add(newElementItem(orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
+                "contract_start_date", contractStartDate, srdText, DEFAULT_END_DATE));
 
         // 补充contract_end_date_std
-        insertElementItem(orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
-                "contract_end_date_std", contractEndDateStd, srd, DEFAULT_END_DATE);
+        mainItems.add(newElementItem(orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
+                "contract_end_date_std", contractEndDateStd, srdText, DEFAULT_END_DATE));
 
-        // 1.1.1.3 获取主资费的全部合约相关属性
+        // 1.1.1.3 获取主资费的全部合约相关属性：表中已有的，加上本次补齐的（尚未写表）
         List<String> attrCodes = Arrays.asList("uat_period", "uat_period_method", "uat_start_date",
                 "uat_end_date", "contract_start_date", "contract_end_date_std", "contract_period");
 
+        List<OcOrderElementItem> mainContractAttrList = new ArrayList<>();
         List<OcOrderElementItem> contractAttrs = contractAlignmentMapper.queryElementItems(
                 orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
                 attrCodes, MODIFY_TAG_NEW);
-
-        if (contractAttrs != null && !contractAttrs.isEmpty()) {
-            for (OcOrderElementItem attr : contractAttrs) {
-                Map<String, String> attrMap = new HashMap<>();
-                attrMap.put("attrCode", attr.getAttrCode());
-                attrMap.put("attrValue", attr.getAttrValue());
-                attrMap.put("startDate", attr.getStartDate());
-                attrMap.put("endDate", attr.getEndDate());
-                mainContractAttrList.add(attrMap);
-            }
+        if (contractAttrs != null) {
+            mainContractAttrList.addAll(contractAttrs);
         }
+        mainContractAttrList.addAll(mainItems);
+        plan.addAll(mainItems);
 
         // 1.1.1.4 对齐每个产品下的非主资费与主资费
-        if (!mainContractAttrList.isEmpty()) {
-            alignNonMainElements(orderId, orderLineId, product, mainContractAttrList);
-        }
+        alignNonMainElements(orderId, orderLineId, product, mainContractAttrList, plan);
     }
 
     /**
-     * 调用产品中心服务判断是否应跳过该产品
-     */
-    private boolean shouldSkipProduct(String productId) {
-        try {
-            // 调用产品中心服务获取产品标签
-            // 这里使用RestTemplate调用外部服务示例
-            String url = "http://product-center-service/api/product/label?productId=" + productId + "&labelKey=misaligned_with_main_contract";
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
-            
-            if (response != null && "1".equals(String.valueOf(response.get("labelValue")))) {
-                return true;
-            }
-        } catch (Exception e) {
-            // 如果服务调用失败,记录日志但不中断流程
-            System.err.println("调用产品中心服务失败: " + e.getMessage());
-        }
-        return false;
-    }
-
-    /**
-     * 计算UAT结束日期
+     * 计算UAT结束日期（写表文本）
      */
     private String calculateUatEndDate(String orderId, String orderLineId, OcOrderProductElement mainElement,
-                                      String mainElementUatPeriod, String srd) {
+                                       String mainElementUatPeriod, LedgerTimestamp srd) {
         // 获取uat_period_method
         OcOrderElementItem methodItem = contractAlignmentMapper.queryElementItem(
                 orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
@@ -168,19 +205,32 @@ public class ContractAlignmentService {
 
         if ("uat_days".equals(uatPeriodMethod)) {
             // SRD + mainElementUatPeriod天 + 23:59:59
-            return plusDays(srd, Integer.parseInt(mainElementUatPeriod)) + " 23:59:59";
+            return srd.plusDays(Integer.parseInt(mainElementUatPeriod)).endOfDay().toString();
         } else if ("uat_end_day".equals(uatPeriodMethod)) {
             // 直接使用mainElementUatPeriod
             return mainElementUatPeriod;
         }
-        return srd;
+        return srd.toString();
     }
 
     /**
-     * 计算合约结束日期
+     * 解析取自属性值的日期，无法解析时记录日志并返回 null（调用方沿用原值）
+     */
+    private static LedgerTimestamp parseAttrDate(String orderId, String orderLineId, String attrCode, String value) {
+        LedgerTimestamp t = LedgerTimestamp.parseOrNull(value);
+        if (t == null) {
+            logger.warn("订单 {} 订单行 {} 的 {} 无法解析，沿用原值: {}", orderId, orderLineId, attrCode, value);
+        }
+        return t;
+    }
+
+    /**
+     * 计算合约结束日期（写表文本）
+     * @param contractStartDate 合约开始日期，uat_end_date 无法解析时为 null
+     * @param contractStartDateText 合约开始日期的写表文本
      */
     private String calculateContractEndDate(String orderId, String orderLineId, OcOrderProductElement mainElement,
-                                           String uatEndDate) {
+                                            LedgerTimestamp contractStartDate, String contractStartDateText) {
         // 获取contract_period和contract_period_type
         OcOrderElementItem periodItem = contractAlignmentMapper.queryElementItem(
                 orderId, orderLineId, mainElement.getElementId(), mainElement.getElementItemId(),
@@ -193,21 +243,21 @@ public class ContractAlignmentService {
         String contractPeriod = periodItem != null ? periodItem.getAttrValue() : "";
         String contractPeriodType = periodTypeItem != null ? periodTypeItem.getAttrValue() : "Standard_Contract_Period";
 
-        String contractStartDatePlusOne = plusSeconds(uatEndDate, 1);
-
-        return calculateContractEndDateBasedOnType(contractPeriodType, contractPeriod, contractStartDatePlusOne);
+        return calculateContractEndDateBasedOnType(contractPeriodType, contractPeriod, contractStartDate, contractStartDateText);
     }
 
     /**
      * 根据类型计算合约结束日期
      */
-    private String calculateContractEndDateBasedOnType(String contractPeriodType, String contractPeriod, String startDate) {
+    private String calculateContractEndDateBasedOnType(String contractPeriodType, String contractPeriod,
+                                                       LedgerTimestamp startDate, String startDateText) {
         if ("Customized_Contract_End_Date".equals(contractPeriodType)) {
+            // 直接使用contract_period
             return contractPeriod;
         } else {
             // Standard_Contract_Period: 按月数计算
             int months = Integer.parseInt(contractPeriod);
-            return plusMonths(startDate, months);
+            return startDate == null ? startDateText : startDate.plusMonths(months).toString();
         }
     }
 
@@ -215,7 +265,7 @@ public class ContractAlignmentService {
      * 对齐非主资费元素
      */
     private void alignNonMainElements(String orderId, String orderLineId, OcOrderProduct product,
-                                     List<Map<String, String>> mainContractAttrList) {
+                                     List<OcOrderElementItem> mainContractAttrList, List<OcOrderElementItem> plan) {
         // 查询非主资费元素列表
         List<OcOrderProductElement> nonMainElements = contractAlignmentMapper.queryNonMainElements(
                 orderId, orderLineId, product.getProductId(), product.getProdItemId(),
@@ -225,36 +275,20 @@ public class ContractAlignmentService {
             return;
         }
 
-        // 批量插入属性列表
-        List<OcOrderElementItem> itemsToInsert = new ArrayList<>();
-
+        // 非主资费逐个复制主资费的合约相关属性
         for (OcOrderProductElement element : nonMainElements) {
-            for (Map<String, String> attrMap : mainContractAttrList) {
-                OcOrderElementItem item = new OcOrderElementItem();
-                item.setOrderId(orderId);
-                item.setOrderLineId(orderLineId);
-                item.setElementId(element.getElementId());
-                item.setElementItemId(element.getElementItemId());
-                item.setElementTypeCode(ELEMENT_TYPE_D);
-                item.setAttrCode(attrMap.get("attrCode"));
-                item.setAttrValue(attrMap.get("attrValue"));
-                item.setModifyTag(MODIFY_TAG_NEW);
-                item.setStartDate(attrMap.get("startDate"));
-                item.setEndDate(attrMap.get("endDate"));
-                itemsToInsert.add(item);
+            for (OcOrderElementItem attr : mainContractAttrList) {
+                plan.add(newElementItem(orderId, orderLineId, element.getElementId(), element.getElementItemId(),
+                        attr.getAttrCode(), attr.getAttrValue(), attr.getStartDate(), attr.getEndDate()));
             }
         }
-
-        if (!itemsToInsert.isEmpty()) {
-            contractAlignmentMapper.batchInsertElementItems(itemsToInsert);
-        }
     }
 
     /**
-     * 插入元素属性
+     * 构造元素属性行
      */
-    private void insertElementItem(String orderId, String orderLineId, String elementId, String elementItemId,
-                                   String attrCode, String attrValue, String startDate, String endDate) {
+    private OcOrderElementItem newElementItem(String orderId, String orderLineId, String elementId, String elementItemId,
+                                              String attrCode, String attrValue, String startDate, String endDate) {
         OcOrderElementItem item = new OcOrderElementItem();
         item.setOrderId(orderId);
         item.setOrderLineId(orderLineId);
@@ -266,54 +300,6 @@ public class ContractAlignmentService {
         item.setModifyTag(MODIFY_TAG_NEW);
         item.setStartDate(startDate);
         item.setEndDate(endDate);
-        contractAlignmentMapper.insertElementItem(item);
-    }
-
-    /**
-     * 日期加秒数
-     */
-    private String plusSeconds(String dateTime, int seconds) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            Date date = sdf.parse(dateTime);
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(date);
-            cal.add(Calendar.SECOND, seconds);
-            return sdf.format(cal.getTime());
-        } catch (Exception e) {
-            return dateTime;
-        }
-    }
-
-    /**
-     * 日期加天数
-     */
-    private String plusDays(String dateTime, int days) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            Date date = sdf.parse(dateTime.split(" ")[0] + " 00:00:00");
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(date);
-            cal.add(Calendar.DAY_OF_MONTH, days);
-            return sdf.format(cal.getTime());
-        } catch (Exception e) {
-            return dateTime;
-        }
-    }
-
-    /**
-     * 日期加月数
-     */
-    private String plusMonths(String dateTime, int months) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            Date date = sdf.parse(dateTime);
-            Calendar cal = Calendar.getInstance();
-            cal.setTime(date);
-            cal.add(Calendar.MONTH, months);
-            return sdf.format(cal.getTime());
-        } catch (Exception e) {
-            return dateTime;
-        }
+        return item;
     }
 }
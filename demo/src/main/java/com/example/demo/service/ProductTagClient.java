@@ -0,0 +1,322 @@
+package com.example.demo.service;
+
+import com.example.demo.ConcurrentUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 产品中心标签客户端（HTTP），全应用唯一的产品标签缓存：合约对齐直接调用，ProductCenterClient.getProductTag 委托到这里
+ * 一次批量请求取一组产品的同一标签：GET {base-url}/api/product/labels?labelKey=..&productIds=P1,P2，
+ * 响应为 productId -> labelValue，产品无此标签时不返回该键；
+ * 产品中心没有批量接口（404 / 405）时改为并发逐个调用 GET {base-url}/api/product/label?productId=..&labelKey=..（响应 labelValue），
+ * 此后不再尝试批量接口
+ * 结果按 (product_id, labelKey) 缓存，有标签的结果有效期 ttl，无标签的结果有效期 negative-ttl；
+ * 缓存最多 max-entries 条，超出时淘汰最久未访问的条目；过期后再保留 stale 时长供失败时沿用，
+ * 超过保留期的条目每隔一个保留期在写缓存时清除一次
+ * 同一 (product_id, labelKey) 同时只有一个在途请求，并发调用方共用其结果
+ * 请求在后台线程执行，调用方最多等待 timeout-ms：超时或失败时沿用保留期内的过期缓存值，没有则抛出 IllegalStateException
+ * （不把查询失败当作无标签），在途请求完成后仍会回填缓存
+ */
+@Component
+public class ProductTagClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductTagClient.class);
+
+    private final RestTemplate restTemplate;
+    private final String baseUrl;
+    private final long timeoutMs;
+    private final long ttlMs;
+    private final long negativeTtlMs;
+    private final long staleMs;
+    private final int maxEntries;
+    // 按访问顺序排列，读写均持有 cache 锁
+    private final LinkedHashMap<String, TagEntry> cache;
+    // 下次清除超过保留期条目的时间（持有 cache 锁读写）
+    private long nextSweepAt;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    // 产品中心返回 404 / 405 后置为 false，改用单产品接口
+    private volatile boolean batchSupported = true;
+
+    @Autowired
+    public ProductTagClient(RestTemplateBuilder restTemplateBuilder,
+                            @Value("${product-center.base-url:http://product-center-service}") String baseUrl,
+                            @Value("${product-center.tag.timeout-ms:2000}") long timeoutMs,
+                            @Value("${product-center.tag.ttl-seconds:300}") long ttlSeconds,
+                            @Value("${product-center.tag.negative-ttl-seconds:60}") long negativeTtlSeconds,
+                            @Value("${product-center.tag.stale-seconds:3600}") long staleSeconds,
+                            @Value("${product-center.tag.max-entries:10000}") int maxEntries,
+                            @Value("${product-center.tag.workers:4}") int workers) {
+        this(restTemplateBuilder
+                        .connectTimeout(Duration.ofMillis(timeoutMs))
+                        .readTimeout(Duration.ofMillis(timeoutMs * 5))
+                        .build(),
+                baseUrl, timeoutMs, TimeUnit.SECONDS.toMillis(ttlSeconds), TimeUnit.SECONDS.toMillis(negativeTtlSeconds),
+                TimeUnit.SECONDS.toMillis(staleSeconds), maxEntries, workers);
+    }
+
+    /**
+     * 直接指定 RestTemplate 与毫秒级有效期 / 保留期（测试使用）
+     */
+    public ProductTagClient(RestTemplate restTemplate, String baseUrl, long timeoutMs, long ttlMs, long negativeTtlMs,
+                            long staleMs, int maxEntries, int workers) {
+        this.restTemplate = restTemplate;
+        this.baseUrl = baseUrl;
+        this.timeoutMs = timeoutMs;
+        this.ttlMs = ttlMs;
+        this.negativeTtlMs = negativeTtlMs;
+        this.staleMs = Math.max(0L, staleMs);
+        this.maxEntries = Math.max(1, maxEntries);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TagEntry> eldest) {
+                return size() > ProductTagClient.this.maxEntries;
+            }
+        };
+        this.executor = ConcurrentUtils.newDaemonPool("product-tag-fetch", workers);
+    }
+
+    /**
+     * 批量查询产品标签，返回 productId -> labelValue（无此标签的产品不在结果中）
+     * 缓存未命中且无在途请求的产品合并为一次 HTTP 请求
+     * @throws IllegalStateException 有产品查询超时或失败且没有缓存值
+     */
+    public Map<String, String> getLabels(Collection<String> productIds, String labelKey) {
+        Map<String, String> result = new HashMap<>();
+        if (productIds == null || productIds.isEmpty() || labelKey == null) {
+            return result;
+        }
+
+        long now = System.currentTimeMillis();
+        Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+        Map<String, CompletableFuture<String>> owned = new LinkedHashMap<>();
+        for (String productId : new LinkedHashSet<>(productIds)) {
+            if (productId == null) continue;
+            String key = cacheKey(productId, labelKey);
+            TagEntry entry = cached(key);
+            if (entry != null && entry.expiresAt > now) {
+                putLabel(result, productId, entry.value);
+                continue;
+            }
+            CompletableFuture<String> mine = new CompletableFuture<>();
+            CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+            if (existing == null) {
+                owned.put(productId, mine);
+                pending.put(productId, mine);
+            } else {
+                pending.put(productId, existing);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            executor.execute(() -> fetch(new ArrayList<>(owned.keySet()), labelKey, owned));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        for (Map.Entry<String, CompletableFuture<String>> e : pending.entrySet()) {
+            String productId = e.getKey();
+            putLabel(result, productId, await(productId, labelKey, e.getValue(), deadline));
+        }
+        return result;
+    }
+
+    /**
+     * 查询单个产品标签，产品无此标签时返回 null
+     */
+    public String getLabel(String productId, String labelKey) {
+        return getLabels(Collections.singletonList(productId), labelKey).get(productId);
+    }
+
+    /**
+     * 清除某个产品的标签缓存，productId 为 null 时全部清除
+     */
+    public void evict(String productId) {
+        synchronized (cache) {
+            if (productId == null) {
+                cache.clear();
+            } else {
+                cache.keySet().removeIf(k -> k.startsWith(productId + '\u0001'));
+            }
+        }
+    }
+
+    /**
+     * 当前缓存条目数（含保留期内的过期条目）
+     */
+    int cacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    // 后台线程：一次批量请求，回填缓存并完成各产品的在途 future；批量接口不可用时改为逐个产品请求
+    private void fetch(List<String> productIds, String labelKey, Map<String, CompletableFuture<String>> futures) {
+        if (!batchSupported) {
+            fetchEach(productIds, labelKey, futures);
+            return;
+        }
+        Map<String, String> labels;
+        try {
+            labels = requestLabels(productIds, labelKey);
+        } catch (HttpClientErrorException.NotFound | HttpClientErrorException.MethodNotAllowed e) {
+            logger.warn("产品中心不支持批量标签接口，改为逐个产品查询: {}", e.getMessage());
+            batchSupported = false;
+            fetchEach(productIds, labelKey, futures);
+            return;
+        } catch (RuntimeException e) {
+            for (String productId : productIds) {
+                complete(productId, labelKey, futures.get(productId), null, e);
+            }
+            return;
+        }
+        for (String productId : productIds) {
+            store(productId, labelKey, labels.get(productId));
+        }
+        for (String productId : productIds) {
+            complete(productId, labelKey, futures.get(productId), labels.get(productId), null);
+        }
+    }
+
+    // 每个产品一个后台任务，各自完成自己的 future（任务之间不互相等待）
+    private void fetchEach(List<String> productIds, String labelKey, Map<String, CompletableFuture<String>> futures) {
+        for (String productId : productIds) {
+            executor.execute(() -> {
+                try {
+                    String value = requestLabel(productId, labelKey);
+                    store(productId, labelKey, value);
+                    complete(productId, labelKey, futures.get(productId), value, null);
+                } catch (RuntimeException e) {
+                    complete(productId, labelKey, futures.get(productId), null, e);
+                }
+            });
+        }
+    }
+
+    private TagEntry cached(String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private void store(String productId, String labelKey, String value) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            if (now >= nextSweepAt) {
+                cache.values().removeIf(entry -> entry.expiresAt + staleMs <= now);
+                nextSweepAt = now + staleMs;
+            }
+            cache.put(cacheKey(productId, labelKey), new TagEntry(value, now + (value == null ? negativeTtlMs : ttlMs)));
+        }
+    }
+
+    private Map<String, String> requestLabels(List<String> productIds, String labelKey) {
+        URI uri = UriComponentsBuilder.fromUriString(baseUrl)
+                .path("/api/product/labels")
+                .queryParam("labelKey", labelKey)
+                .queryParam("productIds", String.join(",", productIds))
+                .build()
+                .encode()
+                .toUri();
+        Map<String, Object> body = restTemplate.exchange(uri, HttpMethod.GET, null,
+                new ParameterizedTypeReference<Map<String, Object>>() {}).getBody();
+        Map<String, String> labels = new HashMap<>();
+        if (body != null) {
+            for (Map.Entry<String, Object> e : body.entrySet()) {
+                if (e.getValue() != null) {
+                    labels.put(e.getKey(), String.valueOf(e.getValue()));
+                }
+            }
+        }
+        return labels;
+    }
+
+    private String requestLabel(String productId, String labelKey) {
+        URI uri = UriComponentsBuilder.fromUriString(baseUrl)
+                .path("/api/product/label")
+                .queryParam("productId", productId)
+                .queryParam("labelKey", labelKey)
+                .build()
+                .encode()
+                .toUri();
+        Map<String, Object> body = restTemplate.exchange(uri, HttpMethod.GET, null,
+                new ParameterizedTypeReference<Map<String, Object>>() {}).getBody();
+        Object value = body == null ? null : body.get("labelValue");
+        return value == null ? null : String.valueOf(value);
+    }
+
+    private void complete(String productId, String labelKey, CompletableFuture<String> future, String value, RuntimeException error) {
+        inFlight.remove(cacheKey(productId, labelKey), future);
+        if (error == null) {
+            future.complete(value);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    // 等待在途请求，超时或失败时沿用保留期内的过期缓存值，没有则抛出
+    private String await(String productId, String labelKey, CompletableFuture<String> future, long deadline) {
+        try {
+            long remaining = Math.max(0L, deadline - System.nanoTime());
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return staleValue(productId, labelKey, e);
+        } catch (TimeoutException | ExecutionException e) {
+            return staleValue(productId, labelKey, e);
+        }
+    }
+
+    private String staleValue(String productId, String labelKey, Exception cause) {
+        TagEntry entry = cached(cacheKey(productId, labelKey));
+        if (entry != null && entry.expiresAt + staleMs > System.currentTimeMillis()) {
+            logger.warn("查询产品标签失败，沿用缓存值 productId={}, labelKey={}: {}", productId, labelKey, cause.toString());
+            return entry.value;
+        }
+        throw new IllegalStateException("查询产品标签失败且无缓存 productId=" + productId + ", labelKey=" + labelKey, cause);
+    }
+
+    private static void putLabel(Map<String, String> result, String productId, String value) {
+        if (value != null) {
+            result.put(productId, value);
+        }
+    }
+
+    private static String cacheKey(String productId, String labelKey) {
+        return productId + '\u0001' + labelKey;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class TagEntry {
+        final String value;
+        final long expiresAt;
+
+        TagEntry(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -102,3 +102,30 @@ ON DUPLICATE KEY UPDATE menu_name=VALUES(menu_name);
 INSERT INTO role_menu (role_id, menu_id)
 SELECT r.id, m.id FROM role r, menu m WHERE r.role_name='ADMIN'
 ON DUPLICATE KEY UPDATE role_id=role_id;
+
+-- 号段式 ID 分配（SegmentIdAllocator）：每个 biz_tag 一行，节点每次预占 step 个 ID
+CREATE TABLE IF NOT EXISTS id_segment (
+    biz_tag VARCHAR(64) PRIMARY KEY,
+    max_id BIGINT NOT NULL,
+    step INT NOT NULL,
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 初始值需大于各表现有最大 ID
+INSERT INTO id_segment (biz_tag, max_id, step) VALUES
+('order_line_id', 100000000, 1000),
+('prod_item_id', 100000000, 1000),
+('element_item_id', 100000000, 1000),
+('cust_id', 100000000, 1000),
+('idd_serial_number', 0, 100)
+ON DUPLICATE KEY UPDATE biz_tag=biz_tag;
+
+-- 批处理任务断点（AccountStatusService 账户冻结任务）：last_account_id 之前（含）的账户已处理并提交
+CREATE TABLE IF NOT EXISTS batch_job_checkpoint (
+    job_name VARCHAR(64) PRIMARY KEY,
+    last_account_id BIGINT NOT NULL DEFAULT 0,
+    status VARCHAR(16) NOT NULL,
+    processed_count BIGINT NOT NULL DEFAULT 0,
+    frozen_count BIGINT NOT NULL DEFAULT 0,
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
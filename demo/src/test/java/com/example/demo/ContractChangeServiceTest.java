@@ -0,0 +1,254 @@
+package com.example.demo;
+
+import com.example.demo.OrderTableRows.ElementItem;
+import com.example.demo.OrderTableRows.OrderLine;
+import com.example.demo.OrderTableRows.OrderLineItem;
+import com.example.demo.OrderTableRows.ProductElement;
+import com.example.demo.OrderTableRows.UserDiscnt;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ContractChangeService 按订单行并行处理：台账与顺序处理逐行一致（含新 item_id 的取号顺序），
+ * 任一订单行失败时整单不写台账；四种合约场景各一行的订单逐行固定台账输出
+ */
+class ContractChangeServiceTest {
+
+    private static final String ORDER_ID = "O1";
+    private static final String SRD = "2025-06-01T00:00:00";
+    private static final int LINES = 200;
+
+    private final ForkJoinPool lineExecutor = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        lineExecutor.shutdownNow();
+    }
+
+    @Test
+    void parallelLedgerMatchesSequential() {
+        // 两边用同样的 item_id 序列，逐行比对（含取号顺序）
+        ContractChangeService sequential = seed(new ContractChangeService(null, itemIdSequence()), LINES);
+        ContractChangeService parallel = seed(new ContractChangeService(lineExecutor, itemIdSequence()), LINES);
+
+        sequential.processContractChange(ORDER_ID, SRD);
+        parallel.processContractChange(ORDER_ID, SRD);
+
+        List<String> productElements = render(sequential.ocOrderProductElement().rows());
+        assertThat(productElements).hasSizeGreaterThan(LINES * 4);
+        assertThat(render(parallel.ocOrderProductElement().rows())).containsExactlyElementsOf(productElements);
+        assertThat(render(parallel.ocOrderElementItem().rows())).containsExactlyElementsOf(render(sequential.ocOrderElementItem().rows()));
+
+        // 新 item_id 已全部赋值，且互不重复
+        Set<String> newItemIds = new HashSet<>();
+        for (ProductElement row : parallel.ocOrderProductElement().rows()) {
+            assertThat(row.getElementItemId()).isNotNull();
+            if ("0".equals(row.getModifyTag())) {
+                assertThat(newItemIds.add(row.getElementItemId())).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void ledgerRowsForRepresentativeOrder() {
+        ContractChangeService service = seed(new ContractChangeService(null, itemIdSequence()), 4);
+        service.processContractChange(ORDER_ID, SRD);
+
+        // L0 合约内立即生效，L1 合约外无顺延（MRC 增补无合约期台账），L2 合约内顺延，L3 合约外顺延
+        assertThat(render(service.ocOrderProductElement().rows())).containsExactly(
+                "O1|L0|MRC_0|MRC_0_I|1|2025-05-31 23:59:59|null",
+                "O1|L0|MRC_0|NEW1|0|2025-06-01 00:00:00|null",
+                "O1|L0|REB_0|REB_0_I|1|2025-05-31 23:59:59|null",
+                "O1|L0|REB_0|NEW2|0|2025-06-01 00:00:00|null",
+                "O1|L1|MRC_1|MRC_1_I|1|2025-01-31 23:59:59|null",
+                "O1|L1|MRC_1|NEW3|0|2025-02-01 00:00:00|2025-05-31 23:59:59",
+                "O1|L1|MRC_1|NEW4|0|2025-06-01 00:00:00|null",
+                "O1|L1|REB_1|REB_1_I|1|2025-01-31 23:59:59|null",
+                "O1|L1|REB_1|NEW5|0|2025-06-01 00:00:00|null",
+                "O1|L2|MRC_2|MRC_2_I|1|2030-12-31 23:59:59|null",
+                "O1|L2|MRC_2|NEW6|0|2031-01-01 00:00:00|null",
+                "O1|L2|REB_2|REB_2_I|1|2030-12-31 23:59:59|null",
+                "O1|L2|REB_2|NEW7|0|2031-01-01 00:00:00|null",
+                "O1|L3|MRC_3|MRC_3_I|1|2025-01-31 23:59:59|null",
+                "O1|L3|MRC_3|NEW8|0|2025-02-01 00:00:00|null",
+                "O1|L3|REB_3|REB_3_I|1|2025-01-31 23:59:59|null",
+                "O1|L3|REB_3|NEW9|0|2025-02-01 00:00:00|null");
+
+        List<String> elementItems = render(service.ocOrderElementItem().rows());
+        assertThat(elementItems).hasSize(79);
+        assertThat(elementItems.stream().filter(row -> row.startsWith("O1|L0|MRC_0|"))).containsExactly(
+                "O1|L0|MRC_0|MRC_0_I|D|rent_fee|200|2|null|null",
+                "O1|L0|MRC_0|MRC_0_I|null|contract_end_date_std|2030-12-31T23:59:59|1|2025-05-31 23:59:59|2025-05-31 23:59:59",
+                "O1|L0|MRC_0|MRC_0_I|null|rent_fee|100|1|2025-05-31 23:59:59|2025-05-31 23:59:59",
+                "O1|L0|MRC_0|MRC_0_I|null|contract_end_date|2025-05-31 23:59:59|1|2025-05-31 23:59:59|2025-05-31 23:59:59",
+                "O1|L0|MRC_0|MRC_0_I|null|ref_sub_comp_id|X0|1|2025-05-31 23:59:59|2025-05-31 23:59:59",
+                "O1|L0|MRC_0|NEW1|null|contract_end_date_std|2030-12-31T23:59:59|0|2025-06-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L0|MRC_0|NEW1|null|rent_fee|100|0|2025-06-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L0|MRC_0|NEW1|null|contract_end_date|2030-12-31T23:59:59|0|2025-06-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L0|MRC_0|NEW1|null|ref_sub_comp_id|X0|0|2025-06-01 00:00:00|2099-12-31 23:59:59");
+        assertThat(elementItems.stream().filter(row -> row.startsWith("O1|L1|MRC_1|"))).containsExactly(
+                "O1|L1|MRC_1|MRC_1_I|D|rent_fee|200|2|null|null",
+                "O1|L1|MRC_1|NEW3|null|contract_end_date_std|2025-01-31T23:59:59|0|2025-02-01 00:00:00|2025-05-31 23:59:59",
+                "O1|L1|MRC_1|NEW3|null|rent_fee|100|0|2025-02-01 00:00:00|2025-05-31 23:59:59",
+                "O1|L1|MRC_1|NEW3|null|contract_end_date|2025-05-31 23:59:59|0|2025-02-01 00:00:00|2025-05-31 23:59:59",
+                "O1|L1|MRC_1|NEW3|null|contract_perior|FTG|0|2025-02-01 00:00:00|2025-05-31 23:59:59",
+                "O1|L1|MRC_1|NEW3|null|contract_start_date|2025-02-01 00:00:00|0|2025-02-01 00:00:00|2025-05-31 23:59:59",
+                "O1|L1|MRC_1|NEW3|null|contract_end_date|2025-05-31 23:59:59|0|2025-02-01 00:00:00|2025-05-31 23:59:59",
+                "O1|L1|MRC_1|NEW3|null|contract_end_date_std|2025-05-31 23:59:59|0|2025-02-01 00:00:00|2025-05-31 23:59:59",
+                "O1|L1|MRC_1|MRC_1_I|null|contract_end_date_std|2025-01-31T23:59:59|1|2025-01-31 23:59:59|2025-01-31 23:59:59",
+                "O1|L1|MRC_1|NEW4|null|contract_end_date_std|2025-01-31T23:59:59|0|2025-06-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L1|MRC_1|MRC_1_I|null|rent_fee|100|1|2025-01-31 23:59:59|2025-01-31 23:59:59",
+                "O1|L1|MRC_1|NEW4|null|rent_fee|100|0|2025-06-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L1|MRC_1|MRC_1_I|null|contract_end_date|2025-01-31 23:59:59|1|2025-01-31 23:59:59|2025-01-31 23:59:59",
+                "O1|L1|MRC_1|NEW4|null|contract_end_date|2025-01-31T23:59:59|0|2025-06-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L1|MRC_1|MRC_1_I|null|ref_sub_comp_id|X1|1|2025-01-31 23:59:59|2025-01-31 23:59:59",
+                "O1|L1|MRC_1|NEW4|null|ref_sub_comp_id|X1|0|2025-06-01 00:00:00|2099-12-31 23:59:59");
+        assertThat(elementItems.stream().filter(row -> row.startsWith("O1|L2|REB_2|"))).containsExactly(
+                "O1|L2|REB_2|REB_2_I|D|rent_fee|200|2|null|null",
+                "O1|L2|REB_2|REB_2_I|null|contract_end_date_std|2030-12-31T23:59:59|1|2030-12-31 23:59:59|2030-12-31 23:59:59",
+                "O1|L2|REB_2|REB_2_I|null|rent_fee|100|1|2030-12-31 23:59:59|2030-12-31 23:59:59",
+                "O1|L2|REB_2|REB_2_I|null|contract_end_date|2030-12-31 23:59:59|1|2030-12-31 23:59:59|2030-12-31 23:59:59",
+                "O1|L2|REB_2|REB_2_I|null|ref_sub_comp_id|X2|1|2030-12-31 23:59:59|2030-12-31 23:59:59",
+                "O1|L2|REB_2|NEW7|null|contract_end_date_std|2030-12-31T23:59:59|0|2031-01-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L2|REB_2|NEW7|null|rent_fee|100|0|2031-01-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L2|REB_2|NEW7|null|contract_end_date|2030-12-31T23:59:59|0|2031-01-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L2|REB_2|NEW7|null|ref_sub_comp_id|X2|0|2031-01-01 00:00:00|2099-12-31 23:59:59");
+        assertThat(elementItems.stream().filter(row -> row.startsWith("O1|L3|MRC_3|"))).containsExactly(
+                "O1|L3|MRC_3|MRC_3_I|D|rent_fee|200|2|null|null",
+                "O1|L3|MRC_3|MRC_3_I|null|contract_end_date_std|2025-01-31T23:59:59|1|2025-01-31 23:59:59|2025-01-31 23:59:59",
+                "O1|L3|MRC_3|NEW8|null|contract_end_date_std|2025-01-31T23:59:59|0|2025-02-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L3|MRC_3|MRC_3_I|null|rent_fee|100|1|2025-01-31 23:59:59|2025-01-31 23:59:59",
+                "O1|L3|MRC_3|NEW8|null|rent_fee|100|0|2025-02-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L3|MRC_3|MRC_3_I|null|contract_end_date|2025-01-31 23:59:59|1|2025-01-31 23:59:59|2025-01-31 23:59:59",
+                "O1|L3|MRC_3|NEW8|null|contract_end_date|2025-01-31T23:59:59|0|2025-02-01 00:00:00|2099-12-31 23:59:59",
+                "O1|L3|MRC_3|MRC_3_I|null|ref_sub_comp_id|X3|1|2025-01-31 23:59:59|2025-01-31 23:59:59",
+                "O1|L3|MRC_3|NEW8|null|ref_sub_comp_id|X3|0|2025-02-01 00:00:00|2099-12-31 23:59:59");
+    }
+
+    @Test
+    void failedLineLeavesLedgerUntouched() {
+        ContractChangeService service = seed(new ContractChangeService(lineExecutor), LINES);
+        // 缺 element_id 的变更属性，处理该订单行时抛出
+        ElementItem broken = changeItem("L7", "EI7_X", null);
+        service.ocOrderElementItem().insert(broken);
+        service.userDiscntList().insert(discnt("U7", "EI7_X", "MRC_X", null, null));
+        int elementItems = service.ocOrderElementItem().size();
+
+        assertThatThrownBy(() -> service.processContractChange(ORDER_ID, SRD)).isInstanceOf(NullPointerException.class);
+
+        assertThat(service.ocOrderProductElement().size()).isZero();
+        assertThat(service.ocOrderElementItem().size()).isEqualTo(elementItems);
+    }
+
+    @Test
+    void defaultItemIdsAreRandomUuids() {
+        ContractChangeService service = seed(new ContractChangeService(lineExecutor), LINES);
+        service.processContractChange(ORDER_ID, SRD);
+
+        List<String> newItemIds = new ArrayList<>();
+        for (ProductElement row : service.ocOrderProductElement().rows()) {
+            if ("0".equals(row.getModifyTag())) {
+                newItemIds.add(row.getElementItemId());
+            }
+        }
+        assertThat(newItemIds).isNotEmpty().doesNotHaveDuplicates()
+                .allMatch(id -> id.matches("[0-9a-f]{32}"));
+    }
+
+    /**
+     * 每个订单行一个用户、MRC 与 rebate 两个资费；按行号轮流为合约内立即生效、合约外无顺延（MRC 增补无合约期台账）、
+     * 合约内顺延、合约外顺延
+     */
+    private static ContractChangeService seed(ContractChangeService service, int lines) {
+        for (int i = 0; i < lines; i++) {
+            String lineId = "L" + i;
+            String userId = "U" + i;
+            boolean inContract = i % 4 == 0 || i % 4 == 2;
+            boolean append = i % 4 >= 2;
+            String contractEnd = inContract ? "2030-12-31T23:59:59" : "2025-01-31T23:59:59";
+
+            OrderLine line = new OrderLine();
+            line.setOrderId(ORDER_ID);
+            line.setOrderLineId(lineId);
+            line.setUserId(userId);
+            line.setAcceptDate(LedgerTimestamp.parse("2025-03-01 00:00:00"));
+            service.ocOrderLine().insert(line);
+            if (append) {
+                OrderLineItem appendContract = new OrderLineItem();
+                appendContract.setOrderId(ORDER_ID);
+                appendContract.setOrderLineId(lineId);
+                appendContract.setAttrCode("Append Contract");
+                appendContract.setValue("1");
+                appendContract.setModifyTag("0");
+                service.ocOrderLineItem().insert(appendContract);
+            }
+
+            for (String elementId : new String[]{"MRC_" + i, "REB_" + i}) {
+                String itemId = elementId + "_I";
+                service.ocOrderElementItem().insert(changeItem(lineId, itemId, elementId));
+                service.userDiscntList().insert(discnt(userId, itemId, elementId, null, null));
+                service.userDiscntAttrList().insert(discnt(userId, itemId, elementId, "contract_end_date_std", contractEnd));
+                service.userDiscntAttrList().insert(discnt(userId, itemId, elementId, "rent_fee", "100"));
+                service.userDiscntAttrList().insert(discnt(userId, itemId, elementId, "contract_end_date", contractEnd));
+                service.userDiscntAttrList().insert(discnt(userId, itemId, elementId, "ref_sub_comp_id", "X" + i));
+            }
+        }
+        return service;
+    }
+
+    private static Supplier<String> itemIdSequence() {
+        AtomicLong sequence = new AtomicLong();
+        return () -> "NEW" + sequence.incrementAndGet();
+    }
+
+    private static ElementItem changeItem(String lineId, String itemId, String elementId) {
+        ElementItem row = new ElementItem();
+        row.setOrderId(ORDER_ID);
+        row.setOrderLineId(lineId);
+        row.setElementId(elementId);
+        row.setElementTypeCode("D");
+        row.setElementItemId(itemId);
+        row.setAttrCode("rent_fee");
+        row.setAttrValue("200");
+        row.setModifyTag("2");
+        return row;
+    }
+
+    private static UserDiscnt discnt(String userId, String itemId, String elementId, String attrCode, String attrValue) {
+        UserDiscnt row = new UserDiscnt();
+        row.setUserId(userId);
+        row.setElementId(elementId);
+        row.setElementItemId(itemId);
+        row.setAttrCode(attrCode);
+        row.setAttrValue(attrValue);
+        row.setEndDate(LedgerTimestamp.MAX);
+        return row;
+    }
+
+    private static List<String> render(List<?> rows) {
+        List<String> result = new ArrayList<>();
+        for (Object row : rows) {
+            if (row instanceof ProductElement) {
+                ProductElement r = (ProductElement) row;
+                result.add(String.join("|", r.getOrderId(), r.getOrderLineId(), r.getElementId(), r.getElementItemId(), r.getModifyTag(),
+                        String.valueOf(r.getStartDate()), String.valueOf(r.getEndDate())));
+            } else {
+                ElementItem r = (ElementItem) row;
+                result.add(String.join("|", r.getOrderId(), r.getOrderLineId(), r.getElementId(), r.getElementItemId(), r.getElementTypeCode(),
+                        r.getAttrCode(), r.getAttrValue(), r.getModifyTag(), String.valueOf(r.getStartDate()), String.valueOf(r.getEndDate())));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.demo;
+
+import com.example.demo.OrderTableRows.ElementItem;
+import com.example.demo.OrderTableRows.OrderLine;
+import com.example.demo.OrderTableRows.ProductElement;
+import com.example.demo.OrderTableRows.UserDiscnt;
+import com.example.demo.OrderTableRows.UserSvcState;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.demo.InMemoryTable.key;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * InMemoryTable 索引查询，及迁移到索引表后 ContractChangeService / OrderElementService 的台账生成
+ */
+class InMemoryTableTest {
+
+    private static final String ORDER_ID = "O1";
+    private static final String SRD = "2025-06-01T00:00:00";
+    private static final String CONTRACT_END = "2030-12-31T23:59:59";
+    private static final LedgerTimestamp FAR_END = LedgerTimestamp.MAX;
+
+    @Test
+    void indexSeesRowsInsertedBeforeAndAfterItIsCreated() {
+        InMemoryTable<UserDiscnt> table = new InMemoryTable<>();
+        table.insert(discnt("U1", "EI1", "rent_fee", "100"));
+        InMemoryTable.Index<UserDiscnt> byUserItem = table.addIndex(r -> key(r.getUserId(), r.getElementItemId()));
+        table.insert(discnt("U1", "EI1", "rebate_fee", "20"));
+        table.insert(discnt("U2", "EI1", "rent_fee", "300"));
+
+        assertThat(byUserItem.get(key("U1", "EI1"))).extracting(r -> r.getAttrCode()).containsExactly("rent_fee", "rebate_fee");
+        assertThat(byUserItem.first(key("U1", "EI1"), r -> "rebate_fee".equals(r.getAttrCode())).getAttrValue()).isEqualTo("20");
+        assertThat(byUserItem.exists(key("U2", "EI2"), r -> true)).isFalse();
+        assertThat(byUserItem.get(key("U3", "EI1"))).isEmpty();
+        assertThat(table.size()).isEqualTo(3);
+    }
+
+    @Test
+    void contractChangeGeneratesLedgersPerLine() {
+        ContractChangeService service = new ContractChangeService();
+        int lines = 50;
+        for (int i = 0; i < lines; i++) {
+            String lineId = "L" + i;
+            String userId = "U" + i;
+            String itemId = "EI" + i;
+            ElementItem change = new ElementItem();
+            change.setOrderId(ORDER_ID);
+            change.setOrderLineId(lineId);
+            change.setElementId("MRC_1");
+            change.setElementTypeCode("D");
+            change.setElementItemId(itemId);
+            change.setAttrCode("rent_fee");
+            change.setAttrValue("200");
+            change.setModifyTag("2");
+            service.ocOrderElementItem().insert(change);
+
+            OrderLine line = new OrderLine();
+            line.setOrderId(ORDER_ID);
+            line.setOrderLineId(lineId);
+            line.setUserId(userId);
+            line.setAcceptDate(LedgerTimestamp.parse("2024-01-01 00:00:00"));
+            service.ocOrderLine().insert(line);
+
+            service.userDiscntAttrList().insert(discnt(userId, itemId, "contract_end_date_std", CONTRACT_END));
+            service.userDiscntAttrList().insert(discnt(userId, itemId, "rent_fee", "100"));
+            // 其他订单 / 用户的行不参与
+            service.userDiscntAttrList().insert(discnt("X" + i, itemId, "rent_fee", "999"));
+        }
+
+        service.processContractChange(ORDER_ID, SRD);
+
+        // 合约内立即生效：每行终止 / 新增资费各一条，两个原属性各生成终止 / 新增属性台账
+        assertThat(service.ocOrderProductElement().size()).isEqualTo(lines * 2);
+        List<ElementItem> ledgers = service.ocOrderElementItem().rows().subList(lines, service.ocOrderElementItem().size());
+        assertThat(ledgers).hasSize(lines * 4);
+        assertThat(ledgers).filteredOn(r -> "1".equals(r.getModifyTag())).allMatch(r -> LedgerTimestamp.parse("2025-05-31 23:59:59").equals(r.getEndDate()));
+        assertThat(ledgers).noneMatch(r -> "999".equals(r.getAttrValue()));
+    }
+
+    @Test
+    void orderElementDeletesAttrsAndTerminatesMainServiceState() {
+        OrderElementService service = new OrderElementService();
+        int elements = 40;
+        for (int i = 0; i < elements; i++) {
+            String itemId = "EI" + i;
+            ProductElement pe = new ProductElement();
+            pe.setOrderId(ORDER_ID);
+            pe.setOrderLineId("L1");
+            pe.setElementId("MRC_" + i);
+            pe.setElementTypeCode("D");
+            pe.setElementItemId(itemId);
+            pe.setElementSubType("MRC");
+            pe.setEndDate(LedgerTimestamp.parse(SRD));
+            pe.setModifyTag("1");
+            service.ocOrderProductElement().insert(pe);
+
+            UserDiscnt std = discnt("U1", null, "contract_end_date_std", CONTRACT_END);
+            std.setDiscntCode("MRC_" + i);
+            std.setDstItemId(itemId);
+            UserDiscnt fee = discnt("U1", null, "rent_fee", "100");
+            fee.setDiscntCode("MRC_" + i);
+            fee.setDstItemId(itemId);
+            service.tfFUserDiscntItem().insert(std);
+            service.tfFUserDiscntItem().insert(fee);
+        }
+        ProductElement mainService = new ProductElement();
+        mainService.setOrderId(ORDER_ID);
+        mainService.setOrderLineId("L1");
+        mainService.setElementId("S_MAIN");
+        mainService.setElementTypeCode("S");
+        mainService.setElementItemId("SI1");
+        mainService.setIsMainElement("1");
+        mainService.setEndDate(LedgerTimestamp.parse(SRD));
+        mainService.setModifyTag("1");
+        service.ocOrderProductElement().insert(mainService);
+        UserSvcState svcState = new UserSvcState();
+        svcState.setUserId("U1");
+        svcState.setServiceId("S_MAIN");
+        svcState.setServiceStateCode("0");
+        svcState.setMainTag("1");
+        svcState.setEndDate(FAR_END);
+        service.tfFUserSvcState().insert(svcState);
+
+        service.deleteOrderElementWithContractLogic(ORDER_ID, "L1", "1", "D", SRD, "U1");
+        service.deleteOrderServiceElementWithContractLogic(ORDER_ID, "L1", "1", "S", "U1", "SN1", SRD);
+
+        // 合约内：每个资费的两个属性各一条删除台账，结束时间为资费结束时间
+        assertThat(service.ocOrderElementItem().rows()).hasSize(elements * 2)
+                .allMatch(r -> "delete".equals(r.getAction()) && LedgerTimestamp.parse(SRD).equals(r.getEndDate()));
+        assertThat(service.ocOrderNumSvcState().rows()).singleElement()
+                .satisfies(r -> {
+                    assertThat(r.getServiceId()).isEqualTo("S_MAIN");
+                    assertThat(r.getSerialNumber()).isEqualTo("SN1");
+                    assertThat(r.getModifyTag()).isEqualTo("1");
+                });
+    }
+
+    private static UserDiscnt discnt(String userId, String elementItemId, String attrCode, String attrValue) {
+        UserDiscnt row = new UserDiscnt();
+        row.setUserId(userId);
+        row.setElementItemId(elementItemId);
+        row.setAttrCode(attrCode);
+        row.setAttrValue(attrValue);
+        row.setEndDate(FAR_END);
+        return row;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * batchFactory 的失败处理：监听方法抛出异常时同一批消息整批重投，处理成功前不提交 offset，
+ * 重试次数超过 DefaultErrorHandler 默认的 10 次也不会跳过本批
+ */
+class KafkaListenerConfigTest {
+
+    private static final String TOPIC = "completion";
+
+    private final TopicPartition partition = new TopicPartition(TOPIC, 0);
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    // 每次调用监听方法时的批次内容，以及当时已提交的 offset
+    private final List<List<String>> attempts = new CopyOnWriteArrayList<>();
+    private final List<OffsetAndMetadata> committedAtAttempt = new CopyOnWriteArrayList<>();
+
+    private AnnotationConfigApplicationContext context;
+    private ConcurrentMessageListenerContainer<String, String> container;
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.<String, Object>of(
+                "spring.kafka.bootstrap-servers", "localhost:9092",
+                "spring.kafka.consumer.group-id", "test-group",
+                "kafka.batch.retry-interval-ms", 10)));
+        context.register(KafkaListenerConfig.class);
+        context.refresh();
+
+        consumer.updateBeginningOffsets(Map.of(partition, 0L));
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(partition));
+            for (int i = 0; i < 3; i++) {
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, i, null, String.valueOf(300 + i)));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (container != null) {
+            container.stop();
+        }
+        context.close();
+    }
+
+    @Test
+    void failedBatchIsRedeliveredAndCommittedAfterSuccess() throws InterruptedException {
+        CountDownLatch processed = new CountDownLatch(1);
+        start(records -> {
+            record(records);
+            if (attempts.size() <= 3) {
+                throw new IllegalStateException("事务提交失败");
+            }
+            processed.countDown();
+        });
+
+        assertThat(processed.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(attempts).hasSize(4).allMatch(batch -> batch.equals(List.of("300", "301", "302")));
+        assertThat(committedAtAttempt).containsOnlyNulls();
+        assertThat(awaitCommitted()).isEqualTo(3L);
+    }
+
+    @Test
+    void keepsRetryingWithoutCommittingWhileBatchFails() throws InterruptedException {
+        start(records -> {
+            record(records);
+            throw new IllegalStateException("事务提交失败");
+        });
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (attempts.size() < 15 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        // 容器停止时会关闭 MockConsumer，须在停止前读取已提交的 offset
+        OffsetAndMetadata committedBeforeStop = committed();
+        container.stop();
+
+        assertThat(attempts.size()).isGreaterThanOrEqualTo(15);
+        assertThat(attempts).allMatch(batch -> batch.equals(List.of("300", "301", "302")));
+        assertThat(committedAtAttempt).containsOnlyNulls();
+        assertThat(committedBeforeStop).isNull();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void start(BatchMessageListener<String, String> listener) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                context.getBean("batchFactory", ConcurrentKafkaListenerContainerFactory.class);
+        // 沿用配置中的消费者参数（含关闭自动提交），只把 KafkaConsumer 换成 MockConsumer
+        DefaultKafkaConsumerFactory<String, String> configured =
+                (DefaultKafkaConsumerFactory<String, String>) context.getBean(ConsumerFactory.class);
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(configured.getConfigurationProperties()) {
+            @Override
+            protected Consumer<String, String> createKafkaConsumer(Map<String, Object> configProps) {
+                return consumer;
+            }
+        });
+        container = factory.createContainer(TOPIC);
+        container.setupMessageListener(listener);
+        container.start();
+    }
+
+    private void record(List<ConsumerRecord<String, String>> records) {
+        List<String> values = new ArrayList<>();
+        for (ConsumerRecord<String, String> r : records) {
+            values.add(r.value());
+        }
+        attempts.add(values);
+        committedAtAttempt.add(committed());
+    }
+
+    private OffsetAndMetadata committed() {
+        return consumer.committed(Set.of(partition)).get(partition);
+    }
+
+    private Long awaitCommitted() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        OffsetAndMetadata offset;
+        while ((offset = committed()) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        return offset == null ? null : offset.offset();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * LedgerTimestamp 解析、规范文本、秒 / 天 / 月运算及格式器缓存
+ */
+class LedgerTimestampTest {
+
+    @Test
+    void parsesBothSeparatorsAndDateOnly() {
+        LedgerTimestamp space = LedgerTimestamp.parse("2025-06-01 08:30:15");
+        LedgerTimestamp iso = LedgerTimestamp.parse("2025-06-01T08:30:15");
+
+        assertThat(space).isEqualTo(iso);
+        assertThat(iso.toString()).isEqualTo("2025-06-01 08:30:15");
+        assertThat(LedgerTimestamp.parse("2025-06-01")).isEqualTo(LedgerTimestamp.parse("2025-06-01 00:00:00"));
+        assertThat(space.toLocalDateTime()).isEqualTo(LocalDateTime.of(2025, 6, 1, 8, 30, 15));
+    }
+
+    @Test
+    void rejectsMalformedText() {
+        assertThat(LedgerTimestamp.parseOrNull(null)).isNull();
+        assertThat(LedgerTimestamp.parseOrNull("2025-02-30 00:00:00")).isNull();
+        assertThat(LedgerTimestamp.parseOrNull("2025/06/01 00:00:00")).isNull();
+        assertThat(LedgerTimestamp.parseOrNull("12")).isNull();
+        assertThatThrownBy(() -> LedgerTimestamp.parse("2025-06-01 25:00:00"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void arithmeticCrossesDayAndMonthBoundaries() {
+        LedgerTimestamp end = LedgerTimestamp.parse("2025-12-31 23:59:59");
+
+        assertThat(end.plusSeconds(1).toString()).isEqualTo("2026-01-01 00:00:00");
+        assertThat(end.minusDays(31).toString()).isEqualTo("2025-11-30 23:59:59");
+        assertThat(end.startOfDay().toString()).isEqualTo("2025-12-31 00:00:00");
+        assertThat(LedgerTimestamp.parse("2025-06-01 08:00:00").endOfDay().toString()).isEqualTo("2025-06-01 23:59:59");
+        // 目标月没有该日时取月末
+        assertThat(LedgerTimestamp.parse("2025-01-31 10:00:00").plusMonths(1).toString()).isEqualTo("2025-02-28 10:00:00");
+    }
+
+    @Test
+    void compareTreatsMissingAsEqual() {
+        LedgerTimestamp a = LedgerTimestamp.parse("2025-06-01 00:00:00");
+        LedgerTimestamp b = a.plusSeconds(1);
+
+        assertThat(LedgerTimestamp.compare(a, b)).isNegative();
+        assertThat(LedgerTimestamp.compare(b, a)).isPositive();
+        assertThat(LedgerTimestamp.compare(a, null)).isZero();
+        assertThat(LedgerTimestamp.compare(null, b)).isZero();
+        assertThat(LedgerTimestamp.MIN.isBefore(a)).isTrue();
+        assertThat(LedgerTimestamp.MAX.isAfter(b)).isTrue();
+    }
+
+    @Test
+    void formatsWithCachedFormatter() {
+        LedgerTimestamp t = LedgerTimestamp.parse("2025-06-01 08:30:15");
+
+        assertThat(LedgerTimestamp.formatter("yyyyMMdd")).isSameAs(LedgerTimestamp.formatter("yyyyMMdd"));
+        assertThat(t.format("yyyyMMdd")).isEqualTo("20250601");
+        assertThat(t.format(LedgerTimestamp.PATTERN)).isSameAs(t.toString());
+        assertThat(LedgerTimestamp.parse("20250601 083015", "yyyyMMdd HHmmss")).isEqualTo(t);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.demo;
+
+import com.example.demo.OrderTableRows.ElementItem;
+import com.example.demo.OrderTableRows.OrderExpansion;
+import com.example.demo.OrderTableRows.OrderNumSvcState;
+import com.example.demo.OrderTableRows.ProductElement;
+import com.example.demo.OrderTableRows.UserDiscnt;
+import com.example.demo.OrderTableRows.UserOther;
+import com.example.demo.OrderTableRows.UserServiceItem;
+import com.example.demo.OrderTableRows.UserSvcState;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * OrderElementService 台账输出：资费删除（合约内 / 合约外增补标准月租 / 非合约资费 / 已有属性跳过）
+ * 与服务删除（主服务、IDD 服务状态终止）各一个订单行，逐行固定写入的台账
+ */
+class OrderElementServiceTest {
+
+    private static final String ORDER_ID = "O1";
+    private static final String USER_ID = "U1";
+    private static final String SRD = "2025-06-01 00:00:00";
+    private static final LedgerTimestamp START = LedgerTimestamp.parse("2024-01-01 00:00:00");
+    private static final LedgerTimestamp END = LedgerTimestamp.parse("2025-06-30 23:59:59");
+
+    private final OrderElementService service = new OrderElementService();
+
+    @Test
+    void discntLedgerRows() {
+        productElement("L1", "MRC_A", "IA", "MRC", "D", null);
+        productElement("L1", "MRC_B", "IB", "MRC", "D", null);
+        productElement("L1", "OTC_C", "IC", "OTC", "D", null);
+        productElement("L1", "MRC_D", "ID", "MRC", "D", null);
+        elementItem("L1", "MRC_D", "ID", "D", "PCFN", "123");
+        discntItem("MRC_A", "IA", "contract_end_date_std", "2026-12-31 23:59:59");
+        discntItem("MRC_A", "IA", "rent_fee", "100");
+        discntItem("MRC_B", "IB", "contract_end_date_std", "2025-03-31 23:59:59");
+        discntItem("MRC_B", "IB", "rent_fee", "80");
+        discntItem("OTC_C", "IC", "one_off_fee", "50");
+        userOther("PCFN", "123");
+
+        service.deleteOrderElementWithContractLogic(ORDER_ID, "L1", "1", "D", SRD, USER_ID);
+
+        // MRC_B 合约外：结束时间改为合约结束时间，每个资费属性各增补一次标准月租（后一次改写了前一次增补行的结束时间）
+        assertThat(renderProductElements()).containsExactly(
+                "L1|MRC_A|IA|1|2024-01-01 00:00:00|2025-06-30 23:59:59",
+                "L1|MRC_B|IB|1|2024-01-01 00:00:00|2025-03-31 23:59:59",
+                "L1|OTC_C|IC|1|2024-01-01 00:00:00|2025-06-30 23:59:59",
+                "L1|MRC_D|ID|1|2024-01-01 00:00:00|2025-06-30 23:59:59",
+                "L1|MRC_B|IB|0|2025-04-01 00:00:00|2025-03-31 23:59:59",
+                "L1|MRC_B|IB|0|2025-04-01 00:00:00|2025-06-30 23:59:59");
+        // MRC_D 已有订单属性，不复制资费属性
+        assertThat(renderElementItems()).containsExactly(
+                "L1|MRC_D|ID|PCFN|123|null|1|null|2099-12-31 23:59:59",
+                "null|MRC_A|IA|contract_end_date_std|2026-12-31 23:59:59|delete|null|2024-01-01 00:00:00|2025-06-30 23:59:59",
+                "null|MRC_A|IA|rent_fee|100|delete|null|2024-01-01 00:00:00|2025-06-30 23:59:59",
+                "null|MRC_B|IB|contract_end_date_std|2025-03-31 23:59:59|delete|null|2024-01-01 00:00:00|2025-03-31 23:59:59",
+                "null|null|IB|contract_perior|FTG|null|0|2025-04-01 00:00:00|2025-06-30 23:59:59",
+                "null|null|IB|contract_start_date|2025-04-01 00:00:00|null|0|2025-04-01 00:00:00|2025-06-30 23:59:59",
+                "null|null|IB|contract_end_date|2025-06-30 23:59:59|null|0|2025-04-01 00:00:00|2025-06-30 23:59:59",
+                "null|null|IB|contract_end_date_std|2025-06-30 23:59:59|null|0|2025-04-01 00:00:00|2025-06-30 23:59:59",
+                "null|MRC_B|IB|rent_fee|80|delete|null|2024-01-01 00:00:00|2025-03-31 23:59:59",
+                "null|null|IB|contract_perior|FTG|null|0|2025-04-01 00:00:00|2025-06-30 23:59:59",
+                "null|null|IB|contract_start_date|2025-04-01 00:00:00|null|0|2025-04-01 00:00:00|2025-06-30 23:59:59",
+                "null|null|IB|contract_end_date|2025-06-30 23:59:59|null|0|2025-04-01 00:00:00|2025-06-30 23:59:59",
+                "null|null|IB|contract_end_date_std|2025-06-30 23:59:59|null|0|2025-04-01 00:00:00|2025-06-30 23:59:59",
+                "null|OTC_C|IC|one_off_fee|50|delete|null|2024-01-01 00:00:00|2025-06-30 23:59:59");
+        assertThat(renderExpansions()).containsExactly("PCFN|123|1|2020-01-01 00:00:00|2099-12-31 23:59:59");
+        assertThat(service.ocOrderNumSvcState().size()).isZero();
+    }
+
+    @Test
+    void serviceLedgerRows() {
+        productElement("L2", "VOICE", "SI1", null, "S", "1");
+        productElement("L2", "IDD", "SI2", null, "S", "0");
+        elementItem("L2", "IDD", "SI2", "S", "GRUP", "G1");
+        elementItem("L2", "IDD", "SI2", "S", "ROAM", "R1");
+        serviceItem("VOICE", "SI1", "call_barring", "0");
+        serviceItem("IDD", "SI2", "idd_limit", "500");
+        svcState("VOICE", "1", START);
+        svcState("IDD", "0", LedgerTimestamp.parse("2024-02-01 00:00:00"));
+        userOther("GRUP", "G1");
+
+        service.deleteOrderServiceElementWithContractLogic(ORDER_ID, "L2", "1", "S", USER_ID, "SN1", SRD);
+
+        assertThat(renderProductElements()).containsExactly(
+                "L2|VOICE|SI1|1|2024-01-01 00:00:00|2025-06-30 23:59:59",
+                "L2|IDD|SI2|1|2024-01-01 00:00:00|2025-06-30 23:59:59");
+        // IDD 已有订单属性，只删除主服务属性；ROAM 不在扩展属性范围内
+        assertThat(renderElementItems()).containsExactly(
+                "L2|IDD|SI2|GRUP|G1|null|1|null|2099-12-31 23:59:59",
+                "L2|IDD|SI2|ROAM|R1|null|1|null|2099-12-31 23:59:59",
+                "L2|VOICE|SI1|call_barring|0|delete_service|1|2024-01-01 00:00:00|2025-06-30 23:59:59");
+        List<String> svcStates = new ArrayList<>();
+        for (OrderNumSvcState r : service.ocOrderNumSvcState().rows()) {
+            svcStates.add(String.join("|", r.getOrderLineId(), r.getSerialNumber(), r.getUserId(), r.getServiceId(), r.getServiceStateCode(),
+                    r.getMainTag(), r.getModifyTag(), String.valueOf(r.getStartDate()), String.valueOf(r.getEndDate())));
+        }
+        assertThat(svcStates).containsExactly(
+                "L2|SN1|U1|VOICE|0|1|1|2024-01-01 00:00:00|2025-06-30 23:59:59",
+                "L2|SN1|U1|IDD|0|0|1|2024-02-01 00:00:00|2025-06-30 23:59:59");
+        assertThat(renderExpansions()).containsExactly("GRUP|G1|1|2020-01-01 00:00:00|2099-12-31 23:59:59");
+    }
+
+    private void productElement(String lineId, String elementId, String itemId, String subType, String typeCode, String isMain) {
+        ProductElement row = new ProductElement();
+        row.setOrderId(ORDER_ID);
+        row.setOrderLineId(lineId);
+        row.setElementId(elementId);
+        row.setElementItemId(itemId);
+        row.setElementSubType(subType);
+        row.setElementTypeCode(typeCode);
+        row.setIsMainElement(isMain);
+        row.setModifyTag("1");
+        row.setStartDate(START);
+        row.setEndDate(END);
+        service.ocOrderProductElement().insert(row);
+    }
+
+    private void elementItem(String lineId, String elementId, String itemId, String typeCode, String attrCode, String attrValue) {
+        ElementItem row = new ElementItem();
+        row.setOrderId(ORDER_ID);
+        row.setOrderLineId(lineId);
+        row.setElementId(elementId);
+        row.setElementItemId(itemId);
+        row.setElementTypeCode(typeCode);
+        row.setAttrCode(attrCode);
+        row.setAttrValue(attrValue);
+        row.setModifyTag("1");
+        row.setEndDate(LedgerTimestamp.MAX);
+        service.ocOrderElementItem().insert(row);
+    }
+
+    private void discntItem(String discntCode, String itemId, String attrCode, String attrValue) {
+        UserDiscnt row = new UserDiscnt();
+        row.setUserId(USER_ID);
+        row.setDiscntCode(discntCode);
+        row.setDstItemId(itemId);
+        row.setAttrCode(attrCode);
+        row.setAttrValue(attrValue);
+        row.setStartDate(START);
+        row.setEndDate(LedgerTimestamp.MAX);
+        service.tfFUserDiscntItem().insert(row);
+    }
+
+    private void serviceItem(String serviceId, String itemId, String attrCode, String attrValue) {
+        UserServiceItem row = new UserServiceItem();
+        row.setUserId(USER_ID);
+        row.setServiceId(serviceId);
+        row.setServiceItemId(itemId);
+        row.setAttrCode(attrCode);
+        row.setAttrValue(attrValue);
+        row.setStartDate(START);
+        row.setEndDate(LedgerTimestamp.MAX);
+        service.tfFUserServiceItem().insert(row);
+    }
+
+    private void svcState(String serviceId, String mainTag, LedgerTimestamp startDate) {
+        UserSvcState row = new UserSvcState();
+        row.setUserId(USER_ID);
+        row.setServiceId(serviceId);
+        row.setMainTag(mainTag);
+        row.setServiceStateCode("0");
+        row.setStartDate(startDate);
+        row.setEndDate(LedgerTimestamp.MAX);
+        service.tfFUserSvcState().insert(row);
+    }
+
+    // 用户其他信息的开始时间早于当前时间，扩展台账取该时间
+    private void userOther(String code, String value) {
+        UserOther row = new UserOther();
+        row.setUserId(USER_ID);
+        row.setRsrvValueCode(code);
+        row.setRsrvValue(value);
+        row.setStartDate(LedgerTimestamp.parse("2020-01-01 00:00:00"));
+        row.setEndDate(LedgerTimestamp.MAX);
+        service.tfFUserOther().insert(row);
+    }
+
+    private List<String> renderProductElements() {
+        List<String> result = new ArrayList<>();
+        for (ProductElement r : service.ocOrderProductElement().rows()) {
+            result.add(String.join("|", r.getOrderLineId(), r.getElementId(), r.getElementItemId(), r.getModifyTag(),
+                    String.valueOf(r.getStartDate()), String.valueOf(r.getEndDate())));
+        }
+        return result;
+    }
+
+    private List<String> renderElementItems() {
+        List<String> result = new ArrayList<>();
+        for (ElementItem r : service.ocOrderElementItem().rows()) {
+            result.add(String.join("|", String.valueOf(r.getOrderLineId()), r.getElementId(), r.getElementItemId(), r.getAttrCode(), r.getAttrValue(),
+                    r.getAction(), r.getModifyTag(), String.valueOf(r.getStartDate()), String.valueOf(r.getEndDate())));
+        }
+        return result;
+    }
+
+    private List<String> renderExpansions() {
+        List<String> result = new ArrayList<>();
+        for (OrderExpansion r : service.ocOrderExpansion().rows()) {
+            result.add(String.join("|", r.getReservedCode(), r.getReservedValue(), r.getModifyTag(),
+                    String.valueOf(r.getStartDate()), String.valueOf(r.getEndDate())));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.demo.otc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * AccountStatusService 分块冻结任务测试：多分块并行处理结果与逐账户判断一致，断点之后续跑
+ */
+class AccountStatusServiceTest {
+
+    private static final int ACCOUNTS = 50;
+    private static final long FIRST_ACCOUNT_ID = 1000L;
+    private static final long OTHER_STATUS_ACCOUNT_ID = FIRST_ACCOUNT_ID + ACCOUNTS + 100;
+
+    private H2TestContext context;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        context = H2TestContext.builder("account_status")
+                .mode("MySQL")
+                .property("otc.account-status.chunk-size", 7)
+                .property("otc.account-status.workers", 3)
+                .mappers(AccountStatusMapper.class)
+                .register(AccountStatusService.class)
+                .start();
+        jdbcTemplate = context.jdbcTemplate();
+        seedAccounts();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void freezesOnlyAccountsWithoutActiveUsersOrInFlightOrders() {
+        AccountStatusService service = context.getBean(AccountStatusService.class);
+        String result = service.processAccountStatus();
+
+        List<Long> expected = freezableAfter(0);
+        assertThat(frozenAccountIds()).containsExactlyElementsOf(expected);
+        assertThat(result).isEqualTo(String.format("Processed %d accounts, froze %d accounts.", ACCOUNTS, expected.size()));
+        assertThat(jdbcTemplate.queryForObject("select account_status from tf_f_account where account_id = ?", Integer.class,
+                OTHER_STATUS_ACCOUNT_ID)).isEqualTo(3);
+
+        AccountStatusJobProgress progress = service.getProgress();
+        assertThat(progress.getState()).isEqualTo(AccountStatusJobProgress.STATE_DONE);
+        assertThat(progress.getChunksSubmitted()).isEqualTo((ACCOUNTS + 6) / 7);
+        assertThat(progress.getChunksCompleted()).isEqualTo(progress.getChunksSubmitted());
+        assertThat(progress.getAccountsScanned()).isEqualTo(ACCOUNTS);
+        assertThat(progress.getAccountsFrozen()).isEqualTo(expected.size());
+        assertThat(progress.getCheckpointAccountId()).isEqualTo(FIRST_ACCOUNT_ID + ACCOUNTS - 1);
+
+        BatchJobCheckpoint checkpoint = checkpoint();
+        assertThat(checkpoint.getStatus()).isEqualTo(BatchJobCheckpoint.STATUS_DONE);
+        assertThat(checkpoint.getLastAccountId()).isEqualTo(FIRST_ACCOUNT_ID + ACCOUNTS - 1);
+        assertThat(checkpoint.getFrozenCount()).isEqualTo(expected.size());
+    }
+
+    @Test
+    void resumesAfterCheckpointOfUnfinishedRun() {
+        long resumeAfter = FIRST_ACCOUNT_ID + 20;
+        jdbcTemplate.update("insert into batch_job_checkpoint (job_name, last_account_id, status, processed_count, frozen_count) values (?, ?, ?, ?, ?)",
+                AccountStatusService.JOB_NAME, resumeAfter, BatchJobCheckpoint.STATUS_FAILED, 21L, 3L);
+
+        context.getBean(AccountStatusService.class).processAccountStatus();
+
+        // 断点之前（含）的账户视为已处理，不再冻结
+        List<Long> expected = freezableAfter(resumeAfter);
+        assertThat(frozenAccountIds()).containsExactlyElementsOf(expected);
+        BatchJobCheckpoint checkpoint = checkpoint();
+        assertThat(checkpoint.getStatus()).isEqualTo(BatchJobCheckpoint.STATUS_DONE);
+        assertThat(checkpoint.getProcessedCount()).isEqualTo(ACCOUNTS);
+        assertThat(checkpoint.getFrozenCount()).isEqualTo(3L + expected.size());
+    }
+
+    @Test
+    void completedRunStartsOverFromTheBeginning() {
+        AccountStatusService service = context.getBean(AccountStatusService.class);
+        service.processAccountStatus();
+        // 上次已完成，新的运行从头扫描；已冻结账户不再是状态正常
+        jdbcTemplate.update("update tf_f_account set account_status = 1 where account_id = ?", FIRST_ACCOUNT_ID + 1);
+
+        String result = service.processAccountStatus();
+
+        assertThat(result).isEqualTo(String.format("Processed %d accounts, froze %d accounts.",
+                ACCOUNTS - freezableAfter(0).size() + 1, 1));
+        assertThat(service.getProgress().getResumedFromAccountId()).isZero();
+    }
+
+    private List<Long> frozenAccountIds() {
+        return jdbcTemplate.queryForList("select account_id from tf_f_account where account_status = 2 order by account_id", Long.class);
+    }
+
+    private BatchJobCheckpoint checkpoint() {
+        return context.getBean(AccountStatusMapper.class).queryCheckpoint(AccountStatusService.JOB_NAME);
+    }
+
+    /**
+     * 账户 i（account_id = FIRST_ACCOUNT_ID + i）：i % 3 == 0 有有效用户；i % 5 == 0 有在途订单；
+     * i % 7 == 0 只有已撤单的订单行；i % 11 == 0 只有已失效的付费关系。后两种仍可冻结
+     */
+    private static boolean freezable(int i) {
+        return i % 3 != 0 && i % 5 != 0;
+    }
+
+    private static List<Long> freezableAfter(long accountId) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            if (freezable(i) && FIRST_ACCOUNT_ID + i > accountId) {
+                ids.add(FIRST_ACCOUNT_ID + i);
+            }
+        }
+        return ids;
+    }
+
+    private void seedAccounts() {
+        Timestamp start = Timestamp.valueOf(LocalDateTime.now().minusYears(1));
+        Timestamp future = Timestamp.valueOf(LocalDateTime.now().plusYears(1));
+        Timestamp past = Timestamp.valueOf(LocalDateTime.now().minusDays(1));
+        List<Object[]> accounts = new ArrayList<>();
+        List<Object[]> payRelations = new ArrayList<>();
+        List<Object[]> orderPayRelations = new ArrayList<>();
+        List<Object[]> orderLines = new ArrayList<>();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            long accountId = FIRST_ACCOUNT_ID + i;
+            accounts.add(new Object[]{accountId, 1});
+            if (i % 3 == 0) {
+                payRelations.add(new Object[]{20_000L + i, accountId, start, future});
+            }
+            if (i % 11 == 0) {
+                payRelations.add(new Object[]{30_000L + i, accountId, start, past});
+            }
+            if (i % 5 == 0) {
+                orderPayRelations.add(new Object[]{40_000L + i, 1L, accountId, "0"});
+                orderLines.add(new Object[]{40_000L + i, 1L, "0"});
+            }
+            if (i % 7 == 0) {
+                orderPayRelations.add(new Object[]{50_000L + i, 1L, accountId, "0"});
+                orderLines.add(new Object[]{50_000L + i, 1L, "Z"});
+            }
+        }
+        // 非正常状态账户不参与（状态 3 既非正常也非冻结）
+        accounts.add(new Object[]{OTHER_STATUS_ACCOUNT_ID, 3});
+        jdbcTemplate.batchUpdate("insert into tf_f_account (account_id, account_status) values (?, ?)", accounts);
+        jdbcTemplate.batchUpdate("insert into tf_f_payrelation (user_id, account_id, start_date, end_date) values (?, ?, ?, ?)", payRelations);
+        jdbcTemplate.batchUpdate("insert into oc_order_payrelation (order_id, order_line_id, account_id, modify_tag) values (?, ?, ?, ?)", orderPayRelations);
+        jdbcTemplate.batchUpdate("insert into oc_order_line (order_id, order_line_id, cancel_tag) values (?, ?, ?)", orderLines);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.demo.otc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 竣工消息批量消费测试：按 order_id 分区并行处理，全部分区提交后才返回；失败分区回滚并抛出（本批 offset 不提交），
+ * SQL 条数按分区批量、不随订单数增长；信控拆机订单的停机日期（停机状态开始时间 / 在途拆机单 SRD）与 SRD（T+1 / IDAP T+5）
+ */
+class CreditTerminateCompletionListenerTest {
+
+    private static final long FIRST_ORDER_ID = 300L;
+    // 未收到竣工消息的订单，is_allow_amend 保持 N
+    private static final long OTHER_ORDER_ID = 299L;
+    private static final LocalDate SVC_STATE_START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate IN_FLIGHT_SRD = LocalDate.of(2024, 2, 1);
+
+    private H2TestContext context;
+    private StatementCountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void allowsAmendForEveryCompletedOrder() {
+        start(3);
+        int orders = 30;
+        seed(orders, -1);
+
+        List<String> messages = messages(orders);
+        messages.add(" " + FIRST_ORDER_ID + " ");
+        messages.add("not-an-order");
+        context.getBean(CreditTerminateCompletionListener.class).onCompletionMessages(messages);
+
+        assertThat(count("select count(1) from oc_order_line_item where attr_code = 'is_allow_amend' and attr_value = 'N' and order_id >= ?", FIRST_ORDER_ID))
+                .isZero();
+        assertThat(count("select count(1) from oc_order_line_item where attr_code = 'is_allow_amend' and attr_value = 'Y'"))
+                .isEqualTo(orders);
+        assertThat(count("select count(1) from oc_order_line_item where attr_code = 'is_allow_amend' and attr_value = 'N' and order_id = ?", OTHER_ORDER_ID))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void createsTerminateOrderWithCeaseDateAndSrdPerUser() {
+        start(3);
+        int orders = 30;
+        seed(orders, -1);
+
+        context.getBean(CreditTerminateCompletionListener.class).onCompletionMessages(messages(orders));
+
+        WorkingDayCalendar calendar = context.getBean(WorkingDayCalendar.class);
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            LocalDate ceaseDate = ceaseDate(i);
+            if (ceaseDate != null) {
+                LocalDate srd = calendar.addWorkingDays(LocalDate.now(), i % 4 == 0 ? 5 : 1);
+                expected.add(RecordingCreditTerminateService.order(FIRST_ORDER_ID + i, 30_000L + i, srd, ceaseDate));
+            }
+        }
+        assertThat(context.getBean(RecordingCreditTerminateService.class).createdOrders())
+                .containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void failedPartitionRollsBackAndRethrows() {
+        int workers = 3;
+        start(workers);
+        int orders = 30;
+        long failingOrderId = FIRST_ORDER_ID + 7;
+        seed(orders, failingOrderId);
+
+        assertThatThrownBy(() -> context.getBean(CreditTerminateCompletionListener.class).onCompletionMessages(messages(orders)))
+                .isInstanceOf(RuntimeException.class);
+
+        // 与失败订单同分区的订单整体回滚，其余分区已提交
+        for (long orderId = FIRST_ORDER_ID; orderId < FIRST_ORDER_ID + orders; orderId++) {
+            String expected = orderId % workers == failingOrderId % workers ? "N" : "Y";
+            assertThat(jdbcTemplate.queryForObject("select attr_value from oc_order_line_item where attr_code = 'is_allow_amend' and order_id = ?",
+                    String.class, orderId)).as("order %d", orderId).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithOrders() {
+        start(1);
+        seed(10, -1);
+        long small = countStatements(10);
+
+        start(1);
+        seed(100, -1);
+        long large = countStatements(100);
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    private long countStatements(int orders) {
+        dataSource.reset();
+        context.getBean(CreditTerminateCompletionListener.class).onCompletionMessages(messages(orders));
+        return dataSource.getStatementCount();
+    }
+
+    private static List<String> messages(int orders) {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            messages.add(String.valueOf(FIRST_ORDER_ID + i));
+        }
+        return messages;
+    }
+
+    private int count(String sql, Object... args) {
+        Integer n = jdbcTemplate.queryForObject(sql, Integer.class, args);
+        return n == null ? 0 : n;
+    }
+
+    private void start(int workers) {
+        if (context != null) {
+            context.close();
+        }
+        // CreditTerminateMapper 使用 SYSDATE，按 Oracle 兼容模式建库
+        context = H2TestContext.builder("credit_terminate_completion")
+                .mode("Oracle")
+                .transactional()
+                .property("otc.credit-terminate.completion.workers", workers)
+                .property("otc.calendar.refresh-seconds", 0)
+                .mappers(CreditTerminateMapper.class)
+                .bean(ProductCenterClient.class, () -> new ProductCenterClient("OTC_DN,DN_OTC", "OTC_ORDER,ORDER_OTC"))
+                .bean(RecordingCreditTerminateService.class, RecordingCreditTerminateService::new)
+                .register(SegmentIdAllocator.class, WorkingDayCalendar.class, UserCenterCache.class,
+                        CreditTerminateCompletionListener.class)
+                .start();
+        dataSource = context.dataSource();
+        jdbcTemplate = context.jdbcTemplate();
+    }
+
+    // 第 i 个订单用户的停机日期：停机状态开始时间 / 在途拆机单 SRD / 两者都没有
+    private static LocalDate ceaseDate(int i) {
+        if (i % 5 == 3) {
+            return null;
+        }
+        return i % 2 == 0 ? SVC_STATE_START : IN_FLIGHT_SRD;
+    }
+
+    /**
+     * 每个订单一个带 cancel_for_credit_termination 与 is_allow_amend=N 的订单行：偶数订单的用户有停机状态，
+     * 奇数订单的用户有在途拆机单，第 i % 5 == 3 个订单的用户两者都没有（不下单），每 4 个订单的用户为 IDAP 成员；
+     * failingOrderId 的用户停机状态缺开始时间（处理时抛出异常）
+     */
+    private void seed(int orders, long failingOrderId) {
+        Timestamp start = Timestamp.valueOf(SVC_STATE_START.atStartOfDay());
+        Timestamp inFlightSrd = Timestamp.valueOf(IN_FLIGHT_SRD.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(LocalDateTime.of(2099, 12, 31, 23, 59, 59));
+        List<Object[]> lines = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        List<Object[]> svcStates = new ArrayList<>();
+        List<Object[]> relations = new ArrayList<>();
+        for (int i = 0; i < orders; i++) {
+            long orderId = FIRST_ORDER_ID + i;
+            long userId = 30_000L + i;
+            lines.add(new Object[]{orderId, 1L, userId, "7230", null});
+            items.add(new Object[]{orderId, 1L, "cancel_for_credit_termination", "Y"});
+            items.add(new Object[]{orderId, 1L, "is_allow_amend", "N"});
+            if (orderId == failingOrderId) {
+                svcStates.add(new Object[]{userId, "1", "4", null, end});
+            } else if (ceaseDate(i) == SVC_STATE_START) {
+                svcStates.add(new Object[]{userId, "1", "4", start, end});
+            } else if (ceaseDate(i) == IN_FLIGHT_SRD) {
+                lines.add(new Object[]{900_000L + i, 1L, userId, "7220", inFlightSrd});
+            }
+            if (i % 4 == 0) {
+                relations.add(new Object[]{userId, "IDAP", start, end});
+            }
+        }
+        items.add(new Object[]{OTHER_ORDER_ID, 1L, "is_allow_amend", "N"});
+        jdbcTemplate.batchUpdate("insert into oc_order_line (order_id, order_line_id, user_id, trade_type_code, srd) values (?, ?, ?, ?, ?)", lines);
+        jdbcTemplate.batchUpdate("insert into oc_order_line_item (order_id, order_line_id, attr_code, attr_value) values (?, ?, ?, ?)", items);
+        jdbcTemplate.batchUpdate("insert into tf_f_user_svcstate (user_id, main_tag, service_state_code, start_date, end_date) values (?, ?, ?, ?, ?)", svcStates);
+        jdbcTemplate.batchUpdate("insert into tf_f_user_relation (user_id, relation_type_code, start_date, end_date) values (?, ?, ?, ?)", relations);
+    }
+
+    // 记录下单参数（订单、用户、SRD、停机日期），代替实际下单
+    public static class RecordingCreditTerminateService extends CreditTerminateService {
+        private final List<String> createdOrders = new CopyOnWriteArrayList<>();
+
+        static String order(Long orderId, Long userId, LocalDate srd, LocalDate ceaseDate) {
+            return orderId + "/" + userId + " srd=" + srd + " cease=" + ceaseDate;
+        }
+
+        public List<String> createdOrders() {
+            return createdOrders;
+        }
+
+        @Override
+        void createCreditTerminateOrder(OcOrderLine sourceLine, LocalDate srd, LocalDate ceaseDate) {
+            createdOrders.add(order(sourceLine.getOrderId(), sourceLine.getUserId(), srd, ceaseDate));
+        }
+    }
+}
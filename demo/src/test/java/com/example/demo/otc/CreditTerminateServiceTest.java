@@ -0,0 +1,197 @@
+package com.example.demo.otc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CreditTerminateService 写缓冲测试：增改语句按表批量执行，SQL 往返次数不随账户用户数增长，且写入结果完整；
+ * 产品标签在事务开启前一次查出，查询失败时号码列入 notProcessSNList 而不中止拆机
+ */
+class CreditTerminateServiceTest {
+
+    private static final long ACCOUNT_ID = 900001L;
+    private static final long ORDER_ID = 1L;
+    private static final long ORDER_LINE_ID = 1L;
+
+    private H2TestContext context;
+    private StatementCountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void writesAreBatchedPerTable() {
+        start(500);
+        seedAccount(12);
+        long small = countWrites();
+
+        start(500);
+        seedAccount(60);
+        long large = countWrites();
+
+        // 订单行新增 + cancel_tag 更新 + 拆机异常更新 + oc_order_item + oc_order_line_item + 预占 order_line_id 号段
+        assertThat(small).isEqualTo(6);
+        assertThat(large).isEqualTo(6);
+    }
+
+    @Test
+    void bufferedWritesAreAllApplied() {
+        start(500);
+        seedAccount(60);
+        countWrites();
+        assertWritesApplied(60);
+    }
+
+    @Test
+    void smallFlushSizeFlushesEarlyWithoutLosingRows() {
+        start(10);
+        seedAccount(60);
+        assertThat(countWrites()).isGreaterThan(6);
+        assertWritesApplied(60);
+    }
+
+    @Test
+    void productTagsAreFetchedOnceBeforeTheTransaction() {
+        StubProductCenterClient productCenter = new StubProductCenterClient(Map.of("PROD_1", "N"));
+        start(500, productCenter);
+        seedAccount(12);
+
+        CreditTerminateResult result = terminate();
+
+        assertThat(result.getMessage()).isEqualTo("Success");
+        assertThat(productCenter.requests).containsExactly(List.of("PROD_1"));
+        assertThat(productCenter.inTransaction).containsExactly(false);
+        // 标签为 N 的号码全部跳过；第 1 步的在途单撤单照常完成
+        assertThat(count("select count(1) from oc_order_line where order_id = ? and trade_type_code = '7230' and order_line_id <> ?", ORDER_ID, ORDER_LINE_ID))
+                .isZero();
+        assertThat(count("select count(1) from oc_order_line where order_id > ? and cancel_tag = 'Z'", ORDER_ID)).isEqualTo(4);
+    }
+
+    @Test
+    void failedTagLookupSkipsUsersWithoutAbortingTheTermination() {
+        start(500, new StubProductCenterClient(null));
+        seedAccount(12);
+
+        CreditTerminateResult result = terminate();
+
+        assertThat(result.getMessage()).isEqualTo("Success");
+        // 无法判断是否应跳过的号码列入 notProcessSNList 待重试，不增补拆机订单行
+        List<Long> userIds = new ArrayList<>();
+        for (long u = 1; u <= 12; u++) {
+            userIds.add(10_000L + u);
+        }
+        assertThat(result.getNotProcessSNList()).containsExactlyInAnyOrderElementsOf(userIds);
+        assertThat(count("select count(1) from oc_order_line where order_id = ? and trade_type_code = '7230' and order_line_id <> ?", ORDER_ID, ORDER_LINE_ID))
+                .isZero();
+        assertThat(count("select count(1) from oc_order_line where order_id > ? and cancel_tag = 'Z'", ORDER_ID)).isEqualTo(4);
+    }
+
+    private CreditTerminateResult terminate() {
+        return context.getBean(CreditTerminateService.class).processCreditTerminate(ORDER_ID, ORDER_LINE_ID);
+    }
+
+    private long countWrites() {
+        dataSource.reset();
+        CreditTerminateResult result = terminate();
+        assertThat(result.getMessage()).isEqualTo("Success");
+        return dataSource.getStatementCount("INSERT") + dataSource.getStatementCount("UPDATE");
+    }
+
+    private void assertWritesApplied(int users) {
+        int inFlight = 0;
+        int ceaseDate = 0;
+        int abnormal = 0;
+        for (int u = 1; u <= users; u++) {
+            if (u % 3 == 0) {
+                inFlight++;
+            } else if (u % 2 == 0) {
+                ceaseDate++;
+            } else {
+                abnormal++;
+            }
+        }
+        assertThat(count("select count(1) from oc_order_line where order_id > ? and cancel_tag = 'Z'", ORDER_ID)).isEqualTo(inFlight);
+        assertThat(count("select count(1) from oc_order_item where attr_code = 'cancel_for_credit_termination'")).isEqualTo(inFlight);
+        assertThat(count("select count(1) from oc_order_line where order_id = ? and trade_type_code = '7230' and order_line_id <> ?", ORDER_ID, ORDER_LINE_ID))
+                .isEqualTo(ceaseDate + abnormal);
+        assertThat(count("select count(1) from oc_order_line where order_id = ? and order_node_state = '04' and cancel_tag = 'Z'", ORDER_ID))
+                .isEqualTo(abnormal);
+        assertThat(count("select count(1) from oc_order_line_item where attr_code = 'cancel_for_credit_termination'")).isEqualTo(inFlight);
+        assertThat(count("select count(1) from oc_order_line_item where attr_code = 'Cease Rental Date'")).isEqualTo(ceaseDate);
+    }
+
+    private int count(String sql, Object... args) {
+        Integer n = jdbcTemplate.queryForObject(sql, Integer.class, args);
+        return n == null ? 0 : n;
+    }
+
+    private void start(int flushSize) {
+        start(flushSize, new ProductCenterClient("OTC_DN,DN_OTC", "OTC_ORDER,ORDER_OTC"));
+    }
+
+    private void start(int flushSize, ProductCenterClient productCenterClient) {
+        if (context != null) {
+            context.close();
+        }
+        // CreditTerminateMapper 使用 SYSDATE / DUAL，按 Oracle 兼容模式建库
+        context = H2TestContext.builder("credit_terminate")
+                .mode("Oracle")
+                .transactional()
+                .property("otc.credit-terminate.write-flush-size", flushSize)
+                .property("otc.calendar.refresh-seconds", 0)
+                .mappers(CreditTerminateMapper.class)
+                .bean(ProductCenterClient.class, () -> productCenterClient)
+                .register(SegmentIdAllocator.class, WorkingDayCalendar.class, UserCenterCache.class, CreditTerminateService.class)
+                .start();
+        dataSource = context.dataSource();
+        jdbcTemplate = context.jdbcTemplate();
+    }
+
+    /**
+     * users 个用户：每 3 个用户有一条本账户的在途订单行（撤单）；其余用户中偶数用户有停机状态（写 Cease Rental Date），奇数用户拆机异常
+     */
+    private void seedAccount(int users) {
+        Timestamp start = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0));
+        Timestamp end = Timestamp.valueOf(LocalDateTime.of(2099, 12, 31, 23, 59, 59));
+        jdbcTemplate.update("insert into oc_order_line (order_id, order_line_id, serial_number, trade_type_code, cancel_tag, line_level) values (?, ?, ?, ?, ?, ?)",
+                ORDER_ID, ORDER_LINE_ID, String.valueOf(ACCOUNT_ID), "7230", "0", 1);
+        jdbcTemplate.update("insert into id_segment (biz_tag, max_id, step) values (?, ?, ?)", SegmentIdAllocator.ORDER_LINE_ID, 5000L, 1000);
+
+        List<Object[]> payRelations = new ArrayList<>();
+        List<Object[]> userRows = new ArrayList<>();
+        List<Object[]> svcStates = new ArrayList<>();
+        List<Object[]> inFlightLines = new ArrayList<>();
+        List<Object[]> orderPayRelations = new ArrayList<>();
+        for (long u = 1; u <= users; u++) {
+            long userId = 10_000L + u;
+            payRelations.add(new Object[]{userId, ACCOUNT_ID, start, end});
+            userRows.add(new Object[]{userId, "SN" + userId, "MOB", "PROD_1", "MAIN_1", "MOB"});
+            if (u % 3 == 0) {
+                long orderId = 100_000L + u;
+                inFlightLines.add(new Object[]{orderId, 1L, "SN" + userId, userId, "10", "0", 1, "0"});
+                orderPayRelations.add(new Object[]{orderId, 1L, ACCOUNT_ID, userId, "10", "0"});
+            } else if (u % 2 == 0) {
+                svcStates.add(new Object[]{userId, "1", "4", start, end});
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into tf_f_payrelation (user_id, account_id, start_date, end_date) values (?, ?, ?, ?)", payRelations);
+        jdbcTemplate.batchUpdate("insert into tf_f_user (user_id, serial_number, net_type_code, product_id, main_product_id, brand_code) values (?, ?, ?, ?, ?, ?)", userRows);
+        jdbcTemplate.batchUpdate("insert into tf_f_user_svcstate (user_id, main_tag, service_state_code, start_date, end_date) values (?, ?, ?, ?, ?)", svcStates);
+        jdbcTemplate.batchUpdate("insert into oc_order_line (order_id, order_line_id, serial_number, user_id, trade_type_code, cancel_tag, line_level, produce_order_state) values (?, ?, ?, ?, ?, ?, ?, ?)", inFlightLines);
+        jdbcTemplate.batchUpdate("insert into oc_order_payrelation (order_id, order_line_id, account_id, user_id, trade_type_code, modify_tag) values (?, ?, ?, ?, ?, ?)", orderPayRelations);
+    }
+}
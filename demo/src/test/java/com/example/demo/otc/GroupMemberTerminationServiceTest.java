@@ -0,0 +1,247 @@
+package com.example.demo.otc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * GroupMemberTerminationService 测试：按模板为成员批量生成订单数据，SQL 条数不随成员数增长；
+ * hunting 群组拆机订单行在有界线程池中并行生成，按群组订单行顺序写入；线程池饱和时由调用线程执行，结果不变
+ */
+class GroupMemberTerminationServiceTest {
+
+    private static final long ORDER_ID = 3L;
+    private static final long TEMPLATE_LINE_ID = 1L;
+    private static final long GROUP_USER_ID = 5000L;
+    private static final String PARENT_SERIAL_NUMBER = "GRP001";
+
+    private H2TestContext context;
+    private StatementCountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void clonesTemplateForMembersWithoutTerminationOrder() {
+        start();
+        seed(30);
+
+        context.getBean(GroupMemberTerminationService.class).process(ORDER_ID, PARENT_SERIAL_NUMBER, GROUP_USER_ID);
+
+        // 每 10 个成员中 1 个已有拆机台账；重复的成员关系只生成一次
+        int cloned = 27;
+        assertThat(count("select count(1) from oc_order_line where order_id = ? and order_line_id >= 100000", ORDER_ID)).isEqualTo(cloned);
+        assertThat(count("select count(distinct sn_user_id) from oc_order_line where order_id = ? and line_level = 1", ORDER_ID)).isEqualTo(1 + 30);
+        assertThat(count("select count(1) from oc_order_product where prod_item_id >= 100000")).isEqualTo(cloned);
+        assertThat(count("select count(1) from oc_order_product_item where prod_item_id >= 100000")).isEqualTo(cloned);
+        assertThat(count("select count(1) from oc_order_element where element_item_id >= 100000")).isEqualTo(cloned * 2);
+        assertThat(count("select count(1) from oc_order_element_item where element_item_id >= 100000")).isEqualTo(cloned * 4);
+        // 元素属性挂在对应的新元素上
+        assertThat(count("select count(1) from oc_order_element e join oc_order_element_item i on i.element_item_id = e.element_item_id " +
+                "where e.element_item_id >= 100000 and i.attr_value = concat('fee_', e.element_id)")).isEqualTo(cloned * 2);
+        assertThat(count("select count(1) from oc_order_element e join oc_order_element_item i on i.element_item_id = e.element_item_id " +
+                "where e.element_item_id >= 100000 and i.attr_value = concat('std_', e.element_id)")).isEqualTo(cloned * 2);
+        assertThat(count("select count(1) from oc_order_element e join oc_order_product p on p.prod_item_id = e.prod_item_id " +
+                "and p.order_line_id = e.order_line_id where e.element_item_id >= 100000")).isEqualTo(cloned * 2);
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithMembers() {
+        start();
+        seed(10);
+        long small = countStatements();
+
+        start();
+        seed(100);
+        long large = countStatements();
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void huntingGroupsAreTerminatedInGroupLineOrder() {
+        start();
+        seed(1);
+        // 两个 citinet 群组（群组订单行顺序 6000 在前）与一个非 citinet 群组
+        seedHuntingGroup(1L + 100, 6000L, "citinet", 3);
+        seedHuntingGroup(1L + 101, 5500L, "citinet", 2);
+        seedHuntingGroup(1L + 102, 7000L, "pbx", 2);
+
+        context.getBean(GroupMemberTerminationService.class).process(ORDER_ID, PARENT_SERIAL_NUMBER, GROUP_USER_ID);
+
+        List<Long> snUserIds = jdbcTemplate.queryForList("select sn_user_id from oc_order_line where order_id = ? and line_level = 2 " +
+                "and order_line_id >= 100000 order by order_line_id", Long.class, ORDER_ID);
+        assertThat(snUserIds).containsExactly(600_001L, 600_002L, 600_003L, 550_001L, 550_002L);
+    }
+
+    @Test
+    void huntingGroupsAreBuiltInParallel() {
+        start(BarrierGroupMemberTerminationService.class, 4, 64);
+        seed(1);
+        seedHuntingGroup(1L + 100, 6000L, "citinet", 3);
+        seedHuntingGroup(1L + 101, 5500L, "citinet", 2);
+
+        // 两个群组都到达屏障才能继续：顺序执行时第一个群组等待超时，拆机失败
+        context.getBean(GroupMemberTerminationService.class).process(ORDER_ID, PARENT_SERIAL_NUMBER, GROUP_USER_ID);
+
+        assertThat(BarrierGroupMemberTerminationService.threads).hasSize(2).doesNotHaveDuplicates()
+                .allMatch(name -> name.startsWith("hunting-termination-"));
+        List<Long> snUserIds = jdbcTemplate.queryForList("select sn_user_id from oc_order_line where order_id = ? and line_level = 2 " +
+                "and order_line_id >= 100000 order by order_line_id", Long.class, ORDER_ID);
+        assertThat(snUserIds).containsExactly(600_001L, 600_002L, 600_003L, 550_001L, 550_002L);
+    }
+
+    @Test
+    void saturatedHuntingPoolRunsOnCallerWithoutChangingOrder() {
+        // 1 个工作线程、队列容量 1：其余群组由调用线程执行
+        start(GroupMemberTerminationService.class, 1, 1);
+        seed(1);
+        for (int g = 0; g < 6; g++) {
+            seedHuntingGroup(1L + 100 + g, 6000L - g * 100, "citinet", 2);
+        }
+
+        context.getBean(GroupMemberTerminationService.class).process(ORDER_ID, PARENT_SERIAL_NUMBER, GROUP_USER_ID);
+
+        List<Long> snUserIds = jdbcTemplate.queryForList("select sn_user_id from oc_order_line where order_id = ? and line_level = 2 " +
+                "and order_line_id >= 100000 order by order_line_id", Long.class, ORDER_ID);
+        List<Long> expected = new ArrayList<>();
+        for (int g = 0; g < 6; g++) {
+            long groupUserId = 6000L - g * 100;
+            expected.add(groupUserId * 100 + 1);
+            expected.add(groupUserId * 100 + 2);
+        }
+        assertThat(snUserIds).containsExactlyElementsOf(expected);
+    }
+
+    private void seedHuntingGroup(long orderLineId, long groupUserId, String userDiffCode, int huntingUsers) {
+        Timestamp start = Timestamp.valueOf(LocalDateTime.now().minusYears(1));
+        Timestamp end = Timestamp.valueOf(LocalDateTime.now().plusYears(1));
+        jdbcTemplate.update("insert into oc_order_line (order_id, order_line_id, serial_number, sn_user_id, trade_type_code, line_level, net_type_code) values (?, ?, ?, ?, ?, ?, ?)",
+                ORDER_ID, orderLineId, "G" + groupUserId, groupUserId, "192", 2, "CP");
+        jdbcTemplate.update("insert into tf_f_user (user_id, serial_number, net_type_code, user_diff_code) values (?, ?, ?, ?)",
+                groupUserId, "G" + groupUserId, "CP", userDiffCode);
+        // 倒序写入，验证同一群组内按用户 ID 排序
+        for (long h = huntingUsers; h >= 1; h--) {
+            long huntingUserId = groupUserId * 100 + h;
+            jdbcTemplate.update("insert into tf_f_user (user_id, serial_number, net_type_code) values (?, ?, ?)",
+                    huntingUserId, "H" + huntingUserId, "MOB");
+            jdbcTemplate.update("insert into tf_f_user_relation (user_id_b, serial_number_b, rsrv_value, rsrv_value_code, start_date, end_date) values (?, ?, ?, ?, ?, ?)",
+                    huntingUserId, "H" + huntingUserId, String.valueOf(groupUserId), "citinet_grp_user_id", start, end);
+        }
+    }
+
+    private long countStatements() {
+        dataSource.reset();
+        context.getBean(GroupMemberTerminationService.class).process(ORDER_ID, PARENT_SERIAL_NUMBER, GROUP_USER_ID);
+        return dataSource.getStatementCount();
+    }
+
+    private int count(String sql, Object... args) {
+        Integer n = jdbcTemplate.queryForObject(sql, Integer.class, args);
+        return n == null ? 0 : n;
+    }
+
+    private void start() {
+        start(GroupMemberTerminationService.class, 4, 64);
+    }
+
+    private void start(Class<? extends GroupMemberTerminationService> serviceClass, int huntingWorkers, int huntingQueueCapacity) {
+        if (context != null) {
+            context.close();
+        }
+        context = H2TestContext.builder("group_member")
+                .mode("MySQL")
+                .transactional()
+                .property("otc.group-termination.hunting-workers", huntingWorkers)
+                .property("otc.group-termination.hunting-queue-capacity", huntingQueueCapacity)
+                .mappers(GroupMemberTerminationMapper.class)
+                .mapperXml("mapper/GroupMemberTerminationMapper.xml")
+                .register(SegmentIdAllocator.class, serviceClass)
+                .start();
+        dataSource = context.dataSource();
+        jdbcTemplate = context.jdbcTemplate();
+    }
+
+    /**
+     * 模板订单行：一个产品（一条产品属性）、两个元素（各两条元素属性）；members 个成员，每 10 个中 1 个已有拆机台账，另有一条重复的成员关系
+     */
+    private void seed(int members) {
+        Timestamp start = Timestamp.valueOf(LocalDateTime.now().minusYears(1));
+        Timestamp end = Timestamp.valueOf(LocalDateTime.now().plusYears(1));
+        jdbcTemplate.update("insert into oc_order_line (order_id, order_line_id, serial_number, sn_user_id, trade_type_code, line_level, parent_serial_number, net_type_code, scene_type) values (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                ORDER_ID, TEMPLATE_LINE_ID, "SN_TEMPLATE", 1L, "192", 1, PARENT_SERIAL_NUMBER, "MOB", "19201");
+        jdbcTemplate.update("insert into oc_order_product (order_id, order_line_id, product_id, prod_item_id, product_type_code) values (?, ?, ?, ?, ?)",
+                ORDER_ID, TEMPLATE_LINE_ID, 201L, 101L, "OTC_DN");
+        jdbcTemplate.update("insert into oc_order_product_item (order_id, prod_item_id, attr_code, attr_value) values (?, ?, ?, ?)",
+                ORDER_ID, 101L, "prod_attr", "v");
+        for (long e = 1; e <= 2; e++) {
+            long elementItemId = 1010 + e;
+            jdbcTemplate.update("insert into oc_order_element (order_id, order_line_id, element_item_id, prod_item_id, element_id) values (?, ?, ?, ?, ?)",
+                    ORDER_ID, TEMPLATE_LINE_ID, elementItemId, 101L, 7000 + e);
+            jdbcTemplate.update("insert into oc_order_element_item (order_id, element_item_id, attr_code, attr_value) values (?, ?, ?, ?)",
+                    ORDER_ID, elementItemId, "otc_fee", "fee_" + (7000 + e));
+            jdbcTemplate.update("insert into oc_order_element_item (order_id, element_item_id, attr_code, attr_value) values (?, ?, ?, ?)",
+                    ORDER_ID, elementItemId, "standard_fee", "std_" + (7000 + e));
+        }
+        for (String tag : List.of(SegmentIdAllocator.ORDER_LINE_ID, SegmentIdAllocator.PROD_ITEM_ID, SegmentIdAllocator.ELEMENT_ITEM_ID)) {
+            jdbcTemplate.update("insert into id_segment (biz_tag, max_id, step) values (?, ?, ?)", tag, 99_999L, 1000);
+        }
+
+        List<Object[]> relations = new ArrayList<>();
+        List<Object[]> existing = new ArrayList<>();
+        for (long m = 1; m <= members; m++) {
+            long memberUserId = 20_000L + m;
+            relations.add(new Object[]{GROUP_USER_ID, memberUserId, PARENT_SERIAL_NUMBER, "SN" + memberUserId, start, end});
+            if (m % 10 == 0) {
+                existing.add(new Object[]{ORDER_ID, 1_000L + m, "SN" + memberUserId, memberUserId, "192", 1, PARENT_SERIAL_NUMBER});
+            }
+        }
+        relations.add(new Object[]{GROUP_USER_ID, 20_001L, PARENT_SERIAL_NUMBER, "SN20001", start, end});
+        jdbcTemplate.batchUpdate("insert into tf_f_user_relation (user_id_a, user_id_b, serial_number_a, serial_number_b, start_date, end_date) values (?, ?, ?, ?, ?, ?)", relations);
+        jdbcTemplate.batchUpdate("insert into oc_order_line (order_id, order_line_id, serial_number, sn_user_id, trade_type_code, line_level, parent_serial_number) values (?, ?, ?, ?, ?, ?, ?)", existing);
+    }
+
+    /**
+     * 每个群组生成订单行前记录线程名并在两方屏障上等待（5 秒超时）
+     */
+    static class BarrierGroupMemberTerminationService extends GroupMemberTerminationService {
+
+        static final List<String> threads = new CopyOnWriteArrayList<>();
+        private static final CyclicBarrier barrier = new CyclicBarrier(2);
+
+        BarrierGroupMemberTerminationService(GroupMemberTerminationMapper mapper, SegmentIdAllocator idAllocator,
+                                             @Value("${otc.group-termination.hunting-workers}") int huntingWorkers,
+                                             @Value("${otc.group-termination.hunting-queue-capacity}") int huntingQueueCapacity) {
+            super(mapper, idAllocator, huntingWorkers, huntingQueueCapacity);
+            threads.clear();
+            barrier.reset();
+        }
+
+        @Override
+        List<OcOrderLine> buildHuntingTerminationLines(Long orderId, List<HuntingGroupUser> huntingUsers) {
+            threads.add(Thread.currentThread().getName());
+            try {
+                barrier.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException("hunting groups were not built in parallel", e);
+            }
+            return super.buildHuntingTerminationLines(orderId, huntingUsers);
+        }
+    }
+}
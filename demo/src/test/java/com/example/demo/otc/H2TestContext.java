@@ -0,0 +1,233 @@
+package com.example.demo.otc;
+
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.sql.DataSource;
+import java.beans.Introspector;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * 服务测试共用的 Spring 上下文：每次新建独立的 H2 内存库（按指定兼容模式执行建表脚本，经 StatementCountingDataSource 统计语句），
+ * 注册 JdbcTemplate、事务管理器，按需注册 MyBatis SqlSessionFactory 与 Mapper，再注册被测服务与桩
+ */
+public final class H2TestContext implements AutoCloseable {
+
+    private final AnnotationConfigApplicationContext context;
+    private final StatementCountingDataSource dataSource;
+
+    private H2TestContext(AnnotationConfigApplicationContext context, StatementCountingDataSource dataSource) {
+        this.context = context;
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * @param name 内存库名前缀（库名另加随机后缀，各上下文互不影响）
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public StatementCountingDataSource dataSource() {
+        return dataSource;
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return context.getBean(JdbcTemplate.class);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    public static final class Builder {
+
+        private final String name;
+        private String mode;
+        private String schema = "otc/otc-order-schema.sql";
+        private boolean transactional;
+        private final Map<String, Object> properties = new LinkedHashMap<>();
+        private final List<Class<?>> mappers = new ArrayList<>();
+        private final List<String> mapperLocations = new ArrayList<>();
+        private final List<Class<?>> components = new ArrayList<>();
+        private final List<BeanSupplier<?>> beans = new ArrayList<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * H2 兼容模式（Oracle / MySQL），不设置时为 H2 默认模式
+         */
+        public Builder mode(String mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        /**
+         * 建表脚本（classpath），默认 otc/otc-order-schema.sql
+         */
+        public Builder schema(String schema) {
+            this.schema = schema;
+            return this;
+        }
+
+        /**
+         * 启用 @Transactional（@EnableTransactionManagement）
+         */
+        public Builder transactional() {
+            this.transactional = true;
+            return this;
+        }
+
+        public Builder property(String key, Object value) {
+            properties.put(key, value);
+            return this;
+        }
+
+        public Builder mappers(Class<?>... mapperTypes) {
+            mappers.addAll(List.of(mapperTypes));
+            return this;
+        }
+
+        /**
+         * Mapper XML（classpath），注解 SQL 的 Mapper 不需要
+         */
+        public Builder mapperXml(String... locations) {
+            mapperLocations.addAll(List.of(locations));
+            return this;
+        }
+
+        /**
+         * 按类注册的组件（被测服务及其依赖）
+         */
+        public Builder register(Class<?>... componentClasses) {
+            components.addAll(List.of(componentClasses));
+            return this;
+        }
+
+        /**
+         * 直接给出实例的 Bean（桩、带测试参数构造的组件）
+         */
+        public <T> Builder bean(Class<T> type, Supplier<? extends T> supplier) {
+            beans.add(new BeanSupplier<>(type, supplier));
+            return this;
+        }
+
+        public H2TestContext start() {
+            String url = "jdbc:h2:mem:" + name + "_" + UUID.randomUUID()
+                    + (mode != null ? ";MODE=" + mode : "") + ";DB_CLOSE_DELAY=-1";
+            DriverManagerDataSource ds = new DriverManagerDataSource(url, "sa", "");
+            new ResourceDatabasePopulator(new ClassPathResource(schema)).execute(ds);
+            StatementCountingDataSource dataSource = new StatementCountingDataSource(ds);
+
+            AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+            context.registerBean("dataSource", DataSource.class, () -> dataSource);
+            context.register(JdbcConfig.class);
+            if (transactional) {
+                context.register(TransactionConfig.class);
+            }
+            if (!mappers.isEmpty()) {
+                context.registerBean("sqlSessionFactory", SqlSessionFactory.class, () -> sqlSessionFactory(dataSource));
+                for (Class<?> mapper : mappers) {
+                    registerMapper(context, mapper);
+                }
+            }
+            for (BeanSupplier<?> bean : beans) {
+                bean.register(context);
+            }
+            if (!components.isEmpty()) {
+                context.register(components.toArray(new Class<?>[0]));
+            }
+            context.refresh();
+            return new H2TestContext(context, dataSource);
+        }
+
+        private SqlSessionFactory sqlSessionFactory(DataSource dataSource) {
+            SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+            factory.setDataSource(dataSource);
+            factory.setConfigLocation(new ClassPathResource("mybatis-config.xml"));
+            if (!mapperLocations.isEmpty()) {
+                Resource[] resources = new Resource[mapperLocations.size()];
+                for (int i = 0; i < resources.length; i++) {
+                    resources[i] = new ClassPathResource(mapperLocations.get(i));
+                }
+                factory.setMapperLocations(resources);
+            }
+            try {
+                return factory.getObject();
+            } catch (Exception e) {
+                throw new IllegalStateException("创建 SqlSessionFactory 失败", e);
+            }
+        }
+
+        // 与 MyBatis Mapper 扫描相同的注册方式：MapperFactoryBean + 目标类型属性，按 Mapper 类型注入
+        private static void registerMapper(AnnotationConfigApplicationContext context, Class<?> mapper) {
+            RootBeanDefinition definition = new RootBeanDefinition(MapperFactoryBean.class);
+            definition.getConstructorArgumentValues().addGenericArgumentValue(mapper);
+            definition.getPropertyValues().add("sqlSessionFactory", new RuntimeBeanReference("sqlSessionFactory"));
+            definition.setAttribute(FactoryBean.OBJECT_TYPE_ATTRIBUTE, mapper);
+            context.registerBeanDefinition(Introspector.decapitalize(mapper.getSimpleName()), definition);
+        }
+    }
+
+    private static final class BeanSupplier<T> {
+        final Class<T> type;
+        final Supplier<? extends T> supplier;
+
+        BeanSupplier(Class<T> type, Supplier<? extends T> supplier) {
+            this.type = type;
+            this.supplier = supplier;
+        }
+
+        void register(AnnotationConfigApplicationContext context) {
+            context.registerBean(type, supplier::get);
+        }
+    }
+
+    @Configuration
+    static class JdbcConfig {
+
+        @Bean
+        public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+            return new JdbcTemplate(dataSource);
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+    }
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfig {
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.IdapCancelSegmentService.IdapCancelSegmentRequest;
+import com.example.demo.otc.IdapCancelSegmentService.IdapCancelSegmentResponse;
+import com.example.demo.otc.IdapCancelSegmentService.OcOrderLine;
+import com.example.demo.otc.IdapCancelSegmentService.OcOrderNumSegment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * IdapCancelSegmentService 测试：任意位数号段展开，整段批量判断 uu 关系并增补拆机订单行；
+ * 订单行有多条取消号段时只处理第一条符合条件的号段
+ */
+class IdapCancelSegmentServiceTest {
+
+    private static final long ORDER_ID = 3001L;
+    private static final long ORDER_LINE_ID = 4001L;
+
+    private H2TestContext context;
+    private IdapCancelSegmentService service;
+
+    @BeforeEach
+    void setUp() {
+        context = H2TestContext.builder("idap")
+                .mode("MySQL")
+                .register(SegmentIdAllocator.class, IdapCancelSegmentService.class)
+                .start();
+        service = context.getBean(IdapCancelSegmentService.class);
+
+        service.addOrderLine(OcOrderLine.builder()
+                .orderId(ORDER_ID)
+                .orderLineId(ORDER_LINE_ID)
+                .tradeTypeCode("110")
+                .netTypeCode("10")
+                .lineLevel(2)
+                .serialNumber("85290000000")
+                .extraAttrs(new HashMap<>())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void expandsSegmentOfAnyWidthInOrder() {
+        assertThat(IdapCancelSegmentService.expandSegment("138", 1)).containsExactly(
+                "1380", "1381", "1382", "1383", "1384", "1385", "1386", "1387", "1388", "1389");
+        List<String> numbers = IdapCancelSegmentService.expandSegment("5229", 4);
+        assertThat(numbers).hasSize(10_000);
+        assertThat(numbers.get(0)).isEqualTo("52290000");
+        assertThat(numbers.get(1_099)).isEqualTo("52291099");
+        assertThat(numbers.get(9_999)).isEqualTo("52299999");
+    }
+
+    @Test
+    void disassemblesEveryRelatedNumberOfWideSegment() {
+        addSegment("5229001", 3);
+
+        IdapCancelSegmentResponse resp = service.execute(request());
+
+        assertThat(resp.isSuccess()).isTrue();
+        // Mock：末位为偶数的号码存在 uu 关系
+        List<OcOrderLine> created = resp.getCreatedLines();
+        assertThat(created).hasSize(500);
+        assertThat(created.get(0).getSerialNumber()).isEqualTo("5229001000");
+        assertThat(created.get(499).getSerialNumber()).isEqualTo("5229001998");
+        assertThat(created).extracting(OcOrderLine::getOrderLineId).doesNotHaveDuplicates().isSorted();
+        assertThat(created.get(1).getMainProductId()).isEqualTo("PROD-1002");
+        assertThat(created.get(1).getMainProductName()).isEqualTo("default-product-name");
+        assertThat(resp.getBuildSteps()).hasSize(500 + 500 * 5);
+    }
+
+    @Test
+    void processesOnlyFirstCancelledSegmentOfTheLine() {
+        service.addNumSegment(OcOrderNumSegment.builder()
+                .orderId(ORDER_ID).orderLineId(ORDER_LINE_ID).modifyTag("0").actionType("30").segmentPrefix("5229003").build());
+        addSegment("5229001", 2);
+        addSegment("5229002", 1);
+
+        IdapCancelSegmentResponse resp = service.execute(request());
+
+        assertThat(resp.isSuccess()).isTrue();
+        assertThat(resp.getCreatedLines()).hasSize(50)
+                .allMatch(line -> line.getSerialNumber().startsWith("5229001"));
+    }
+
+    @Test
+    void rejectsUnsupportedSegmentWidth() {
+        addSegment("5", IdapCancelSegmentService.MAX_SEGMENT_WIDTH + 1);
+
+        IdapCancelSegmentResponse resp = service.execute(request());
+
+        assertThat(resp.isSuccess()).isFalse();
+        assertThat(resp.getCreatedLines()).isEmpty();
+    }
+
+    @Test
+    void ignoresLaterSegmentsOfTheLine() {
+        addSegment("5229001", 2);
+        addSegment("5", IdapCancelSegmentService.MAX_SEGMENT_WIDTH + 1);
+
+        IdapCancelSegmentResponse resp = service.execute(request());
+
+        assertThat(resp.isSuccess()).isTrue();
+        assertThat(resp.getCreatedLines()).hasSize(50);
+    }
+
+    private void addSegment(String prefix, int width) {
+        service.addNumSegment(OcOrderNumSegment.builder()
+                .orderId(ORDER_ID)
+                .orderLineId(ORDER_LINE_ID)
+                .modifyTag("1")
+                .actionType("30")
+                .segmentPrefix(prefix)
+                .segmentWidth(width)
+                .build());
+    }
+
+    private static IdapCancelSegmentRequest request() {
+        IdapCancelSegmentRequest req = new IdapCancelSegmentRequest();
+        req.setOrderId(ORDER_ID);
+        req.setUserId("U-GROUP-001");
+        return req;
+    }
+}
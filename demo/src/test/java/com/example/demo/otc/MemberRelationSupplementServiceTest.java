@@ -0,0 +1,116 @@
+package com.example.demo.otc;
+
+import com.example.demo.SnowflakeIdWorker;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MemberRelationSupplementService 台账 ID 并发测试：多线程同时补充台账，ID 前缀格式不变且无重复；
+ * 百万级 ID 的压力用例标记为 stress，默认构建不运行（mvn -Pstress test）
+ */
+class MemberRelationSupplementServiceTest {
+
+    private static final int THREADS = 8;
+    // 共 4.8 万个 ID：按毫秒取号时同一毫秒内必然重复，也足以让 Snowflake 单毫秒序号（4096）用尽后等待下一毫秒
+    private static final int SUPPLEMENTS_PER_THREAD = 2_000;
+    // 压力用例：共约 100 万个 ID
+    private static final int STRESS_SUPPLEMENTS_PER_THREAD = 42_000;
+    // 并发用例的成员号码从此开始，避开模拟的群组用户 U30001（成员即群组用户时不生成付费关系台账）
+    private static final long FIRST_MEMBER = 100_000L;
+    // 每次补充：新增/删除装机地址台账各一条（各一个 ID），新增付费关系台账一条（一个 ID），删除付费关系沿用原 ID
+    private static final int IDS_PER_SUPPLEMENT = 3;
+
+    private final MemberRelationSupplementService service = new MemberRelationSupplementService(new SnowflakeIdWorker(1, 1));
+
+    @Test
+    void keepsLedgerIdPrefixFormat() {
+        MemberRelationSupplementResponse resp = service.supplement(request(1));
+
+        assertThat(resp.isSuccess()).isTrue();
+        assertThat(resp.getInstallLedgers()).hasSize(2);
+        for (MemberRelationSupplementResponse.InstallLedgerDto ledger : resp.getInstallLedgers()) {
+            assertThat(ledger.getInstallId()).matches("I\\d+");
+            assertThat(ledger.getInstallItemId()).isEqualTo("I" + ledger.getInstallId());
+        }
+        assertThat(resp.getPayRelationLedgers()).extracting(MemberRelationSupplementResponse.PayRelationLedgerDto::getPayRelationId)
+                .containsExactly("PRU1", resp.getPayRelationLedgers().get(1).getPayRelationId());
+        assertThat(resp.getPayRelationLedgers().get(1).getPayRelationId()).matches("P\\d+");
+    }
+
+    @Test
+    void concurrentSupplementsNeverShareLedgerIds() throws Exception {
+        assertNoSharedLedgerIds(SUPPLEMENTS_PER_THREAD);
+    }
+
+    @Test
+    @Tag("stress")
+    void millionConcurrentLedgerIdsNeverRepeat() throws Exception {
+        assertNoSharedLedgerIds(STRESS_SUPPLEMENTS_PER_THREAD);
+    }
+
+    private void assertNoSharedLedgerIds(int supplementsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[supplementsPerThread * IDS_PER_SUPPLEMENT];
+                    int n = 0;
+                    start.await();
+                    for (int i = 0; i < supplementsPerThread; i++) {
+                        MemberRelationSupplementResponse resp = service.supplement(request(FIRST_MEMBER + i));
+                        if (!resp.isSuccess()) {
+                            throw new IllegalStateException(resp.getMessage());
+                        }
+                        for (MemberRelationSupplementResponse.InstallLedgerDto ledger : resp.getInstallLedgers()) {
+                            ids[n++] = Long.parseLong(ledger.getInstallId().substring(1));
+                        }
+                        ids[n++] = Long.parseLong(resp.getPayRelationLedgers().get(1).getPayRelationId().substring(1));
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            long[] all = new long[THREADS * supplementsPerThread * IDS_PER_SUPPLEMENT];
+            int offset = 0;
+            for (Future<long[]> future : futures) {
+                long[] ids = future.get();
+                System.arraycopy(ids, 0, all, offset, ids.length);
+                offset += ids.length;
+            }
+            Arrays.sort(all);
+            int duplicates = 0;
+            for (int i = 1; i < all.length; i++) {
+                if (all[i] == all[i - 1]) {
+                    duplicates++;
+                }
+            }
+            assertThat(offset).isEqualTo(all.length);
+            assertThat(duplicates).isZero();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static MemberRelationSupplementRequest request(long i) {
+        MemberRelationSupplementRequest request = new MemberRelationSupplementRequest();
+        request.setOrderId(5L);
+        request.setOrderLineId(i);
+        request.setSnUserId("U" + i);
+        request.setParentSerialNumber("GRP001");
+        request.setSrd("2025-06-01 00:00:00");
+        return request;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.OtcCalcModels.OtcCalcRequest;
+import com.example.demo.otc.OtcCalcModels.OtcCalcResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * OtcCalcService 集合查询模式回归测试：输出与逐条模式一致，且 SQL 往返次数不随产品/元素数量增长
+ */
+class OtcCalcServiceTest {
+
+    private static final long ORDER_ID = 1001L;
+    private static final long DN_LINE_ID = 2001L;
+    private static final String TRADE_TYPE = "10";
+
+    private StatementCountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ProductCenterClient productCenterClient;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                "jdbc:h2:mem:otc_calc_" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("otc/otc-calc-schema.sql")).execute(ds);
+        dataSource = new StatementCountingDataSource(ds);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        productCenterClient = new ProductCenterClient("OTC_DN,DN_OTC", "OTC_ORDER,ORDER_OTC");
+    }
+
+    @Test
+    void bulkModeProducesSameResultAsLoopMode() {
+        seedOrder(6, 4);
+
+        OtcCalcResponse loop = service(OtcCalcService.FETCH_MODE_LOOP).calculate(request());
+        OtcCalcResponse bulk = service(OtcCalcService.FETCH_MODE_BULK).calculate(request());
+
+        assertThat(loop.dnLevelOtcProductList).isNotEmpty();
+        assertThat(loop.orderLevelOtcProductList).isNotEmpty();
+        assertThat(bulk).usingRecursiveComparison().isEqualTo(loop);
+    }
+
+    @Test
+    void bulkModeIssuesConstantNumberOfStatements() {
+        seedOrder(2, 2);
+        long small = countStatements(OtcCalcService.FETCH_MODE_BULK);
+
+        seedOrder(40, 10);
+        long large = countStatements(OtcCalcService.FETCH_MODE_BULK);
+
+        // DN 统计 + 抽样 + 产品 + 元素 + 元素属性
+        assertThat(small).isEqualTo(5);
+        assertThat(large).isEqualTo(5);
+    }
+
+    @Test
+    void loopModeIssuesOneStatementPerProductAndElement() {
+        seedOrder(6, 4);
+        // 6 个产品中 5 个为 OTC 产品，每个 4 个元素：3 + 5 + 5 * 4
+        assertThat(countStatements(OtcCalcService.FETCH_MODE_LOOP)).isEqualTo(28);
+    }
+
+    @Test
+    void minOrderLineIdSamplerPicksLowestValidDn() {
+        seedOrder(6, 4);
+        seedExtraDns(5);
+
+        OtcCalcResponse first = service(OtcCalcService.FETCH_MODE_BULK, MinOrderLineIdDnSampler.NAME).calculate(request());
+        OtcCalcResponse second = service(OtcCalcService.FETCH_MODE_BULK, MinOrderLineIdDnSampler.NAME).calculate(request());
+
+        assertThat(first.dnQty).isEqualTo(6);
+        // 产品只挂在 DN_LINE_ID 上，确定性抽样必然命中
+        assertThat(first.dnLevelOtcProductList).isNotEmpty();
+        assertThat(second).usingRecursiveComparison().isEqualTo(first);
+    }
+
+    @Test
+    void countOffsetSamplerOnlyPicksValidDns() {
+        seedOrder(2, 2);
+        seedExtraDns(5);
+        CountOffsetDnSampler sampler = new CountOffsetDnSampler(jdbcTemplate);
+        DnSampler.DnScope scope = DnSampler.DnScope.of(request());
+        DnSampler.DnStats stats = new DnSampler.DnStats(6, DN_LINE_ID);
+
+        for (int i = 0; i < 50; i++) {
+            long lineId = sampler.pick(scope, stats).orElseThrow().order_line_id;
+            assertThat(lineId).isIn(DN_LINE_ID, 3001L, 3002L, 3003L, 3004L, 3005L);
+        }
+    }
+
+    @Test
+    void samplersReturnEmptyWhenNoDn() {
+        DnSampler.DnScope scope = DnSampler.DnScope.of(request());
+        assertThat(new CountOffsetDnSampler(jdbcTemplate).pick(scope, DnSampler.DnStats.EMPTY)).isEmpty();
+        assertThat(new MinOrderLineIdDnSampler(jdbcTemplate).pick(scope, DnSampler.DnStats.EMPTY)).isEmpty();
+        assertThat(service(OtcCalcService.FETCH_MODE_BULK).calculate(request()).dnQty).isZero();
+    }
+
+    private void seedExtraDns(int count) {
+        String lineSql = "insert into oc_order_line (order_id, order_line_id, trade_type_code, trace_type_code, cancel_tag, produce_order_state, line_leve) values (?, ?, ?, ?, ?, ?, ?)";
+        for (int i = 1; i <= count; i++) {
+            jdbcTemplate.update(lineSql, ORDER_ID, 3000L + i, TRADE_TYPE, "10", "0", "", 0);
+        }
+    }
+
+    private long countStatements(String mode) {
+        OtcCalcService service = service(mode);
+        dataSource.reset();
+        service.calculate(request());
+        return dataSource.getStatementCount();
+    }
+
+    private OtcCalcService service(String mode) {
+        return service(mode, CountOffsetDnSampler.NAME);
+    }
+
+    private OtcCalcService service(String mode, String samplerName) {
+        List<DnSampler> samplers = List.of(new CountOffsetDnSampler(jdbcTemplate), new MinOrderLineIdDnSampler(jdbcTemplate));
+        return new OtcCalcService(jdbcTemplate, productCenterClient, mode, samplers, samplerName);
+    }
+
+    private OtcCalcRequest request() {
+        OtcCalcRequest req = new OtcCalcRequest();
+        req.amendOrderList = List.of(ORDER_ID);
+        req.trade_type_code = TRADE_TYPE;
+        req.cancel_tag = 0;
+        req.cancelDnQty = 0L;
+        return req;
+    }
+
+    /**
+     * 构造一条有效 DN 与两条无效 DN；有效 DN 下按 DN 级 / order 级 / 非 OTC 产品轮流生成产品，每个产品挂 elementsPerProduct 个元素
+     */
+    private void seedOrder(int products, int elementsPerProduct) {
+        jdbcTemplate.update("delete from oc_order_element_item");
+        jdbcTemplate.update("delete from oc_order_product_element");
+        jdbcTemplate.update("delete from oc_order_product");
+        jdbcTemplate.update("delete from oc_order_line");
+
+        String lineSql = "insert into oc_order_line (order_id, order_line_id, trade_type_code, trace_type_code, cancel_tag, produce_order_state, line_leve) values (?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.update(lineSql, ORDER_ID, DN_LINE_ID, TRADE_TYPE, "10", "0", "0", 1);
+        jdbcTemplate.update(lineSql, ORDER_ID, DN_LINE_ID + 1, TRADE_TYPE, "10", "1", "0", 1);
+        jdbcTemplate.update(lineSql, ORDER_ID, DN_LINE_ID + 2, TRADE_TYPE, "615", "0", "0", 1);
+
+        Timestamp start = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0));
+        Timestamp end = Timestamp.valueOf(LocalDateTime.of(2099, 12, 31, 23, 59, 59));
+        String[] typeCodes = {"OTC_DN", "OTC_ORDER", "dn_otc", "ORDER_OTC", "OTC_DN", "MRC"};
+
+        List<Object[]> productRows = new ArrayList<>();
+        List<Object[]> elementRows = new ArrayList<>();
+        List<Object[]> attrRows = new ArrayList<>();
+        long elementSeq = 1;
+        for (int p = 0; p < products; p++) {
+            long productId = 100 + p;
+            long prodItemId = 500 + p;
+            productRows.add(new Object[]{ORDER_ID, DN_LINE_ID, productId, 900L, prodItemId, typeCodes[p % typeCodes.length], "0", start, end});
+            for (int e = 0; e < elementsPerProduct; e++, elementSeq++) {
+                long elementId = 7000 + elementSeq;
+                long elementItemId = 8000 + elementSeq;
+                elementRows.add(new Object[]{ORDER_ID, DN_LINE_ID, productId, prodItemId, elementId, elementItemId, "0", start, end});
+                // 元素属性按序号组合：部分缺失 standard_fee / rebate_fee / qty，部分值非法
+                attrRows.add(new Object[]{ORDER_ID, elementId, elementItemId, "otc_fee", String.valueOf(1000 + elementSeq), "0", start, end});
+                if (elementSeq % 2 == 0) {
+                    attrRows.add(new Object[]{ORDER_ID, elementId, elementItemId, "standard_fee", String.valueOf(5000 + elementSeq), "0", start, end});
+                }
+                if (elementSeq % 3 != 0) {
+                    attrRows.add(new Object[]{ORDER_ID, elementId, elementItemId, "rebate_fee", String.valueOf(200 + elementSeq), "0", start, end});
+                }
+                if (elementSeq % 4 == 0) {
+                    attrRows.add(new Object[]{ORDER_ID, elementId, elementItemId, "qty", String.valueOf(elementSeq % 7 + 1), "0", start, end});
+                }
+                if (elementSeq % 5 == 0) {
+                    attrRows.add(new Object[]{ORDER_ID, elementId, elementItemId, "standard_fee", "n/a", "1", start, end});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into oc_order_product (order_id, order_line_id, product_id, package_id, prod_item_id, product_type_code, modify_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?)", productRows);
+        jdbcTemplate.batchUpdate("insert into oc_order_product_element (order_id, order_line_id, product_id, prod_item_id, element_id, element_item_id, modify_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?)", elementRows);
+        jdbcTemplate.batchUpdate("insert into oc_order_element_item (order_id, element_id, element_item_id, attr_code, attr_value, modify_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?, ?)", attrRows);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.demo.otc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SegmentIdAllocator：多线程并发取号不重复、批量取号跨号段补齐、当前号段用到 80% 时后台预取下一段
+ */
+class SegmentIdAllocatorTest {
+
+    private static final String BIZ_TAG = "test_id";
+
+    private H2TestContext context;
+    private StatementCountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private SegmentIdAllocator allocator;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void concurrentNextIdsAreUniqueAcrossThreads() throws Exception {
+        start(50);
+        int threads = 8;
+        int rounds = 500;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch ready = new CountDownLatch(threads);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                boolean batched = t % 2 == 1;
+                futures.add(pool.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < rounds; i++) {
+                        if (batched) {
+                            for (long id : allocator.nextIds(BIZ_TAG, 3)) {
+                                ids.add(id);
+                            }
+                        } else {
+                            ids.add(allocator.nextId(BIZ_TAG));
+                        }
+                    }
+                    return ids;
+                }));
+            }
+            List<Long> all = new ArrayList<>();
+            for (Future<List<Long>> future : futures) {
+                all.addAll(future.get());
+            }
+
+            // 4 个线程各取 500 个，4 个线程各批量取 500 × 3 个
+            assertThat(all).hasSize(threads / 2 * rounds * 4).doesNotHaveDuplicates();
+            long maxId = maxId();
+            assertThat(all).allMatch(id -> id >= 1 && id <= maxId);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void nextIdsSpillOverSegmentBoundary() {
+        start(10);
+        jdbcTemplate.update("insert into id_segment (biz_tag, max_id, step) values (?, ?, ?)", BIZ_TAG, 100L, 10);
+
+        assertThat(ids(allocator.nextIds(BIZ_TAG, 7))).containsExactly(101L, 102L, 103L, 104L, 105L, 106L, 107L);
+        // 当前号段只剩 3 个，其余 4 个取自下一段
+        assertThat(ids(allocator.nextIds(BIZ_TAG, 7))).containsExactly(108L, 109L, 110L, 111L, 112L, 113L, 114L);
+        // 一次超过步长时连续跨多段
+        long[] spanning = allocator.nextIds(BIZ_TAG, 25);
+        assertThat(ids(spanning)).hasSize(25).doesNotHaveDuplicates();
+        assertThat(spanning[0]).isEqualTo(115L);
+        assertThat(spanning[24]).isEqualTo(139L);
+        assertThat(allocator.nextIds(BIZ_TAG, 0)).isEmpty();
+    }
+
+    @Test
+    void prefetchesNextSegmentBeforeCurrentIsExhausted() throws InterruptedException {
+        start(10);
+
+        // 号段 [1, 10]，取到第 9 个（80%）时开始预取 [11, 20]
+        for (int i = 0; i < 8; i++) {
+            allocator.nextId(BIZ_TAG);
+        }
+        assertThat(maxId()).isEqualTo(10L);
+        assertThat(allocator.nextId(BIZ_TAG)).isEqualTo(9L);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (maxId() < 20 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(maxId()).isEqualTo(20L);
+
+        // 切换到预取好的号段，不再访问数据库
+        dataSource.reset();
+        assertThat(allocator.nextId(BIZ_TAG)).isEqualTo(10L);
+        assertThat(allocator.nextId(BIZ_TAG)).isEqualTo(11L);
+        assertThat(dataSource.getStatementCount()).isZero();
+    }
+
+    private long maxId() {
+        Long maxId = jdbcTemplate.queryForObject("select max_id from id_segment where biz_tag = ?", Long.class, BIZ_TAG);
+        return maxId == null ? 0 : maxId;
+    }
+
+    private static List<Long> ids(long[] ids) {
+        List<Long> result = new ArrayList<>();
+        for (long id : ids) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private void start(int step) {
+        context = H2TestContext.builder("segment_id_allocator")
+                .property("otc.id-segment.step", step)
+                .register(SegmentIdAllocator.class)
+                .start();
+        dataSource = context.dataSource();
+        jdbcTemplate = context.jdbcTemplate();
+        allocator = context.getBean(SegmentIdAllocator.class);
+    }
+}
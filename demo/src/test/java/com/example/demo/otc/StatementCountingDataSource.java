@@ -0,0 +1,85 @@
+package com.example.demo.otc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计 SQL 语句往返次数的数据源包装
+ * 每次 prepareStatement / createStatement / prepareCall 计为一条语句（JDBC 批量执行时同一语句只计一次）
+ * 预编译语句另按 SQL 首个关键字（SELECT / INSERT / UPDATE ...）分别计数
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    private final AtomicLong statements = new AtomicLong();
+    private final Map<String, AtomicLong> statementsByVerb = new ConcurrentHashMap<>();
+
+    public StatementCountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    public long getStatementCount() {
+        return statements.get();
+    }
+
+    public long getStatementCount(String verb) {
+        AtomicLong count = statementsByVerb.get(verb.toUpperCase(Locale.ROOT));
+        return count == null ? 0 : count.get();
+    }
+
+    public void reset() {
+        statements.set(0);
+        statementsByVerb.clear();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.equals("prepareStatement") || name.equals("createStatement") || name.equals("prepareCall")) {
+                statements.incrementAndGet();
+                if (args != null && args.length > 0 && args[0] instanceof String) {
+                    statementsByVerb.computeIfAbsent(verbOf((String) args[0]), k -> new AtomicLong()).incrementAndGet();
+                }
+            }
+            return invoke(target, method, args);
+        };
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static String verbOf(String sql) {
+        String trimmed = sql.trim();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        return trimmed.substring(0, end).toUpperCase(Locale.ROOT);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.otc;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 产品标签固定的 ProductCenterClient：记录每次批量查询的产品及调用时是否处于事务中；tags 为 null 时模拟标签查询失败
+ */
+class StubProductCenterClient extends ProductCenterClient {
+
+    private final Map<String, String> tags;
+    final List<List<String>> requests = new CopyOnWriteArrayList<>();
+    final List<Boolean> inTransaction = new CopyOnWriteArrayList<>();
+
+    StubProductCenterClient(Map<String, String> tags) {
+        super("OTC_DN,DN_OTC", "OTC_ORDER,ORDER_OTC");
+        this.tags = tags;
+    }
+
+    @Override
+    public Map<String, String> getProductTags(Collection<String> productIds, String tag) {
+        requests.add(new ArrayList<>(productIds));
+        inTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+        return tags;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.demo.otc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SuspendService 测试：按账户用户列表批量查询后生成的服务状态台账与逐用户规则一致，SQL 条数不随用户数增长；
+ * suspend_indicator 在事务开启前一次查出，查询失败时订单不处理也不归档
+ */
+class SuspendServiceTest {
+
+    private static final long ORDER_ID = 7L;
+    private static final long ORDER_LINE_ID = 1L;
+    private static final long ACCOUNT_ID = 700_001L;
+
+    private H2TestContext context;
+    private StatementCountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void suspendsEveryUserWithNormalServices() {
+        start();
+        int users = 60;
+        seed(users, false);
+
+        context.getBean(SuspendService.class).processSuspend(ORDER_ID, ORDER_LINE_ID, "7220");
+
+        assertThat(count("select count(1) from oc_order_num_svcstate where order_id = ?", ORDER_ID)).isEqualTo(expectedRows(users));
+        // 每个处理的用户一个订单行，停机/开机台账成对
+        assertThat(count("select count(distinct order_line_id) from oc_order_num_svcstate where order_id = ?", ORDER_ID))
+                .isEqualTo(processedUsers(users));
+        assertThat(count("select count(distinct user_id) from oc_order_num_svcstate where order_id = ?", ORDER_ID))
+                .isEqualTo(processedUsers(users));
+        assertThat(count("select count(1) from oc_order_num_svcstate where modify_tag = '0' and service_state_code = '5'"))
+                .isEqualTo(expectedRows(users) / 2);
+        // 仅 IDD 付费关系的用户只处理 IDD 服务
+        assertThat(count("select count(1) from oc_order_num_svcstate where user_id = ? and service_id <> 'IDD_SERVICE_CODE'", userId(3))).isZero();
+        // 同一用户在账户下的多条付费关系只处理一次
+        assertThat(count("select count(1) from oc_order_num_svcstate where user_id = ?", userId(1))).isEqualTo(4);
+        assertThat(count("select count(1) from oc_order_line where order_id = ? and order_state = 'ARCHIVED'", ORDER_ID)).isZero();
+    }
+
+    @Test
+    void archivesOrderWhenNoUserHasNormalService() {
+        start();
+        seed(12, true);
+
+        context.getBean(SuspendService.class).processSuspend(ORDER_ID, ORDER_LINE_ID, "126");
+
+        assertThat(count("select count(1) from oc_order_num_svcstate")).isZero();
+        assertThat(count("select count(1) from oc_order_line where order_id = ? and order_state = 'ARCHIVED'", ORDER_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void suspendIndicatorIsFetchedOnceBeforeTheTransaction() {
+        StubProductCenterClient productCenter = new StubProductCenterClient(Map.of("PROD_001", "Y"));
+        start(productCenter);
+        seed(12, false);
+
+        context.getBean(SuspendService.class).processSuspend(ORDER_ID, ORDER_LINE_ID, "7220");
+
+        assertThat(productCenter.requests).containsExactly(List.of("PROD_001"));
+        assertThat(productCenter.inTransaction).containsExactly(false);
+        // 标签为 Y 的号码全部跳过，订单归档
+        assertThat(count("select count(1) from oc_order_num_svcstate")).isZero();
+        assertThat(count("select count(1) from oc_order_line where order_id = ? and order_state = 'ARCHIVED'", ORDER_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void failedTagLookupLeavesOrderPending() {
+        start(new StubProductCenterClient(null));
+        seed(12, false);
+
+        context.getBean(SuspendService.class).processSuspend(ORDER_ID, ORDER_LINE_ID, "7220");
+
+        assertThat(count("select count(1) from oc_order_num_svcstate")).isZero();
+        assertThat(count("select count(1) from oc_order_line where order_id = ? and order_state = 'ARCHIVED'", ORDER_ID)).isZero();
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithUsers() {
+        start();
+        seed(10, false);
+        long small = countStatements();
+
+        start();
+        seed(100, false);
+        long large = countStatements();
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    private long countStatements() {
+        dataSource.reset();
+        context.getBean(SuspendService.class).processSuspend(ORDER_ID, ORDER_LINE_ID, "7220");
+        return dataSource.getStatementCount();
+    }
+
+    private static long userId(int u) {
+        return 70_000L + u;
+    }
+
+    private static int processedUsers(int users) {
+        int n = 0;
+        for (int u = 1; u <= users; u++) {
+            if (u % 4 != 0) n++;
+        }
+        return n;
+    }
+
+    /**
+     * 处理的用户：仅 IDD 付费关系时 IDD 服务一对台账，否则两个正常服务各一对
+     */
+    private static int expectedRows(int users) {
+        int rows = 0;
+        for (int u = 1; u <= users; u++) {
+            if (u % 4 != 0) {
+                rows += u % 3 == 0 ? 2 : 4;
+            }
+        }
+        return rows;
+    }
+
+    private int count(String sql, Object... args) {
+        Integer n = jdbcTemplate.queryForObject(sql, Integer.class, args);
+        return n == null ? 0 : n;
+    }
+
+    private void start() {
+        start(new ProductCenterClient("OTC_DN,DN_OTC", "OTC_ORDER,ORDER_OTC"));
+    }
+
+    private void start(ProductCenterClient productCenterClient) {
+        if (context != null) {
+            context.close();
+        }
+        // SuspendMapper 使用 SYSDATE
+        context = H2TestContext.builder("suspend")
+                .mode("Oracle")
+                .transactional()
+                .mappers(SuspendMapper.class)
+                .bean(ProductCenterClient.class, () -> productCenterClient)
+                .register(SegmentIdAllocator.class, SuspendService.class)
+                .start();
+        dataSource = context.dataSource();
+        jdbcTemplate = context.jdbcTemplate();
+    }
+
+    /**
+     * 用户 u：u % 4 == 0 无正常服务（全部不处理时 noNormalService 为 true）；u % 3 == 0 只有 IDD 付费关系；
+     * 用户 1 在账户下另有一条 IDD 付费关系；每个用户另有一条非正常状态服务
+     */
+    private void seed(int users, boolean noNormalService) {
+        Timestamp start = Timestamp.valueOf(LocalDateTime.now().minusYears(1));
+        Timestamp end = Timestamp.valueOf(LocalDateTime.now().plusYears(1));
+        jdbcTemplate.update("insert into oc_order_line (order_id, order_line_id, trade_type_code, cancel_tag, line_level) values (?, ?, ?, ?, ?)",
+                ORDER_ID, ORDER_LINE_ID, "7220", "0", 1);
+        jdbcTemplate.update("insert into oc_order_line_item (order_id, order_line_id, attr_code, attr_value, modify_tag) values (?, ?, ?, ?, ?)",
+                ORDER_ID, ORDER_LINE_ID, "ACCOUNT_ID", String.valueOf(ACCOUNT_ID), "0");
+        jdbcTemplate.update("insert into id_segment (biz_tag, max_id, step) values (?, ?, ?)", SegmentIdAllocator.ORDER_LINE_ID, 99_999L, 1000);
+
+        List<Object[]> payRelations = new ArrayList<>();
+        List<Object[]> svcStates = new ArrayList<>();
+        for (int u = 1; u <= users; u++) {
+            long userId = userId(u);
+            payRelations.add(new Object[]{userId, ACCOUNT_ID, u % 3 == 0 ? "I" : "N", start, end});
+            if (u == 1) {
+                payRelations.add(new Object[]{userId, ACCOUNT_ID, "I", start, end});
+            }
+            if (!noNormalService && u % 4 != 0) {
+                svcStates.add(new Object[]{userId, "S_MAIN", "0", "1", start, end});
+                svcStates.add(new Object[]{userId, "IDD_SERVICE_CODE", "0", "0", start, end});
+            }
+            svcStates.add(new Object[]{userId, "S_VAS", "4", "0", start, end});
+        }
+        jdbcTemplate.batchUpdate("insert into tf_f_payrelation (user_id, account_id, price_tag, start_date, end_date) values (?, ?, ?, ?, ?)", payRelations);
+        jdbcTemplate.batchUpdate("insert into tf_f_user_svcstate (user_id, service_id, service_state_code, main_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?)", svcStates);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.UserCenterCache.Entity;
+import com.example.demo.otc.UserCenterCache.Stats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UserCenterCache：事务内一级缓存、跨请求二级缓存（含查无结果）、容量与有效期淘汰、
+ * 事务内失效后未提交数据不进入二级缓存，以及按实体类型的命中统计
+ */
+class UserCenterCacheTest {
+
+    private TransactionTemplate transactionTemplate;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                "jdbc:h2:mem:user_center_cache_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(ds));
+    }
+
+    @Test
+    void sharesLoadedValuesAcrossRequestsIncludingMissingUsers() {
+        UserCenterCache cache = new UserCenterCache(100, 60, TimeUnit.SECONDS);
+
+        assertThat(cache.get(Entity.USER, 1L, loader("U1"))).isEqualTo("U1");
+        assertThat(cache.get(Entity.USER, 1L, loader("changed"))).isEqualTo("U1");
+        assertThat(cache.get(Entity.USER, 2L, loader(null))).isNull();
+        assertThat(cache.get(Entity.USER, 2L, loader("U2"))).isNull();
+        // 同一用户不同实体 / 不同查询分别缓存
+        assertThat(cache.get(Entity.USER_SVC_STATE, 1L, "cease", loader("S1"))).isEqualTo("S1");
+        assertThat(cache.get(Entity.USER_SVC_STATE, 1L, "all", loader("S1-all"))).isEqualTo("S1-all");
+        assertThat(loads).hasValue(4);
+
+        Stats user = cache.stats().get(Entity.USER);
+        assertThat(user.l2Hits).isEqualTo(2);
+        assertThat(user.misses).isEqualTo(2);
+        assertThat(user.hitRatio()).isEqualTo(0.5);
+        assertThat(cache.stats().get(Entity.USER_SVC_STATE).size).isEqualTo(1);
+        assertThat(cache.stats().get(Entity.PAY_RELATION).misses).isZero();
+    }
+
+    @Test
+    void servesRepeatedLookupsInOneTransactionFromFirstLevel() {
+        UserCenterCache cache = new UserCenterCache(100, 0, TimeUnit.SECONDS);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) {
+                assertThat(cache.get(Entity.PAY_RELATION, 1L, loader("P1"))).isEqualTo("P1");
+            }
+        });
+        // 二级缓存关闭：新事务重新查询
+        transactionTemplate.executeWithoutResult(status -> cache.get(Entity.PAY_RELATION, 1L, loader("P1")));
+
+        assertThat(loads).hasValue(2);
+        Stats stats = cache.stats().get(Entity.PAY_RELATION);
+        assertThat(stats.l1Hits).isEqualTo(4);
+        assertThat(stats.misses).isEqualTo(2);
+        assertThat(stats.size).isZero();
+    }
+
+    @Test
+    void invalidationInTransactionKeepsUncommittedValuesOutOfSecondLevel() {
+        UserCenterCache cache = new UserCenterCache(100, 60, TimeUnit.SECONDS);
+        cache.get(Entity.USER, 1L, loader("old"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(cache.get(Entity.USER, 1L, loader("unused"))).isEqualTo("old");
+            // 订单写 tf_f_user 后失效：本事务读到自己写入的新值
+            cache.invalidate(Entity.USER, 1L);
+            assertThat(cache.get(Entity.USER, 1L, loader("new"))).isEqualTo("new");
+            assertThat(cache.get(Entity.USER, 1L, loader("unused"))).isEqualTo("new");
+            assertThat(cache.stats().get(Entity.USER).size).isZero();
+        });
+        assertThat(cache.get(Entity.USER, 1L, loader("committed"))).isEqualTo("committed");
+
+        // 回滚的事务同样不留下未提交的值
+        transactionTemplate.executeWithoutResult(status -> {
+            cache.invalidate(Entity.USER, 1L);
+            cache.get(Entity.USER, 1L, loader("rolled-back"));
+            status.setRollbackOnly();
+        });
+        assertThat(cache.get(Entity.USER, 1L, loader("reloaded"))).isEqualTo("reloaded");
+        assertThat(cache.stats().get(Entity.USER).invalidations).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedUsersAndExpiredEntries() throws InterruptedException {
+        UserCenterCache cache = new UserCenterCache(2, 60, TimeUnit.SECONDS);
+        cache.get(Entity.USER, 1L, loader("U1"));
+        cache.get(Entity.USER, 2L, loader("U2"));
+        cache.get(Entity.USER, 1L, loader("unused"));
+        cache.get(Entity.USER, 3L, loader("U3"));
+
+        // 用户 2 最久未访问，被淘汰
+        assertThat(cache.get(Entity.USER, 1L, loader("unused"))).isEqualTo("U1");
+        assertThat(cache.get(Entity.USER, 2L, loader("U2-reloaded"))).isEqualTo("U2-reloaded");
+        assertThat(cache.stats().get(Entity.USER).evictions).isEqualTo(2);
+
+        UserCenterCache shortLived = new UserCenterCache(100, 50, TimeUnit.MILLISECONDS);
+        shortLived.get(Entity.USER_RELATION, 1L, "members", loader("R1"));
+        Thread.sleep(100);
+        assertThat(shortLived.get(Entity.USER_RELATION, 1L, "members", loader("R1-reloaded"))).isEqualTo("R1-reloaded");
+    }
+
+    private Supplier<String> loader(String value) {
+        return () -> {
+            loads.incrementAndGet();
+            return value;
+        };
+    }
+}
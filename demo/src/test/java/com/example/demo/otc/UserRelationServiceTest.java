@@ -0,0 +1,195 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.UuRelationService.UserCenterClient;
+import com.example.demo.otc.UuRelationService.UserRelationInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 用户关系台账批量生成测试：与逐条生成结果一致，SQL 条数不随成员数增长，单个成员失败不影响其他成员；
+ * 站点群组关系批量修改按请求顺序返回每个成员的新增/删除台账
+ */
+class UserRelationServiceTest {
+
+    private static final long ORDER_ID = 4L;
+    private static final String CITINET_GROUP = "GRP001";
+    private static final String PLAIN_GROUP = "GRP002";
+    private static final int MEMBERS = 40;
+    // 用户中心对该成员抛出异常；该成员订单行无新号码
+    private static final long FAILING_MEMBER = 4;
+    private static final long NO_NEW_NUMBER_MEMBER = 5;
+
+    private H2TestContext context;
+    private StatementCountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private UserRelationService service;
+
+    @BeforeEach
+    void setUp() {
+        context = H2TestContext.builder("user_relation")
+                .mode("MySQL")
+                .property("otc.user-relation.batch-chunk-size", 7)
+                .property("otc.user-relation.batch-workers", 3)
+                .property("otc.site-group-relation.batch-chunk-size", 7)
+                .property("otc.site-group-relation.batch-workers", 3)
+                .bean(UserCenterClient.class, UserRelationServiceTest::userCenterClient)
+                .register(UserRelationService.class, SiteGroupRelationService.class)
+                .start();
+        dataSource = context.dataSource();
+        jdbcTemplate = context.jdbcTemplate();
+        service = context.getBean(UserRelationService.class);
+        seed();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void batchMatchesSingleLedgers() {
+        List<UserRelationRequest> reqs = new ArrayList<>();
+        List<UserLedger> expected = new ArrayList<>();
+        for (long i = 1; i <= MEMBERS; i++) {
+            UserRelationRequest req = request(i);
+            reqs.add(req);
+            if (i != FAILING_MEMBER && i != NO_NEW_NUMBER_MEMBER) {
+                expected.add(service.generateUserLedger(req).ledger);
+            }
+        }
+        jdbcTemplate.update("delete from oc_order_relation_uu");
+
+        List<UserRelationResponse> responses = service.generateUserLedgers(reqs);
+
+        assertThat(responses).hasSize(MEMBERS);
+        assertThat(responses.get((int) FAILING_MEMBER - 1).success).isFalse();
+        assertThat(responses.get((int) FAILING_MEMBER - 1).message).startsWith("系统异常");
+        assertThat(responses.get((int) NO_NEW_NUMBER_MEMBER - 1).success).isFalse();
+        List<UserLedger> ledgers = new ArrayList<>();
+        for (UserRelationResponse resp : responses) {
+            if (resp.success) {
+                ledgers.add(resp.ledger);
+            }
+        }
+        assertThat(ledgers).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(expected);
+        assertThat(jdbcTemplate.queryForObject("select count(1) from oc_order_relation_uu where order_id = ?", Integer.class, ORDER_ID))
+                .isEqualTo(MEMBERS - 2);
+
+        // 修改订单与群组改号订单的取值
+        assertThat(responses.get(1).ledger.call_sequence).isEqualTo("9");
+        assertThat(responses.get(2).ledger.is_primary_number).isEqualTo("1");
+        assertThat(responses.get(5).ledger.serial_number_a).isEqualTo("NGRP001");
+        assertThat(responses.get(6).ledger.serial_number_a).isEqualTo("P-" + PLAIN_GROUP);
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithMembers() {
+        List<UserRelationRequest> reqs = new ArrayList<>();
+        for (long i = 1; i <= MEMBERS; i++) {
+            reqs.add(request(i));
+        }
+
+        dataSource.reset();
+        service.generateUserLedgers(reqs);
+
+        assertThat(dataSource.getStatementCount("SELECT")).isEqualTo(3);
+        assertThat(dataSource.getStatementCount("INSERT")).isEqualTo(1);
+    }
+
+    @Test
+    void siteGroupBatchReturnsLedgersPerMemberInOrder() {
+        List<SiteGroupRelationRequest> requests = new ArrayList<>();
+        for (long i = 1; i <= MEMBERS; i++) {
+            SiteGroupRelationRequest request = new SiteGroupRelationRequest();
+            request.setOrderId(ORDER_ID);
+            request.setOrderLineId(i);
+            request.setSnUserId(String.valueOf(i));
+            request.setSerialNumber("SN" + i);
+            request.setSrd("2025-06-01 00:00:00");
+            requests.add(request);
+        }
+        requests.add(null);
+
+        List<SiteGroupRelationResponse> responses = context.getBean(SiteGroupRelationService.class).modifySiteGroupRelations(requests);
+
+        assertThat(responses).hasSize(MEMBERS + 1);
+        for (int i = 0; i < MEMBERS; i++) {
+            SiteGroupRelationResponse resp = responses.get(i);
+            assertThat(resp.isSuccess()).isTrue();
+            assertThat(resp.getUuLedgers()).extracting(SiteGroupRelationResponse.UuLedgerDto::getModifyTag).containsExactly("0", "1");
+            assertThat(resp.getUuLedgers().get(0).getUserIdB()).isEqualTo(String.valueOf(i + 1));
+            assertThat(resp.getUuLedgers().get(1).getEndDate()).isEqualTo("2025-06-01 23:59:58");
+        }
+        assertThat(responses.get(MEMBERS).isSuccess()).isFalse();
+    }
+
+    private static UserRelationRequest request(long i) {
+        UserRelationRequest req = new UserRelationRequest();
+        req.order_id = ORDER_ID;
+        req.order_line_id = i;
+        req.serial_number = "SN" + i;
+        req.parent_serial_number = i % 2 == 0 ? CITINET_GROUP : PLAIN_GROUP;
+        req.sn_user_id = String.valueOf(i);
+        return req;
+    }
+
+    /**
+     * 成员 i 的订单行 i 带新号码（NO_NEW_NUMBER_MEMBER 除外）；成员 2 有 Call sequence 修改订单，成员 3 有主号码修改订单；
+     * CITINET_GROUP 为 citinet 群组且有群组改号订单，PLAIN_GROUP 两者都没有
+     */
+    private void seed() {
+        Timestamp start = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0));
+        Timestamp end = Timestamp.valueOf(LocalDateTime.of(2099, 12, 31, 23, 59, 59));
+        List<Object[]> lines = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        for (long i = 1; i <= MEMBERS; i++) {
+            if (i != NO_NEW_NUMBER_MEMBER) {
+                items.add(new Object[]{ORDER_ID, i, "New Serial Number", "NSN" + i, "0", start, end});
+            }
+            items.add(new Object[]{ORDER_ID, i, "New Serial Number", "DELETED", "1", start, end});
+        }
+        lines.add(new Object[]{ORDER_ID, 1002L, "SN2", CITINET_GROUP, "340", "34005", "0", 1});
+        items.add(new Object[]{ORDER_ID, 1002L, "Call sequence", "9", "0", start, end});
+        lines.add(new Object[]{ORDER_ID, 1003L, "SN3", PLAIN_GROUP, "340", "34007", "0", 1});
+        items.add(new Object[]{ORDER_ID, 1003L, "Is Primary Number", "1", "0", start, end});
+        // 已撤单的修改订单不参与
+        lines.add(new Object[]{ORDER_ID, 1006L, "SN6", CITINET_GROUP, "340", "34005", "1", 1});
+        items.add(new Object[]{ORDER_ID, 1006L, "Call sequence", "CANCELLED", "0", start, end});
+        lines.add(new Object[]{ORDER_ID, 2000L, CITINET_GROUP, null, "279", null, "0", 2});
+        items.add(new Object[]{ORDER_ID, 2000L, "New Serial Number", "NGRP001", "0", start, end});
+        jdbcTemplate.batchUpdate("insert into oc_order_line (order_id, order_line_id, serial_number, parent_serial_number, trade_type_code, scene_type, cancel_tag, line_level) values (?, ?, ?, ?, ?, ?, ?, ?)", lines);
+        jdbcTemplate.batchUpdate("insert into oc_order_line_item (order_id, order_line_id, attr_code, attr_value, modify_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?)", items);
+        jdbcTemplate.update("insert into tf_f_user (user_id, serial_number, net_type_code, remove_tag, user_diff_code, parent_serial_number) values (?, ?, ?, ?, ?, ?)",
+                5000L, CITINET_GROUP, "CP", "0", "C001", CITINET_GROUP);
+    }
+
+    /**
+     * 用户中心桩：citinet 群组不传群组号码，返回 CITINET_GROUP 为主号码；否则返回 "P-" + 群组号码
+     */
+    private static UserCenterClient userCenterClient() {
+        return (snUserId, parentSerialNumber) -> {
+            if (String.valueOf(FAILING_MEMBER).equals(snUserId)) {
+                throw new IllegalStateException("user center unavailable");
+            }
+            UserRelationInfo info = new UserRelationInfo();
+            info.relation_type_code = "IDAP";
+            info.user_id_a = "5000";
+            info.user_id_b = snUserId;
+            info.primary_serial_number = parentSerialNumber == null ? CITINET_GROUP : "P-" + parentSerialNumber;
+            info.serial_number_b = "UC-" + snUserId;
+            info.call_sequence = "UC";
+            info.is_main_number = "UC";
+            info.start_date = LocalDateTime.of(2024, 1, 1, 0, 0);
+            return info;
+        };
+    }
+}
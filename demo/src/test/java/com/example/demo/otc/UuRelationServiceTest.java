@@ -0,0 +1,144 @@
+package com.example.demo.otc;
+
+import com.example.demo.otc.UuRelationService.UserCenterClient;
+import com.example.demo.otc.UuRelationService.UserRelationInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * UuRelationService 测试：单条台账两次查询 + 一次写入；整单批量生成与逐条生成结果一致，SQL 条数不随 DN 数增长
+ */
+class UuRelationServiceTest {
+
+    private static final long ORDER_ID = 2L;
+    private static final String PARENT_SERIAL_NUMBER = "GRP001";
+    private static final int DNS = 20;
+
+    private H2TestContext context;
+    private StatementCountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private UuRelationService service;
+
+    @BeforeEach
+    void setUp() {
+        context = H2TestContext.builder("uu_relation")
+                .mode("MySQL")
+                .bean(UserCenterClient.class, UuRelationServiceTest::userCenterClient)
+                .register(UuRelationService.class)
+                .start();
+        dataSource = context.dataSource();
+        jdbcTemplate = context.jdbcTemplate();
+        service = context.getBean(UuRelationService.class);
+        seed();
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void singleLedgerTakesTwoQueriesAndOneInsert() {
+        dataSource.reset();
+        UuRelationResponse resp = service.generateUuLedger(request(3));
+
+        assertThat(resp.success).isTrue();
+        assertThat(resp.ledger.serial_number_a).isEqualTo("NGRP001");
+        assertThat(resp.ledger.serial_number_b).isEqualTo("NSN3");
+        assertThat(resp.ledger.call_sequence).isEqualTo("3");
+        assertThat(resp.ledger.is_primary_number).isEqualTo("0");
+        assertThat(dataSource.getStatementCount("SELECT")).isEqualTo(2);
+        assertThat(dataSource.getStatementCount("INSERT")).isEqualTo(1);
+    }
+
+    @Test
+    void fallsBackToUserCenterWithoutSerialOrder() {
+        UuRelationRequest req = request(3);
+        req.serial_number = "UNKNOWN";
+
+        UuRelationResponse resp = service.generateUuLedger(req);
+
+        // 无本号码改号订单行：用户中心按群组号码查询，serial_number_b 取用户中心
+        assertThat(resp.ledger.serial_number_b).isEqualTo("UC-3-" + PARENT_SERIAL_NUMBER);
+        assertThat(resp.ledger.serial_number_a).isEqualTo("NGRP001");
+    }
+
+    @Test
+    void batchMatchesSingleLedgers() {
+        List<UuRelationRequest> reqs = new ArrayList<>();
+        for (int i = 1; i <= DNS; i++) {
+            reqs.add(request(i));
+        }
+        List<UuLedger> expected = new ArrayList<>();
+        for (UuRelationRequest req : reqs) {
+            expected.add(service.generateUuLedger(req).ledger);
+        }
+        jdbcTemplate.update("delete from oc_order_relation_uu");
+
+        dataSource.reset();
+        List<UuRelationResponse> responses = service.generateUuLedgers(ORDER_ID, reqs);
+
+        assertThat(responses).hasSize(DNS);
+        assertThat(responses).extracting(r -> r.ledger).usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(expected);
+        assertThat(dataSource.getStatementCount()).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("select count(1) from oc_order_relation_uu where order_id = ?", Integer.class, ORDER_ID))
+                .isEqualTo(DNS);
+    }
+
+    private static UuRelationRequest request(long lineId) {
+        UuRelationRequest req = new UuRelationRequest();
+        req.order_id = ORDER_ID;
+        req.order_line_id = lineId;
+        req.serial_number = "SN" + lineId;
+        req.parent_serial_number = PARENT_SERIAL_NUMBER;
+        req.sn_user_id = String.valueOf(lineId);
+        return req;
+    }
+
+    private void seed() {
+        Timestamp start = Timestamp.valueOf(LocalDateTime.of(2024, 1, 1, 0, 0));
+        Timestamp end = Timestamp.valueOf(LocalDateTime.of(2099, 12, 31, 23, 59, 59));
+        List<Object[]> lines = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        for (long i = 1; i <= DNS; i++) {
+            lines.add(new Object[]{ORDER_ID, i, "SN" + i, PARENT_SERIAL_NUMBER, "279", "0", 1});
+            items.add(new Object[]{ORDER_ID, i, "Call Sequence", String.valueOf(i), "0", start, end});
+            items.add(new Object[]{ORDER_ID, i, "Is Primary Number", i == 1 ? "1" : "0", "0", start, end});
+            items.add(new Object[]{ORDER_ID, i, "New Serial Number", "NSN" + i, "0", start, end});
+            // 已删除的属性不参与
+            items.add(new Object[]{ORDER_ID, i, "New Serial Number", "DELETED", "1", start, end});
+        }
+        long groupLineId = DNS + 1L;
+        lines.add(new Object[]{ORDER_ID, groupLineId, PARENT_SERIAL_NUMBER, null, "279", "0", 2});
+        items.add(new Object[]{ORDER_ID, groupLineId, "New Serial Number", "NGRP001", "0", start, end});
+        jdbcTemplate.batchUpdate("insert into oc_order_line (order_id, order_line_id, serial_number, parent_serial_number, trade_type_code, cancel_tag, line_level) values (?, ?, ?, ?, ?, ?, ?)", lines);
+        jdbcTemplate.batchUpdate("insert into oc_order_line_item (order_id, order_line_id, attr_code, attr_value, modify_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?)", items);
+    }
+
+    /**
+     * 用户中心桩：群组主号码为入参群组号码（未传时为 GRP001）
+     */
+    private static UserCenterClient userCenterClient() {
+        return (snUserId, parentSerialNumber) -> {
+            UserRelationInfo info = new UserRelationInfo();
+            info.relation_type_code = "IDAP";
+            info.user_id_a = "5000";
+            info.user_id_b = snUserId;
+            info.primary_serial_number = PARENT_SERIAL_NUMBER;
+            info.serial_number_b = "UC-" + snUserId + "-" + parentSerialNumber;
+            info.call_sequence = "UC";
+            info.is_main_number = "UC";
+            info.start_date = LocalDateTime.of(2024, 1, 1, 0, 0);
+            return info;
+        };
+    }
+}
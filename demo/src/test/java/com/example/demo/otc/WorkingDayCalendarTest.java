@@ -0,0 +1,133 @@
+package com.example.demo.otc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * WorkingDayCalendar：周末与 hk_public_holidays 为非工作日，“加 N 个工作日”与逐日累加一致（含超出日历范围），
+ * refresh() 与后台定时刷新读入新假期，刷新失败保留上一版日历
+ */
+class WorkingDayCalendarTest {
+
+    private static final List<LocalDate> HOLIDAYS = List.of(
+            LocalDate.of(2024, 12, 25), LocalDate.of(2024, 12, 26), LocalDate.of(2025, 1, 1));
+
+    private H2TestContext context;
+    private JdbcTemplate jdbcTemplate;
+    private WorkingDayCalendar calendar;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void skipsWeekendsAndPublicHolidays() {
+        start(0);
+
+        assertThat(calendar.isWorkingDay(LocalDate.of(2024, 12, 24))).isTrue();
+        assertThat(calendar.isWorkingDay(LocalDate.of(2024, 12, 25))).isFalse();
+        assertThat(calendar.isWorkingDay(LocalDate.of(2024, 12, 28))).isFalse();
+        // 周二 + 1：跳过圣诞两天假期
+        assertThat(calendar.addWorkingDays(LocalDate.of(2024, 12, 24), 1)).isEqualTo(LocalDate.of(2024, 12, 27));
+        assertThat(calendar.addWorkingDays(LocalDate.of(2024, 12, 24), 2)).isEqualTo(LocalDate.of(2024, 12, 30));
+        assertThat(calendar.addWorkingDays(LocalDate.of(2024, 12, 24), 4)).isEqualTo(LocalDate.of(2025, 1, 2));
+        // 从非工作日起算
+        assertThat(calendar.addWorkingDays(LocalDate.of(2024, 12, 28), 1)).isEqualTo(LocalDate.of(2024, 12, 30));
+        assertThat(calendar.addWorkingDays(LocalDate.of(2024, 12, 25), 0)).isEqualTo(LocalDate.of(2024, 12, 25));
+    }
+
+    @Test
+    void addWorkingDaysMatchesDayByDayCount() {
+        start(0);
+        Set<LocalDate> holidays = new HashSet<>(HOLIDAYS);
+
+        for (LocalDate date = LocalDate.of(2024, 12, 1); date.isBefore(LocalDate.of(2025, 2, 1)); date = date.plusDays(1)) {
+            for (int n = 1; n <= 10; n++) {
+                assertThat(calendar.addWorkingDays(date, n)).as("%s + %d", date, n).isEqualTo(addDayByDay(date, n, holidays));
+            }
+        }
+        // 跨出日历范围、完全在范围之外：只按周末计
+        LocalDate start = LocalDate.of(2024, 12, 24);
+        assertThat(calendar.addWorkingDays(start, 3000)).isEqualTo(addDayByDay(start, 3000, holidays));
+        LocalDate farAway = LocalDate.of(2200, 6, 1);
+        assertThat(calendar.addWorkingDays(farAway, 7)).isEqualTo(addDayByDay(farAway, 7, holidays));
+        assertThat(calendar.isWorkingDay(farAway)).isEqualTo(!isWeekend(farAway));
+    }
+
+    @Test
+    void refreshPicksUpNewHolidaysAndKeepsPreviousOnFailure() {
+        start(0);
+        LocalDate friday = LocalDate.of(2024, 12, 27);
+        assertThat(calendar.addWorkingDays(LocalDate.of(2024, 12, 24), 1)).isEqualTo(friday);
+
+        insertHoliday(friday);
+        assertThat(calendar.isWorkingDay(friday)).isTrue();
+        calendar.refresh();
+        assertThat(calendar.isWorkingDay(friday)).isFalse();
+        assertThat(calendar.addWorkingDays(LocalDate.of(2024, 12, 24), 1)).isEqualTo(LocalDate.of(2024, 12, 30));
+
+        jdbcTemplate.execute("drop table hk_public_holidays");
+        assertThatThrownBy(calendar::refresh).isInstanceOf(RuntimeException.class);
+        assertThat(calendar.isWorkingDay(friday)).isFalse();
+    }
+
+    @Test
+    void refreshesInBackground() throws InterruptedException {
+        start(1);
+        LocalDate friday = LocalDate.of(2024, 12, 27);
+        insertHoliday(friday);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (calendar.isWorkingDay(friday) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(calendar.isWorkingDay(friday)).isFalse();
+    }
+
+    private static LocalDate addDayByDay(LocalDate date, int n, Set<LocalDate> holidays) {
+        LocalDate day = date;
+        int added = 0;
+        while (added < n) {
+            day = day.plusDays(1);
+            if (!isWeekend(day) && !holidays.contains(day)) {
+                added++;
+            }
+        }
+        return day;
+    }
+
+    private static boolean isWeekend(LocalDate date) {
+        return date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+    }
+
+    private void insertHoliday(LocalDate date) {
+        jdbcTemplate.update("insert into hk_public_holidays (holiday_date) values (?)", Date.valueOf(date));
+    }
+
+    private void start(long refreshSeconds) {
+        context = H2TestContext.builder("working_day_calendar")
+                .property("otc.calendar.refresh-seconds", refreshSeconds)
+                .register(WorkingDayCalendar.class)
+                .start();
+        jdbcTemplate = context.jdbcTemplate();
+        for (LocalDate holiday : HOLIDAYS) {
+            insertHoliday(holiday);
+        }
+        calendar = context.getBean(WorkingDayCalendar.class);
+        calendar.refresh();
+    }
+}
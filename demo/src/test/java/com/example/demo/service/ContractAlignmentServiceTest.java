@@ -0,0 +1,183 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.OcOrderElementItem;
+import com.example.demo.mapper.ContractAlignmentMapper;
+import com.example.demo.otc.H2TestContext;
+import com.example.demo.otc.StatementCountingDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 合约对齐：主资费补齐属性与非主资费对齐属性整单分段多行插入，试算只返回计划行不写表；
+ * 标记 misaligned_with_main_contract 的产品跳过；直接取自属性值的日期原样写入，无法解析时不中止整单
+ */
+class ContractAlignmentServiceTest {
+
+    private static final String ORDER_ID = "O1";
+    private static final String ORDER_LINE_ID = "L1";
+    private static final String SRD = "2025-06-01 10:00:00";
+    private static final String FAR_END = "2099-12-31 23:59:59";
+    private static final int NON_MAIN_ELEMENTS = 50;
+
+    private H2TestContext context;
+    private StatementCountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    void dryRunReturnsPlannedRowsWithoutWriting() {
+        start(500);
+        seed();
+        int before = itemCount();
+
+        List<OcOrderElementItem> plan = context.getBean(ContractAlignmentService.class)
+                .planNonMainContractAlignment(ORDER_ID, ORDER_LINE_ID, SRD);
+
+        // 主资费补齐 4 个属性，每个非主资费复制 7 个合约属性；P2 被标签跳过
+        assertThat(plan).hasSize(4 + NON_MAIN_ELEMENTS * 7);
+        assertThat(plan).allMatch(r -> r.getElementId().startsWith("P1_"));
+        assertThat(plan.subList(0, 4)).extracting(OcOrderElementItem::getAttrCode, OcOrderElementItem::getAttrValue)
+                .containsExactly(
+                        tuple("uat_end_date", "2025-06-11 23:59:59"),
+                        tuple("uat_start_date", SRD),
+                        tuple("contract_start_date", "2025-06-12 00:00:00"),
+                        tuple("contract_end_date_std", "2026-06-12 00:00:00"));
+        assertThat(plan).filteredOn(r -> "P1_E1".equals(r.getElementId()))
+                .extracting(OcOrderElementItem::getAttrCode)
+                .containsExactlyInAnyOrder("uat_period", "uat_period_method", "contract_period",
+                        "uat_end_date", "uat_start_date", "contract_start_date", "contract_end_date_std");
+        assertThat(itemCount()).isEqualTo(before);
+        assertThat(dataSource.getStatementCount("INSERT")).isZero();
+    }
+
+    @Test
+    void alignWritesPlanWithOneMultiRowInsert() {
+        start(500);
+        seed();
+        int before = itemCount();
+        List<OcOrderElementItem> plan = context.getBean(ContractAlignmentService.class)
+                .planNonMainContractAlignment(ORDER_ID, ORDER_LINE_ID, SRD);
+        dataSource.reset();
+
+        context.getBean(ContractAlignmentService.class).alignNonMainContractWithMainUat(ORDER_ID, ORDER_LINE_ID, SRD);
+
+        assertThat(dataSource.getStatementCount("INSERT")).isEqualTo(1);
+        assertThat(itemCount()).isEqualTo(before + plan.size());
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from oc_order_element_item where element_id = 'P1_E7' and attr_code = 'contract_end_date_std'"
+                        + " and attr_value = '2026-06-12 00:00:00' and start_date = ? and end_date = ?",
+                Integer.class, SRD, FAR_END)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from oc_order_element_item where element_id like 'P2_%' and attr_code = 'uat_end_date'",
+                Integer.class)).isZero();
+    }
+
+    @Test
+    void attributeDatesAreWrittenAsIs() {
+        start(500);
+        seed();
+        // P1 主资费改为 uat_end_day（uat_period 非规范格式）与自定义合约结束日期
+        jdbcTemplate.update("update oc_order_element_item set attr_value = 'uat_end_day' where element_id = 'P1_E0' and attr_code = 'uat_period_method'");
+        jdbcTemplate.update("update oc_order_element_item set attr_value = '2025/07/01' where element_id = 'P1_E0' and attr_code = 'uat_period'");
+        jdbcTemplate.update("update oc_order_element_item set attr_value = '2027-01-01' where element_id = 'P1_E0' and attr_code = 'contract_period'");
+        jdbcTemplate.update("insert into oc_order_element_item (order_id, order_line_id, element_id, element_item_id, element_type_code,"
+                        + " attr_code, attr_value, modify_tag, start_date, end_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                ORDER_ID, ORDER_LINE_ID, "P1_E0", "P1_E0_I", "D", "pm_contract_period_type", "Customized_Contract_End_Date", "0", SRD, FAR_END);
+
+        List<OcOrderElementItem> plan = context.getBean(ContractAlignmentService.class)
+                .planNonMainContractAlignment(ORDER_ID, ORDER_LINE_ID, SRD);
+
+        // uat_end_date 无法解析：合约开始日期沿用原值
+        assertThat(plan.subList(0, 4)).extracting(OcOrderElementItem::getAttrCode, OcOrderElementItem::getAttrValue)
+                .containsExactly(
+                        tuple("uat_end_date", "2025/07/01"),
+                        tuple("uat_start_date", SRD),
+                        tuple("contract_start_date", "2025/07/01"),
+                        tuple("contract_end_date_std", "2027-01-01"));
+    }
+
+    @Test
+    void splitsInsertsByChunkSize() {
+        start(100);
+        seed();
+
+        context.getBean(ContractAlignmentService.class).alignNonMainContractWithMainUat(ORDER_ID, ORDER_LINE_ID, SRD);
+
+        // 354 行按 100 行一段
+        assertThat(dataSource.getStatementCount("INSERT")).isEqualTo(4);
+    }
+
+    private void start(int chunkSize) {
+        if (context != null) {
+            context.close();
+        }
+        context = H2TestContext.builder("contract_alignment")
+                .schema("service/contract-alignment-schema.sql")
+                .property("contract-alignment.insert-chunk-size", chunkSize)
+                .mappers(ContractAlignmentMapper.class)
+                .mapperXml("mapper/ContractAlignmentMapper.xml")
+                .bean(ProductTagClient.class, ContractAlignmentServiceTest::productTagClient)
+                .register(ContractAlignmentService.class)
+                .start();
+        dataSource = context.dataSource();
+        jdbcTemplate = context.jdbcTemplate();
+    }
+
+    /**
+     * 订单行上两个新增产品：P1 主资费 uat_days 10 天、标准合约期 12 个月，另有 50 个非主资费；
+     * P2 结构相同但产品标签 misaligned_with_main_contract=1
+     */
+    private void seed() {
+        List<Object[]> products = new ArrayList<>();
+        List<Object[]> elements = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        for (String productId : new String[]{"P1", "P2"}) {
+            products.add(new Object[]{ORDER_ID, ORDER_LINE_ID, productId, productId + "_I", "0", SRD, FAR_END});
+            for (int i = 0; i <= NON_MAIN_ELEMENTS; i++) {
+                String elementId = productId + "_E" + i;
+                elements.add(new Object[]{ORDER_ID, ORDER_LINE_ID, productId, productId + "_I", elementId, elementId + "_I",
+                        "D", i == 0 ? "1" : "0", "0", SRD, FAR_END});
+            }
+            String mainId = productId + "_E0";
+            items.add(new Object[]{ORDER_ID, ORDER_LINE_ID, mainId, mainId + "_I", "D", "uat_period", "10", "0", SRD, FAR_END});
+            items.add(new Object[]{ORDER_ID, ORDER_LINE_ID, mainId, mainId + "_I", "D", "uat_period_method", "uat_days", "0", SRD, FAR_END});
+            items.add(new Object[]{ORDER_ID, ORDER_LINE_ID, mainId, mainId + "_I", "D", "contract_period", "12", "0", SRD, FAR_END});
+        }
+        jdbcTemplate.batchUpdate("insert into oc_order_product (order_id, order_line_id, product_id, prod_item_id, modify_tag,"
+                + " start_date, end_date) values (?, ?, ?, ?, ?, ?, ?)", products);
+        jdbcTemplate.batchUpdate("insert into oc_order_product_element (order_id, order_line_id, product_id, prod_item_id,"
+                + " element_id, element_item_id, element_type_code, is_main_element, modify_tag, start_date, end_date)"
+                + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", elements);
+        jdbcTemplate.batchUpdate("insert into oc_order_element_item (order_id, order_line_id, element_id, element_item_id,"
+                + " element_type_code, attr_code, attr_value, modify_tag, start_date, end_date)"
+                + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", items);
+        dataSource.reset();
+    }
+
+    private int itemCount() {
+        return jdbcTemplate.queryForObject("select count(*) from oc_order_element_item", Integer.class);
+    }
+
+    // 产品中心桩：P2 标记为不与主资费合约对齐
+    private static ProductTagClient productTagClient() {
+        return new ProductTagClient(new RestTemplate(), "http://127.0.0.1:1", 100, 0, 0, 0, 1, 1) {
+            @Override
+            public Map<String, String> getLabels(Collection<String> productIds, String labelKey) {
+                return productIds.contains("P2") ? Map.of("P2", "1") : Map.of();
+            }
+        };
+    }
+}
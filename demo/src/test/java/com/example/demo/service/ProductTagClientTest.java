@@ -0,0 +1,307 @@
+package com.example.demo.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ProductTagClient 对本地桩产品中心的批量查询：未命中合并为一次请求、TTL / 无标签 TTL 过期重取、
+ * 并发同一产品只发一次请求、超时 / 失败时沿用保留期内的过期缓存值（没有则抛出）、没有批量接口时改为逐个产品查询、
+ * 缓存条数上限与超过保留期条目的清除
+ */
+class ProductTagClientTest {
+
+    private static final String LABEL = "misaligned_with_main_contract";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ProductTagClient client;
+    // 桩服务：productId -> labelValue、每次批量请求的 productIds 参数、每次单产品请求的 productId、响应延迟与状态码
+    private final Map<String, String> labels = new ConcurrentHashMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> singleRequests = new CopyOnWriteArrayList<>();
+    private volatile long delayMs;
+    private volatile int status = 200;
+    private volatile boolean batchEndpoint = true;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/product/labels", this::handle);
+        server.createContext("/api/product/label", this::handleSingle);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        if (client != null) {
+            client.shutdown();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void batchesMissesIntoOneRequestAndCachesResults() {
+        client = client(2000, 60_000);
+        labels.put("P1", "1");
+        labels.put("P2", "0");
+
+        Map<String, String> result = client.getLabels(Arrays.asList("P1", "P2", "P3", "P1"), LABEL);
+
+        assertThat(result).containsOnly(Map.entry("P1", "1"), Map.entry("P2", "0"));
+        assertThat(requests).containsExactly("P1,P2,P3");
+
+        // 有标签与无标签的结果都命中缓存
+        assertThat(client.getLabels(Arrays.asList("P1", "P2", "P3"), LABEL)).isEqualTo(result);
+        assertThat(client.getLabel("P3", LABEL)).isNull();
+        assertThat(requests).hasSize(1);
+
+        // 只有未命中的产品进入下一次请求
+        client.getLabels(Arrays.asList("P1", "P4"), LABEL);
+        assertThat(requests).containsExactly("P1,P2,P3", "P4");
+    }
+
+    @Test
+    void refetchesAfterTtlAndEvict() throws InterruptedException {
+        client = client(2000, 50);
+        labels.put("P1", "0");
+        assertThat(client.getLabel("P1", LABEL)).isEqualTo("0");
+
+        labels.put("P1", "1");
+        assertThat(client.getLabel("P1", LABEL)).isEqualTo("0");
+        Thread.sleep(100);
+        assertThat(client.getLabel("P1", LABEL)).isEqualTo("1");
+        assertThat(requests).hasSize(2);
+
+        client = client(2000, 60_000);
+        client.getLabel("P1", LABEL);
+        client.evict("P1");
+        client.getLabel("P1", LABEL);
+        assertThat(requests).hasSize(4);
+    }
+
+    @Test
+    void negativeResultsExpireAfterNegativeTtl() throws InterruptedException {
+        client = client(2000, 60_000, 50, 60_000, 1000);
+        labels.put("P1", "1");
+        assertThat(client.getLabels(Arrays.asList("P1", "P2"), LABEL)).containsOnly(Map.entry("P1", "1"));
+
+        labels.put("P2", "1");
+        assertThat(client.getLabel("P2", LABEL)).isNull();
+        Thread.sleep(100);
+
+        // 只有无标签的 P2 过期重取，P1 仍命中缓存
+        assertThat(client.getLabels(Arrays.asList("P1", "P2"), LABEL))
+                .containsOnly(Map.entry("P1", "1"), Map.entry("P2", "1"));
+        assertThat(requests).containsExactly("P1,P2", "P2");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesBeyondMaxEntries() {
+        client = client(2000, 60_000, 60_000, 60_000, 2);
+        labels.put("P1", "1");
+        client.getLabel("P1", LABEL);
+        client.getLabel("P2", LABEL);
+        client.getLabel("P1", LABEL);
+        client.getLabel("P3", LABEL);
+
+        // P2 最久未访问，被淘汰
+        assertThat(client.cacheSize()).isEqualTo(2);
+        client.getLabel("P1", LABEL);
+        client.getLabel("P2", LABEL);
+        assertThat(requests).containsExactly("P1", "P2", "P3", "P2");
+    }
+
+    @Test
+    void sweepsEntriesPastStaleRetention() throws InterruptedException {
+        client = client(2000, 50, 50, 50, 1000);
+        labels.put("P1", "1");
+        client.getLabels(Arrays.asList("P1", "P2"), LABEL);
+        assertThat(client.cacheSize()).isEqualTo(2);
+        Thread.sleep(150);
+
+        // 过期超过保留期的值不再沿用
+        status = 500;
+        assertThatThrownBy(() -> client.getLabel("P1", LABEL)).isInstanceOf(IllegalStateException.class);
+
+        // 下一次写缓存时清除
+        status = 200;
+        client.getLabel("P3", LABEL);
+        assertThat(client.cacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentCallersShareOneInFlightRequest() throws Exception {
+        client = client(5000, 60_000);
+        labels.put("P1", "1");
+        delayMs = 300;
+
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return client.getLabel("P1", LABEL);
+                }));
+            }
+            start.countDown();
+            for (Future<String> f : results) {
+                assertThat(f.get(5, TimeUnit.SECONDS)).isEqualTo("1");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(requests).containsExactly("P1");
+    }
+
+    @Test
+    void fallsBackToStaleValueOnTimeout() throws InterruptedException {
+        client = client(200, 50);
+        labels.put("P1", "1");
+        assertThat(client.getLabel("P1", LABEL)).isEqualTo("1");
+        Thread.sleep(100);
+
+        delayMs = 1000;
+        long begin = System.nanoTime();
+        Map<String, String> result = client.getLabels(Collections.singletonList("P1"), LABEL);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        // 过期值沿用，调用方不等到桩服务响应
+        assertThat(result).containsOnly(Map.entry("P1", "1"));
+        assertThat(elapsedMs).isLessThan(900);
+
+        // 无缓存的产品不当作无标签
+        assertThatThrownBy(() -> client.getLabels(Arrays.asList("P1", "P2"), LABEL))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("P2");
+    }
+
+    @Test
+    void fallsBackToStaleValueOnServerError() throws InterruptedException {
+        client = client(2000, 50);
+        labels.put("P1", "1");
+        client.getLabel("P1", LABEL);
+        Thread.sleep(100);
+
+        status = 500;
+        assertThat(client.getLabel("P1", LABEL)).isEqualTo("1");
+        assertThatThrownBy(() -> client.getLabel("P2", LABEL)).isInstanceOf(IllegalStateException.class);
+
+        // 失败结果不入缓存，恢复后重新请求
+        status = 200;
+        labels.put("P2", "1");
+        assertThat(client.getLabel("P2", LABEL)).isEqualTo("1");
+    }
+
+    @Test
+    void fallsBackToSingleProductEndpointWithoutBatchEndpoint() {
+        client = client(2000, 60_000);
+        batchEndpoint = false;
+        labels.put("P1", "1");
+        labels.put("P3", "0");
+
+        assertThat(client.getLabels(Arrays.asList("P1", "P2", "P3"), LABEL))
+                .containsOnly(Map.entry("P1", "1"), Map.entry("P3", "0"));
+        assertThat(requests).containsExactly("P1,P2,P3");
+        assertThat(singleRequests).containsExactlyInAnyOrder("P1", "P2", "P3");
+
+        // 结果同样缓存；之后直接走单产品接口
+        assertThat(client.getLabel("P2", LABEL)).isNull();
+        client.getLabel("P4", LABEL);
+        assertThat(requests).hasSize(1);
+        assertThat(singleRequests).hasSize(4).contains("P4");
+    }
+
+    private ProductTagClient client(long timeoutMs, long ttlMs) {
+        return client(timeoutMs, ttlMs, ttlMs, 60_000, 1000);
+    }
+
+    private ProductTagClient client(long timeoutMs, long ttlMs, long negativeTtlMs, long staleMs, int maxEntries) {
+        if (client != null) {
+            client.shutdown();
+        }
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new ProductTagClient(new RestTemplate(), baseUrl, timeoutMs, ttlMs, negativeTtlMs, staleMs, maxEntries, 2);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String productIds = "";
+        String labelKey = null;
+        for (String param : exchange.getRequestURI().getQuery().split("&")) {
+            String[] kv = param.split("=", 2);
+            if ("productIds".equals(kv[0])) productIds = kv[1];
+            if ("labelKey".equals(kv[0])) labelKey = kv[1];
+        }
+        requests.add(productIds);
+        if (!batchEndpoint) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        delay();
+
+        StringBuilder json = new StringBuilder("{");
+        if (LABEL.equals(labelKey)) {
+            for (String productId : productIds.split(",")) {
+                String value = labels.get(productId);
+                if (value != null) {
+                    if (json.length() > 1) json.append(',');
+                    json.append('"').append(productId).append("\":\"").append(value).append('"');
+                }
+            }
+        }
+        respond(exchange, json.append('}').toString());
+    }
+
+    private void handleSingle(HttpExchange exchange) throws IOException {
+        String productId = null;
+        String labelKey = null;
+        for (String param : exchange.getRequestURI().getQuery().split("&")) {
+            String[] kv = param.split("=", 2);
+            if ("productId".equals(kv[0])) productId = kv[1];
+            if ("labelKey".equals(kv[0])) labelKey = kv[1];
+        }
+        singleRequests.add(productId);
+        delay();
+        String value = LABEL.equals(labelKey) ? labels.get(productId) : null;
+        respond(exchange, value == null ? "{}" : "{\"labelValue\":\"" + value + "\"}");
+    }
+
+    private void delay() {
+        try {
+            if (delayMs > 0) {
+                Thread.sleep(delayMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+-- OTC 计费回归测试用表结构（H2 MySQL 兼容模式）
+CREATE TABLE IF NOT EXISTS oc_order_line (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT NOT NULL,
+    trade_type_code VARCHAR(20),
+    trace_type_code VARCHAR(20),
+    cancel_tag VARCHAR(2),
+    produce_order_state VARCHAR(2),
+    line_leve INT,
+    PRIMARY KEY (order_id, order_line_id)
+);
+
+CREATE TABLE IF NOT EXISTS oc_order_product (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    package_id BIGINT,
+    prod_item_id BIGINT NOT NULL,
+    product_type_code VARCHAR(32),
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS oc_order_product_element (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    prod_item_id BIGINT NOT NULL,
+    element_id BIGINT NOT NULL,
+    element_item_id BIGINT NOT NULL,
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS oc_order_element_item (
+    order_id BIGINT,
+    element_id BIGINT NOT NULL,
+    element_item_id BIGINT NOT NULL,
+    attr_code VARCHAR(64),
+    attr_value VARCHAR(256),
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
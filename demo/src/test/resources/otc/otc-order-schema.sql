@@ -0,0 +1,244 @@
+-- OTC 订单流程表结构（H2，MySQL / Oracle 兼容模式通用），供服务测试与 JMH 基准共用
+-- 只包含各服务实际读写的列；不设主键约束，避免回滚前重复执行时的冲突
+CREATE TABLE IF NOT EXISTS oc_order_line (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT NOT NULL,
+    serial_number VARCHAR(32),
+    parent_serial_number VARCHAR(32),
+    user_id BIGINT,
+    sn_user_id BIGINT,
+    sn_cust_id BIGINT,
+    cust_id BIGINT,
+    trade_type_code VARCHAR(20),
+    trace_type_code VARCHAR(20),
+    scene_type VARCHAR(20),
+    cancel_tag VARCHAR(2),
+    produce_order_state VARCHAR(2),
+    order_node_state VARCHAR(4),
+    line_level INT,
+    line_leve INT,
+    net_type_code VARCHAR(8),
+    main_product_id VARCHAR(32),
+    main_product_name VARCHAR(64),
+    main_product_type VARCHAR(32),
+    product_family VARCHAR(32),
+    srd TIMESTAMP,
+    remark VARCHAR(256),
+    order_state VARCHAR(16)
+);
+CREATE INDEX IF NOT EXISTS idx_oc_order_line_id ON oc_order_line (order_id, order_line_id);
+CREATE INDEX IF NOT EXISTS idx_oc_order_line_user ON oc_order_line (user_id);
+CREATE INDEX IF NOT EXISTS idx_oc_order_line_sn_user ON oc_order_line (order_id, sn_user_id);
+
+CREATE TABLE IF NOT EXISTS oc_order_line_item (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT,
+    attr_code VARCHAR(64),
+    attr_value VARCHAR(256),
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_oc_order_line_item ON oc_order_line_item (order_id, order_line_id, attr_code);
+
+CREATE TABLE IF NOT EXISTS oc_order_item (
+    order_id BIGINT NOT NULL,
+    order_item_id BIGINT,
+    attr_code VARCHAR(64),
+    attr_value VARCHAR(256),
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS oc_order_product (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT NOT NULL,
+    product_id BIGINT,
+    package_id BIGINT,
+    prod_item_id BIGINT NOT NULL,
+    product_type_code VARCHAR(32),
+    product_mode VARCHAR(8),
+    user_id BIGINT,
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_oc_order_product ON oc_order_product (order_id, order_line_id);
+
+CREATE TABLE IF NOT EXISTS oc_order_product_item (
+    order_id BIGINT NOT NULL,
+    prod_item_id BIGINT NOT NULL,
+    attr_code VARCHAR(64),
+    attr_value VARCHAR(256),
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_oc_order_product_item ON oc_order_product_item (order_id, prod_item_id);
+
+CREATE TABLE IF NOT EXISTS oc_order_product_element (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    prod_item_id BIGINT NOT NULL,
+    element_id BIGINT NOT NULL,
+    element_item_id BIGINT NOT NULL,
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_oc_order_product_element ON oc_order_product_element (order_id, order_line_id);
+
+CREATE TABLE IF NOT EXISTS oc_order_element (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT NOT NULL,
+    element_item_id BIGINT NOT NULL,
+    prod_item_id BIGINT,
+    element_id BIGINT,
+    element_type VARCHAR(8),
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_oc_order_element ON oc_order_element (order_id, order_line_id, prod_item_id);
+
+CREATE TABLE IF NOT EXISTS oc_order_element_item (
+    order_id BIGINT,
+    element_id BIGINT,
+    element_item_id BIGINT NOT NULL,
+    attr_code VARCHAR(64),
+    attr_value VARCHAR(256),
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_oc_order_element_item ON oc_order_element_item (element_id, element_item_id);
+CREATE INDEX IF NOT EXISTS idx_oc_order_element_item_order ON oc_order_element_item (order_id, element_item_id);
+
+CREATE TABLE IF NOT EXISTS oc_order_payrelation (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT NOT NULL,
+    account_id BIGINT,
+    user_id BIGINT,
+    trade_type_code VARCHAR(20),
+    modify_tag VARCHAR(2)
+);
+CREATE INDEX IF NOT EXISTS idx_oc_order_payrelation ON oc_order_payrelation (order_id, order_line_id);
+CREATE INDEX IF NOT EXISTS idx_oc_order_payrelation_acct ON oc_order_payrelation (account_id);
+
+CREATE TABLE IF NOT EXISTS oc_order_relation_uu (
+    order_id BIGINT,
+    order_line_id BIGINT,
+    relation_type_code VARCHAR(20),
+    user_id_a VARCHAR(32),
+    user_id_b VARCHAR(32),
+    serial_number_a VARCHAR(32),
+    serial_number_b VARCHAR(32),
+    call_sequence VARCHAR(16),
+    is_primary_number VARCHAR(4),
+    modify_tag INT,
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS tf_f_user (
+    user_id BIGINT NOT NULL,
+    serial_number VARCHAR(32),
+    net_type_code VARCHAR(8),
+    remove_tag VARCHAR(2),
+    user_diff_code VARCHAR(16),
+    parent_serial_number VARCHAR(32),
+    cust_id BIGINT,
+    product_id VARCHAR(32),
+    main_product_id VARCHAR(32),
+    brand_code VARCHAR(16)
+);
+CREATE INDEX IF NOT EXISTS idx_tf_f_user ON tf_f_user (user_id);
+
+CREATE TABLE IF NOT EXISTS tf_f_payrelation (
+    user_id BIGINT NOT NULL,
+    account_id BIGINT NOT NULL,
+    price_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_tf_f_payrelation_acct ON tf_f_payrelation (account_id);
+CREATE INDEX IF NOT EXISTS idx_tf_f_payrelation_user ON tf_f_payrelation (user_id);
+
+CREATE TABLE IF NOT EXISTS tf_f_user_svcstate (
+    user_id BIGINT NOT NULL,
+    service_id VARCHAR(32),
+    service_state_code VARCHAR(4),
+    main_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_tf_f_user_svcstate ON tf_f_user_svcstate (user_id);
+
+CREATE TABLE IF NOT EXISTS oc_order_num_svcstate (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT,
+    serial_number VARCHAR(32),
+    user_id BIGINT,
+    service_id VARCHAR(32),
+    service_state_code VARCHAR(4),
+    main_tag VARCHAR(2),
+    modify_tag VARCHAR(2),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_oc_order_num_svcstate ON oc_order_num_svcstate (order_id, order_line_id);
+
+CREATE TABLE IF NOT EXISTS tf_f_user_relation (
+    user_id BIGINT,
+    user_id_a BIGINT,
+    user_id_b BIGINT,
+    serial_number_a VARCHAR(32),
+    serial_number_b VARCHAR(32),
+    relation_type_code VARCHAR(20),
+    role_code_a VARCHAR(8),
+    role_code_b VARCHAR(8),
+    order_no INT,
+    short_code VARCHAR(16),
+    rsrv_value VARCHAR(32),
+    rsrv_value_code VARCHAR(32),
+    start_date TIMESTAMP,
+    end_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_tf_f_user_relation_user ON tf_f_user_relation (user_id);
+CREATE INDEX IF NOT EXISTS idx_tf_f_user_relation_a ON tf_f_user_relation (user_id_a);
+
+CREATE TABLE IF NOT EXISTS tf_b_trade_fulfill_action (
+    order_id BIGINT NOT NULL,
+    order_line_id BIGINT NOT NULL,
+    action_id VARCHAR(32)
+);
+
+CREATE TABLE IF NOT EXISTS hk_public_holidays (
+    holiday_date DATE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS id_segment (
+    biz_tag VARCHAR(64) PRIMARY KEY,
+    max_id BIGINT NOT NULL,
+    step INT NOT NULL,
+    update_time TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS tf_f_account (
+    account_id BIGINT NOT NULL,
+    account_status INT,
+    create_date TIMESTAMP,
+    status_date TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_tf_f_account ON tf_f_account (account_status, account_id);
+
+CREATE TABLE IF NOT EXISTS batch_job_checkpoint (
+    job_name VARCHAR(64) PRIMARY KEY,
+    last_account_id BIGINT NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    processed_count BIGINT,
+    frozen_count BIGINT,
+    update_time TIMESTAMP
+);
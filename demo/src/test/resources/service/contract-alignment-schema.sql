@@ -0,0 +1,38 @@
+-- 合约对齐表结构（H2），供 ContractAlignmentServiceTest 使用
+-- 只包含 ContractAlignmentMapper 读写的列；时间列与实体一致按 yyyy-MM-dd HH:mm:ss 文本存放
+CREATE TABLE IF NOT EXISTS oc_order_product (
+    order_id VARCHAR(32) NOT NULL,
+    order_line_id VARCHAR(32) NOT NULL,
+    product_id VARCHAR(32),
+    prod_item_id VARCHAR(32),
+    modify_tag VARCHAR(2),
+    start_date VARCHAR(19),
+    end_date VARCHAR(19)
+);
+
+CREATE TABLE IF NOT EXISTS oc_order_product_element (
+    order_id VARCHAR(32) NOT NULL,
+    order_line_id VARCHAR(32) NOT NULL,
+    product_id VARCHAR(32),
+    prod_item_id VARCHAR(32),
+    element_id VARCHAR(32),
+    element_item_id VARCHAR(32),
+    element_type_code VARCHAR(2),
+    is_main_element VARCHAR(1),
+    modify_tag VARCHAR(2),
+    start_date VARCHAR(19),
+    end_date VARCHAR(19)
+);
+
+CREATE TABLE IF NOT EXISTS oc_order_element_item (
+    order_id VARCHAR(32) NOT NULL,
+    order_line_id VARCHAR(32) NOT NULL,
+    element_id VARCHAR(32),
+    element_item_id VARCHAR(32),
+    element_type_code VARCHAR(2),
+    attr_code VARCHAR(64),
+    attr_value VARCHAR(256),
+    modify_tag VARCHAR(2),
+    start_date VARCHAR(19),
+    end_date VARCHAR(19)
+);